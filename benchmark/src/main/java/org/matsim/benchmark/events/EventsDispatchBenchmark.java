@@ -0,0 +1,155 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsDispatchBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.events;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.EventsDispatchMode;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the reflective and the generated dispatch of {@link EventsManagerImpl}, both for an
+ * event type that is handled by the hard-coded fast path ({@link LinkEnterEvent}) and for a custom
+ * event type like the ones used in contribs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class EventsDispatchBenchmark {
+
+	private static final int EVENTS_PER_INVOCATION = 1000;
+
+	@Param({"reflective", "generated"})
+	public EventsDispatchMode dispatchMode;
+
+	private EventsManagerImpl events;
+	private Event[] customEvents;
+	private Event[] linkEnterEvents;
+
+	@Setup
+	public void setup() {
+		Logger.getLogger(EventsManagerImpl.class).setLevel(Level.WARN);
+		this.events = new EventsManagerImpl(this.dispatchMode);
+		this.events.addHandler(new CountingCustomEventHandler());
+		this.events.addHandler(new CountingLinkEnterEventHandler());
+
+		this.customEvents = new Event[EVENTS_PER_INVOCATION];
+		this.linkEnterEvents = new Event[EVENTS_PER_INVOCATION];
+		for (int i = 0; i < EVENTS_PER_INVOCATION; i++) {
+			this.customEvents[i] = new CustomEvent(i);
+			this.linkEnterEvents[i] = new LinkEnterEvent(i, Id.create(i % 10, Vehicle.class), Id.create(i % 100, Link.class));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS_PER_INVOCATION)
+	public void customEvents(Blackhole bh) {
+		for (Event e : this.customEvents) {
+			this.events.processEvent(e);
+		}
+		bh.consume(this.events);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS_PER_INVOCATION)
+	public void linkEnterEvents(Blackhole bh) {
+		for (Event e : this.linkEnterEvents) {
+			this.events.processEvent(e);
+		}
+		bh.consume(this.events);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(EventsDispatchBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	public static class CustomEvent extends Event {
+		public CustomEvent(final double time) {
+			super(time);
+		}
+
+		@Override
+		public String getEventType() {
+			return "custom";
+		}
+	}
+
+	public interface CustomEventHandler extends EventHandler {
+		void handleEvent(CustomEvent event);
+	}
+
+	private static class CountingCustomEventHandler implements CustomEventHandler {
+		private long counter = 0;
+
+		@Override
+		public void handleEvent(final CustomEvent event) {
+			this.counter++;
+		}
+
+		@Override
+		public void reset(final int iteration) {
+			this.counter = 0;
+		}
+	}
+
+	private static class CountingLinkEnterEventHandler implements LinkEnterEventHandler {
+		private long counter = 0;
+
+		@Override
+		public void handleEvent(final LinkEnterEvent event) {
+			this.counter++;
+		}
+
+		@Override
+		public void reset(final int iteration) {
+			this.counter = 0;
+		}
+	}
+
+}
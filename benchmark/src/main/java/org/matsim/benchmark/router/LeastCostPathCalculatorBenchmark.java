@@ -0,0 +1,196 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.router;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.ContractionHierarchiesFactory;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.FastAStarLandmarksFactory;
+import org.matsim.core.router.FastDijkstraFactory;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.speedy.SpeedyDijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the time per route of the least cost path calculators on a grid network with randomly distorted nodes and
+ * link lengths. The preprocessing of the landmarks and the contraction hierarchy is not part of the measurement, but
+ * the customization of the contraction hierarchy for the time bins of the queries is.
+ * <p></p>
+ * During the setup, the heap memory needed by the routers for {@link #ROUTERS_PER_NETWORK} threads is printed, as this
+ * is what a replanning with that many threads keeps in memory. Run with <code>-prof gc</code> to compare the allocation
+ * rate during routing as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class LeastCostPathCalculatorBenchmark {
+
+	private static final int QUERIES_PER_INVOCATION = 100;
+	private static final int ROUTERS_PER_NETWORK = 8;
+
+	public enum Algorithm { Dijkstra, FastDijkstra, FastAStarLandmarks, ContractionHierarchies, SpeedyDijkstra }
+
+	// 600x600 nodes are about the size of the network of a metropolitan area
+	@Param({"100", "300", "600"})
+	public int gridSize;
+
+	@Param({"Dijkstra", "FastDijkstra", "FastAStarLandmarks", "ContractionHierarchies", "SpeedyDijkstra"})
+	public Algorithm algorithm;
+
+	private LeastCostPathCalculator router;
+	private Node[] fromNodes;
+	private Node[] toNodes;
+	private double[] departureTimes;
+	private int nextQuery = 0;
+
+	@Setup
+	public void setup() {
+		Logger.getRootLogger().setLevel(Level.WARN);
+		Random random = new Random(4711);
+		Network network = createGrid(this.gridSize, random);
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(-6.0 / 3600, 6.0 / 3600, 0.0);
+		LeastCostPathCalculatorFactory factory;
+		switch (this.algorithm) {
+			case Dijkstra:
+				factory = new DijkstraFactory();
+				break;
+			case FastDijkstra:
+				factory = new FastDijkstraFactory();
+				break;
+			case FastAStarLandmarks:
+				factory = new FastAStarLandmarksFactory(1);
+				break;
+			case ContractionHierarchies:
+				factory = new ContractionHierarchiesFactory();
+				break;
+			case SpeedyDijkstra:
+				factory = new SpeedyDijkstraFactory();
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown algorithm: " + this.algorithm);
+		}
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+
+		long usedBefore = usedMemory();
+		LeastCostPathCalculator[] routers = new LeastCostPathCalculator[ROUTERS_PER_NETWORK];
+		for (int i = 0; i < routers.length; i++) {
+			routers[i] = factory.createPathCalculator(network, freespeed, freespeed);
+			// some routers only initialize their data with the first query
+			routers[i].calcLeastCostPath(nodes[0], nodes[nodes.length - 1], 8 * 3600, null, null);
+		}
+		long usedAfter = usedMemory();
+		System.out.println(this.algorithm + " on " + nodes.length + " nodes: " + ((usedAfter - usedBefore) >> 20)
+				+ " MB for " + ROUTERS_PER_NETWORK + " routers.");
+		this.router = routers[0];
+
+		int numberOfQueries = 10000;
+		this.fromNodes = new Node[numberOfQueries];
+		this.toNodes = new Node[numberOfQueries];
+		this.departureTimes = new double[numberOfQueries];
+		for (int i = 0; i < numberOfQueries; i++) {
+			this.fromNodes[i] = nodes[random.nextInt(nodes.length)];
+			this.toNodes[i] = nodes[random.nextInt(nodes.length)];
+			this.departureTimes[i] = 6 * 3600 + random.nextInt(12 * 3600);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES_PER_INVOCATION)
+	public void calcLeastCostPath(final Blackhole blackhole) {
+		for (int i = 0; i < QUERIES_PER_INVOCATION; i++) {
+			int query = this.nextQuery;
+			this.nextQuery = (query + 1) % this.fromNodes.length;
+			blackhole.consume(this.router.calcLeastCostPath(this.fromNodes[query], this.toNodes[query],
+					this.departureTimes[query], null, null));
+		}
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static Network createGrid(final int size, final Random random) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				Coord coord = new Coord(x * 100 + random.nextDouble() * 50, y * 100 + random.nextDouble() * 50);
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), coord);
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				for (int direction = 0; direction < 2; direction++) {
+					int x2 = direction == 0 ? x + 1 : x;
+					int y2 = direction == 0 ? y : y + 1;
+					if (x2 == size || y2 == size) {
+						continue;
+					}
+					double length = 100 + random.nextDouble() * 100;
+					// every tenth street is an arterial road
+					double freespeed = (x % 10 == 0 || y % 10 == 0) ? 22.2 : 8.3;
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y], nodes[x2][y2], length, freespeed, 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x2][y2], nodes[x][y], length, freespeed, 1000, 1);
+				}
+			}
+		}
+		return network;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(LeastCostPathCalculatorBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
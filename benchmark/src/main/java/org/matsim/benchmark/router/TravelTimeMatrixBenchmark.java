@@ -0,0 +1,130 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.path.TravelTimeMatrix;
+import org.matsim.contrib.dvrp.path.TravelTimeMatrixCalculator;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the time to calculate a travel time matrix between randomly chosen nodes of a grid network, as needed for
+ * the zonal travel times in DVRP or for accessibility computations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class TravelTimeMatrixBenchmark {
+
+	@Param({"300", "600"})
+	public int gridSize;
+
+	// number of origins and destinations
+	@Param({"100", "1000", "5000"})
+	public int matrixSize;
+
+	@Param({"1", "4", "8"})
+	public int threads;
+
+	private TravelTimeMatrixCalculator calculator;
+	private List<Node> nodes;
+
+	@Setup
+	public void setup() {
+		Logger.getRootLogger().setLevel(Level.WARN);
+		Random random = new Random(4711);
+		Network network = createGrid(this.gridSize, random);
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(-6.0 / 3600, 6.0 / 3600, 0.0);
+		this.calculator = new TravelTimeMatrixCalculator(network, freespeed, freespeed, this.threads);
+
+		List<Node> allNodes = new ArrayList<>(network.getNodes().values());
+		Collections.shuffle(allNodes, random);
+		this.nodes = allNodes.subList(0, this.matrixSize);
+	}
+
+	@Benchmark
+	public TravelTimeMatrix<Node> calcMatrix() {
+		return this.calculator.calcNodeMatrix(this.nodes, this.nodes, 8 * 3600);
+	}
+
+	private static Network createGrid(final int size, final Random random) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				Coord coord = new Coord(x * 100 + random.nextDouble() * 50, y * 100 + random.nextDouble() * 50);
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), coord);
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				for (int direction = 0; direction < 2; direction++) {
+					int x2 = direction == 0 ? x + 1 : x;
+					int y2 = direction == 0 ? y : y + 1;
+					if (x2 == size || y2 == size) {
+						continue;
+					}
+					double length = 100 + random.nextDouble() * 100;
+					// every tenth street is an arterial road
+					double freespeed = (x % 10 == 0 || y % 10 == 0) ? 22.2 : 8.3;
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y], nodes[x2][y2], length, freespeed, 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x2][y2], nodes[x][y], length, freespeed, 1000, 1);
+				}
+			}
+		}
+		return network;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(TravelTimeMatrixBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,208 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ActivityEndsQueueBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Identifiable;
+import org.matsim.api.core.v01.population.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Simulates the activity ends of one morning hour of a large population, where some agents get their activity end
+ * rescheduled every second, as with within-day replanning or drt. Compares the {@link ActivityEndsQueue} of the
+ * {@link ActivityEngineDefaultImpl} with the priority queue it replaced, which had to search the agent to reschedule.
+ * <p></p>
+ * This class is in the package of the activity engine, as the queue is not public.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ActivityEndsQueueBenchmark {
+
+	private static final double START_TIME = 6 * 3600;
+	private static final double END_TIME = 7 * 3600;
+
+	public enum QueueType { timeWheel, priorityQueue }
+
+	@Param({"1000000", "4000000"})
+	public int numberOfAgents;
+
+	@Param({"10", "1000"})
+	public int reschedulesPerSecond;
+
+	@Param({"timeWheel", "priorityQueue"})
+	public QueueType queueType;
+
+	private Agent[] agents;
+	private double[] activityEndTimes;
+	private ActivityEnds queue;
+	private Random random;
+
+	@Setup(Level.Trial)
+	public void createAgents() {
+		this.agents = new Agent[this.numberOfAgents];
+		for (int i = 0; i < this.numberOfAgents; i++) {
+			this.agents[i] = new Agent(Id.createPersonId(i));
+		}
+		this.activityEndTimes = new double[this.numberOfAgents];
+	}
+
+	@Setup(Level.Invocation)
+	public void fillQueue() {
+		this.random = new Random(4711);
+		this.queue = this.queueType == QueueType.timeWheel ? new TimeWheel() : new LegacyPriorityQueue();
+		for (int i = 0; i < this.numberOfAgents; i++) {
+			this.activityEndTimes[i] = START_TIME + this.random.nextInt(18 * 3600);
+			this.queue.add(this.agents[i], this.activityEndTimes[i]);
+		}
+	}
+
+	@Benchmark
+	public long simulateOneHour() {
+		long endedActivities = 0;
+		for (double time = START_TIME; time < END_TIME; time++) {
+			for (int i = 0; i < this.reschedulesPerSecond; i++) {
+				int agent = this.random.nextInt(this.numberOfAgents);
+				if (this.activityEndTimes[agent] > time && this.queue.remove(this.agents[agent])) {
+					this.activityEndTimes[agent] = time + 1 + this.random.nextInt(3600);
+					this.queue.add(this.agents[agent], this.activityEndTimes[agent]);
+				}
+			}
+			while (this.queue.poll(time) != null) {
+				endedActivities++;
+			}
+		}
+		return endedActivities;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ActivityEndsQueueBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	private static final class Agent implements Identifiable<Person> {
+		private final Id<Person> id;
+
+		Agent(final Id<Person> id) {
+			this.id = id;
+		}
+
+		@Override
+		public Id<Person> getId() {
+			return this.id;
+		}
+	}
+
+	private interface ActivityEnds {
+		void add(Agent agent, double activityEndTime);
+
+		boolean remove(Agent agent);
+
+		Agent poll(double time);
+	}
+
+	private static final class TimeWheel implements ActivityEnds {
+		private final ActivityEndsQueue<Agent> queue = new ActivityEndsQueue<>();
+
+		@Override
+		public void add(final Agent agent, final double activityEndTime) {
+			this.queue.add(agent, activityEndTime);
+		}
+
+		@Override
+		public boolean remove(final Agent agent) {
+			return this.queue.remove(agent);
+		}
+
+		@Override
+		public Agent poll(final double time) {
+			return this.queue.poll(time);
+		}
+	}
+
+	/**
+	 * The data structure previously used by {@link ActivityEngineDefaultImpl}.
+	 */
+	private static final class LegacyPriorityQueue implements ActivityEnds {
+		private static final class AgentEntry {
+			private final Agent agent;
+			private final double activityEndTime;
+
+			AgentEntry(final Agent agent, final double activityEndTime) {
+				this.agent = agent;
+				this.activityEndTime = activityEndTime;
+			}
+		}
+
+		private final PriorityBlockingQueue<AgentEntry> queue = new PriorityBlockingQueue<>(500, (e0, e1) -> {
+			int cmp = Double.compare(e0.activityEndTime, e1.activityEndTime);
+			return cmp == 0 ? e1.agent.getId().compareTo(e0.agent.getId()) : cmp;
+		});
+
+		@Override
+		public void add(final Agent agent, final double activityEndTime) {
+			this.queue.add(new AgentEntry(agent, activityEndTime));
+		}
+
+		@Override
+		public boolean remove(final Agent agent) {
+			Iterator<AgentEntry> iterator = this.queue.iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().agent == agent) {
+					iterator.remove();
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public Agent poll(final double time) {
+			AgentEntry entry = this.queue.peek();
+			if (entry != null && entry.activityEndTime <= time) {
+				return this.queue.poll().agent;
+			}
+			return null;
+		}
+	}
+
+}
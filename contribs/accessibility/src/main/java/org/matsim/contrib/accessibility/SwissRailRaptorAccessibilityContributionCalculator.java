@@ -57,14 +57,18 @@ class SwissRailRaptorAccessibilityContributionCalculator implements Accessibilit
 
 
     public SwissRailRaptorAccessibilityContributionCalculator(String mode, PlanCalcScoreConfigGroup planCalcScoreConfigGroup, Scenario scenario) {
-		this.mode = mode;
+		this(mode, planCalcScoreConfigGroup, scenario, createRaptorData(scenario));
+	}
 
-		TransitSchedule schedule = scenario.getTransitSchedule();
-		Network ptNetwork = scenario.getNetwork();
 
-		RaptorStaticConfig raptorConfig = RaptorUtils.createStaticConfig(scenario.getConfig());
-		raptorConfig.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
-		this.raptorData = SwissRailRaptorData.create(schedule, raptorConfig, ptNetwork);
+	/**
+	 * The raptor data is only read during the tree calculations, so all duplicates share it and only create their own
+	 * router on top of it.
+	 */
+	private SwissRailRaptorAccessibilityContributionCalculator(String mode, PlanCalcScoreConfigGroup planCalcScoreConfigGroup, Scenario scenario,
+			SwissRailRaptorData raptorData) {
+		this.mode = mode;
+		this.raptorData = raptorData;
 
 		DefaultRaptorParametersForPerson parametersForPerson = new DefaultRaptorParametersForPerson(scenario.getConfig());
 		DefaultRaptorStopFinder defaultRaptorStopFinder = new DefaultRaptorStopFinder(null, new DefaultRaptorIntermodalAccessEgress(), null);
@@ -80,6 +84,16 @@ class SwissRailRaptorAccessibilityContributionCalculator implements Accessibilit
 	}
 
 
+	private static SwissRailRaptorData createRaptorData(Scenario scenario) {
+		TransitSchedule schedule = scenario.getTransitSchedule();
+		Network ptNetwork = scenario.getNetwork();
+
+		RaptorStaticConfig raptorConfig = RaptorUtils.createStaticConfig(scenario.getConfig());
+		raptorConfig.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+		return SwissRailRaptorData.create(schedule, raptorConfig, ptNetwork);
+	}
+
+
     @Override
     public void initialize(ActivityFacilities measuringPoints, ActivityFacilities opportunities) {
 		LOG.warn("Initializing calculator for mode " + mode + "...");
@@ -179,7 +193,7 @@ class SwissRailRaptorAccessibilityContributionCalculator implements Accessibilit
 	@Override
 	public SwissRailRaptorAccessibilityContributionCalculator duplicate() {
 		SwissRailRaptorAccessibilityContributionCalculator swissRailRaptorAccessibilityContributionCalculator =
-				new SwissRailRaptorAccessibilityContributionCalculator(this.mode, this.planCalcScoreConfigGroup, this.scenario);
+				new SwissRailRaptorAccessibilityContributionCalculator(this.mode, this.planCalcScoreConfigGroup, this.scenario, this.raptorData);
         swissRailRaptorAccessibilityContributionCalculator.aggregatedMeasurePoints = this.aggregatedMeasurePoints;
         swissRailRaptorAccessibilityContributionCalculator.aggregatedOpportunities = this.aggregatedOpportunities;
         swissRailRaptorAccessibilityContributionCalculator.stopsPerAggregatedOpportunity = this.stopsPerAggregatedOpportunity;
@@ -0,0 +1,236 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.insertion;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.drt.optimizer.QSimScopeForkJoinPoolHolder;
+import org.matsim.contrib.drt.optimizer.VehicleData;
+import org.matsim.contrib.drt.optimizer.VehicleData.Entry;
+import org.matsim.contrib.drt.optimizer.insertion.InsertionGenerator.Insertion;
+import org.matsim.contrib.drt.optimizer.insertion.SingleVehicleInsertionProblem.BestInsertion;
+import org.matsim.contrib.drt.passenger.DrtRequest;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.drt.scheduler.RequestInsertionScheduler;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.dvrp.fleet.Fleet;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestRejectedEvent;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestScheduledEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Inserts the unplanned requests in batches: the best insertions of all requests of a batch are searched in parallel
+ * (including the path searches), all against the same vehicle data. Afterwards, they are applied in the order of the
+ * requests. The insertion of a request is applied only if its vehicle has not received another request of the same
+ * batch, and a request is only rejected if no other request of the batch has been inserted before it. The remaining
+ * requests are evaluated again in the next batch, together with the following requests. So the result does not depend
+ * on the order in which the threads finish, and at least the first request of each batch is inserted or rejected.
+ * <p>
+ * In contrast to {@link DefaultUnplannedRequestInserter}, a request does not see the insertions of the preceding
+ * requests of its batch. Hence, it may not be pooled with them, even if this would be cheaper.
+ */
+public class BatchParallelUnplannedRequestInserter implements UnplannedRequestInserter, MobsimBeforeCleanupListener {
+	private static final Logger log = Logger.getLogger(BatchParallelUnplannedRequestInserter.class);
+
+	private final DrtConfigGroup drtCfg;
+	private final Fleet fleet;
+	private final MobsimTimer mobsimTimer;
+	private final EventsManager eventsManager;
+	private final RequestInsertionScheduler insertionScheduler;
+	private final VehicleData.EntryFactory vehicleDataEntryFactory;
+	private final InsertionCostCalculator.PenaltyCalculator penaltyCalculator;
+	private final InsertionCostCalculator insertionCostCalculator;
+	private final ConcurrentPathDataCalculator pathDataCalculator;
+	private final ForkJoinPool forkJoinPool;
+	private final int batchSize;
+
+	// per call of scheduleUnplannedRequests()
+	private final SummaryStatistics latencyStats = new SummaryStatistics();// [ms]
+	private final SummaryStatistics requestCountStats = new SummaryStatistics();
+	private final SummaryStatistics batchCountStats = new SummaryStatistics();
+	private final SummaryStatistics deferralCountStats = new SummaryStatistics();
+
+	public BatchParallelUnplannedRequestInserter(DrtConfigGroup drtCfg, Fleet fleet, MobsimTimer mobsimTimer,
+			EventsManager eventsManager, RequestInsertionScheduler insertionScheduler,
+			VehicleData.EntryFactory vehicleDataEntryFactory, Network network, TravelTime travelTime,
+			TravelDisutility travelDisutility, InsertionCostCalculator.PenaltyCalculator penaltyCalculator,
+			QSimScopeForkJoinPoolHolder forkJoinPoolHolder) {
+		this.drtCfg = drtCfg;
+		this.fleet = fleet;
+		this.mobsimTimer = mobsimTimer;
+		this.eventsManager = eventsManager;
+		this.insertionScheduler = insertionScheduler;
+		this.vehicleDataEntryFactory = vehicleDataEntryFactory;
+		this.penaltyCalculator = penaltyCalculator;
+		this.forkJoinPool = forkJoinPoolHolder.getPool();
+		this.batchSize = drtCfg.getRequestInsertionBatchSize();
+
+		insertionCostCalculator = new InsertionCostCalculator(drtCfg, mobsimTimer, penaltyCalculator);
+		pathDataCalculator = new ConcurrentPathDataCalculator(network, travelTime, travelDisutility, drtCfg);
+	}
+
+	@Override
+	public void scheduleUnplannedRequests(Collection<DrtRequest> unplannedRequests) {
+		if (unplannedRequests.isEmpty()) {
+			return;
+		}
+
+		long startTime = System.nanoTime();
+		VehicleData vData = new VehicleData(mobsimTimer.getTimeOfDay(), fleet.getVehicles().values().stream(),
+				vehicleDataEntryFactory, forkJoinPool);
+
+		int requestCount = unplannedRequests.size();
+		IntSummaryStatistics batchSizes = insertInBatches(new ArrayList<>(unplannedRequests), batchSize, batch -> {
+			Collection<Entry> vEntries = vData.getEntries();
+			return forkJoinPool.submit(() -> batch.parallelStream()
+					.map(req -> findBestInsertion(req, vEntries))
+					.collect(Collectors.toList())).join();
+		}, (req, best) -> scheduleRequest(req, best, vData), this::rejectRequest);
+		unplannedRequests.clear();
+
+		latencyStats.addValue((System.nanoTime() - startTime) / 1e6);
+		requestCountStats.addValue(requestCount);
+		batchCountStats.addValue(batchSizes.getCount());
+		deferralCountStats.addValue(batchSizes.getSum() - requestCount);// deferred requests are handled again
+	}
+
+	/**
+	 * Handles the requests batch by batch, as described in the class comment.
+	 *
+	 * @param searchBatch returns the best insertion (if any) of each request of the batch, in the same order
+	 * @return the sizes of the handled batches
+	 */
+	static IntSummaryStatistics insertInBatches(List<DrtRequest> requests, int batchSize,
+			Function<List<DrtRequest>, List<Optional<BestInsertion>>> searchBatch,
+			BiConsumer<DrtRequest, BestInsertion> scheduler, Consumer<DrtRequest> rejecter) {
+		IntSummaryStatistics batchSizes = new IntSummaryStatistics();
+		List<DrtRequest> pendingRequests = requests;
+		while (!pendingRequests.isEmpty()) {
+			List<DrtRequest> batch = pendingRequests.subList(0, Math.min(batchSize, pendingRequests.size()));
+			List<Optional<BestInsertion>> bestInsertions = searchBatch.apply(batch);
+
+			List<DrtRequest> deferredRequests = new ArrayList<>();
+			Set<Id<DvrpVehicle>> modifiedVehicles = new HashSet<>();
+			for (int i = 0; i < batch.size(); i++) {
+				DrtRequest req = batch.get(i);
+				Optional<BestInsertion> best = bestInsertions.get(i);
+				if (!best.isPresent()) {
+					if (modifiedVehicles.isEmpty()) {
+						rejecter.accept(req);
+					} else {
+						// an insertion preceding in this batch may have enabled pooling with this request
+						deferredRequests.add(req);
+					}
+				} else if (modifiedVehicles.add(best.get().vehicleEntry.vehicle.getId())) {
+					scheduler.accept(req, best.get());
+				} else {
+					// the insertion was computed for the schedule before the vehicle got another request
+					deferredRequests.add(req);
+				}
+			}
+
+			batchSizes.accept(batch.size());
+			deferredRequests.addAll(pendingRequests.subList(batch.size(), pendingRequests.size()));
+			pendingRequests = deferredRequests;
+		}
+		return batchSizes;
+	}
+
+	private Optional<BestInsertion> findBestInsertion(DrtRequest drtRequest, Collection<Entry> vEntries) {
+		DetourLinksProvider detourLinksProvider = new DetourLinksProvider(drtCfg, mobsimTimer, drtRequest,
+				penaltyCalculator);
+		detourLinksProvider.findInsertionsAndLinks(forkJoinPool, vEntries);
+
+		Map<Entry, List<Insertion>> filteredInsertions = detourLinksProvider.getFilteredInsertions();
+		if (filteredInsertions.isEmpty()) {
+			return Optional.empty();
+		}
+
+		PathDataProvider pathDataProvider = pathDataCalculator.calcPathData(drtRequest,
+				detourLinksProvider.getDetourLinksSet());
+
+		// already running in forkJoinPool
+		return filteredInsertions.entrySet()
+				.parallelStream()
+				.map(e -> new SingleVehicleInsertionProblem(pathDataProvider,
+						insertionCostCalculator).findBestInsertion(drtRequest, e.getKey(), e.getValue()))
+				.filter(Optional::isPresent)
+				.map(Optional::get)
+				.min(Comparator.comparingDouble(i -> i.cost));
+	}
+
+	private void rejectRequest(DrtRequest req) {
+		eventsManager.processEvent(
+				new PassengerRequestRejectedEvent(mobsimTimer.getTimeOfDay(), drtCfg.getMode(), req.getId(),
+						req.getPassengerId(), DefaultUnplannedRequestInserter.NO_INSERTION_FOUND_CAUSE));
+		log.debug("No insertion found for drt request "
+				+ req
+				+ " from passenger id="
+				+ req.getPassengerId()
+				+ " fromLinkId="
+				+ req.getFromLink().getId());
+	}
+
+	private void scheduleRequest(DrtRequest req, BestInsertion bestInsertion, VehicleData vData) {
+		insertionScheduler.scheduleRequest(bestInsertion.vehicleEntry, req, bestInsertion.insertion);
+		vData.updateEntry(bestInsertion.vehicleEntry.vehicle);
+		eventsManager.processEvent(
+				new PassengerRequestScheduledEvent(mobsimTimer.getTimeOfDay(), drtCfg.getMode(), req.getId(),
+						req.getPassengerId(), bestInsertion.vehicleEntry.vehicle.getId(),
+						req.getPickupTask().getEndTime(), req.getDropoffTask().getBeginTime()));
+	}
+
+	@Override
+	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
+		if (latencyStats.getN() > 0) {
+			log.info(String.format("%s: request insertion in %d time steps, latency per step [ms]: mean=%.2f max=%.2f;"
+							+ " requests per step: mean=%.2f max=%.0f; batches per step: mean=%.2f max=%.0f;"
+							+ " deferred requests per step: mean=%.2f", drtCfg.getMode(), latencyStats.getN(),
+					latencyStats.getMean(), latencyStats.getMax(), requestCountStats.getMean(),
+					requestCountStats.getMax(), batchCountStats.getMean(), batchCountStats.getMax(),
+					deferralCountStats.getMean()));
+		}
+	}
+
+	public SummaryStatistics getLatencyStats() {
+		return latencyStats.copy();
+	}
+}
@@ -0,0 +1,106 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.insertion;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.drt.optimizer.insertion.DetourLinksProvider.DetourLinksSet;
+import org.matsim.contrib.drt.passenger.DrtRequest;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.dvrp.path.OneToManyPathSearch;
+import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Calculates the same path data as {@link ParallelPathDataProvider}, but may be called by many threads at the same
+ * time, each calculating the path data of another request. The four searches of a request are run one after another
+ * by the calling thread, using a set of path searches which is taken from a pool (and created if the pool is empty).
+ */
+class ConcurrentPathDataCalculator {
+	private static class PathSearches {
+		private final OneToManyPathSearch toPickupPathSearch;
+		private final OneToManyPathSearch fromPickupPathSearch;
+		private final OneToManyPathSearch toDropoffPathSearch;
+		private final OneToManyPathSearch fromDropoffPathSearch;
+
+		private PathSearches(Network network, TravelTime travelTime, TravelDisutility travelDisutility) {
+			toPickupPathSearch = OneToManyPathSearch.createBackwardSearch(network, travelTime, travelDisutility);
+			fromPickupPathSearch = OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility);
+			toDropoffPathSearch = OneToManyPathSearch.createBackwardSearch(network, travelTime, travelDisutility);
+			fromDropoffPathSearch = OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility);
+		}
+	}
+
+	private final Network network;
+	private final TravelTime travelTime;
+	private final TravelDisutility travelDisutility;
+	private final double stopDuration;
+
+	private final Queue<PathSearches> idlePathSearches = new ConcurrentLinkedQueue<>();
+
+	ConcurrentPathDataCalculator(Network network, TravelTime travelTime, TravelDisutility travelDisutility,
+			DrtConfigGroup drtCfg) {
+		this.network = network;
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+		this.stopDuration = drtCfg.getStopDuration();
+	}
+
+	/**
+	 * @return path data provider for the given request only
+	 */
+	PathDataProvider calcPathData(DrtRequest drtRequest, DetourLinksSet detourLinksSet) {
+		Link pickup = drtRequest.getFromLink();
+		Link dropoff = drtRequest.getToLink();
+
+		double earliestPickupTime = drtRequest.getEarliestStartTime(); // optimistic
+		double earliestDropoffTime = PrecalculablePathDataProvider.getEarliestDropoffTime(drtRequest, stopDuration);
+
+		PathSearches searches = idlePathSearches.poll();
+		if (searches == null) {
+			searches = new PathSearches(network, travelTime, travelDisutility);
+		}
+
+		Map<Id<Link>, PathData> pathsToPickupMap;
+		Map<Id<Link>, PathData> pathsFromPickupMap;
+		Map<Id<Link>, PathData> pathsToDropoffMap;
+		Map<Id<Link>, PathData> pathsFromDropoffMap;
+		try {
+			pathsToPickupMap = searches.toPickupPathSearch.calcPathDataMap(pickup,
+					detourLinksSet.pickupDetourStartLinks.values(), earliestPickupTime);
+			pathsFromPickupMap = searches.fromPickupPathSearch.calcPathDataMap(pickup,
+					detourLinksSet.pickupDetourEndLinks.values(), earliestPickupTime);
+			pathsToDropoffMap = searches.toDropoffPathSearch.calcPathDataMap(dropoff,
+					detourLinksSet.dropoffDetourStartLinks.values(), earliestDropoffTime);
+			pathsFromDropoffMap = searches.fromDropoffPathSearch.calcPathDataMap(dropoff,
+					detourLinksSet.dropoffDetourEndLinks.values(), earliestDropoffTime);
+		} finally {
+			idlePathSearches.add(searches);
+		}
+
+		return (request, vEntry) -> PrecalculablePathDataProvider.getPathDataSet(request, vEntry, pathsToPickupMap,
+				pathsFromPickupMap, pathsToDropoffMap, pathsFromDropoffMap);
+	}
+}
@@ -78,8 +78,7 @@ public class ParallelPathDataProvider implements PrecalculablePathDataProvider,
 		Link dropoff = drtRequest.getToLink();
 
 		double earliestPickupTime = drtRequest.getEarliestStartTime(); // optimistic
-		double minTravelTime = 15 * 60; // FIXME inaccurate temp solution: fixed 15 min
-		double earliestDropoffTime = earliestPickupTime + minTravelTime + stopDuration;
+		double earliestDropoffTime = PrecalculablePathDataProvider.getEarliestDropoffTime(drtRequest, stopDuration);
 
 		// with vehicle insertion filtering -- pathsToPickup is the most computationally demanding task, while
 		// pathsFromDropoff is the least demanding one
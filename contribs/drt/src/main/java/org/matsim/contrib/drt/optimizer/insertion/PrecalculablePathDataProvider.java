@@ -34,6 +34,16 @@ import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
 public interface PrecalculablePathDataProvider extends PathDataProvider {
 	void precalculatePathData(DrtRequest drtRequest, DetourLinksSet detourLinkSet);
 
+	/**
+	 * @return the (optimistic) earliest time the passenger can be dropped off, used as the departure time of the
+	 * dropoff path searches
+	 */
+	static double getEarliestDropoffTime(DrtRequest drtRequest, double stopDuration) {
+		double earliestPickupTime = drtRequest.getEarliestStartTime(); // optimistic
+		double minTravelTime = 15 * 60; // FIXME inaccurate temp solution: fixed 15 min
+		return earliestPickupTime + minTravelTime + stopDuration;
+	}
+
 	static PathDataSet getPathDataSet(DrtRequest drtRequest, Entry vEntry, Map<Id<Link>, PathData> pathsToPickupMap,
 			Map<Id<Link>, PathData> pathsFromPickupMap, Map<Id<Link>, PathData> pathsToDropoffMap,
 			Map<Id<Link>, PathData> pathsFromDropoffMap) {
@@ -74,8 +74,8 @@ public class StopBasedPathDataProvider implements PrecalculablePathDataProvider
 		Link dropoff = drtRequest.getToLink();
 
 		final double earliestPickupTime = drtRequest.getEarliestStartTime(); // optimistic
-		final double minTravelTime = 15 * 60; // FIXME inaccurate temp solution: fixed 15 min
-		final double earliestDropoffTime = earliestPickupTime + minTravelTime + stopDuration;
+		final double earliestDropoffTime = PrecalculablePathDataProvider.getEarliestDropoffTime(drtRequest,
+				stopDuration);
 
 		// NOTE: all paths are calculated forward from startTime (no backward Dijkstra used)
 		pathsToPickupMap = manyToManyPathData.getIncomingPathData(pickup.getId(), earliestPickupTime);
@@ -141,6 +141,15 @@ public final class DrtConfigGroup extends ReflectiveConfigGroup implements Modal
 					+ " Scales well up to 4, due to path data provision, the most computationally intensive part,"
 					+ " using up to 4 threads. Default value is 'min(4, no. of cores available to JVM)'";
 
+	public static final String REQUEST_INSERTION_BATCH_SIZE = "requestInsertionBatchSize";
+	static final String REQUEST_INSERTION_BATCH_SIZE_EXP =
+			"Number of unplanned requests whose insertions are evaluated in parallel. If 1 (default), requests are"
+					+ " inserted one after another, each one using " + NUMBER_OF_THREADS + " threads. If larger,"
+					+ " the insertions of up to this many requests are searched in parallel against the same schedules"
+					+ " and then applied in the order of the requests, as long as they do not modify the same vehicle."
+					+ " The others are evaluated again. This scales beyond 4 threads if many requests are submitted"
+					+ " per time step, but a request cannot be pooled with a request of the same batch.";
+
 	@NotBlank
 	private String mode = TransportMode.drt; // travel mode (passengers'/customers' perspective)
 
@@ -195,6 +204,9 @@ public final class DrtConfigGroup extends ReflectiveConfigGroup implements Modal
 	private int numberOfThreads = Math.min(Runtime.getRuntime().availableProcessors(),
 			ParallelPathDataProvider.MAX_THREADS);
 
+	@Positive
+	private int requestInsertionBatchSize = 1;
+
 	@PositiveOrZero
 	private double advanceRequestPlanningHorizon = 0; // beta-feature; planning horizon for advance (prebooked) requests
 
@@ -276,6 +288,7 @@ public final class DrtConfigGroup extends ReflectiveConfigGroup implements Modal
 		map.put(ESTIMATED_DRT_SPEED, ESTIMATED_DRT_SPEED_EXP);
 		map.put(ESTIMATED_BEELINE_DISTANCE_FACTOR, ESTIMATED_BEELINE_DISTANCE_FACTOR_EXP);
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_EXP);
+		map.put(REQUEST_INSERTION_BATCH_SIZE, REQUEST_INSERTION_BATCH_SIZE_EXP);
 		map.put(REJECT_REQUEST_IF_MAX_WAIT_OR_TRAVEL_TIME_VIOLATED,
 				REJECT_REQUEST_IF_MAX_WAIT_OR_TRAVEL_TIME_VIOLATED_EXP);
 		map.put(DRT_SERVICE_AREA_SHAPE_FILE, DRT_SERVICE_AREA_SHAPE_FILE_EXP);
@@ -608,6 +621,23 @@ public final class DrtConfigGroup extends ReflectiveConfigGroup implements Modal
 		return this;
 	}
 
+	/**
+	 * @return -- {@value #REQUEST_INSERTION_BATCH_SIZE_EXP}
+	 */
+	@StringGetter(REQUEST_INSERTION_BATCH_SIZE)
+	public int getRequestInsertionBatchSize() {
+		return requestInsertionBatchSize;
+	}
+
+	/**
+	 * @param-- {@value #REQUEST_INSERTION_BATCH_SIZE_EXP}
+	 */
+	@StringSetter(REQUEST_INSERTION_BATCH_SIZE)
+	public DrtConfigGroup setRequestInsertionBatchSize(final int requestInsertionBatchSize) {
+		this.requestInsertionBatchSize = requestInsertionBatchSize;
+		return this;
+	}
+
 	public double getAdvanceRequestPlanningHorizon() {
 		return advanceRequestPlanningHorizon;
 	}
@@ -28,6 +28,7 @@ import org.matsim.contrib.drt.optimizer.VehicleData;
 import org.matsim.contrib.drt.optimizer.VehicleDataEntryFactoryImpl;
 import org.matsim.contrib.drt.optimizer.depot.DepotFinder;
 import org.matsim.contrib.drt.optimizer.depot.NearestStartLinkAsDepot;
+import org.matsim.contrib.drt.optimizer.insertion.BatchParallelUnplannedRequestInserter;
 import org.matsim.contrib.drt.optimizer.insertion.DefaultUnplannedRequestInserter;
 import org.matsim.contrib.drt.optimizer.insertion.InsertionCostCalculator;
 import org.matsim.contrib.drt.optimizer.insertion.ParallelPathDataProvider;
@@ -97,14 +98,58 @@ public class DrtModeQSimModule extends AbstractDvrpModeQSimModule {
 		addModalComponent(QSimScopeForkJoinPoolHolder.class,
 				() -> new QSimScopeForkJoinPoolHolder(drtCfg.getNumberOfThreads()));
 
-		bindModal(UnplannedRequestInserter.class).toProvider(modalProvider(
-				getter -> new DefaultUnplannedRequestInserter(drtCfg, getter.getModal(Fleet.class),
-						getter.get(MobsimTimer.class), getter.get(EventsManager.class),
-						getter.getModal(RequestInsertionScheduler.class),
-						getter.getModal(VehicleData.EntryFactory.class),
-						getter.getModal(PrecalculablePathDataProvider.class),
-						getter.getModal(InsertionCostCalculator.PenaltyCalculator.class),
-						getter.getModal(QSimScopeForkJoinPoolHolder.class)))).asEagerSingleton();
+		if (drtCfg.getRequestInsertionBatchSize() > 1) {
+			addModalComponent(BatchParallelUnplannedRequestInserter.class,
+					new ModalProviders.AbstractProvider<>(getMode()) {
+						@Inject
+						@Named(DvrpTravelTimeModule.DVRP_ESTIMATED)
+						private TravelTime travelTime;
+
+						@Inject
+						private MobsimTimer timer;
+
+						@Inject
+						private EventsManager eventsManager;
+
+						@Override
+						public BatchParallelUnplannedRequestInserter get() {
+							TravelDisutility travelDisutility = getModalInstance(
+									TravelDisutilityFactory.class).createTravelDisutility(travelTime);
+							return new BatchParallelUnplannedRequestInserter(drtCfg, getModalInstance(Fleet.class),
+									timer, eventsManager, getModalInstance(RequestInsertionScheduler.class),
+									getModalInstance(VehicleData.EntryFactory.class),
+									getModalInstance(Network.class), travelTime, travelDisutility,
+									getModalInstance(InsertionCostCalculator.PenaltyCalculator.class),
+									getModalInstance(QSimScopeForkJoinPoolHolder.class));
+						}
+					});
+			bindModal(UnplannedRequestInserter.class).to(modalKey(BatchParallelUnplannedRequestInserter.class));
+		} else {
+			bindModal(UnplannedRequestInserter.class).toProvider(modalProvider(
+					getter -> new DefaultUnplannedRequestInserter(drtCfg, getter.getModal(Fleet.class),
+							getter.get(MobsimTimer.class), getter.get(EventsManager.class),
+							getter.getModal(RequestInsertionScheduler.class),
+							getter.getModal(VehicleData.EntryFactory.class),
+							getter.getModal(PrecalculablePathDataProvider.class),
+							getter.getModal(InsertionCostCalculator.PenaltyCalculator.class),
+							getter.getModal(QSimScopeForkJoinPoolHolder.class)))).asEagerSingleton();
+
+			// the batch inserter computes its own path data, so the precomputation is only needed here
+			addModalComponent(ParallelPathDataProvider.class, new ModalProviders.AbstractProvider<>(getMode()) {
+				@Inject
+				@Named(DvrpTravelTimeModule.DVRP_ESTIMATED)
+				private TravelTime travelTime;
+
+				@Override
+				public ParallelPathDataProvider get() {
+					Network network = getModalInstance(Network.class);
+					TravelDisutility travelDisutility = getModalInstance(
+							TravelDisutilityFactory.class).createTravelDisutility(travelTime);
+					return new ParallelPathDataProvider(network, travelTime, travelDisutility, drtCfg);
+				}
+			});
+			bindModal(PrecalculablePathDataProvider.class).to(modalKey(ParallelPathDataProvider.class));
+		}
 
 		bindModal(VehicleData.EntryFactory.class).toInstance(new VehicleDataEntryFactoryImpl(drtCfg));
 
@@ -147,21 +192,6 @@ public class DrtModeQSimModule extends AbstractDvrpModeQSimModule {
 				getter -> new ScheduleTimingUpdater(getter.get(MobsimTimer.class),
 						new DrtStayTaskEndTimeCalculator(drtCfg)))).asEagerSingleton();
 
-		addModalComponent(ParallelPathDataProvider.class, new ModalProviders.AbstractProvider<>(getMode()) {
-			@Inject
-			@Named(DvrpTravelTimeModule.DVRP_ESTIMATED)
-			private TravelTime travelTime;
-
-			@Override
-			public ParallelPathDataProvider get() {
-				Network network = getModalInstance(Network.class);
-				TravelDisutility travelDisutility = getModalInstance(
-						TravelDisutilityFactory.class).createTravelDisutility(travelTime);
-				return new ParallelPathDataProvider(network, travelTime, travelDisutility, drtCfg);
-			}
-		});
-		bindModal(PrecalculablePathDataProvider.class).to(modalKey(ParallelPathDataProvider.class));
-
 		bindModal(VrpAgentLogic.DynActionCreator.class).
 				toProvider(modalProvider(getter -> new DrtActionCreator(getter.getModal(PassengerEngine.class),
 						getter.get(MobsimTimer.class), getter.get(DvrpConfigGroup.class)))).
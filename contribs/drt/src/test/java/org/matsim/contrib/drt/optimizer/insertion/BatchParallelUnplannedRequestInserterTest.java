@@ -0,0 +1,190 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.insertion;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.contrib.drt.optimizer.VehicleData;
+import org.matsim.contrib.drt.optimizer.insertion.SingleVehicleInsertionProblem.BestInsertion;
+import org.matsim.contrib.drt.passenger.DrtRequest;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicleImpl;
+import org.matsim.contrib.dvrp.fleet.ImmutableDvrpVehicleSpecification;
+import org.matsim.contrib.dvrp.optimizer.Request;
+import org.matsim.core.network.NetworkUtils;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tests how the insertions found for a batch are applied, with a stub instead of the insertion search. Each vehicle
+ * serves at most the requests the stub allows for its current assignments.
+ */
+public class BatchParallelUnplannedRequestInserterTest {
+	private final Link link = createLink();
+
+	private final Map<Id<DvrpVehicle>, VehicleData.Entry> vehicleEntries = new HashMap<>();
+	private final Map<Id<DvrpVehicle>, List<DrtRequest>> assignments = new HashMap<>();
+	private final List<String> scheduled = new ArrayList<>();
+	private final List<String> rejected = new ArrayList<>();
+	private final List<List<String>> batches = new ArrayList<>();
+
+	@Test
+	public void testTwoRequestsCompetingForOneVehicle() {
+		addVehicle("v1");
+		List<DrtRequest> requests = createRequests("r1", "r2");
+
+		// one passenger per vehicle
+		IntSummaryStatistics batchSizes = insertInBatches(requests, 2,
+				(req, assignments) -> assignments.containsKey(vehicleId("v1")) ? null : "v1");
+
+		// both requests found the empty vehicle, but only the first one may be applied
+		Assert.assertEquals(Arrays.asList("r1@v1"), scheduled);
+		Assert.assertEquals(Arrays.asList("r2"), rejected);
+		Assert.assertEquals(Arrays.asList(Arrays.asList("r1", "r2"), Arrays.asList("r2")), batches);
+		Assert.assertEquals(2, batchSizes.getCount());
+		Assert.assertEquals(3, batchSizes.getSum());
+	}
+
+	@Test
+	public void testCommitOrder() {
+		addVehicle("v1");
+		addVehicle("v2");
+		addVehicle("v3");
+		List<DrtRequest> requests = createRequests("r1", "r2", "r3", "r4");
+		Map<String, List<String>> preferredVehicles = new HashMap<>();
+		preferredVehicles.put("r1", Arrays.asList("v1"));
+		preferredVehicles.put("r2", Arrays.asList("v2"));
+		preferredVehicles.put("r3", Arrays.asList("v1", "v3"));
+		preferredVehicles.put("r4", Arrays.asList("v3"));
+
+		// one passenger per vehicle, the first preferred vehicle that is still empty is the best insertion
+		insertInBatches(requests, 3, (req, assignments) -> preferredVehicles.get(req.getId().toString())
+				.stream()
+				.filter(v -> !assignments.containsKey(vehicleId(v)))
+				.findFirst()
+				.orElse(null));
+
+		// the insertions are applied in request order; deferred requests go before the following requests
+		Assert.assertEquals(Arrays.asList("r1@v1", "r2@v2", "r3@v3"), scheduled);
+		Assert.assertEquals(Arrays.asList("r4"), rejected);
+		Assert.assertEquals(Arrays.asList(Arrays.asList("r1", "r2", "r3"), Arrays.asList("r3", "r4"),
+				Arrays.asList("r4")), batches);
+	}
+
+	@Test
+	public void testRequestWithoutInsertionIsDeferredAfterAnInsertion() {
+		addVehicle("v1");
+		List<DrtRequest> requests = createRequests("r1", "r2", "r3");
+
+		// r2 can only be pooled with r1, r3 is never served
+		insertInBatches(requests, 3, (req, assignments) -> {
+			switch (req.getId().toString()) {
+				case "r1":
+					return "v1";
+				case "r2":
+					return assignments.containsKey(vehicleId("v1")) ? "v1" : null;
+				default:
+					return null;
+			}
+		});
+
+		Assert.assertEquals(Arrays.asList("r1@v1", "r2@v1"), scheduled);
+		Assert.assertEquals(Arrays.asList("r3"), rejected);
+		// r3 is deferred again, as r2 may have enabled pooling with it
+		Assert.assertEquals(Arrays.asList(Arrays.asList("r1", "r2", "r3"), Arrays.asList("r2", "r3"),
+				Arrays.asList("r3")), batches);
+	}
+
+	@Test
+	public void testRequestWithoutInsertionIsRejectedAtOnceIfNothingWasInserted() {
+		addVehicle("v1");
+		List<DrtRequest> requests = createRequests("r1", "r2");
+
+		IntSummaryStatistics batchSizes = insertInBatches(requests, 2, (req, assignments) -> null);
+
+		Assert.assertEquals(Arrays.asList(), scheduled);
+		Assert.assertEquals(Arrays.asList("r1", "r2"), rejected);
+		Assert.assertEquals(1, batchSizes.getCount());
+	}
+
+	/**
+	 * @param insertionSearch returns the vehicle of the best insertion for the current assignments, or null if there is
+	 *                        no insertion
+	 */
+	private IntSummaryStatistics insertInBatches(List<DrtRequest> requests, int batchSize,
+			BiFunction<DrtRequest, Map<Id<DvrpVehicle>, List<DrtRequest>>, String> insertionSearch) {
+		return BatchParallelUnplannedRequestInserter.insertInBatches(new ArrayList<>(requests), batchSize, batch -> {
+			batches.add(batch.stream().map(req -> req.getId().toString()).collect(toList()));
+			// all requests of a batch are evaluated against the same assignments
+			return batch.stream()
+					.map(req -> Optional.ofNullable(insertionSearch.apply(req, assignments))
+							.map(v -> new BestInsertion(null, vehicleEntries.get(vehicleId(v)), 0)))
+					.collect(toList());
+		}, (req, best) -> {
+			assignments.computeIfAbsent(best.vehicleEntry.vehicle.getId(), v -> new ArrayList<>()).add(req);
+			scheduled.add(req.getId() + "@" + best.vehicleEntry.vehicle.getId());
+		}, req -> rejected.add(req.getId().toString()));
+	}
+
+	private void addVehicle(String id) {
+		DvrpVehicle vehicle = new DvrpVehicleImpl(ImmutableDvrpVehicleSpecification.newBuilder()
+				.id(vehicleId(id))
+				.startLinkId(link.getId())
+				.capacity(4)
+				.serviceBeginTime(0)
+				.serviceEndTime(24 * 3600)
+				.build(), link);
+		vehicleEntries.put(vehicle.getId(), new VehicleData.Entry(vehicle, null, 0, ImmutableList.of()));
+	}
+
+	private List<DrtRequest> createRequests(String... ids) {
+		return Arrays.stream(ids)
+				.map(id -> new DrtRequest(Id.create(id, Request.class), Id.create(id, Person.class), "drt", link, link,
+						0, 600, 1200, 0))
+				.collect(toList());
+	}
+
+	private static Id<DvrpVehicle> vehicleId(String id) {
+		return Id.create(id, DvrpVehicle.class);
+	}
+
+	private static Link createLink() {
+		Network network = NetworkUtils.createNetwork();
+		Node a = NetworkUtils.createAndAddNode(network, Id.createNodeId("a"), new Coord(0, 0));
+		Node b = NetworkUtils.createAndAddNode(network, Id.createNodeId("b"), new Coord(100, 0));
+		return NetworkUtils.createAndAddLink(network, Id.createLinkId("ab"), a, b, 100, 10, 1000, 1);
+	}
+}
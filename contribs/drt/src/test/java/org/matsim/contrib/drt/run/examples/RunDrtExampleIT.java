@@ -23,19 +23,37 @@
 package org.matsim.contrib.drt.run.examples;
 
 import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
+import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.drt.run.DrtControlerCreator;
 import org.matsim.contrib.drt.run.MultiModeDrtConfigGroup;
+import org.matsim.contrib.dvrp.optimizer.Request;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestRejectedEvent;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestRejectedEventHandler;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestScheduledEvent;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestScheduledEventHandler;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestSubmittedEvent;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestSubmittedEventHandler;
 import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.examples.ExamplesUtils;
 import org.matsim.testcases.MatsimTestUtils;
 import org.matsim.vis.otfvis.OTFVisConfigGroup;
 
+import com.google.common.collect.Sets;
+
 /**
  * @author jbischoff
  */
@@ -55,6 +73,70 @@ public class RunDrtExampleIT {
 		RunDrtExample.run(config, false);
 	}
 
+	@Test
+	public void testRunDrtExampleWithBatchParallelInsertion() {
+		URL configUrl = IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("mielec"), "mielec_drt_config.xml");
+		Config config = ConfigUtils.loadConfig(configUrl, new MultiModeDrtConfigGroup(), new DvrpConfigGroup(),
+				new OTFVisConfigGroup());
+		for (DrtConfigGroup drtCfg : MultiModeDrtConfigGroup.get(config).getModalElements()) {
+			drtCfg.setRequestInsertionBatchSize(16);
+		}
+
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		config.controler().setOutputDirectory(utils.getOutputDirectory());
+		Controler controler = DrtControlerCreator.createControlerWithSingleModeDrt(config, false);
+		RequestOutcomeCollector collector = new RequestOutcomeCollector();
+		controler.addOverridingModule(new AbstractModule() {
+			@Override
+			public void install() {
+				addEventHandlerBinding().toInstance(collector);
+			}
+		});
+		controler.run();
+
+		// every request of the last iteration is either scheduled or rejected, exactly once
+		Assert.assertFalse(collector.submitted.isEmpty());
+		Assert.assertFalse(collector.scheduled.isEmpty());
+		Assert.assertEquals(Collections.emptySet(), collector.decidedTwice);
+		Assert.assertEquals(collector.submitted, Sets.union(collector.scheduled, collector.rejected));
+	}
+
+	private static class RequestOutcomeCollector
+			implements PassengerRequestSubmittedEventHandler, PassengerRequestScheduledEventHandler,
+			PassengerRequestRejectedEventHandler {
+		private final Set<Id<Request>> submitted = new HashSet<>();
+		private final Set<Id<Request>> scheduled = new HashSet<>();
+		private final Set<Id<Request>> rejected = new HashSet<>();
+		private final Set<Id<Request>> decidedTwice = new HashSet<>();
+
+		@Override
+		public void handleEvent(PassengerRequestSubmittedEvent event) {
+			submitted.add(event.getRequestId());
+		}
+
+		@Override
+		public void handleEvent(PassengerRequestScheduledEvent event) {
+			if (!scheduled.add(event.getRequestId()) || rejected.contains(event.getRequestId())) {
+				decidedTwice.add(event.getRequestId());
+			}
+		}
+
+		@Override
+		public void handleEvent(PassengerRequestRejectedEvent event) {
+			if (!rejected.add(event.getRequestId()) || scheduled.contains(event.getRequestId())) {
+				decidedTwice.add(event.getRequestId());
+			}
+		}
+
+		@Override
+		public void reset(int iteration) {
+			submitted.clear();
+			scheduled.clear();
+			rejected.clear();
+			decidedTwice.clear();
+		}
+	}
+
 	@Test
 	public void testRunDrtStopbasedExample() {
 		URL configUrl = IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("mielec"), "mielec_stop_based_drt_config.xml");
@@ -0,0 +1,99 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.path;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Travel times and distances between origins and destinations (nodes, zones, ...), as calculated by
+ * {@link TravelTimeMatrixCalculator}. The values are stored in primitive arrays, [origin][destination], in the order of
+ * the origin and destination lists. Unreachable destinations have infinite travel times and distances.
+ */
+public class TravelTimeMatrix<T> {
+	private final ImmutableList<T> origins;
+	private final ImmutableList<T> destinations;
+	private final ImmutableMap<T, Integer> originIndices;
+	private final ImmutableMap<T, Integer> destinationIndices;
+	private final double departureTime;
+	private final float[][] travelTimes;
+	private final float[][] distances;
+
+	TravelTimeMatrix(List<T> origins, List<T> destinations, double departureTime) {
+		this.origins = ImmutableList.copyOf(origins);
+		this.destinations = ImmutableList.copyOf(destinations);
+		this.originIndices = createIndices(this.origins);
+		this.destinationIndices = createIndices(this.destinations);
+		this.departureTime = departureTime;
+		this.travelTimes = new float[origins.size()][destinations.size()];
+		this.distances = new float[origins.size()][destinations.size()];
+	}
+
+	private static <T> ImmutableMap<T, Integer> createIndices(List<T> elements) {
+		ImmutableMap.Builder<T, Integer> builder = ImmutableMap.builderWithExpectedSize(elements.size());
+		for (int i = 0; i < elements.size(); i++) {
+			builder.put(elements.get(i), i);
+		}
+		return builder.build(); // fails for duplicates
+	}
+
+	public List<T> getOrigins() {
+		return origins;
+	}
+
+	public List<T> getDestinations() {
+		return destinations;
+	}
+
+	public double getDepartureTime() {
+		return departureTime;
+	}
+
+	public float getTravelTime(T origin, T destination) {
+		return travelTimes[getIndex(originIndices, origin)][getIndex(destinationIndices, destination)];
+	}
+
+	public float getDistance(T origin, T destination) {
+		return distances[getIndex(originIndices, origin)][getIndex(destinationIndices, destination)];
+	}
+
+	private static <T> int getIndex(Map<T, Integer> indices, T element) {
+		Integer index = indices.get(element);
+		Preconditions.checkArgument(index != null, "%s is not part of the matrix", element);
+		return index;
+	}
+
+	/**
+	 * @return the travel times [origin][destination] (not a copy, must not be modified)
+	 */
+	public float[][] getTravelTimes() {
+		return travelTimes;
+	}
+
+	/**
+	 * @return the distances [origin][destination] (not a copy, must not be modified)
+	 */
+	public float[][] getDistances() {
+		return distances;
+	}
+}
@@ -0,0 +1,234 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.path;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.contrib.util.ExecutorServiceWithResource;
+import org.matsim.contrib.util.ExecutorServiceWithResource.RunnableWithResource;
+import org.matsim.contrib.util.distance.DistanceUtils;
+import org.matsim.contrib.zone.ZonalSystem;
+import org.matsim.contrib.zone.Zone;
+import org.matsim.core.router.priorityqueue.DAryMinHeap;
+import org.matsim.core.router.speedy.SpeedyGraph;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Calculates {@link TravelTimeMatrix}es: the travel times and distances along the least cost paths between many
+ * origins and destinations. For each origin (and time bin), one forward search is run on a {@link SpeedyGraph} until
+ * all destinations are reached; the origins are processed in parallel. In contrast to {@link ManyToManyPathData}, no
+ * paths are kept, so the matrices for thousands of origins and destinations fit into memory.
+ * <p>
+ * The network graph is created once, so one calculator should be reused for all matrices of a network.
+ */
+public class TravelTimeMatrixCalculator {
+	private static final Logger log = Logger.getLogger(TravelTimeMatrixCalculator.class);
+
+	private final SpeedyGraph graph;
+	private final TravelTime travelTime;
+	private final TravelDisutility travelDisutility;
+	private final int threads;
+
+	public TravelTimeMatrixCalculator(Network network, TravelTime travelTime, TravelDisutility travelDisutility,
+			int threads) {
+		this.graph = new SpeedyGraph(network);
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+		this.threads = threads;
+	}
+
+	public TravelTimeMatrix<Node> calcNodeMatrix(List<Node> origins, List<Node> destinations, double departureTime) {
+		return calcMatrices(origins, destinations, Function.identity(), new double[] { departureTime }).get(0);
+	}
+
+	/**
+	 * @return one matrix per time bin, with the start of the time bin as the departure time
+	 */
+	public List<TravelTimeMatrix<Node>> calcNodeMatrices(List<Node> origins, List<Node> destinations,
+			TimeDiscretizer timeDiscretizer) {
+		return calcMatrices(origins, destinations, Function.identity(), getDepartureTimes(timeDiscretizer));
+	}
+
+	/**
+	 * Each zone is represented by its node closest to the zone centroid. Zones without nodes are unreachable.
+	 */
+	public TravelTimeMatrix<Zone> calcZonalMatrix(ZonalSystem zonalSystem, double departureTime) {
+		List<Zone> zones = new ArrayList<>(zonalSystem.getZones().values());
+		return calcMatrices(zones, zones, createZoneToNodeFunction(zonalSystem), new double[] { departureTime }).get(0);
+	}
+
+	/**
+	 * @return one matrix per time bin, with the start of the time bin as the departure time
+	 */
+	public List<TravelTimeMatrix<Zone>> calcZonalMatrices(ZonalSystem zonalSystem, TimeDiscretizer timeDiscretizer) {
+		List<Zone> zones = new ArrayList<>(zonalSystem.getZones().values());
+		return calcMatrices(zones, zones, createZoneToNodeFunction(zonalSystem), getDepartureTimes(timeDiscretizer));
+	}
+
+	private static double[] getDepartureTimes(TimeDiscretizer timeDiscretizer) {
+		return IntStream.range(0, timeDiscretizer.getIntervalCount())
+				.mapToDouble(i -> i * timeDiscretizer.getTimeInterval())
+				.toArray();
+	}
+
+	private Function<Zone, Node> createZoneToNodeFunction(ZonalSystem zonalSystem) {
+		Map<Zone, Node> zoneNodes = new HashMap<>();
+		for (Node node : graph.getNetwork().getNodes().values()) {
+			Zone zone = zonalSystem.getZone(node);
+			if (zone != null) {
+				zoneNodes.merge(zone, node, (n1, n2) -> DistanceUtils.calculateSquaredDistance(zone.getCoord(), n1.getCoord())
+						<= DistanceUtils.calculateSquaredDistance(zone.getCoord(), n2.getCoord()) ? n1 : n2);
+			}
+		}
+		return zoneNodes::get;
+	}
+
+	/**
+	 * @param toNode the node of each origin and destination, or null if it is not part of the network
+	 */
+	public <T> List<TravelTimeMatrix<T>> calcMatrices(List<T> origins, List<T> destinations, Function<T, Node> toNode,
+			double[] departureTimes) {
+		int[] originNodes = getNodeIndices(origins, toNode);
+		int[] destinationNodes = getNodeIndices(destinations, toNode);
+		List<TravelTimeMatrix<T>> matrices = new ArrayList<>(departureTimes.length);
+		for (double departureTime : departureTimes) {
+			matrices.add(new TravelTimeMatrix<>(origins, destinations, departureTime));
+		}
+
+		log.info("Matrix calculation started: " + origins.size() + " origins, " + destinations.size()
+				+ " destinations, " + departureTimes.length + " time bins");
+		ExecutorServiceWithResource<OneToAllSearch> executorService = new ExecutorServiceWithResource<>(
+				IntStream.range(0, threads).mapToObj(i -> new OneToAllSearch()).collect(Collectors.toList()));
+		try {
+			executorService.submitRunnablesAndWait(matrices.stream() // for each time bin
+					.flatMap(matrix -> IntStream.range(0, originNodes.length) // and each origin
+							.mapToObj(o -> (RunnableWithResource<OneToAllSearch>)search -> search.calcRow(originNodes[o],
+									matrix.getDepartureTime(), destinationNodes, matrix.getTravelTimes()[o],
+									matrix.getDistances()[o]))));
+		} finally {
+			executorService.shutdown();
+		}
+		log.info("Matrix calculation finished");
+		return matrices;
+	}
+
+	private <T> int[] getNodeIndices(List<T> elements, Function<T, Node> toNode) {
+		int[] indices = new int[elements.size()];
+		for (int i = 0; i < indices.length; i++) {
+			Node node = toNode.apply(elements.get(i));
+			indices[i] = node != null && graph.contains(node) ? node.getId().index() : -1;
+		}
+		return indices;
+	}
+
+	/**
+	 * Not thread-safe, one per thread.
+	 */
+	private class OneToAllSearch {
+		private final double[] costs = new double[graph.getNodeIndexCount()];
+		private final double[] times = new double[graph.getNodeIndexCount()];
+		private final double[] distances = new double[graph.getNodeIndexCount()];
+		// a node is visited (or a destination) if the stamp equals the current iteration
+		private final int[] visitedStamps = new int[graph.getNodeIndexCount()];
+		private final int[] destinationStamps = new int[graph.getNodeIndexCount()];
+		private final DAryMinHeap pendingNodes = new DAryMinHeap(graph.getNodeIndexCount());
+		private int iteration = 0;
+
+		private void calcRow(int originNode, double departureTime, int[] destinationNodes, float[] travelTimeRow,
+				float[] distanceRow) {
+			if (originNode < 0) {
+				fillUnreachable(travelTimeRow, distanceRow, 0, travelTimeRow.length);
+				return;
+			}
+			iteration++;
+
+			int remainingDestinations = 0;
+			for (int node : destinationNodes) {
+				if (node >= 0 && destinationStamps[node] != iteration) {
+					destinationStamps[node] = iteration;
+					remainingDestinations++;
+				}
+			}
+
+			pendingNodes.clear();
+			visit(originNode, 0, departureTime, 0);
+			pendingNodes.insert(originNode, 0);
+
+			while (remainingDestinations > 0 && !pendingNodes.isEmpty()) {
+				int node = pendingNodes.poll();
+				if (destinationStamps[node] == iteration) {
+					remainingDestinations--;
+				}
+				relaxOutLinks(node);
+			}
+
+			for (int i = 0; i < destinationNodes.length; i++) {
+				int node = destinationNodes[i];
+				if (node >= 0 && visitedStamps[node] == iteration) {
+					travelTimeRow[i] = (float)(times[node] - departureTime);
+					distanceRow[i] = (float)distances[node];
+				} else {
+					fillUnreachable(travelTimeRow, distanceRow, i, i + 1);
+				}
+			}
+		}
+
+		private void relaxOutLinks(int node) {
+			double cost = costs[node];
+			double time = times[node];
+			double distance = distances[node];
+			for (int l = graph.getFirstOutLink(node); l < graph.getFirstOutLink(node + 1); l++) {
+				Link link = graph.getLink(l);
+				int toNode = graph.getToNode(l);
+				double newCost = cost + travelDisutility.getLinkTravelDisutility(link, time, null, null);
+				if (visitedStamps[toNode] != iteration || newCost < costs[toNode]) {
+					double newTime = time + travelTime.getLinkTravelTime(link, time, null, null);
+					visit(toNode, newCost, newTime, distance + link.getLength());
+					pendingNodes.decreaseKey(toNode, newCost);
+				}
+			}
+		}
+
+		private void visit(int node, double cost, double time, double distance) {
+			visitedStamps[node] = iteration;
+			costs[node] = cost;
+			times[node] = time;
+			distances[node] = distance;
+		}
+
+		private void fillUnreachable(float[] travelTimeRow, float[] distanceRow, int from, int to) {
+			for (int i = from; i < to; i++) {
+				travelTimeRow[i] = Float.POSITIVE_INFINITY;
+				distanceRow[i] = Float.POSITIVE_INFINITY;
+			}
+		}
+	}
+}
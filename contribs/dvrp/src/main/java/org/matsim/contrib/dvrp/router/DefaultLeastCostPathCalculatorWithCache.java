@@ -19,53 +19,244 @@
 
 package org.matsim.contrib.dvrp.router;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
+import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
 import org.matsim.contrib.dvrp.util.TimeDiscretizer;
 import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
 import org.matsim.vehicles.Vehicle;
 
-import com.google.common.collect.*;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
+/**
+ * Caches the paths computed by the wrapped calculator per time bin and pair of nodes.
+ * <p>
+ * The number of cached paths is bounded; if the bound is reached, the least recently used paths are evicted. The paths
+ * are stored as arrays of link indices (see {@link Id#index()}) and turned into {@link Path}s again when they are
+ * requested.
+ * <p>
+ * The cache is thread-safe. Misses for different keys are computed concurrently, while concurrent requests for the same
+ * key wait for the path computed by the first one. As calculators are not thread-safe, the paths are computed by one
+ * calculator per thread if the cache is created with a {@link LeastCostPathCalculatorFactory}. A single wrapped
+ * calculator is only used by one thread at a time, so all misses are computed one after the other.
+ */
 public class DefaultLeastCostPathCalculatorWithCache implements LeastCostPathCalculatorWithCache {
-	private final LeastCostPathCalculator calculator;
+	public static final long DEFAULT_MAXIMUM_SIZE = 1_000_000;
+
+	private final LeastCostPathCalculator calculator;// null if there is one calculator per thread
+	private final ThreadLocal<LeastCostPathCalculator> calculators;
 	private final TimeDiscretizer timeDiscretizer;
-	private final Table<Id<Node>, Id<Node>, Path>[] pathCache;
+	private final Link[] linksByIndex;
+	private final Cache<PathKey, CachedPath> pathCache;
 
-	private CacheStats cacheStats = new CacheStats();
+	private final CacheStats cacheStats = new CacheStats();
 
-	@SuppressWarnings("unchecked")
-	public DefaultLeastCostPathCalculatorWithCache(LeastCostPathCalculator calculator,
+	/**
+	 * Creates a factory that wraps each calculator created by the given factory with its own cache.
+	 *
+	 * @param maximumSize the maximum number of paths in each cache, over all time bins
+	 */
+	public static LeastCostPathCalculatorFactory createFactory(LeastCostPathCalculatorFactory calculatorFactory,
+			TimeDiscretizer timeDiscretizer, long maximumSize) {
+		return (network, travelDisutility, travelTime) -> new DefaultLeastCostPathCalculatorWithCache(
+				calculatorFactory.createPathCalculator(network, travelDisutility, travelTime), network, timeDiscretizer,
+				maximumSize);
+	}
+
+	/**
+	 * @param network the network the calculator routes on
+	 */
+	public DefaultLeastCostPathCalculatorWithCache(LeastCostPathCalculator calculator, Network network,
 			TimeDiscretizer timeDiscretizer) {
+		this(calculator, network, timeDiscretizer, DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * @param network     the network the calculator routes on
+	 * @param maximumSize the maximum number of paths in the cache, over all time bins
+	 */
+	public DefaultLeastCostPathCalculatorWithCache(LeastCostPathCalculator calculator, Network network,
+			TimeDiscretizer timeDiscretizer, long maximumSize) {
+		this(calculator, null, network, timeDiscretizer, maximumSize);
+	}
+
+	/**
+	 * Computes the paths with one calculator per thread, created by the given factory, so misses on different threads
+	 * do not block each other. The maximum number of paths in the cache is taken from the DVRP config.
+	 */
+	public DefaultLeastCostPathCalculatorWithCache(LeastCostPathCalculatorFactory calculatorFactory, Network network,
+			TravelDisutility travelDisutility, TravelTime travelTime, TimeDiscretizer timeDiscretizer,
+			DvrpConfigGroup dvrpCfg) {
+		this(calculatorFactory, network, travelDisutility, travelTime, timeDiscretizer,
+				dvrpCfg.getPathCacheMaximumSize());
+	}
+
+	/**
+	 * Computes the paths with one calculator per thread, created by the given factory, so misses on different threads
+	 * do not block each other.
+	 *
+	 * @param maximumSize the maximum number of paths in the cache, over all time bins
+	 */
+	public DefaultLeastCostPathCalculatorWithCache(LeastCostPathCalculatorFactory calculatorFactory, Network network,
+			TravelDisutility travelDisutility, TravelTime travelTime, TimeDiscretizer timeDiscretizer,
+			long maximumSize) {
+		this(null, ThreadLocal.withInitial(
+				() -> calculatorFactory.createPathCalculator(network, travelDisutility, travelTime)), network,
+				timeDiscretizer, maximumSize);
+	}
+
+	private DefaultLeastCostPathCalculatorWithCache(LeastCostPathCalculator calculator,
+			ThreadLocal<LeastCostPathCalculator> calculators, Network network, TimeDiscretizer timeDiscretizer,
+			long maximumSize) {
+		Preconditions.checkArgument(maximumSize >= 0, "maximumSize must not be negative");
 		this.calculator = calculator;
+		this.calculators = calculators;
 		this.timeDiscretizer = timeDiscretizer;
 
-		pathCache = new Table[timeDiscretizer.getIntervalCount()];
-		for (int i = 0; i < pathCache.length; i++) {
-			pathCache[i] = HashBasedTable.create();
+		int maxLinkIndex = network.getLinks().keySet().stream().mapToInt(Id::index).max().orElse(-1);
+		linksByIndex = new Link[maxLinkIndex + 1];
+		for (Link link : network.getLinks().values()) {
+			linksByIndex[link.getId().index()] = link;
 		}
+
+		pathCache = CacheBuilder.newBuilder()
+				.maximumSize(maximumSize)
+				.<PathKey, CachedPath>removalListener(notification -> {
+					if (notification.wasEvicted()) {
+						cacheStats.incEvictions();
+					}
+				})
+				.build();
 	}
 
 	@Override
 	public Path calcLeastCostPath(Node fromNode, Node toNode, double startTime, Person person, Vehicle vehicle) {
-		Table<Id<Node>, Id<Node>, Path> spCacheSlice = pathCache[timeDiscretizer.getIdx(startTime)];
-		Path path = spCacheSlice.get(fromNode.getId(), toNode.getId());
-
-		if (path == null) {
-			cacheStats.incMisses();
-			path = calculator.calcLeastCostPath(fromNode, toNode, timeDiscretizer.discretize(startTime), person,
-					vehicle);
-			spCacheSlice.put(fromNode.getId(), toNode.getId(), path);
-		} else {
+		PathKey key = new PathKey(timeDiscretizer.getIdx(startTime), fromNode.getId().index(),
+				toNode.getId().index());
+		CachedPath cachedPath = pathCache.getIfPresent(key);
+		if (cachedPath != null) {
 			cacheStats.incHits();
+			return cachedPath.toPath(fromNode, linksByIndex);
 		}
 
-		return path;
+		// the path is only computed if no other thread is already computing it
+		boolean[] computed = { false };
+		Path[] computedPath = { null };
+		try {
+			cachedPath = pathCache.get(key, () -> {
+				cacheStats.incMisses();
+				computed[0] = true;
+				computedPath[0] = computePath(fromNode, toNode, timeDiscretizer.discretize(startTime), person, vehicle);
+				return computedPath[0] == null ? CachedPath.NO_PATH : new CachedPath(computedPath[0]);
+			});
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			Throwables.throwIfUnchecked(e.getCause());
+			throw new RuntimeException(e.getCause());
+		}
+		if (computed[0]) {
+			return computedPath[0];
+		}
+		// computed by another thread in the meantime
+		cacheStats.incHits();
+		return cachedPath.toPath(fromNode, linksByIndex);
+	}
+
+	private Path computePath(Node fromNode, Node toNode, double time, Person person, Vehicle vehicle) {
+		if (calculators != null) {
+			return calculators.get().calcLeastCostPath(fromNode, toNode, time, person, vehicle);
+		}
+		synchronized (calculator) {
+			return calculator.calcLeastCostPath(fromNode, toNode, time, person, vehicle);
+		}
 	}
 
 	@Override
 	public CacheStats getCacheStats() {
 		return cacheStats;
 	}
+
+	/**
+	 * @return the number of paths currently in the cache (approximate)
+	 */
+	public long getCacheSize() {
+		return pathCache.size();
+	}
+
+	private static final class PathKey {
+		private final int timeBin;
+		private final int fromNode;
+		private final int toNode;
+
+		private PathKey(int timeBin, int fromNode, int toNode) {
+			this.timeBin = timeBin;
+			this.fromNode = fromNode;
+			this.toNode = toNode;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof PathKey)) {
+				return false;
+			}
+			PathKey other = (PathKey)o;
+			return timeBin == other.timeBin && fromNode == other.fromNode && toNode == other.toNode;
+		}
+
+		@Override
+		public int hashCode() {
+			return (timeBin * 31 + fromNode) * 31 + toNode;
+		}
+	}
+
+	private static final class CachedPath {
+		// the cache does not accept null values, so unreachable nodes are cached as this
+		private static final CachedPath NO_PATH = new CachedPath(null, 0, 0);
+
+		private final int[] linkIndices;
+		private final double travelTime;
+		private final double travelCost;
+
+		private CachedPath(Path path) {
+			this(path.links.stream().mapToInt(link -> link.getId().index()).toArray(), path.travelTime,
+					path.travelCost);
+		}
+
+		private CachedPath(int[] linkIndices, double travelTime, double travelCost) {
+			this.linkIndices = linkIndices;
+			this.travelTime = travelTime;
+			this.travelCost = travelCost;
+		}
+
+		private Path toPath(Node fromNode, Link[] linksByIndex) {
+			if (linkIndices == null) {
+				return null;
+			}
+			List<Node> nodes = new ArrayList<>(linkIndices.length + 1);
+			List<Link> links = new ArrayList<>(linkIndices.length);
+			nodes.add(fromNode);
+			for (int linkIndex : linkIndices) {
+				Link link = linksByIndex[linkIndex];
+				links.add(link);
+				nodes.add(link.getToNode());
+			}
+			return new Path(nodes, links, travelTime, travelCost);
+		}
+	}
 }
@@ -23,8 +23,11 @@ package org.matsim.contrib.dvrp.router;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.dvrp.run.AbstractDvrpModeModule;
+import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
 import org.matsim.contrib.dvrp.run.ModalProviders;
 import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.router.RoutingModule;
 import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
@@ -84,6 +87,12 @@ public class DvrpModeRoutingModule extends AbstractDvrpModeModule {
 		@Named(DvrpTravelTimeModule.DVRP_ESTIMATED)
 		private TravelTime travelTime;
 
+		@Inject
+		private DvrpConfigGroup dvrpCfg;
+
+		@Inject
+		private TravelTimeCalculatorConfigGroup ttcConfig;
+
 		private final LeastCostPathCalculatorFactory leastCostPathCalculatorFactory;
 
 		private GenericRouteCreatorProvider(String mode,
@@ -94,8 +103,11 @@ public class DvrpModeRoutingModule extends AbstractDvrpModeModule {
 
 		@Override
 		public GenericRouteCreator get() {
-			return new GenericRouteCreator(leastCostPathCalculatorFactory, getModalInstance(Network.class), travelTime,
-					getModalInstance(TravelDisutilityFactory.class));
+			// the route creator is not a singleton, so the cached paths do not outlive the current travel times
+			return new GenericRouteCreator(
+					DefaultLeastCostPathCalculatorWithCache.createFactory(leastCostPathCalculatorFactory,
+							new TimeDiscretizer(ttcConfig), dvrpCfg.getPathCacheMaximumSize()),
+					getModalInstance(Network.class), travelTime, getModalInstance(TravelDisutilityFactory.class));
 		}
 	}
 }
@@ -26,20 +26,30 @@ import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 public class LeastCostPathCalculatorCacheStats {
 	private final SummaryStatistics hitStats = new SummaryStatistics();
 	private final SummaryStatistics missStats = new SummaryStatistics();
-
-	public void updateStats(LeastCostPathCalculatorWithCache calculatorWithCache) {
-		hitStats.addValue(calculatorWithCache.getCacheStats().getHits());
-		missStats.addValue(calculatorWithCache.getCacheStats().getMisses());
+	private final SummaryStatistics evictionStats = new SummaryStatistics();
+	private final SummaryStatistics hitRateStats = new SummaryStatistics();
+
+	public synchronized void updateStats(LeastCostPathCalculatorWithCache calculatorWithCache) {
+		LeastCostPathCalculatorWithCache.CacheStats cacheStats = calculatorWithCache.getCacheStats();
+		hitStats.addValue(cacheStats.getHits());
+		missStats.addValue(cacheStats.getMisses());
+		evictionStats.addValue(cacheStats.getEvictions());
+		if (cacheStats.getHits() + cacheStats.getMisses() > 0) {
+			hitRateStats.addValue(cacheStats.getHitRate());
+		}
 	}
 
-	public static final String HEADER = "cfg\tHits\tMisses";
+	public static final String HEADER = "cfg\tHits\tMisses\tEvictions\tHitRate";
 
-	public void printStats(PrintWriter pw, String id) {
-		pw.printf("%10s\t%f\t%f\n", id, hitStats.getMean(), missStats.getMean());
+	public synchronized void printStats(PrintWriter pw, String id) {
+		pw.printf("%10s\t%f\t%f\t%f\t%f\n", id, hitStats.getMean(), missStats.getMean(), evictionStats.getMean(),
+				hitRateStats.getMean());
 	}
 
-	public void clearStats() {
+	public synchronized void clearStats() {
 		hitStats.clear();
 		missStats.clear();
+		evictionStats.clear();
+		hitRateStats.clear();
 	}
 }
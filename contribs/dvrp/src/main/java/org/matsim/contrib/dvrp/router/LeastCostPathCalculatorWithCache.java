@@ -19,29 +19,56 @@
 
 package org.matsim.contrib.dvrp.router;
 
+import java.util.concurrent.atomic.LongAdder;
+
 import org.matsim.core.router.util.LeastCostPathCalculator;
 
 public interface LeastCostPathCalculatorWithCache extends LeastCostPathCalculator {
+	/**
+	 * Thread-safe counters of the cache accesses.
+	 */
 	class CacheStats {
-		private int hits = 0;
-		private int misses = 0;
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+		private final LongAdder evictions = new LongAdder();
 
 		public void incHits() {
-			hits++;
+			hits.increment();
 		}
 
 		public void incMisses() {
-			misses++;
+			misses.increment();
+		}
+
+		public void incEvictions() {
+			evictions.increment();
 		}
 
 		public int getHits() {
-			return hits;
+			return saturatedInt(hits.sum());
 		}
 
 		public int getMisses() {
-			return misses;
+			return saturatedInt(misses.sum());
+		}
+
+		public int getEvictions() {
+			return saturatedInt(evictions.sum());
+		}
+
+		/**
+		 * @return the share of the accesses which were hits, or NaN if there were no accesses
+		 */
+		public double getHitRate() {
+			long hits = this.hits.sum();
+			long accesses = hits + misses.sum();
+			return accesses == 0 ? Double.NaN : (double)hits / accesses;
+		}
+
+		private static int saturatedInt(long value) {
+			return (int)Math.min(value, Integer.MAX_VALUE);
 		}
 	}
 
 	CacheStats getCacheStats();
-}
\ No newline at end of file
+}
@@ -29,6 +29,7 @@ import javax.validation.constraints.PositiveOrZero;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.TransportMode;
+import org.matsim.contrib.dvrp.router.DefaultLeastCostPathCalculatorWithCache;
 import org.matsim.contrib.dynagent.run.DynQSimConfigConsistencyChecker;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ReflectiveConfigGroup;
@@ -90,6 +91,12 @@ public final class DvrpConfigGroup extends ReflectiveConfigGroup {
 			+ " whereas if 'time < currentTime' it is 1."
 			////
 			+ " If beta is sufficiently large, 'beta >> 0', only the currently observed TT is used.";
+	private static final String PATH_CACHE_MAXIMUM_SIZE = "pathCacheMaximumSize";
+	private static final String PATH_CACHE_MAXIMUM_SIZE_EXP = "Maximum number of paths kept by each"
+			+ " DefaultLeastCostPathCalculatorWithCache, over all time bins."
+			+ " The DVRP and DRT route creators cache the paths they compute for the current travel times."
+			+ " If exceeded, the least recently used paths are evicted. Default is 1000000";
+
 	// In DVRP 'time < currentTime' may only happen for backward path search, a adding proper search termination
 	// criterion should prevent this from happening
 
@@ -107,6 +114,9 @@ public final class DvrpConfigGroup extends ReflectiveConfigGroup {
 	@PositiveOrZero
 	private double travelTimeEstimationBeta = 0; // [s], 0 ==> only offline TT estimation
 
+	@PositiveOrZero
+	private long pathCacheMaximumSize = DefaultLeastCostPathCalculatorWithCache.DEFAULT_MAXIMUM_SIZE;
+
 	public DvrpConfigGroup() {
 		super(GROUP_NAME);
 	}
@@ -141,6 +151,7 @@ public final class DvrpConfigGroup extends ReflectiveConfigGroup {
 		map.put(MOBSIM_MODE, MOBSIM_MODE_EXP);
 		map.put(TRAVEL_TIME_ESTIMATION_ALPHA, TRAVEL_TIME_ESTIMATION_ALPHA_EXP);
 		map.put(TRAVEL_TIME_ESTIMATION_BETA, TRAVEL_TIME_ESTIMATION_BETA_EXP);
+		map.put(PATH_CACHE_MAXIMUM_SIZE, PATH_CACHE_MAXIMUM_SIZE_EXP);
 		return map;
 	}
 
@@ -220,4 +231,21 @@ public final class DvrpConfigGroup extends ReflectiveConfigGroup {
 		this.travelTimeEstimationBeta = travelTimeEstimationBeta;
 		return this;
 	}
+
+	/**
+	 * @return {@value #PATH_CACHE_MAXIMUM_SIZE_EXP}
+	 */
+	@StringGetter(PATH_CACHE_MAXIMUM_SIZE)
+	public long getPathCacheMaximumSize() {
+		return pathCacheMaximumSize;
+	}
+
+	/**
+	 * @param pathCacheMaximumSize {@value #PATH_CACHE_MAXIMUM_SIZE_EXP}
+	 */
+	@StringSetter(PATH_CACHE_MAXIMUM_SIZE)
+	public DvrpConfigGroup setPathCacheMaximumSize(long pathCacheMaximumSize) {
+		this.pathCacheMaximumSize = pathCacheMaximumSize;
+		return this;
+	}
 }
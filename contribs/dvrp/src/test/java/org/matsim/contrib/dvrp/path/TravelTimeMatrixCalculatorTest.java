@@ -0,0 +1,139 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import com.google.common.collect.ImmutableList;
+
+public class TravelTimeMatrixCalculatorTest {
+	private static final int SIZE = 5;
+
+	// twice as slow in the morning peak, so that the departure time matters
+	private final TravelTime travelTime = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed() * (
+			time >= 8 * 3600 && time < 9 * 3600 ? 2 : 1);
+	private final TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+
+	@Test
+	public void testMatrixEqualsDijkstra() {
+		Network network = NetworkUtils.createNetwork();
+		List<Node> nodes = createGrid(network);
+		// can leave, but not be reached
+		Node island = NetworkUtils.createAndAddNode(network, Id.createNodeId("island"), new Coord(-500, -500));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("island"), island, nodes.get(0), 700, 10, 1000, 1);
+		nodes.add(island);
+
+		double[] departureTimes = { 0, 8 * 3600 - 200 };
+		List<TravelTimeMatrix<Node>> matrices = new TravelTimeMatrixCalculator(network, travelTime, travelDisutility,
+				2).calcMatrices(nodes, nodes, Function.identity(), departureTimes);
+		assertThat(matrices).hasSize(departureTimes.length);
+
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, travelDisutility,
+				travelTime);
+		for (TravelTimeMatrix<Node> matrix : matrices) {
+			for (Node origin : nodes) {
+				for (Node destination : nodes) {
+					Path path = dijkstra.calcLeastCostPath(origin, destination, matrix.getDepartureTime(), null, null);
+					if (path == null) {
+						assertThat(destination).isEqualTo(island);
+						assertThat(matrix.getTravelTime(origin, destination)).isEqualTo(Float.POSITIVE_INFINITY);
+						assertThat(matrix.getDistance(origin, destination)).isEqualTo(Float.POSITIVE_INFINITY);
+					} else {
+						double distance = path.links.stream().mapToDouble(Link::getLength).sum();
+						assertThat(matrix.getTravelTime(origin, destination)).isCloseTo((float)path.travelTime,
+								within(1e-2f));
+						assertThat(matrix.getDistance(origin, destination)).isCloseTo((float)distance, within(1e-2f));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testNodeOutsideNetworkIsUnreachable() {
+		Network network = NetworkUtils.createNetwork();
+		List<Node> nodes = createGrid(network);
+		Node outside = NetworkUtils.createNode(Id.createNodeId("outside"), new Coord(-500, -500));
+		List<Node> origins = ImmutableList.of(nodes.get(1), outside);
+		List<Node> destinations = ImmutableList.of(nodes.get(0), outside);
+
+		TravelTimeMatrix<Node> matrix = new TravelTimeMatrixCalculator(network, travelTime, travelDisutility, 1)
+				.calcMatrices(origins, destinations, Function.identity(), new double[] { 0 }).get(0);
+		assertThat(matrix.getTravelTime(nodes.get(1), nodes.get(0))).isFinite();
+		assertThat(matrix.getTravelTime(nodes.get(1), outside)).isEqualTo(Float.POSITIVE_INFINITY);
+		assertThat(matrix.getTravelTime(outside, nodes.get(0))).isEqualTo(Float.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * A grid with links in both directions and irregular lengths and speeds, so that the least cost paths are unique.
+	 */
+	private static List<Node> createGrid(Network network) {
+		List<Node> nodes = new ArrayList<>();
+		for (int y = 0; y < SIZE; y++) {
+			for (int x = 0; x < SIZE; x++) {
+				nodes.add(NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y),
+						new Coord(1000 * x, 1000 * y)));
+			}
+		}
+		int i = 0;
+		for (int y = 0; y < SIZE; y++) {
+			for (int x = 0; x < SIZE; x++) {
+				Node node = nodes.get(y * SIZE + x);
+				if (x + 1 < SIZE) {
+					i = createLinks(network, node, nodes.get(y * SIZE + x + 1), i);
+				}
+				if (y + 1 < SIZE) {
+					i = createLinks(network, node, nodes.get((y + 1) * SIZE + x), i);
+				}
+			}
+		}
+		return nodes;
+	}
+
+	private static int createLinks(Network network, Node a, Node b, int i) {
+		createLink(network, a, b, i++);
+		createLink(network, b, a, i++);
+		return i;
+	}
+
+	private static void createLink(Network network, Node from, Node to, int i) {
+		double length = 1000 + (i * 37) % 113;
+		double freespeed = 10 + (i * 7) % 11;
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(i), from, to, length, freespeed, 1000, 1);
+	}
+}
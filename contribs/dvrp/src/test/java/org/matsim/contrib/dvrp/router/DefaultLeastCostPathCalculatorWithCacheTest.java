@@ -0,0 +1,249 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.router;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.vehicles.Vehicle;
+
+public class DefaultLeastCostPathCalculatorWithCacheTest {
+	private final Network network = NetworkUtils.createNetwork();
+	private final Node[] nodes = createLine(network, 10);
+	private final AtomicInteger calculations = new AtomicInteger();
+
+	@Test
+	public void testHitsAndMisses() {
+		DefaultLeastCostPathCalculatorWithCache cache = new DefaultLeastCostPathCalculatorWithCache(
+				new LinePathCalculator(), network, TimeDiscretizer.ACYCLIC_1_HOUR);
+
+		Path path = cache.calcLeastCostPath(nodes[1], nodes[4], 7 * 3600 + 10, null, null);
+		assertThat(path.links).hasSize(3);
+		assertStats(cache, 0, 1);
+
+		// same time bin
+		Path cachedPath = cache.calcLeastCostPath(nodes[1], nodes[4], 7 * 3600 + 1800, null, null);
+		assertThat(cachedPath.links).isEqualTo(path.links);
+		assertThat(cachedPath.nodes).isEqualTo(path.nodes);
+		assertThat(cachedPath.travelTime).isEqualTo(path.travelTime);
+		assertStats(cache, 1, 1);
+
+		// another time bin
+		cache.calcLeastCostPath(nodes[1], nodes[4], 8 * 3600, null, null);
+		assertStats(cache, 1, 2);
+
+		// unreachable nodes are cached as well
+		assertThat(cache.calcLeastCostPath(nodes[4], nodes[1], 8 * 3600, null, null)).isNull();
+		assertThat(cache.calcLeastCostPath(nodes[4], nodes[1], 8 * 3600, null, null)).isNull();
+		assertStats(cache, 2, 3);
+
+		assertThat(calculations.get()).isEqualTo(3);
+		assertThat(cache.getCacheStats().getHitRate()).isEqualTo(0.4);
+	}
+
+	@Test
+	public void testEviction() {
+		DefaultLeastCostPathCalculatorWithCache cache = new DefaultLeastCostPathCalculatorWithCache(
+				new LinePathCalculator(), network, TimeDiscretizer.ACYCLIC_1_HOUR, 2);
+
+		cache.calcLeastCostPath(nodes[0], nodes[1], 0, null, null);
+		cache.calcLeastCostPath(nodes[0], nodes[2], 0, null, null);
+		cache.calcLeastCostPath(nodes[0], nodes[1], 0, null, null);// hit, so 0->2 is the least recently used path
+		cache.calcLeastCostPath(nodes[0], nodes[3], 0, null, null);
+		assertThat(cache.getCacheSize()).isEqualTo(2);
+		assertThat(cache.getCacheStats().getEvictions()).isEqualTo(1);
+
+		cache.calcLeastCostPath(nodes[0], nodes[1], 0, null, null);
+		assertStats(cache, 2, 3);
+		cache.calcLeastCostPath(nodes[0], nodes[2], 0, null, null);
+		assertStats(cache, 2, 4);
+		assertThat(cache.getCacheStats().getEvictions()).isEqualTo(2);
+		assertThat(calculations.get()).isEqualTo(4);
+	}
+
+	@Test
+	public void testMaximumSizeFromConfig() {
+		DvrpConfigGroup dvrpCfg = new DvrpConfigGroup().setPathCacheMaximumSize(1);
+		DefaultLeastCostPathCalculatorWithCache cache = new DefaultLeastCostPathCalculatorWithCache(
+				(network, travelCosts, travelTimes) -> new LinePathCalculator(), network, null, null,
+				TimeDiscretizer.ACYCLIC_1_HOUR, dvrpCfg);
+
+		cache.calcLeastCostPath(nodes[0], nodes[1], 0, null, null);
+		cache.calcLeastCostPath(nodes[0], nodes[2], 0, null, null);
+		assertThat(cache.getCacheSize()).isEqualTo(1);
+		assertThat(cache.getCacheStats().getEvictions()).isEqualTo(1);
+	}
+
+	@Test
+	public void testFactory() {
+		LeastCostPathCalculatorFactory factory = DefaultLeastCostPathCalculatorWithCache.createFactory(
+				(network, travelCosts, travelTimes) -> new LinePathCalculator(), TimeDiscretizer.ACYCLIC_1_HOUR, 1000);
+		LeastCostPathCalculator calculator = factory.createPathCalculator(network, null, null);
+		assertThat(calculator).isInstanceOf(DefaultLeastCostPathCalculatorWithCache.class);
+
+		Path path = calculator.calcLeastCostPath(nodes[2], nodes[5], 0, null, null);
+		Path cachedPath = calculator.calcLeastCostPath(nodes[2], nodes[5], 0, null, null);
+		// the links are restored from their indices
+		assertThat(cachedPath.links).containsExactlyElementsOf(path.links);
+		assertThat(cachedPath.nodes).containsExactlyElementsOf(path.nodes);
+		assertStats((LeastCostPathCalculatorWithCache)calculator, 1, 1);
+		assertThat(calculations.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception {
+		Set<LeastCostPathCalculator> usedCalculators = ConcurrentHashMap.newKeySet();
+		LeastCostPathCalculatorFactory factory = (network, travelCosts, travelTimes) -> {
+			LinePathCalculator calculator = new LinePathCalculator();
+			usedCalculators.add(calculator);
+			return calculator;
+		};
+		DefaultLeastCostPathCalculatorWithCache cache = new DefaultLeastCostPathCalculatorWithCache(factory, network,
+				null, null, TimeDiscretizer.ACYCLIC_1_HOUR, 1000);
+
+		int threads = 4;
+		int rounds = 50;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(() -> {
+					for (int r = 0; r < rounds; r++) {
+						for (int from = 0; from < nodes.length; from++) {
+							for (int to = from; to < nodes.length; to++) {
+								Path path = cache.calcLeastCostPath(nodes[from], nodes[to], 3600, null, null);
+								assertThat(path.links).hasSize(to - from);
+								assertThat(path.nodes.get(0)).isSameAs(nodes[from]);
+							}
+						}
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		// every path is computed only once, even if requested by several threads at the same time
+		int pairs = nodes.length * (nodes.length + 1) / 2;
+		assertThat(calculations.get()).isEqualTo(pairs);
+		assertStats(cache, threads * rounds * pairs - pairs, pairs);
+		assertThat(usedCalculators.size()).isBetween(1, threads);
+	}
+
+	@Test
+	public void testMissesAreComputedConcurrently() throws Exception {
+		// each calculation waits until the other thread also calculates a path, which fails if misses are serialised
+		CountDownLatch bothCalculating = new CountDownLatch(2);
+		LeastCostPathCalculatorFactory factory = (network, travelCosts, travelTimes) -> new LinePathCalculator() {
+			@Override
+			public Path calcLeastCostPath(Node fromNode, Node toNode, double starttime, Person person,
+					Vehicle vehicle) {
+				bothCalculating.countDown();
+				try {
+					if (!bothCalculating.await(10, TimeUnit.SECONDS)) {
+						throw new IllegalStateException("misses are not computed concurrently");
+					}
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				return super.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+			}
+		};
+		DefaultLeastCostPathCalculatorWithCache cache = new DefaultLeastCostPathCalculatorWithCache(factory, network,
+				null, null, TimeDiscretizer.ACYCLIC_1_HOUR, 1000);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Path> path1 = executor.submit(() -> cache.calcLeastCostPath(nodes[0], nodes[5], 0, null, null));
+			Future<Path> path2 = executor.submit(() -> cache.calcLeastCostPath(nodes[2], nodes[7], 0, null, null));
+			assertThat(path1.get().links).hasSize(5);
+			assertThat(path2.get().links).hasSize(5);
+		} finally {
+			executor.shutdown();
+		}
+		assertStats(cache, 0, 2);
+	}
+
+	private static void assertStats(LeastCostPathCalculatorWithCache cache, int hits, int misses) {
+		assertThat(cache.getCacheStats().getHits()).isEqualTo(hits);
+		assertThat(cache.getCacheStats().getMisses()).isEqualTo(misses);
+	}
+
+	private static Node[] createLine(Network network, int nodeCount) {
+		Node[] nodes = new Node[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			nodes[i] = NetworkUtils.createAndAddNode(network, Id.createNodeId("line_" + i), new Coord(i * 100, 0));
+			if (i > 0) {
+				NetworkUtils.createAndAddLink(network, Id.createLinkId("line_" + i), nodes[i - 1], nodes[i], 100, 10,
+						1000, 1);
+			}
+		}
+		return nodes;
+	}
+
+	/**
+	 * Routes along the line network, only in the direction of the links. Counts the calculations.
+	 */
+	private class LinePathCalculator implements LeastCostPathCalculator {
+		@Override
+		public Path calcLeastCostPath(Node fromNode, Node toNode, double starttime, Person person, Vehicle vehicle) {
+			calculations.incrementAndGet();
+			List<Node> pathNodes = new ArrayList<>();
+			List<Link> pathLinks = new ArrayList<>();
+			Node node = fromNode;
+			pathNodes.add(node);
+			while (node != toNode) {
+				if (node.getOutLinks().isEmpty()) {
+					return null;
+				}
+				Link link = node.getOutLinks().values().iterator().next();
+				pathLinks.add(link);
+				node = link.getToNode();
+				pathNodes.add(node);
+			}
+			return new Path(pathNodes, pathLinks, 10. * pathLinks.size(), 10. * pathLinks.size());
+		}
+	}
+}
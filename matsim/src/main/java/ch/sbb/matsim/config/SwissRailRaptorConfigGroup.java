@@ -32,6 +32,10 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
     private static final String PARAM_TRANSFER_PENALTY_MIN = "transferPenaltyMinCost";
     private static final String PARAM_TRANSFER_PENALTY_MAX = "transferPenaltyMaxCost";
     private static final String PARAM_TRANSFER_PENALTY_PERHOUR = "transferPenaltyCostPerTravelTimeHour";
+    private static final String PARAM_TRANSFERS_CACHE_DIRECTORY = "transfersCacheDirectory";
+    private static final String PARAM_TRANSFERS_CACHE_DIRECTORY_DESC = "Directory where the transfers between the route stops are stored, " +
+            "so they are not calculated again for the same transit schedule. The stored transfers are memory-mapped and thus shared by all runs " +
+            "on a machine. If not set, the transfers are calculated at every start.";
 
     private boolean useRangeQuery = false;
     private boolean useIntermodality = false;
@@ -43,6 +47,8 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
     private double transferPenaltyMaxCost = Double.POSITIVE_INFINITY;
     private double transferPenaltyHourlyCost = 0;
 
+    private String transfersCacheDirectory = null;
+
     private ScoringParameters scoringParameters = ScoringParameters.Default;
 
     private final Map<String, RangeQuerySettingsParameterSet> rangeQuerySettingsPerSubpop = new HashMap<>();
@@ -153,6 +159,16 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
         this.transferPenaltyHourlyCost = hourlyCost;
     }
 
+    @StringGetter(PARAM_TRANSFERS_CACHE_DIRECTORY)
+    public String getTransfersCacheDirectory() {
+        return this.transfersCacheDirectory;
+    }
+
+    @StringSetter(PARAM_TRANSFERS_CACHE_DIRECTORY)
+    public void setTransfersCacheDirectory(String transfersCacheDirectory) {
+        this.transfersCacheDirectory = transfersCacheDirectory == null || transfersCacheDirectory.isEmpty() ? null : transfersCacheDirectory;
+    }
+
     @Override
     public ConfigGroup createParameterSet(String type) {
         if (RangeQuerySettingsParameterSet.TYPE.equals(type)) {
@@ -560,6 +576,7 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
     public Map<String, String> getComments() {
         Map<String, String> comments = super.getComments();
         comments.put(PARAM_INTERMODAL_ACCESS_EGRESS_MODE_SELECTION, PARAM_INTERMODAL_ACCESS_EGRESS_MODE_SELECTION_DESC);
+        comments.put(PARAM_TRANSFERS_CACHE_DIRECTORY, PARAM_TRANSFERS_CACHE_DIRECTORY_DESC);
         return comments;
     }
 
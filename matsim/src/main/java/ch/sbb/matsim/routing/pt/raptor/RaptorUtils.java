@@ -48,6 +48,8 @@ public final class RaptorUtils {
 
         staticConfig.setMinimalTransferTime(config.transitRouter().getAdditionalTransferTime());
 
+        staticConfig.setTransfersCacheDirectory(srrConfig.getTransfersCacheDirectory());
+
         staticConfig.setUseModeMappingForPassengers(srrConfig.isUseModeMappingForPassengers());
         if (srrConfig.isUseModeMappingForPassengers()) {
             for (SwissRailRaptorConfigGroup.ModeMappingForPassengersParameterSet mapping : srrConfig.getModeMappingForPassengers()) {
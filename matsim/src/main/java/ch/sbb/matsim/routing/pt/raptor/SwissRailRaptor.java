@@ -23,6 +23,10 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * Provides public transport route search capabilities using an implementation of the
@@ -221,10 +225,7 @@ public class SwissRailRaptor implements TransitRouter {
     }
 
     public Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> calcTree(Collection<TransitStopFacility> fromStops, double departureTime, RaptorParameters parameters) {
-        if (this.data.config.getOptimization() != RaptorStaticConfig.RaptorOptimization.OneToAllRouting && !this.treeWarningShown) {
-            log.warn("SwissRailRaptorData was not initialized with full support for tree calculations and may result in unexpected results. Use `RaptorStaticConfig.setOptimization(RaptorOptimization.OneToAllRouting)` to fix this issue.");
-            this.treeWarningShown = true;
-        }
+        this.checkTreeOptimization();
         List<InitialStop> accessStops = new ArrayList<>();
         for (TransitStopFacility stop : fromStops) {
             accessStops.add(new InitialStop(stop, 0, 0, 0, null));
@@ -238,6 +239,111 @@ public class SwissRailRaptor implements TransitRouter {
         return this.calcLeastCostTree(accessStops, departureTime, parameters);
     }
 
+    /**
+     * Calculates a tree for each of the given stops, using <code>numberOfThreads</code> threads which each use their
+     * own {@link SwissRailRaptorCore} on the shared {@link SwissRailRaptorData}. The trees are passed to the consumer
+     * as soon as they are calculated, so they do not all have to be kept in memory. The consumer is called
+     * concurrently from the worker threads and in no particular order, so it must be thread-safe. The method returns
+     * after all trees were passed to the consumer.
+     */
+    public void calcTrees(Collection<TransitStopFacility> fromStops, double departureTime, RaptorParameters parameters, int numberOfThreads,
+                          BiConsumer<TransitStopFacility, Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo>> consumer) {
+        this.checkTreeOptimization();
+        List<TransitStopFacility> origins = new ArrayList<>(fromStops);
+        this.calcTreesInParallel(origins, stop -> Collections.singletonList(new InitialStop(stop, 0, 0, 0, null)),
+                departureTime, parameters, numberOfThreads, consumer);
+    }
+
+    /**
+     * Calculates a tree for each of the given facilities in parallel, with the access stops found by the stop finder.
+     *
+     * @see #calcTrees(Collection, double, RaptorParameters, int, BiConsumer)
+     */
+    public <T extends Facility> void calcTrees(Collection<T> fromFacilities, double departureTime, Person person, int numberOfThreads,
+                                               BiConsumer<T, Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo>> consumer) {
+        this.checkTreeOptimization();
+        RaptorParameters parameters = this.parametersForPerson.getRaptorParameters(person);
+        List<T> origins = new ArrayList<>(fromFacilities);
+        // the stop finder is not necessarily thread-safe
+        Function<T, Collection<InitialStop>> accessStopsFinder = facility -> {
+            synchronized (this.stopFinder) {
+                return findAccessStops(facility, person, departureTime, parameters);
+            }
+        };
+        this.calcTreesInParallel(origins, accessStopsFinder, departureTime, parameters, numberOfThreads, consumer);
+    }
+
+    private <T> void calcTreesInParallel(List<T> origins, Function<T, Collection<InitialStop>> accessStopsFinder, double departureTime,
+                                         RaptorParameters parameters, int numberOfThreads,
+                                         BiConsumer<T, Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo>> consumer) {
+        AtomicInteger nextOrigin = new AtomicInteger(0);
+        AtomicReference<Throwable> exception = new AtomicReference<>(null);
+        Runnable worker = () -> {
+            SwissRailRaptorCore core = new SwissRailRaptorCore(this.data);
+            int index;
+            while (exception.get() == null && (index = nextOrigin.getAndIncrement()) < origins.size()) {
+                T origin = origins.get(index);
+                try {
+                    Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> tree = core.calcLeastCostTree(departureTime, accessStopsFinder.apply(origin), parameters);
+                    consumer.accept(origin, tree);
+                } catch (Throwable t) {
+                    exception.compareAndSet(null, t);
+                }
+            }
+        };
+
+        int threadCount = Math.max(1, Math.min(numberOfThreads, origins.size()));
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(worker, "SwissRailRaptorTrees." + i);
+            threads[i].start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            exception.compareAndSet(null, e);
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            Thread.currentThread().interrupt();
+        }
+        if (exception.get() != null) {
+            throw new RuntimeException("Calculating the trees failed.", exception.get());
+        }
+    }
+
+    private void checkTreeOptimization() {
+        if (this.data.config.getOptimization() != RaptorStaticConfig.RaptorOptimization.OneToAllRouting && !this.treeWarningShown) {
+            log.warn("SwissRailRaptorData was not initialized with full support for tree calculations and may result in unexpected results. Use `RaptorStaticConfig.setOptimization(RaptorOptimization.OneToAllRouting)` to fix this issue.");
+            this.treeWarningShown = true;
+        }
+    }
+
+    /**
+     * See {@link SwissRailRaptorCore#calcRangeTree(double, double, Collection, RaptorParameters)}.
+     */
+    public Map<Id<TransitStopFacility>, List<SwissRailRaptorCore.TravelInfo>> calcRangeTree(TransitStopFacility fromStop, double earliestDepartureTime, double latestDepartureTime, RaptorParameters parameters) {
+        return this.calcRangeTree(Collections.singletonList(fromStop), earliestDepartureTime, latestDepartureTime, parameters);
+    }
+
+    public Map<Id<TransitStopFacility>, List<SwissRailRaptorCore.TravelInfo>> calcRangeTree(Collection<TransitStopFacility> fromStops, double earliestDepartureTime, double latestDepartureTime, RaptorParameters parameters) {
+        this.checkTreeOptimization();
+        List<InitialStop> accessStops = new ArrayList<>();
+        for (TransitStopFacility stop : fromStops) {
+            accessStops.add(new InitialStop(stop, 0, 0, 0, null));
+        }
+        return this.raptor.calcRangeTree(earliestDepartureTime, latestDepartureTime, accessStops, parameters);
+    }
+
+    public Map<Id<TransitStopFacility>, List<SwissRailRaptorCore.TravelInfo>> calcRangeTree(Facility fromFacility, double earliestDepartureTime, double latestDepartureTime, Person person) {
+        this.checkTreeOptimization();
+        RaptorParameters parameters = this.parametersForPerson.getRaptorParameters(person);
+        List<InitialStop> accessStops = findAccessStops(fromFacility, person, earliestDepartureTime, parameters);
+        return this.raptor.calcRangeTree(earliestDepartureTime, latestDepartureTime, accessStops, parameters);
+    }
+
     private Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> calcLeastCostTree(Collection<InitialStop> accessStops, double departureTime, RaptorParameters parameters) {
         return this.raptor.calcLeastCostTree(departureTime, accessStops, parameters);
     }
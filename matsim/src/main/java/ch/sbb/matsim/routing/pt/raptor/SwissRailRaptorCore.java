@@ -6,7 +6,7 @@ package ch.sbb.matsim.routing.pt.raptor;
 
 import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RRoute;
 import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RRouteStop;
-import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RTransfer;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RTransfers;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.TransportMode;
@@ -521,6 +521,116 @@ public class SwissRailRaptorCore {
         return result;
     }
 
+    /**
+     * Calculates the least cost trees for all departures from the start stops within the given time window in one
+     * rRAPTOR pass: the departures are handled from the latest to the earliest one, and the labels at the stops are
+     * kept from one departure to the next, so each departure only has to explore the stops it actually improves.
+     *
+     * As in {@link #calcRoutes}, the costs of the departures are made comparable by adding the cost of waiting at the
+     * start stop from the earliest possible departure until the actual departure. A journey is thus only recorded if
+     * it is cheaper than waiting for any later departure, and the resulting list per stop is exactly the set of least
+     * cost journeys of the point queries ({@link #calcLeastCostTree}) for all departure times in the window. The lists
+     * are ordered by the departure time at the first stop. The start stops are only contained if they are reached from another stop.
+     */
+    public Map<Id<TransitStopFacility>, List<TravelInfo>> calcRangeTree(double earliestDepTime, double latestDepTime, Collection<InitialStop> startStops, RaptorParameters parameters) {
+        reset();
+
+        double waitingCost_utl_s = -parameters.getMarginalUtilityOfWaitingPt_utl_s();
+
+        List<DepartureAtRouteStop> departures = new ArrayList<>();
+        for (InitialStop startStop : startStops) {
+            double earliestTimeAtStop = earliestDepTime + startStop.accessTime;
+            double latestTimeAtStop = latestDepTime + startStop.accessTime;
+            int[] routeStopIndices = this.data.routeStopsPerStopFacility.get(startStop.stop);
+            if (routeStopIndices != null) {
+                for (int routeStopIndex : routeStopIndices) {
+                    RRouteStop routeStop = this.data.routeStops[routeStopIndex];
+                    if (routeStop.routeStop == routeStop.route.getStops().get(routeStop.route.getStops().size() - 1)) {
+                        // this is the last stop of a route
+                        continue;
+                    }
+                    RRoute route = this.data.routes[routeStop.transitRouteIndex];
+                    for (int depIndex = route.indexFirstDeparture; depIndex < route.indexFirstDeparture + route.countDepartures; depIndex++) {
+                        double depTimeAtStop = this.data.departures[depIndex] + routeStop.departureOffset;
+                        if (depTimeAtStop >= earliestTimeAtStop && depTimeAtStop <= latestTimeAtStop) {
+                            double costOffset = (depTimeAtStop - earliestTimeAtStop) * waitingCost_utl_s;
+                            departures.add(new DepartureAtRouteStop(routeStop, routeStopIndex, depIndex, depTimeAtStop, costOffset, startStop));
+                        }
+                    }
+                }
+            }
+        }
+        departures.sort((d1, d2) -> {
+            // the most expensive (i.e. latest) departure first, so the labels stay valid for the following departures
+            int cmp = Double.compare(d1.costOffset + d1.accessStop.accessCost, d2.costOffset + d2.accessStop.accessCost);
+            if (cmp == 0) {
+                cmp = Double.compare(d1.depTime, d2.depTime);
+            }
+            return -cmp;
+        });
+
+        Map<Id<TransitStopFacility>, List<TravelInfo>> result = new HashMap<>();
+        BitSet stopsImprovedByDeparture = new BitSet(this.data.countStops);
+        for (DepartureAtRouteStop depAtRouteStop : departures) {
+            this.improvedStops.clear();
+            this.improvedRouteStopIndices.clear();
+            stopsImprovedByDeparture.clear();
+
+            RRouteStop startRouteStop = depAtRouteStop.routeStop;
+            int startRouteStopIndex = depAtRouteStop.routeStopIndex;
+            int startStopIndex = startRouteStop.stopFacilityIndex;
+            { // initialization for this departure time, same as in calcLeastCostTree, but at the time of the departure
+                double arrivalCost = depAtRouteStop.accessStop.accessCost + depAtRouteStop.costOffset;
+                PathElement pe = new PathElement(null, startRouteStop, Double.NaN, Double.NaN, depAtRouteStop.depTime, arrivalCost, 0, depAtRouteStop.accessStop.distance, 0, true, depAtRouteStop.accessStop);
+                this.arrivalPathPerRouteStop[startRouteStopIndex] = pe;
+                this.leastArrivalCostAtRouteStop[startRouteStopIndex] = arrivalCost;
+                if (arrivalCost <= this.leastArrivalCostAtStop[startStopIndex]) {
+                    this.arrivalPathPerStop[startStopIndex] = pe;
+                    this.leastArrivalCostAtStop[startStopIndex] = arrivalCost;
+                }
+                this.improvedRouteStopIndices.set(startRouteStopIndex);
+            }
+
+            // the main loop
+            boolean isFirstRound = true;
+            while (true) {
+                exploreRoutes(parameters);
+                stopsImprovedByDeparture.or(this.improvedStops);
+
+                if (this.improvedStops.isEmpty()) {
+                    break;
+                }
+
+                if (isFirstRound) {
+                    // make sure we can transfer even at the start stop
+                    this.improvedStops.set(startStopIndex);
+                    isFirstRound = false;
+                }
+
+                handleTransfers(true, parameters);
+                stopsImprovedByDeparture.or(this.tmpImprovedStops);
+
+                if (this.improvedRouteStopIndices.isEmpty()) {
+                    break;
+                }
+            }
+
+            // collect the journeys which are better than all later departures
+            for (int stopIndex = stopsImprovedByDeparture.nextSetBit(0); stopIndex >= 0; stopIndex = stopsImprovedByDeparture.nextSetBit(stopIndex + 1)) {
+                PathElement destination = this.arrivalPathPerStop[stopIndex];
+                if (destination.comingFrom != null) {
+                    Id<TransitStopFacility> stopId = destination.toRouteStop.routeStop.getStopFacility().getId();
+                    result.computeIfAbsent(stopId, id -> new ArrayList<>()).add(getTravelInfo(destination, parameters));
+                }
+            }
+        }
+
+        for (List<TravelInfo> travelInfos : result.values()) {
+            travelInfos.sort((ti1, ti2) -> Double.compare(ti1.ptDepartureTime, ti2.ptDepartureTime));
+        }
+        return result;
+    }
+
     private TravelInfo getTravelInfo(PathElement destination, RaptorParameters parameters) {
         PathElement firstStage = destination;
         PathElement secondStage = null;
@@ -716,6 +826,7 @@ public class SwissRailRaptorCore {
         double transferCostMin = raptorParams.getTransferPenaltyMinimum();
         double transferCostMax = raptorParams.getTransferPenaltyMaximum();
         double margUtilityTransitWalk = raptorParams.getMarginalUtilityOfTravelTime_utl_s(TransportMode.walk); // replaced TransportMode.transit_walk with walk
+        RTransfers transfers = this.data.transfers;
 
         for (int stopIndex = this.improvedStops.nextSetBit(0); stopIndex >= 0; stopIndex = this.improvedStops.nextSetBit(stopIndex + 1)) {
             PathElement fromPE = this.arrivalPathPerStop[stopIndex];
@@ -730,16 +841,16 @@ public class SwissRailRaptorCore {
             int firstTransferIndex = fromRouteStop.indexFirstTransfer;
             int lastTransferIndex = firstTransferIndex + fromRouteStop.countTransfers;
             for (int transferIndex = firstTransferIndex; transferIndex < lastTransferIndex; transferIndex++) {
-                RTransfer transfer = this.data.transfers[transferIndex];
-                int toRouteStopIndex = transfer.toRouteStop;
-                double newArrivalTime = arrivalTime + transfer.transferTime;
-                double newArrivalTravelCost = arrivalTravelCost - transfer.transferTime * margUtilityTransitWalk;
+                int toRouteStopIndex = transfers.getToRouteStop(transferIndex);
+                double transferTime = transfers.getTransferTime(transferIndex);
+                double newArrivalTime = arrivalTime + transferTime;
+                double newArrivalTravelCost = arrivalTravelCost - transferTime * margUtilityTransitWalk;
                 double newArrivalTransferCost = Double.isFinite(fromPE.firstDepartureTime) ? calcTransferCost (transferCostBase, transferCostPerHour, transferCostMin, transferCostMax, newArrivalTime - fromPE.firstDepartureTime) * (fromPE.transferCount + 1) : 0;
                 double newTotalArrivalCost = newArrivalTravelCost + newArrivalTransferCost;
                 double prevLeastArrivalCost = this.leastArrivalCostAtRouteStop[toRouteStopIndex];
                 if (newTotalArrivalCost < prevLeastArrivalCost || (!strict && newTotalArrivalCost <= prevLeastArrivalCost)) {
                     RRouteStop toRouteStop = this.data.routeStops[toRouteStopIndex];
-                    PathElement pe = new PathElement(fromPE, toRouteStop, fromPE.firstDepartureTime, Double.NaN, newArrivalTime, newArrivalTravelCost, newArrivalTransferCost, transfer.transferDistance, fromPE.transferCount + 1, true, null);
+                    PathElement pe = new PathElement(fromPE, toRouteStop, fromPE.firstDepartureTime, Double.NaN, newArrivalTime, newArrivalTravelCost, newArrivalTransferCost, transfers.getTransferDistance(transferIndex), fromPE.transferCount + 1, true, null);
                     this.arrivalPathPerRouteStop[toRouteStopIndex] = pe;
                     this.leastArrivalCostAtRouteStop[toRouteStopIndex] = newTotalArrivalCost;
                     this.improvedRouteStopIndices.set(toRouteStopIndex);
@@ -23,6 +23,19 @@ import org.matsim.pt.transitSchedule.api.TransitRouteStop;
 import org.matsim.pt.transitSchedule.api.TransitSchedule;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -39,13 +52,18 @@ public class SwissRailRaptorData {
 
     private static final Logger log = Logger.getLogger(SwissRailRaptorData.class);
 
+    private static final long TRANSFERS_MAGIC = 0x5352525472616e73L; // "SRRTrans"
+    private static final int TRANSFERS_VERSION = 1;
+    private static final int TRANSFERS_HEADER_SIZE = Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+    private static final long TRANSFER_SIZE = Integer.BYTES + Integer.BYTES + Double.BYTES + Double.BYTES;
+
     final RaptorStaticConfig config;
     final int countStops;
     final int countRouteStops;
     final RRoute[] routes;
     final double[] departures; // in the RAPTOR paper, this is usually called "trips", but I stick with the MATSim nomenclature
     final RRouteStop[] routeStops; // list of all route stops
-    final RTransfer[] transfers;
+    final RTransfers transfers;
     final Map<TransitStopFacility, Integer> stopFacilityIndices;
     final Map<TransitStopFacility, int[]> routeStopsPerStopFacility;
     final QuadTree<TransitStopFacility> stopsQT;
@@ -53,7 +71,7 @@ public class SwissRailRaptorData {
 
     private SwissRailRaptorData(RaptorStaticConfig config, int countStops,
                                 RRoute[] routes, double[] departures, RRouteStop[] routeStops,
-                                RTransfer[] transfers, Map<TransitStopFacility, Integer> stopFacilityIndices,
+                                RTransfers transfers, Map<TransitStopFacility, Integer> stopFacilityIndices,
                                 Map<TransitStopFacility, int[]> routeStopsPerStopFacility, QuadTree<TransitStopFacility> stopsQT) {
         this.config = config;
         this.countStops = countStops;
@@ -166,26 +184,27 @@ public class SwissRailRaptorData {
         QuadTree<TransitStopFacility> stopsQT = TransitScheduleUtils.createQuadTreeOfTransitStopFacilities(stops);
         int countStopFacilities = stops.size();
 
-        Map<Integer, RTransfer[]> allTransfers = calculateRouteStopTransfers(schedule, stopsQT, routeStopsPerStopFacility, routeStops, staticConfig);
-        long countTransfers = 0;
-        for (RTransfer[] transfers : allTransfers.values()) {
-            countTransfers += transfers.length;
-        }
-        if (countTransfers > Integer.MAX_VALUE) {
-            throw new RuntimeException("TransitSchedule has too many Transfers: " + countTransfers);
+        RTransfers transfers = null;
+        Path cacheFile = null;
+        long checksum = 0;
+        String cacheDirectory = staticConfig.getTransfersCacheDirectory();
+        if (cacheDirectory != null) {
+            checksum = calcTransfersChecksum(schedule, staticConfig, routeStops, departures);
+            cacheFile = Paths.get(cacheDirectory).resolve(String.format("srr_transfers_%016x.bin", checksum));
+            transfers = readTransfers(cacheFile, checksum, routeStops.length);
+        }
+        if (transfers == null) {
+            transfers = createTransfers(calculateRouteStopTransfers(schedule, stopsQT, routeStopsPerStopFacility, routeStops, staticConfig), routeStops.length);
+            if (cacheFile != null) {
+                writeTransfers(cacheFile, checksum, routeStops.length, transfers);
+            }
         }
-        RTransfer[] transfers = new RTransfer[(int) countTransfers];
-        int indexTransfer = 0;
-        for (int routeStopIndex = 0; routeStopIndex < routeStops.length; routeStopIndex++) {
-            RTransfer[] stopTransfers = allTransfers.get(routeStopIndex);
-            int transferCount = stopTransfers == null ? 0 : stopTransfers.length;
-            if (transferCount > 0) {
-                RRouteStop routeStop = routeStops[routeStopIndex];
-                routeStop.indexFirstTransfer = indexTransfer;
-                routeStop.countTransfers = transferCount;
-                System.arraycopy(stopTransfers, 0, transfers, indexTransfer, transferCount);
-                indexTransfer += transferCount;
+        for (int transferIndex = 0; transferIndex < transfers.size(); transferIndex++) {
+            RRouteStop routeStop = routeStops[transfers.getFromRouteStop(transferIndex)];
+            if (routeStop.countTransfers == 0) {
+                routeStop.indexFirstTransfer = transferIndex;
             }
+            routeStop.countTransfers++;
         }
 
         SwissRailRaptorData data = new SwissRailRaptorData(staticConfig, countStopFacilities, routes, departures, routeStops, transfers, stopFacilityIndices, routeStopsPerStopFacility, stopsQT);
@@ -196,10 +215,172 @@ public class SwissRailRaptorData {
         log.info("SwissRailRaptor statistics:  #departures = " + departures.length);
         log.info("SwissRailRaptor statistics:  #routeStops = " + routeStops.length);
         log.info("SwissRailRaptor statistics:  #stopFacilities = " + countStopFacilities);
-        log.info("SwissRailRaptor statistics:  #transfers (between routeStops) = " + transfers.length);
+        log.info("SwissRailRaptor statistics:  #transfers (between routeStops) = " + transfers.size());
         return data;
     }
 
+    private static RTransfers createTransfers(Map<Integer, RTransfer[]> allTransfers, int countRouteStops) {
+        long countTransfers = 0;
+        for (RTransfer[] transfers : allTransfers.values()) {
+            countTransfers += transfers.length;
+        }
+        if (countTransfers > Integer.MAX_VALUE) {
+            throw new RuntimeException("TransitSchedule has too many Transfers: " + countTransfers);
+        }
+        int[] fromRouteStops = new int[(int) countTransfers];
+        int[] toRouteStops = new int[(int) countTransfers];
+        double[] transferTimes = new double[(int) countTransfers];
+        double[] transferDistances = new double[(int) countTransfers];
+        int indexTransfer = 0;
+        for (int routeStopIndex = 0; routeStopIndex < countRouteStops; routeStopIndex++) {
+            RTransfer[] stopTransfers = allTransfers.get(routeStopIndex);
+            if (stopTransfers != null) {
+                for (RTransfer transfer : stopTransfers) {
+                    fromRouteStops[indexTransfer] = transfer.fromRouteStop;
+                    toRouteStops[indexTransfer] = transfer.toRouteStop;
+                    transferTimes[indexTransfer] = transfer.transferTime;
+                    transferDistances[indexTransfer] = transfer.transferDistance;
+                    indexTransfer++;
+                }
+            }
+        }
+        return new RTransfers(IntBuffer.wrap(fromRouteStops), IntBuffer.wrap(toRouteStops), DoubleBuffer.wrap(transferTimes), DoubleBuffer.wrap(transferDistances));
+    }
+
+    /**
+     * The transfers only depend on the stops and departures of the routes, the minimal transfer times and the static
+     * config, so these are part of the checksum. The route stops are taken in the order of their index, so a schedule
+     * which is enumerated differently gets a different checksum.
+     */
+    private static long calcTransfersChecksum(TransitSchedule schedule, RaptorStaticConfig config, RRouteStop[] routeStops, double[] departures) {
+        long checksum = 0xcbf29ce484222325L;
+        checksum = hash(checksum, Double.doubleToLongBits(config.getBeelineWalkConnectionDistance()));
+        checksum = hash(checksum, Double.doubleToLongBits(config.getBeelineWalkSpeed()));
+        checksum = hash(checksum, Double.doubleToLongBits(config.getBeelineWalkDistanceFactor()));
+        checksum = hash(checksum, Double.doubleToLongBits(config.getMinimalTransferTime()));
+        checksum = hash(checksum, config.getOptimization().ordinal());
+        for (RRouteStop routeStop : routeStops) {
+            TransitStopFacility stop = routeStop.routeStop.getStopFacility();
+            checksum = hash(checksum, stop.getId().toString());
+            checksum = hash(checksum, Double.doubleToLongBits(stop.getCoord().getX()));
+            checksum = hash(checksum, Double.doubleToLongBits(stop.getCoord().getY()));
+            checksum = hash(checksum, routeStop.transitRouteIndex);
+            checksum = hash(checksum, Double.doubleToLongBits(routeStop.arrivalOffset));
+            checksum = hash(checksum, Double.doubleToLongBits(routeStop.departureOffset));
+        }
+        for (double departure : departures) {
+            checksum = hash(checksum, Double.doubleToLongBits(departure));
+        }
+        MinimalTransferTimes.MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator();
+        while (iter.hasNext()) {
+            iter.next();
+            checksum = hash(checksum, iter.getFromStopId().toString());
+            checksum = hash(checksum, iter.getToStopId().toString());
+            checksum = hash(checksum, Double.doubleToLongBits(iter.getSeconds()));
+        }
+        return checksum;
+    }
+
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= 0xffff;
+        hash *= 0x100000001b3L;
+        return hash;
+    }
+
+    private static long hash(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (8 * i)) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Maps the file into memory instead of reading it, so all JVMs on a machine which use the same schedule share the
+     * transfers in the page cache.
+     *
+     * @return the transfers, or <code>null</code> if there is no file or it does not fit to the schedule.
+     */
+    private static RTransfers readTransfers(Path file, long checksum, int countRouteStops) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < TRANSFERS_HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getLong() != TRANSFERS_MAGIC || buffer.getInt() != TRANSFERS_VERSION || buffer.getLong() != checksum || buffer.getInt() != countRouteStops) {
+                log.warn("The transfers in " + file + " do not fit to the transit schedule, they will be calculated again.");
+                return null;
+            }
+            int countTransfers = buffer.getInt();
+            if (channel.size() != TRANSFERS_HEADER_SIZE + TRANSFER_SIZE * countTransfers) {
+                log.warn("The transfers in " + file + " are incomplete, they will be calculated again.");
+                return null;
+            }
+            log.info("Using the transfers from " + file);
+            int position = TRANSFERS_HEADER_SIZE;
+            IntBuffer fromRouteStops = slice(buffer, position, countTransfers * Integer.BYTES).asIntBuffer();
+            position += countTransfers * Integer.BYTES;
+            IntBuffer toRouteStops = slice(buffer, position, countTransfers * Integer.BYTES).asIntBuffer();
+            position += countTransfers * Integer.BYTES;
+            DoubleBuffer transferTimes = slice(buffer, position, countTransfers * Double.BYTES).asDoubleBuffer();
+            position += countTransfers * Double.BYTES;
+            DoubleBuffer transferDistances = slice(buffer, position, countTransfers * Double.BYTES).asDoubleBuffer();
+            return new RTransfers(fromRouteStops, toRouteStops, transferTimes, transferDistances);
+        } catch (IOException e) {
+            log.warn("Could not read the transfers from " + file + ", they will be calculated again: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(position);
+        slice.limit(position + length);
+        return slice.slice();
+    }
+
+    private static void writeTransfers(Path file, long checksum, int countRouteStops, RTransfers transfers) {
+        if (TRANSFERS_HEADER_SIZE + TRANSFER_SIZE * transfers.size() > Integer.MAX_VALUE) {
+            log.warn("Too many transfers to write them to " + file);
+            return;
+        }
+        log.info("Writing the transfers to " + file);
+        try {
+            Files.createDirectories(file.getParent());
+            // write to a temporary file first, so other runs never read a partially written file
+            Path tmpFile = Files.createTempFile(file.getParent(), "srr_transfers", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+                out.writeLong(TRANSFERS_MAGIC);
+                out.writeInt(TRANSFERS_VERSION);
+                out.writeLong(checksum);
+                out.writeInt(countRouteStops);
+                out.writeInt(transfers.size());
+                for (int i = 0; i < transfers.size(); i++) {
+                    out.writeInt(transfers.getFromRouteStop(i));
+                }
+                for (int i = 0; i < transfers.size(); i++) {
+                    out.writeInt(transfers.getToRouteStop(i));
+                }
+                for (int i = 0; i < transfers.size(); i++) {
+                    out.writeDouble(transfers.getTransferTime(i));
+                }
+                for (int i = 0; i < transfers.size(); i++) {
+                    out.writeDouble(transfers.getTransferDistance(i));
+                }
+            }
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write the transfers to " + file + ": " + e.getMessage());
+        }
+    }
+
     // calculate possible transfers between TransitRouteStops
     private static Map<Integer, RTransfer[]> calculateRouteStopTransfers(TransitSchedule schedule, QuadTree<TransitStopFacility> stopsQT, Map<TransitStopFacility, int[]> routeStopsPerStopFacility, RRouteStop[] routeStops, RaptorStaticConfig config) {
         Map<Integer, RTransfer[]> transfers = new HashMap<>(stopsQT.size() * 5);
@@ -498,6 +679,44 @@ public class SwissRailRaptorData {
         }
     }
 
+    /**
+     * All transfers, ordered by the route stop they start from, as one column per attribute. The columns are either
+     * arrays on the heap or mapped from a file.
+     */
+    static final class RTransfers {
+        private final IntBuffer fromRouteStops;
+        private final IntBuffer toRouteStops;
+        private final DoubleBuffer transferTimes;
+        private final DoubleBuffer transferDistances;
+
+        RTransfers(IntBuffer fromRouteStops, IntBuffer toRouteStops, DoubleBuffer transferTimes, DoubleBuffer transferDistances) {
+            this.fromRouteStops = fromRouteStops;
+            this.toRouteStops = toRouteStops;
+            this.transferTimes = transferTimes;
+            this.transferDistances = transferDistances;
+        }
+
+        int size() {
+            return this.fromRouteStops.limit();
+        }
+
+        int getFromRouteStop(int transferIndex) {
+            return this.fromRouteStops.get(transferIndex);
+        }
+
+        int getToRouteStop(int transferIndex) {
+            return this.toRouteStops.get(transferIndex);
+        }
+
+        double getTransferTime(int transferIndex) {
+            return this.transferTimes.get(transferIndex);
+        }
+
+        double getTransferDistance(int transferIndex) {
+            return this.transferDistances.get(transferIndex);
+        }
+    }
+
     static final class RTransfer {
         final int fromRouteStop;
         final int toRouteStop;
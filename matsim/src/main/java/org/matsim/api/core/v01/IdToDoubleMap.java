@@ -0,0 +1,173 @@
+package org.matsim.api.core.v01;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * A map from ids to primitive <code>double</code> values, stored in an array indexed by {@link Id#index()} like
+ * {@link IdMap}, so no boxed values or map entries are created. Iteration is in the order of the id indices.
+ * <p></p>
+ * {@link #get(Id)} returns the <code>missingValue</code> given in the constructor for ids without a value,
+ * by default {@link Double#NaN}.
+ */
+public final class IdToDoubleMap<T> {
+
+	private final Class<T> idClass;
+	private final double missingValue;
+	private final BitSet keys;
+	private double[] data;
+	private int size = 0;
+
+	public IdToDoubleMap(Class<T> idClass) {
+		this(idClass, Double.NaN);
+	}
+
+	public IdToDoubleMap(Class<T> idClass, double missingValue) {
+		this(idClass, missingValue, Math.max(Id.getNumberOfIds(idClass), 100));
+	}
+
+	public IdToDoubleMap(Class<T> idClass, double missingValue, int size) {
+		this.idClass = idClass;
+		this.missingValue = missingValue;
+		this.keys = new BitSet(size);
+		this.data = new double[size];
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public boolean containsKey(Id<T> key) {
+		return this.keys.get(key.index());
+	}
+
+	public double get(Id<T> key) {
+		return getOrDefault(key, this.missingValue);
+	}
+
+	public double getOrDefault(Id<T> key, double defaultValue) {
+		int idx = key.index();
+		return this.keys.get(idx) ? this.data[idx] : defaultValue;
+	}
+
+	/**
+	 * @return the previous value, or the missing value if there was none
+	 */
+	public double put(Id<T> key, double value) {
+		int idx = key.index();
+		ensureCapacity(idx);
+		double oldValue = this.missingValue;
+		if (this.keys.get(idx)) {
+			oldValue = this.data[idx];
+		} else {
+			this.keys.set(idx);
+			this.size++;
+		}
+		this.data[idx] = value;
+		return oldValue;
+	}
+
+	/**
+	 * Adds <code>value</code> to the value of <code>key</code>, which is treated as 0 if the key has no value yet.
+	 *
+	 * @return the new value
+	 */
+	public double add(Id<T> key, double value) {
+		int idx = key.index();
+		ensureCapacity(idx);
+		if (!this.keys.get(idx)) {
+			this.keys.set(idx);
+			this.size++;
+			this.data[idx] = 0;
+		}
+		this.data[idx] += value;
+		return this.data[idx];
+	}
+
+	/**
+	 * @return the removed value, or the missing value if there was none
+	 */
+	public double remove(Id<T> key) {
+		int idx = key.index();
+		if (!this.keys.get(idx)) {
+			return this.missingValue;
+		}
+		this.keys.clear(idx);
+		this.size--;
+		return this.data[idx];
+	}
+
+	public void putAll(IdToDoubleMap<T> m) {
+		this.ensureCapacity(m.data.length - 1);
+		for (int idx = m.keys.nextSetBit(0); idx >= 0; idx = m.keys.nextSetBit(idx + 1)) {
+			if (!this.keys.get(idx)) {
+				this.keys.set(idx);
+				this.size++;
+			}
+			this.data[idx] = m.data[idx];
+		}
+	}
+
+	/**
+	 * Adds the values of <code>m</code> to the values in this map, see {@link #add(Id, double)}.
+	 */
+	public void addAll(IdToDoubleMap<T> m) {
+		this.ensureCapacity(m.data.length - 1);
+		for (int idx = m.keys.nextSetBit(0); idx >= 0; idx = m.keys.nextSetBit(idx + 1)) {
+			if (!this.keys.get(idx)) {
+				this.keys.set(idx);
+				this.size++;
+				this.data[idx] = 0;
+			}
+			this.data[idx] += m.data[idx];
+		}
+	}
+
+	public double sum() {
+		double sum = 0;
+		for (int idx = this.keys.nextSetBit(0); idx >= 0; idx = this.keys.nextSetBit(idx + 1)) {
+			sum += this.data[idx];
+		}
+		return sum;
+	}
+
+	public void clear() {
+		this.keys.clear();
+		this.size = 0;
+	}
+
+	/**
+	 * @return a new set with the ids which have a value
+	 */
+	public IdSet<T> keySet() {
+		IdSet<T> set = new IdSet<>(this.idClass, this.data.length);
+		for (int idx = this.keys.nextSetBit(0); idx >= 0; idx = this.keys.nextSetBit(idx + 1)) {
+			set.add(Id.get(idx, this.idClass));
+		}
+		return set;
+	}
+
+	public void forEach(ObjDoubleConsumer<Id<T>> action) {
+		for (int idx = this.keys.nextSetBit(0); idx >= 0; idx = this.keys.nextSetBit(idx + 1)) {
+			action.accept(Id.get(idx, this.idClass), this.data[idx]);
+		}
+	}
+
+	private void ensureCapacity(int index) {
+		if (index >= this.data.length) {
+			this.data = Arrays.copyOf(this.data, Math.max(index + 100, (int) Math.min(Integer.MAX_VALUE, this.data.length * 3L / 2)));
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder("{");
+		forEach((id, value) -> str.append(str.length() == 1 ? "" : ", ").append(id).append('=').append(value));
+		return str.append('}').toString();
+	}
+}
@@ -33,9 +33,9 @@ import java.util.*;
 public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final Logger log = Logger.getLogger( ControlerConfigGroup.class );
 
-	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks}
+	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks, ContractionHierarchies, SpeedyDijkstra}
 
-	public enum EventsFileFormat {xml, pb, json}
+	public enum EventsFileFormat {xml, pb, json, binary}
 
 	public enum CompressionType {
 		none(""),
@@ -56,16 +56,21 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String FIRST_ITERATION = "firstIteration";
 	private static final String LAST_ITERATION = "lastIteration";
 	private static final String ROUTINGALGORITHM_TYPE = "routingAlgorithmType";
+	private static final String LANDMARKS_CACHE_DIRECTORY = "landmarksCacheDirectory";
 	private static final String RUNID = "runId";
 	private static final String LINKTOLINK_ROUTING_ENABLED = "enableLinkToLinkRouting";
 	/*package*/ static final String EVENTS_FILE_FORMAT = "eventsFileFormat";
 	private static final String SNAPSHOT_FORMAT = "snapshotFormat";
 	private static final String WRITE_EVENTS_INTERVAL = "writeEventsInterval";
+	private static final String WRITE_EVENTS_ASYNCHRONOUSLY = "writeEventsAsynchronously";
+	private static final String EVENTS_COMPRESSION_THREADS = "numberOfEventsCompressionThreads";
 	private static final String WRITE_PLANS_INTERVAL = "writePlansInterval";
     private static final String WRITE_TRIPS_INTERVAL = "writeTripsInterval";
 	private static final String OVERWRITE_FILE = "overwriteFiles";
 	private static final String CREATE_GRAPHS = "createGraphs";
 	private static final String DUMP_DATA_AT_END = "dumpDataAtEnd";
+	private static final String SCENARIO_SNAPSHOT_FILE = "scenarioSnapshotFile";
+	private static final String WRITE_SCENARIO_SNAPSHOT = "writeScenarioSnapshot";
 	private static final String COMPRESSION_TYPE = "compressionType";
 
 	/*package*/ static final String MOBSIM = "mobsim";
@@ -78,6 +83,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private int firstIteration = 0;
 	private int lastIteration = 1000;
 	private RoutingAlgorithmType routingAlgorithmType = RoutingAlgorithmType.AStarLandmarks;
+	private String landmarksCacheDirectory = null;
 
 	private boolean linkToLinkRoutingEnabled = false;
 
@@ -86,12 +92,16 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private Set<EventsFileFormat> eventsFileFormats = Collections.unmodifiableSet(EnumSet.of(EventsFileFormat.xml));
 
 	private int writeEventsInterval=10;
+	private boolean writeEventsAsynchronously = false;
+	private int numberOfEventsCompressionThreads = 1;
 	private int writePlansInterval=10;
 	private int writeTripsInterval = 10;
 	private String mobsim = MobsimType.qsim.toString();
 	private int writeSnapshotsInterval = 1;
 	private boolean createGraphs = true;
 	private boolean dumpDataAtEnd = true;
+	private String scenarioSnapshotFile = null;
+	private boolean writeScenarioSnapshot = false;
 	private CompressionType compressionType = CompressionType.gzip;
 	private OverwriteFileSetting overwriteFileSetting = OverwriteFileSetting.failIfDirectoryExists;
 
@@ -103,12 +113,19 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public final Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(ROUTINGALGORITHM_TYPE, "The type of routing (least cost path) algorithm used, may have the values: " + RoutingAlgorithmType.Dijkstra + ", " + 
-				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + " or "  + RoutingAlgorithmType.FastAStarLandmarks);
+				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + ", "  + RoutingAlgorithmType.FastAStarLandmarks + ", " +
+				RoutingAlgorithmType.ContractionHierarchies + " or " + RoutingAlgorithmType.SpeedyDijkstra);
+		map.put(LANDMARKS_CACHE_DIRECTORY, "Default=null. Directory where the distances to and from the landmarks of the (Fast)AStarLandmarks routing " +
+				"are stored, so later runs on a network with the same nodes and links do not need to compute them again.");
 		map.put(RUNID, "An identifier for the current run which is used as prefix for output files and mentioned in output xml files etc.");
 		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: " + Arrays.toString(EventsFileFormat.values()) + IOUtils.NATIVE_NEWLINE+ "\t\t" +
 				"Multiple values can be specified separated by commas (',').");
 		map.put(WRITE_EVENTS_INTERVAL, "iterationNumber % writeEventsInterval == 0 defines in which iterations events are written " +
 				"to a file. `0' disables events writing completely.");
+		map.put(WRITE_EVENTS_ASYNCHRONOUSLY, "Default=false. If enabled, xml events are formatted and compressed on a separate thread, " +
+				"so writing events does not slow down the mobsim. Events may then not be modified after they have been thrown.");
+		map.put(EVENTS_COMPRESSION_THREADS, "Default=1. Number of threads used to compress xml events files ending in .gz or .zst " +
+				"when writing events asynchronously. With more than one thread, the file consists of independently compressed blocks.");
         map.put(WRITE_TRIPS_INTERVAL, "iterationNumber % writeEventsInterval == 0 defines in which iterations trips CSV are written " +
                 "to a file. `0' disables trips writing completely.");
 		map.put(WRITE_PLANS_INTERVAL, "iterationNumber % writePlansInterval == 0 defines (hopefully) in which iterations plans are " +
@@ -121,6 +138,12 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		map.put(CREATE_GRAPHS, "Sets whether graphs showing some analyses should automatically be generated during the simulation." +
 				" The generation of graphs usually takes a small amount of time that does not have any weight in big simulations," +
 				" but add a significant overhead in smaller runs or in test cases where the graphical output is not even requested." );
+		map.put(SCENARIO_SNAPSHOT_FILE, "Default=null. Binary snapshot of the network, facilities, population and transit schedule. " +
+				"If the file exists, these are loaded from it instead of from their xml files, which is much faster. If it does not exist, " +
+				"it is written after the xml files are loaded. The snapshot records the size and modification time of the xml files, " +
+				"if one of them changed, they are loaded again and the snapshot is replaced.");
+		map.put(WRITE_SCENARIO_SNAPSHOT, "Default=false. If enabled, a binary snapshot of the final network, facilities, population and " +
+				"transit schedule is written to the output directory at the end, which can be loaded much faster than the xml files.");
 		map.put(COMPRESSION_TYPE, "Compression algorithm to use when writing out data to files. Possible values: " + Arrays.toString(CompressionType.values()));
 
 		StringBuilder mobsimTypes = new StringBuilder();
@@ -180,6 +203,16 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.routingAlgorithmType = type;
 	}
 
+	@StringGetter( LANDMARKS_CACHE_DIRECTORY )
+	public String getLandmarksCacheDirectory() {
+		return this.landmarksCacheDirectory;
+	}
+
+	@StringSetter( LANDMARKS_CACHE_DIRECTORY )
+	public void setLandmarksCacheDirectory(final String landmarksCacheDirectory) {
+		this.landmarksCacheDirectory = landmarksCacheDirectory == null || landmarksCacheDirectory.isEmpty() ? null : landmarksCacheDirectory;
+	}
+
 	@StringGetter( COMPRESSION_TYPE )
 	public CompressionType getCompressionType() {
 		return this.compressionType;
@@ -313,6 +346,26 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.writeEventsInterval = writeEventsInterval;
 	}
 
+	@StringGetter( WRITE_EVENTS_ASYNCHRONOUSLY )
+	public boolean isWriteEventsAsynchronously() {
+		return this.writeEventsAsynchronously;
+	}
+
+	@StringSetter( WRITE_EVENTS_ASYNCHRONOUSLY )
+	public void setWriteEventsAsynchronously(final boolean writeEventsAsynchronously) {
+		this.writeEventsAsynchronously = writeEventsAsynchronously;
+	}
+
+	@StringGetter( EVENTS_COMPRESSION_THREADS )
+	public int getNumberOfEventsCompressionThreads() {
+		return this.numberOfEventsCompressionThreads;
+	}
+
+	@StringSetter( EVENTS_COMPRESSION_THREADS )
+	public void setNumberOfEventsCompressionThreads(final int numberOfEventsCompressionThreads) {
+		this.numberOfEventsCompressionThreads = numberOfEventsCompressionThreads;
+	}
+
 	@StringGetter( MOBSIM )
 	public String getMobsim() {
 		return this.mobsim;
@@ -382,6 +435,25 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public void setDumpDataAtEnd(boolean dumpDataAtEnd) {
 		this.dumpDataAtEnd = dumpDataAtEnd;
 	}
+	@StringGetter( SCENARIO_SNAPSHOT_FILE )
+	public String getScenarioSnapshotFile() {
+		return this.scenarioSnapshotFile;
+	}
+
+	@StringSetter( SCENARIO_SNAPSHOT_FILE )
+	public void setScenarioSnapshotFile(final String scenarioSnapshotFile) {
+		this.scenarioSnapshotFile = scenarioSnapshotFile == null || scenarioSnapshotFile.isEmpty() ? null : scenarioSnapshotFile;
+	}
+
+	@StringGetter( WRITE_SCENARIO_SNAPSHOT )
+	public boolean isWriteScenarioSnapshot() {
+		return this.writeScenarioSnapshot;
+	}
+
+	@StringSetter( WRITE_SCENARIO_SNAPSHOT )
+	public void setWriteScenarioSnapshot(final boolean writeScenarioSnapshot) {
+		this.writeScenarioSnapshot = writeScenarioSnapshot;
+	}
 	// ---
 	int writePlansUntilIteration = 1 ;
 	public int getWritePlansUntilIteration() {
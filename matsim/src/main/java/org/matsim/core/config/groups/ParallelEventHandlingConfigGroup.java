@@ -45,6 +45,22 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 	private final static String ONE_THREAD_PER_HANDLER = "oneThreadPerHandler"; 
 	private Boolean oneThreadPerHandler = false;
 	
+	private final static String PARTITION_EVENT_HANDLERS = "partitionEventHandlers";
+	private Boolean partitionEventHandlers = false;
+
+	private final static String EVENTS_DISPATCH_MODE = "eventsDispatchMode";
+	private EventsDispatchMode eventsDispatchMode = EventsDispatchMode.reflective;
+
+	/**
+	 * Defines how events managers pass events to the registered handlers.
+	 */
+	public enum EventsDispatchMode {
+		/** hard-coded calls for the core event types, reflection for all others; each call synchronizes on the handler */
+		reflective,
+		/** a typed invoker is generated per event-class and handler when the handler is added; no reflection and no synchronization */
+		generated
+	}
+
 	private boolean locked = false;
 
 	public ParallelEventHandlingConfigGroup() {
@@ -60,6 +76,13 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 				+ "before the next time step is simulated. E.g. neccessary when within-day replanning is used.");
 		comments.put(ONE_THREAD_PER_HANDLER, "If enabled, each event handler is assigned to its own thread. Note that enabling this feature disabled the " + NUMBER_OF_THREADS + " option! "
 				+ "This feature is still experimental!");
+		comments.put(PARTITION_EVENT_HANDLERS, "If enabled, event handlers that are partitioned by person, vehicle or link id are processed by all "
+				+ NUMBER_OF_THREADS + " threads, each thread handling the events of a subset of the ids. Other event handlers are distributed over the threads. "
+				+ "Like with " + SYNCHRONIZE_ON_SIMSTEPS + ", all events of a time step are processed before the next time step is simulated. "
+				+ "This feature is still experimental!");
+		comments.put(EVENTS_DISPATCH_MODE, "Defines how events are passed to the event handlers. Possible values: " + EventsDispatchMode.reflective + ", " + EventsDispatchMode.generated + ". "
+				+ EventsDispatchMode.generated + " creates a typed invoker for every event type a handler is interested in, which avoids reflection for custom events, "
+				+ "but does not synchronize on the handlers. It thus requires that a handler is not called concurrently from different threads.");
 		return comments;
 	}
 
@@ -127,6 +150,34 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		}
 	}
 	
+	@StringGetter( PARTITION_EVENT_HANDLERS )
+	public Boolean getPartitionEventHandlers() {
+		return this.partitionEventHandlers;
+	}
+
+	@StringSetter( PARTITION_EVENT_HANDLERS )
+	public void setPartitionEventHandlers(Boolean partitionEventHandlers) {
+		if ( !this.locked ) {
+			this.partitionEventHandlers = partitionEventHandlers;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
+	@StringGetter( EVENTS_DISPATCH_MODE )
+	public EventsDispatchMode getEventsDispatchMode() {
+		return this.eventsDispatchMode;
+	}
+
+	@StringSetter( EVENTS_DISPATCH_MODE )
+	public void setEventsDispatchMode(EventsDispatchMode eventsDispatchMode) {
+		if ( !this.locked ) {
+			this.eventsDispatchMode = eventsDispatchMode;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
 	public void makeLocked() {
 		this.locked = true;
 	}
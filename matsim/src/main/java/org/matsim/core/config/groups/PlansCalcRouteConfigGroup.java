@@ -75,6 +75,12 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	private static final String RANDOMNESS = "routingRandomness" ;
 	private double routingRandomness = 3. ;
 	// ---
+	private static final String ROUTE_CACHE_MODES = "routeCacheModes";
+	private Collection<String> routeCacheModes = Collections.emptyList();
+
+	private static final String ROUTE_CACHE_TRAVEL_TIME_CHANGE_THRESHOLD = "routeCacheTravelTimeChangeThreshold";
+	private double routeCacheTravelTimeChangeThreshold = 0.1;
+
 	private static final String CLEAR_MODE_ROUTING_PARAMS = "clearDefaultTeleportedModeParams";
 	private static final String CLEAR_MODE_ROUTING_PARAMS_CMT = "Some typical teleportation routing params are set by default, such as for walk and bike.  " +
 																		"Setting this switch to \"true\" will clear them.  Note that this will also clear " +
@@ -439,6 +445,10 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 			this.setClearingDefaultModeRoutingParams( Boolean.parseBoolean( value ) );
 		} else if (RANDOMNESS.equals( key ) ) {
 			this.setRoutingRandomness( Double.parseDouble( value ) );
+		} else if (ROUTE_CACHE_MODES.equals( key ) ) {
+			this.setRouteCacheModes( Arrays.asList( CollectionUtils.stringToArray( value ) ) );
+		} else if (ROUTE_CACHE_TRAVEL_TIME_CHANGE_THRESHOLD.equals( key ) ) {
+			this.setRouteCacheTravelTimeChangeThreshold( Double.parseDouble( value ) );
 		} else {
 			throw new IllegalArgumentException(key);
 		}
@@ -450,6 +460,8 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		map.put( NETWORK_MODES, CollectionUtils.arrayToString(this.networkModes.toArray( new String[0] ) ) );
 		map.put(  CLEAR_MODE_ROUTING_PARAMS, Boolean.toString( this.clearingDefaultModeRoutingParams ) ) ;
 		map.put(  RANDOMNESS, Double.toString( this.routingRandomness ) ) ;
+		map.put(  ROUTE_CACHE_MODES, CollectionUtils.arrayToString( this.routeCacheModes.toArray( new String[0] ) ) ) ;
+		map.put(  ROUTE_CACHE_TRAVEL_TIME_CHANGE_THRESHOLD, Double.toString( this.routeCacheTravelTimeChangeThreshold ) ) ;
 
 		//		map.put( BEELINE_DISTANCE_FACTOR, Double.toString(this.getBeelineDistanceFactor()) );
 
@@ -476,6 +488,12 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	          		+ "Leads to Pareto-optimal route with randomly drawn money-vs-other-attributes tradeoff. "
 	          		+ "Technically the width parameter of a log-normal distribution. 3.0 seems to be a good value. " ) ;
 		map.put( CLEAR_MODE_ROUTING_PARAMS, CLEAR_MODE_ROUTING_PARAMS_CMT ) ;
+		map.put( ROUTE_CACHE_MODES, "Network modes for which the routes are cached across iterations and only recomputed if the travel time on "
+					+ "one of their links changed by more than " + ROUTE_CACHE_TRAVEL_TIME_CHANGE_THRESHOLD + ". The cached routes are shared "
+					+ "by all persons, so this only makes sense if the routes do not depend on the person, e.g. with routingRandomness=0. "
+					+ "Only trips without access and egress legs are cached. Empty by default, i.e. no routes are cached." ) ;
+		map.put( ROUTE_CACHE_TRAVEL_TIME_CHANGE_THRESHOLD, "The relative change of the travel time of a link in one time bin between two "
+					+ "iterations, above which the cached routes using this link are recomputed. Default is 0.1, i.e. 10%." ) ;
 		return map;
 	}
 
@@ -575,6 +593,22 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		this.routingRandomness = routingRandomness;
 	}
 
+	public Collection<String> getRouteCacheModes() {
+		return this.routeCacheModes;
+	}
+	public void setRouteCacheModes( Collection<String> routeCacheModes ) {
+		testForLocked() ;
+		this.routeCacheModes = routeCacheModes;
+	}
+
+	public double getRouteCacheTravelTimeChangeThreshold() {
+		return this.routeCacheTravelTimeChangeThreshold;
+	}
+	public void setRouteCacheTravelTimeChangeThreshold( double routeCacheTravelTimeChangeThreshold ) {
+		testForLocked() ;
+		this.routeCacheTravelTimeChangeThreshold = routeCacheTravelTimeChangeThreshold;
+	}
+
 	@Override protected void checkConsistency(Config config) {
 		super.checkConsistency(config);
 
@@ -270,6 +270,15 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(USE_PERSON_ID_FOR_MISSING_VEHICLE_ID, "If a route does not reference a vehicle, agents will use the vehicle with the same id as their own.");
 		map.put(USING_THREADPOOL, "if the qsim should use as many runners as there are threads (Christoph's dissertation version)"
 				+ " or more of them, together with a thread pool (seems to be faster in some situations, but is not tested).") ;
+		map.put(USING_WORK_STEALING, "if true, the active nodes and links of every time step are split into small tasks which are "
+				+ "processed by a work-stealing thread pool; small time steps are processed by the mobsim thread alone. Overrides "
+				+ USING_THREADPOOL + ". Default is false.");
+		map.put(NETWORK_PARTITIONING, "How the nodes of the network are distributed over the threads of the qsim. Options: "
+				+ Arrays.toString(NetworkPartitioning.values()) + ". " + NetworkPartitioning.roundRobin + " (default) spreads "
+				+ "neighboring nodes over all threads; the bisection options give every thread a compact region, "
+				+ NetworkPartitioning.loadWeightedCoordinateBisection + " weighted by the traffic of the previous iteration.");
+		map.put(NETWORK_REBALANCING_INTERVAL, "Interval in seconds of simulated time after which the load of the threads of the qsim is "
+				+ "compared, and nodes are moved from the busiest to the least busy thread if necessary. Default is 0, which disables rebalancing.");
 		map.put(FAST_CAPACITY_UPDATE, "If false, the qsim accumulates fractional flows up to one flow unit in every time step.  If true, "
 				+ "flows are updated only if an agent wants to enter the link or an agent is added to buffer. "
 				+ "Default is true.") ;
@@ -533,6 +542,40 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	public void setUsingThreadpool( boolean val ) {
 		this.usingThreadpool = val ;
 	}
+	// ---
+	private static final String USING_WORK_STEALING = "usingWorkStealing";
+	private boolean usingWorkStealing = false;
+	@StringGetter(USING_WORK_STEALING)
+	public boolean isUsingWorkStealing() {
+		return this.usingWorkStealing;
+	}
+	@StringSetter(USING_WORK_STEALING)
+	public void setUsingWorkStealing(boolean usingWorkStealing) {
+		this.usingWorkStealing = usingWorkStealing;
+	}
+	// ---
+	private static final String NETWORK_PARTITIONING = "networkPartitioning";
+	public enum NetworkPartitioning { roundRobin, coordinateBisection, loadWeightedCoordinateBisection }
+	private NetworkPartitioning networkPartitioning = NetworkPartitioning.roundRobin;
+	@StringGetter(NETWORK_PARTITIONING)
+	public NetworkPartitioning getNetworkPartitioning() {
+		return this.networkPartitioning;
+	}
+	@StringSetter(NETWORK_PARTITIONING)
+	public void setNetworkPartitioning(NetworkPartitioning networkPartitioning) {
+		this.networkPartitioning = networkPartitioning;
+	}
+	// ---
+	private static final String NETWORK_REBALANCING_INTERVAL = "networkRebalancingInterval";
+	private double networkRebalancingInterval = 0;
+	@StringGetter(NETWORK_REBALANCING_INTERVAL)
+	public double getNetworkRebalancingInterval() {
+		return this.networkRebalancingInterval;
+	}
+	@StringSetter(NETWORK_REBALANCING_INTERVAL)
+	public void setNetworkRebalancingInterval(double networkRebalancingInterval) {
+		this.networkRebalancingInterval = networkRebalancingInterval;
+	}
 
 	private static final String USE_LANES="useLanes" ;
 	private boolean useLanes = false ;
@@ -82,9 +82,11 @@ public final class Controler implements ControlerI, MatsimServices, AllowsConfig
 		experiencedPlans("experienced_plans.xml"),
 		households("households.xml"),
 		facilities("facilities.xml"),
+		scenarioSnapshot("scenarioSnapshot.bin"),
 		events("events.xml"),
 		eventsPb("events.pb"),
 		eventsJson("events.ndjson"),
+		eventsBinary("events.evb"),
 		transitSchedule("transitSchedule.xml"),
 		transitVehicles("transitVehicles.xml"),
 		vehicles("vehicles.xml"),
@@ -38,6 +38,7 @@ import org.matsim.core.controler.listener.ShutdownListener;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.io.NetworkChangeEventsWriter;
 import org.matsim.core.network.io.NetworkWriter;
+import org.matsim.core.scenario.ScenarioSnapshotWriter;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
 import org.matsim.core.utils.io.UncheckedIOException;
@@ -131,6 +132,7 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 		dumpHouseholds();
 		dumpLanes();
 		dumpCounts();
+		dumpScenarioSnapshot();
 
 		if (!event.isUnexpected() && this.vspConfig.isWritingOutputEvents() && (this.controlerConfigGroup.getWriteEventsInterval()!=0)) {
 			dumpOutputEvents();
@@ -145,6 +147,7 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 		for (ControlerConfigGroup.EventsFileFormat format : this.controlerConfigGroup.getEventsFileFormats()) {
 			try {
 				Controler.DefaultFiles file;
+				ControlerConfigGroup.CompressionType compression = this.controlerConfigGroup.getCompressionType();
 				switch (format) {
 					case xml:
 						file = Controler.DefaultFiles.events;
@@ -155,12 +158,16 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 					case json:
 						file = Controler.DefaultFiles.eventsJson;
 						break;
+					case binary:
+						file = Controler.DefaultFiles.eventsBinary;
+						compression = ControlerConfigGroup.CompressionType.none;
+						break;
 					default:
 						continue;
 				}
 
-				File toFile = new File(this.controlerIO.getOutputFilename(file));
-				File fromFile = new File(this.controlerIO.getIterationFilename(this.controlerConfigGroup.getLastIteration(), file));
+				File toFile = new File(this.controlerIO.getOutputFilename(file, compression));
+				File fromFile = new File(this.controlerIO.getIterationFilename(this.controlerConfigGroup.getLastIteration(), file, compression));
 				try {
 					Files.copy(fromFile.toPath(), toFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
 				} catch (IOException e) {
@@ -318,6 +325,19 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 		}
 	}
 
+	private void dumpScenarioSnapshot() {
+		if (this.controlerConfigGroup.isWriteScenarioSnapshot()) {
+			try {
+				// not compressed, as the snapshot is meant to be loaded quickly
+				ScenarioSnapshotWriter writer = new ScenarioSnapshotWriter(this.scenario);
+				writer.putAttributeConverters(this.attributeConverters);
+				writer.write(this.controlerIO.getOutputFilename(Controler.DefaultFiles.scenarioSnapshot, ControlerConfigGroup.CompressionType.none));
+			} catch ( Exception ee ) {
+				log.error("Exception writing scenario snapshot.", ee);
+			}
+		}
+	}
+
 	private void dumpConfig() {
 		// dump config
 		new ConfigWriter(this.config).write(this.controlerIO.getOutputFilename(Controler.DefaultFiles.config, ControlerConfigGroup.CompressionType.none));
@@ -41,7 +41,9 @@ import org.matsim.core.controler.events.ShutdownEvent;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
 import org.matsim.core.controler.listener.IterationEndsListener;
 import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.events.algorithms.AsyncEventWriterXML;
 import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.algorithms.EventWriterBinary;
 import org.matsim.core.events.algorithms.EventWriterJson;
 import org.matsim.core.events.algorithms.EventWriterXML;
 
@@ -66,6 +68,10 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 
 	private int writeMoreUntilIteration;
 
+	private final boolean writeEventsAsynchronously;
+
+	private final int numberOfEventsCompressionThreads;
+
 	@Inject
 	EventsHandlingImpl(
 			final EventsManager eventsManager,
@@ -77,6 +83,8 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 		this.eventsFileFormats = config.getEventsFileFormats();
 		this.controlerIO = controlerIO;
 		this.writeMoreUntilIteration = config.getWriteEventsUntilIteration() ;
+		this.writeEventsAsynchronously = config.isWriteEventsAsynchronously();
+		this.numberOfEventsCompressionThreads = config.getNumberOfEventsCompressionThreads();
 	}
 
 	@Override
@@ -91,8 +99,13 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 			for (EventsFileFormat format : eventsFileFormats) {
 				switch (format) {
 					case xml:
-						this.eventWriters.add(new EventWriterXML(controlerIO.getIterationFilename(event.getIteration(),
-								Controler.DefaultFiles.events)));
+						String xmlFilename = controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.events);
+						if (this.writeEventsAsynchronously) {
+							this.eventWriters.add(new AsyncEventWriterXML(xmlFilename, this.numberOfEventsCompressionThreads,
+									AsyncEventWriterXML.DEFAULT_QUEUE_CAPACITY));
+						} else {
+							this.eventWriters.add(new EventWriterXML(xmlFilename));
+						}
 						break;
 					case pb:
 						// The pb dependency is optional at the moment so we search it first
@@ -110,6 +123,11 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 						this.eventWriters.add(new EventWriterJson(new File(controlerIO.getIterationFilename(event.getIteration(),
 								Controler.DefaultFiles.eventsJson))));
 						break;
+					case binary:
+						// the binary format compresses its blocks itself, and the reader expects the plain file extension
+						this.eventWriters.add(new EventWriterBinary(controlerIO.getIterationFilename(event.getIteration(),
+								Controler.DefaultFiles.eventsBinary, ControlerConfigGroup.CompressionType.none)));
+						break;
 					default:
 						log.warn("Unknown events file format specified: " + format.toString() + ".");
 				}
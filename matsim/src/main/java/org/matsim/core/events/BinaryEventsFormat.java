@@ -0,0 +1,527 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryEventsFormat.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.luben.zstd.Zstd;
+import net.jpountz.lz4.LZ4Factory;
+
+/**
+ * Defines the binary, block-wise columnar events file format (<code>*.evb</code>).
+ * <p></p>
+ * A file starts with {@link #MAGIC}, the format version and the {@link Compression} used for all blocks.
+ * Then follow blocks of up to {@link #DEFAULT_BLOCK_SIZE} events, terminated by a block header with
+ * <code>-1</code> events. Every block header is stored uncompressed and contains the number of events,
+ * the minimal and maximal event time and the event types occurring in the block, so readers can skip
+ * blocks without decompressing them. The payload of a block is self-contained and can thus be decoded
+ * independently of other blocks:
+ * <ol>
+ * <li>a dictionary of all strings (event types, attribute names, and string values, e.g. ids),</li>
+ * <li>the schemas (event type and attribute names) used in the block,</li>
+ * <li>the schema of every event,</li>
+ * <li>the event times, delta-encoded as milliseconds if possible,</li>
+ * <li>for every schema and attribute one column with the values of all events of that schema,
+ * stored as delta-encoded integers, as doubles or as dictionary references.</li>
+ * </ol>
+ * Values are stored such that the attribute strings of the events are reproduced exactly.
+ *
+ * @see org.matsim.core.events.algorithms.EventWriterBinary
+ * @see EventsReaderBinary
+ */
+public final class BinaryEventsFormat {
+
+	public static final String FILE_EXTENSION = ".evb";
+
+	static final byte[] MAGIC = "MATSIMEVB".getBytes(StandardCharsets.US_ASCII);
+	static final int VERSION = 1;
+	public static final int DEFAULT_BLOCK_SIZE = 65536;
+
+	static final int END_OF_FILE = -1;
+
+	private static final byte TIME_MILLIS = 0;
+	private static final byte TIME_DOUBLE = 1;
+
+	private static final byte COLUMN_STRING = 0;
+	private static final byte COLUMN_LONG = 1;
+	private static final byte COLUMN_DOUBLE = 2;
+
+	private static final String ATTRIBUTE_TIME = "time";
+	private static final String ATTRIBUTE_TYPE = "type";
+
+	public enum Compression { none, lz4, zstd }
+
+	private BinaryEventsFormat() {
+	}
+
+	public static void writeFileHeader(final DataOutputStream out, final Compression compression) throws IOException {
+		out.write(MAGIC);
+		out.writeInt(VERSION);
+		out.writeByte(compression.ordinal());
+	}
+
+	public static void writeEndOfFile(final DataOutputStream out) throws IOException {
+		out.writeInt(END_OF_FILE);
+	}
+
+	static Compression readFileHeader(final DataInputStream in) throws IOException {
+		byte[] magic = new byte[MAGIC.length];
+		in.readFully(magic);
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (magic[i] != MAGIC[i]) {
+				throw new IOException("not a binary MATSim events file.");
+			}
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("unsupported version of binary events file: " + version);
+		}
+		return Compression.values()[in.readByte()];
+	}
+
+	/**
+	 * Collects the events of one block, as the attributes returned by {@link org.matsim.api.core.v01.events.Event#getAttributes()}.
+	 */
+	public static final class BlockBuilder {
+		private double[] times = new double[1024];
+		private int[] schemaOfEvent = new int[1024];
+		private final Map<String, Integer> schemaIndex = new HashMap<>();
+		private final List<Schema> schemas = new ArrayList<>();
+		private int size = 0;
+		private double minTime = Double.POSITIVE_INFINITY;
+		private double maxTime = Double.NEGATIVE_INFINITY;
+
+		public void add(final double time, final String type, final Map<String, String> attributes) {
+			StringBuilder key = new StringBuilder(type);
+			for (String name : attributes.keySet()) {
+				if (!ATTRIBUTE_TIME.equals(name) && !ATTRIBUTE_TYPE.equals(name)) {
+					key.append('\0').append(name);
+				}
+			}
+			Integer index = this.schemaIndex.get(key.toString());
+			Schema schema;
+			if (index == null) {
+				List<String> names = new ArrayList<>();
+				for (String name : attributes.keySet()) {
+					if (!ATTRIBUTE_TIME.equals(name) && !ATTRIBUTE_TYPE.equals(name)) {
+						names.add(name);
+					}
+				}
+				schema = new Schema(type, names.toArray(new String[0]));
+				index = this.schemas.size();
+				this.schemas.add(schema);
+				this.schemaIndex.put(key.toString(), index);
+			} else {
+				schema = this.schemas.get(index);
+			}
+			for (int i = 0; i < schema.names.length; i++) {
+				schema.columns.get(i).add(attributes.get(schema.names[i]));
+			}
+			if (this.size == this.times.length) {
+				this.times = Arrays.copyOf(this.times, this.size * 2);
+				this.schemaOfEvent = Arrays.copyOf(this.schemaOfEvent, this.size * 2);
+			}
+			this.times[this.size] = time;
+			this.schemaOfEvent[this.size] = index;
+			this.size++;
+			this.minTime = Math.min(this.minTime, time);
+			this.maxTime = Math.max(this.maxTime, time);
+		}
+
+		public int size() {
+			return this.size;
+		}
+
+		public void writeTo(final DataOutputStream out, final Compression compression) throws IOException {
+			Set<String> eventTypes = new LinkedHashSet<>();
+			for (Schema schema : this.schemas) {
+				eventTypes.add(schema.type);
+			}
+			byte[] payload = encodePayload();
+			byte[] compressed = compress(payload, compression);
+
+			out.writeInt(this.size);
+			out.writeDouble(this.minTime);
+			out.writeDouble(this.maxTime);
+			out.writeInt(eventTypes.size());
+			for (String type : eventTypes) {
+				out.writeUTF(type);
+			}
+			out.writeInt(payload.length);
+			out.writeInt(compressed.length);
+			out.write(compressed);
+		}
+
+		public void clear() {
+			this.schemaIndex.clear();
+			this.schemas.clear();
+			this.size = 0;
+			this.minTime = Double.POSITIVE_INFINITY;
+			this.maxTime = Double.NEGATIVE_INFINITY;
+		}
+
+		private byte[] encodePayload() throws IOException {
+			Map<String, Integer> dictionary = new HashMap<>();
+			List<String> strings = new ArrayList<>();
+			ByteArrayOutputStream body = new ByteArrayOutputStream(this.size * 16);
+
+			// schemas, with the type of every column
+			writeVarint(body, this.schemas.size());
+			for (Schema schema : this.schemas) {
+				writeVarint(body, stringIndex(schema.type, dictionary, strings));
+				writeVarint(body, schema.names.length);
+				for (int i = 0; i < schema.names.length; i++) {
+					schema.columnTypes[i] = getColumnType(schema.columns.get(i));
+					writeVarint(body, stringIndex(schema.names[i], dictionary, strings));
+					body.write(schema.columnTypes[i]);
+				}
+			}
+
+			// schema of each event
+			writeVarint(body, this.size);
+			for (int i = 0; i < this.size; i++) {
+				writeVarint(body, this.schemaOfEvent[i]);
+			}
+
+			// times
+			boolean millis = true;
+			for (int i = 0; i < this.size && millis; i++) {
+				double t = this.times[i];
+				millis = Math.abs(t) < 1e12 && Math.round(t * 1000.0) / 1000.0 == t;
+			}
+			if (millis) {
+				body.write(TIME_MILLIS);
+				long previous = 0;
+				for (int i = 0; i < this.size; i++) {
+					long value = Math.round(this.times[i] * 1000.0);
+					writeVarint(body, zigZag(value - previous));
+					previous = value;
+				}
+			} else {
+				body.write(TIME_DOUBLE);
+				for (int i = 0; i < this.size; i++) {
+					writeLong(body, Double.doubleToRawLongBits(this.times[i]));
+				}
+			}
+
+			// attribute columns
+			for (Schema schema : this.schemas) {
+				for (int i = 0; i < schema.names.length; i++) {
+					List<String> column = schema.columns.get(i);
+					byte columnType = schema.columnTypes[i];
+					if (columnType == COLUMN_LONG) {
+						long previous = 0;
+						for (String value : column) {
+							long v = Long.parseLong(value);
+							writeVarint(body, zigZag(v - previous));
+							previous = v;
+						}
+					} else if (columnType == COLUMN_DOUBLE) {
+						for (String value : column) {
+							writeLong(body, Double.doubleToRawLongBits(Double.parseDouble(value)));
+						}
+					} else {
+						for (String value : column) {
+							writeVarint(body, value == null ? 0 : stringIndex(value, dictionary, strings) + 1);
+						}
+					}
+				}
+			}
+
+			ByteArrayOutputStream payload = new ByteArrayOutputStream(body.size() + strings.size() * 8 + 16);
+			writeVarint(payload, strings.size());
+			for (String s : strings) {
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				writeVarint(payload, bytes.length);
+				payload.write(bytes, 0, bytes.length);
+			}
+			body.writeTo(payload);
+			return payload.toByteArray();
+		}
+	}
+
+	private static final class Schema {
+		final String type;
+		final String[] names;
+		final List<List<String>> columns = new ArrayList<>();
+		final byte[] columnTypes;
+
+		Schema(final String type, final String[] names) {
+			this.type = type;
+			this.names = names;
+			this.columnTypes = new byte[names.length];
+			for (int i = 0; i < names.length; i++) {
+				this.columns.add(new ArrayList<>());
+			}
+		}
+	}
+
+	/**
+	 * One decoded block. Events are passed to a {@link RowHandler} one after the other, as event type,
+	 * time and attribute names and values.
+	 */
+	interface RowHandler {
+		void handleRow(String type, double time, String[] names, String[] values);
+	}
+
+	static final class BlockHeader {
+		int numberOfEvents;
+		double minTime;
+		double maxTime;
+		String[] eventTypes;
+		int uncompressedSize;
+		int compressedSize;
+	}
+
+	/**
+	 * @return <code>null</code> if the end of the file is reached
+	 */
+	static BlockHeader readBlockHeader(final DataInputStream in) throws IOException {
+		BlockHeader header = new BlockHeader();
+		header.numberOfEvents = in.readInt();
+		if (header.numberOfEvents == END_OF_FILE) {
+			return null;
+		}
+		header.minTime = in.readDouble();
+		header.maxTime = in.readDouble();
+		header.eventTypes = new String[in.readInt()];
+		for (int i = 0; i < header.eventTypes.length; i++) {
+			header.eventTypes[i] = in.readUTF();
+		}
+		header.uncompressedSize = in.readInt();
+		header.compressedSize = in.readInt();
+		return header;
+	}
+
+	static void decodeBlock(final byte[] compressed, final int uncompressedSize, final Compression compression, final RowHandler handler) {
+		ByteBuffer buffer = ByteBuffer.wrap(decompress(compressed, uncompressedSize, compression));
+
+		String[] strings = new String[(int) readVarint(buffer)];
+		for (int i = 0; i < strings.length; i++) {
+			int length = (int) readVarint(buffer);
+			strings[i] = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + length);
+		}
+
+		int nOfSchemas = (int) readVarint(buffer);
+		String[] schemaTypes = new String[nOfSchemas];
+		String[][] schemaNames = new String[nOfSchemas][];
+		byte[][] columnTypes = new byte[nOfSchemas][];
+		for (int s = 0; s < nOfSchemas; s++) {
+			schemaTypes[s] = strings[(int) readVarint(buffer)];
+			int nOfNames = (int) readVarint(buffer);
+			schemaNames[s] = new String[nOfNames];
+			columnTypes[s] = new byte[nOfNames];
+			for (int i = 0; i < nOfNames; i++) {
+				schemaNames[s][i] = strings[(int) readVarint(buffer)];
+				columnTypes[s][i] = buffer.get();
+			}
+		}
+
+		int size = (int) readVarint(buffer);
+		int[] schemaOfEvent = new int[size];
+		int[] eventsPerSchema = new int[nOfSchemas];
+		for (int i = 0; i < size; i++) {
+			schemaOfEvent[i] = (int) readVarint(buffer);
+			eventsPerSchema[schemaOfEvent[i]]++;
+		}
+
+		double[] times = new double[size];
+		byte timeEncoding = buffer.get();
+		if (timeEncoding == TIME_MILLIS) {
+			long previous = 0;
+			for (int i = 0; i < size; i++) {
+				previous += unZigZag(readVarint(buffer));
+				times[i] = previous / 1000.0;
+			}
+		} else {
+			for (int i = 0; i < size; i++) {
+				times[i] = Double.longBitsToDouble(buffer.getLong());
+			}
+		}
+
+		// values[schema][column][row of schema]
+		String[][][] values = new String[nOfSchemas][][];
+		for (int s = 0; s < nOfSchemas; s++) {
+			values[s] = new String[schemaNames[s].length][eventsPerSchema[s]];
+			for (int c = 0; c < schemaNames[s].length; c++) {
+				String[] column = values[s][c];
+				if (columnTypes[s][c] == COLUMN_LONG) {
+					long previous = 0;
+					for (int r = 0; r < column.length; r++) {
+						previous += unZigZag(readVarint(buffer));
+						column[r] = Long.toString(previous);
+					}
+				} else if (columnTypes[s][c] == COLUMN_DOUBLE) {
+					for (int r = 0; r < column.length; r++) {
+						column[r] = Double.toString(Double.longBitsToDouble(buffer.getLong()));
+					}
+				} else {
+					for (int r = 0; r < column.length; r++) {
+						int index = (int) readVarint(buffer);
+						column[r] = index == 0 ? null : strings[index - 1];
+					}
+				}
+			}
+		}
+
+		int[] rowOfSchema = new int[nOfSchemas];
+		for (int i = 0; i < size; i++) {
+			int s = schemaOfEvent[i];
+			int row = rowOfSchema[s]++;
+			String[] rowValues = new String[schemaNames[s].length];
+			for (int c = 0; c < rowValues.length; c++) {
+				rowValues[c] = values[s][c][row];
+			}
+			handler.handleRow(schemaTypes[s], times[i], schemaNames[s], rowValues);
+		}
+	}
+
+	private static byte getColumnType(final List<String> column) {
+		boolean allLong = true;
+		boolean allDouble = true;
+		for (String value : column) {
+			// check both types on every value, a column of longs is only stored as doubles if each value survives the round trip
+			allLong = allLong && isCanonicalLong(value);
+			allDouble = allDouble && isCanonicalDouble(value);
+			if (!allLong && !allDouble) {
+				return COLUMN_STRING;
+			}
+		}
+		return allLong ? COLUMN_LONG : COLUMN_DOUBLE;
+	}
+
+	/** only accept numbers that are written the same way by {@link Long#toString(long)}, e.g. no leading zeros */
+	private static boolean isCanonicalLong(final String value) {
+		if (value == null || value.isEmpty() || value.length() > 18) {
+			return false;
+		}
+		int start = value.charAt(0) == '-' ? 1 : 0;
+		if (start == value.length() || (value.charAt(start) == '0' && (value.length() > start + 1 || start == 1))) {
+			return false;
+		}
+		for (int i = start; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isCanonicalDouble(final String value) {
+		if (value == null || value.isEmpty()) {
+			return false;
+		}
+		char first = value.charAt(0);
+		if (first != '-' && first != 'N' && first != 'I' && (first < '0' || first > '9')) {
+			return false;
+		}
+		try {
+			return Double.toString(Double.parseDouble(value)).equals(value);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private static int stringIndex(final String s, final Map<String, Integer> dictionary, final List<String> strings) {
+		Integer index = dictionary.get(s);
+		if (index == null) {
+			index = strings.size();
+			strings.add(s);
+			dictionary.put(s, index);
+		}
+		return index;
+	}
+
+	private static byte[] compress(final byte[] data, final Compression compression) {
+		switch (compression) {
+			case none:
+				return data;
+			case lz4:
+				return LZ4Factory.fastestInstance().fastCompressor().compress(data);
+			case zstd:
+				return Zstd.compress(data, 3);
+			default:
+				throw new IllegalArgumentException("unsupported compression: " + compression);
+		}
+	}
+
+	private static byte[] decompress(final byte[] data, final int uncompressedSize, final Compression compression) {
+		switch (compression) {
+			case none:
+				return data;
+			case lz4:
+				return LZ4Factory.fastestInstance().fastDecompressor().decompress(data, uncompressedSize);
+			case zstd:
+				return Zstd.decompress(data, uncompressedSize);
+			default:
+				throw new IllegalArgumentException("unsupported compression: " + compression);
+		}
+	}
+
+	private static long zigZag(final long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(final long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static void writeVarint(final ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private static long readVarint(final ByteBuffer buffer) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private static void writeLong(final ByteArrayOutputStream out, final long value) {
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			out.write((int) (value >>> shift));
+		}
+	}
+
+}
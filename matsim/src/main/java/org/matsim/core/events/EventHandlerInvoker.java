@@ -0,0 +1,128 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventHandlerInvoker.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Calls one <code>handleEvent</code> method of one specific event handler.
+ * <p></p>
+ * Instances are created once per (event-class, handler) pair when the handler is added to the
+ * {@link EventsManagerImpl}. Where possible, the invoker is a class generated by the
+ * {@link LambdaMetafactory} which directly calls the typed interface method, so the JIT sees a
+ * monomorphic call site just like for the hard-coded event types in {@link EventsManagerImpl}.
+ * If no such class can be generated (e.g. because the handler interface is not accessible),
+ * the invoker falls back to {@link Method#invoke}.
+ */
+@FunctionalInterface
+interface EventHandlerInvoker {
+
+	void invoke(Event event);
+
+	/**
+	 * Creates an invoker calling <code>method</code>, which must be a <code>handleEvent</code> method
+	 * with a single parameter, on <code>handler</code>.
+	 */
+	static EventHandlerInvoker create(final Method method, final EventHandler handler) {
+		MethodHandle factory = Generator.getFactory(method);
+		if (factory != null) {
+			try {
+				return (EventHandlerInvoker) factory.invoke(handler);
+			} catch (Throwable e) {
+				Generator.log.warn("could not bind generated invoker for " + method + ", falling back to reflection.", e);
+			}
+		}
+		return new ReflectiveInvoker(method, handler);
+	}
+
+	final class Generator {
+		private static final Logger log = Logger.getLogger(EventHandlerInvoker.class);
+
+		private static final MethodType INVOKER_TYPE = MethodType.methodType(void.class, Event.class);
+		private static final MethodHandle NO_FACTORY = MethodHandles.constant(Object.class, null);
+
+		/** one generated class per handler method, the handler instance is bound when invoking the factory */
+		private static final Map<Method, MethodHandle> factories = new ConcurrentHashMap<>();
+
+		private Generator() {
+		}
+
+		static MethodHandle getFactory(final Method method) {
+			MethodHandle factory = factories.computeIfAbsent(method, Generator::generateFactory);
+			return factory == NO_FACTORY ? null : factory;
+		}
+
+		private static MethodHandle generateFactory(final Method method) {
+			Class<?> handlerInterface = method.getDeclaringClass();
+			Class<?> eventClass = method.getParameterTypes()[0];
+			if (!Event.class.isAssignableFrom(eventClass) || !EventHandler.class.isAssignableFrom(handlerInterface)) {
+				return NO_FACTORY;
+			}
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.lookup();
+				MethodHandle target = lookup.unreflect(method);
+				CallSite site = LambdaMetafactory.metafactory(lookup, "invoke",
+						MethodType.methodType(EventHandlerInvoker.class, handlerInterface),
+						INVOKER_TYPE,
+						target,
+						MethodType.methodType(void.class, eventClass));
+				return site.getTarget().asType(MethodType.methodType(EventHandlerInvoker.class, EventHandler.class));
+			} catch (Throwable e) {
+				log.info("cannot generate invoker for " + method + " (" + e.getMessage() + "), using reflection instead.");
+				return NO_FACTORY;
+			}
+		}
+	}
+
+	final class ReflectiveInvoker implements EventHandlerInvoker {
+		private final Method method;
+		private final EventHandler handler;
+
+		ReflectiveInvoker(final Method method, final EventHandler handler) {
+			this.method = method;
+			this.handler = handler;
+		}
+
+		@Override
+		public void invoke(final Event event) {
+			try {
+				this.method.invoke(this.handler, event);
+			} catch (IllegalArgumentException | IllegalAccessException e) {
+				throw new RuntimeException("problem invoking EventHandler " + this.handler.getClass().getCanonicalName() + " for event-class " + this.method.getParameterTypes()[0].getCanonicalName(), e);
+			} catch (InvocationTargetException e) {
+				throw new RuntimeException("problem invoking EventHandler " + this.handler.getClass().getCanonicalName() + " for event-class " + this.method.getParameterTypes()[0].getCanonicalName(), e.getCause());
+			}
+		}
+	}
+
+}
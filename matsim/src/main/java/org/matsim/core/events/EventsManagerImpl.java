@@ -62,6 +62,7 @@ import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
 import org.matsim.core.api.experimental.events.handler.AgentWaitingForPtEventHandler;
 import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
 import org.matsim.core.api.experimental.events.handler.VehicleDepartsAtFacilityEventHandler;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.EventsDispatchMode;
 import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.events.handler.EventHandler;
 import org.matsim.core.utils.misc.ClassUtils;
@@ -77,6 +78,11 @@ import org.matsim.core.utils.misc.ClassUtils;
  * <li>(optional) add an appropriate line in callHandlerFast() for speeding
  * up execution!</li>
  * </ol>
+ * With {@link EventsDispatchMode#generated}, the last step is not necessary: a typed invoker is generated
+ * for every (event-class, handler) pair when the handler is added, and events are passed to the handlers
+ * without reflection and without synchronizing on the handler. This requires that the events manager is only
+ * fed from one thread at a time (e.g. wrapped in a {@link SynchronizedEventsManagerImpl}) and that no handler
+ * is registered at several events managers that process events concurrently.
  *
  * @author dstrippgen
  * @author mrieser
@@ -89,13 +95,21 @@ public final class EventsManagerImpl implements EventsManager {
 
 		protected Class<?> eventklass;
 		protected ArrayList<EventHandler> handlerList = new ArrayList<EventHandler>(5);
+		/** only filled in {@link EventsDispatchMode#generated}, same order as {@link #handlerList} */
+		protected ArrayList<EventHandlerInvoker> invokerList = new ArrayList<EventHandlerInvoker>(5);
 		protected Method method;
 		protected HandlerData(final Class<?> eventklass, final Method method) {
 			this.eventklass = eventklass;
 			this.method = method;
 		}
 		protected void removeHandler(final EventHandler handler) {
-			this.handlerList.remove(handler);
+			int index = this.handlerList.indexOf(handler);
+			if (index >= 0) {
+				this.handlerList.remove(index);
+				if (index < this.invokerList.size()) {
+					this.invokerList.remove(index);
+				}
+			}
 		}
 	}
 
@@ -103,14 +117,18 @@ public final class EventsManagerImpl implements EventsManager {
 		protected final Class<?> eventClass;
 		protected final EventHandler eventHandler;
 		protected final Method method;
+		protected final EventHandlerInvoker invoker;
 
-		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method) {
+		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method, final EventHandlerInvoker invoker) {
 			this.eventClass = eventClass;
 			this.eventHandler = eventHandler;
 			this.method = method;
+			this.invoker = invoker;
 		}
 	}
 
+	private final EventsDispatchMode dispatchMode;
+
 	private final List<HandlerData> handlerData = new ArrayList<HandlerData>();
 
 	private final Map<Class<?>, HandlerInfo[]> cacheHandlers = new ConcurrentHashMap<Class<?>, HandlerInfo[]>(15);
@@ -118,6 +136,14 @@ public final class EventsManagerImpl implements EventsManager {
 	private long counter = 0;
 	private long nextCounterMsg = 1;
 
+	public EventsManagerImpl() {
+		this(EventsDispatchMode.reflective);
+	}
+
+	public EventsManagerImpl(final EventsDispatchMode dispatchMode) {
+		this.dispatchMode = dispatchMode;
+	}
+
 	private HandlerData findHandler(final Class<?> evklass) {
 		for (HandlerData handler : this.handlerData) {
 			if (handler.eventklass == evklass) {
@@ -134,6 +160,12 @@ public final class EventsManagerImpl implements EventsManager {
 			this.nextCounterMsg *= 4;
 			log.info(" event # " + this.counter);
 		}
+		if (this.dispatchMode == EventsDispatchMode.generated) {
+			for (HandlerInfo info : getHandlersForClass( event.getClass() )) {
+				info.invoker.invoke(event);
+			}
+			return;
+		}
 		for (HandlerInfo info : getHandlersForClass( event.getClass() )) {
 			synchronized(info.eventHandler) {
 				if (callHandlerFast(info.eventClass, event, info.eventHandler )) {
@@ -225,11 +257,18 @@ public final class EventsManagerImpl implements EventsManager {
 						this.handlerData.add(dat);
 					}
 					dat.handlerList.add(handler);
+					if (this.dispatchMode == EventsDispatchMode.generated) {
+						dat.invokerList.add(EventHandlerInvoker.create(method, handler));
+					}
 				}
 			}
 		}
 	}
 
+	/*package*/ boolean hasHandlersForClass(final Class<?> eventClass) {
+		return getHandlersForClass(eventClass).length > 0;
+	}
+
 	private HandlerInfo[] getHandlersForClass(final Class<?> eventClass) {
 		Class<?> klass = eventClass;
 		HandlerInfo[] cache = this.cacheHandlers.get(eventClass);
@@ -242,9 +281,7 @@ public final class EventsManagerImpl implements EventsManager {
 		while (klass != Object.class) {
 			HandlerData dat = findHandler(klass);
 			if (dat != null) {
-				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(klass, handler, dat.method));
-				}
+				addHandlerInfos(info, klass, dat);
 			}
 			klass = klass.getSuperclass();
 		}
@@ -252,9 +289,7 @@ public final class EventsManagerImpl implements EventsManager {
 		for (Class<?> intfc : ClassUtils.getAllInterfaces(eventClass )) {
 			HandlerData dat = findHandler(intfc);
 			if (dat != null) {
-				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(intfc, handler, dat.method));
-				}
+				addHandlerInfos(info, intfc, dat);
 			}
 		}
 
@@ -263,6 +298,13 @@ public final class EventsManagerImpl implements EventsManager {
 		return cache;
 	}
 
+	private void addHandlerInfos(final List<HandlerInfo> info, final Class<?> klass, final HandlerData dat) {
+		for (int i = 0; i < dat.handlerList.size(); i++) {
+			EventHandlerInvoker invoker = this.dispatchMode == EventsDispatchMode.generated ? dat.invokerList.get(i) : null;
+			info.add(new HandlerInfo(klass, dat.handlerList.get(i), dat.method, invoker));
+		}
+	}
+
 	// this method is purely for performance reasons and need not be implemented
 	private static boolean callHandlerFast( final Class<?> klass, final Event ev, final EventHandler handler ) {
 		if (klass == LinkLeaveEvent.class) {
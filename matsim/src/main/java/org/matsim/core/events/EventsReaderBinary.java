@@ -0,0 +1,270 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.BinaryEventsFormat.BlockHeader;
+import org.matsim.core.events.BinaryEventsFormat.Compression;
+import org.matsim.core.events.MatsimEventsReader.CustomEventMapper;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Reads events files in the binary format described in {@link BinaryEventsFormat}.
+ * <p></p>
+ * Blocks not containing any of the requested event types (see {@link #setEventTypes(Set)}) or no event within
+ * the requested time range (see {@link #setTimeRange(double, double)}) are skipped without decompressing them.
+ * With more than one thread (see {@link #setNumberOfThreads(int)}), blocks are decompressed and decoded in parallel;
+ * the events are nevertheless passed to the events manager in the order of the file, from the calling thread.
+ * <p></p>
+ * Events are created by the same code as in {@link EventsReaderXMLv1}, so custom event mappers work the same way
+ * as for xml events files.
+ */
+public final class EventsReaderBinary {
+
+	private final static Logger log = Logger.getLogger(EventsReaderBinary.class);
+
+	private final EventsManager events;
+	private final Map<String, CustomEventMapper> customEventMappers = new HashMap<>();
+	private Set<String> eventTypes = null;
+	private double fromTime = Double.NEGATIVE_INFINITY;
+	private double toTime = Double.POSITIVE_INFINITY;
+	private int numberOfThreads = 1;
+
+	private long readBlocks = 0;
+	private long skippedBlocks = 0;
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.events = events;
+	}
+
+	public void addCustomEventMapper(String eventType, CustomEventMapper cem) {
+		this.customEventMappers.put(eventType, cem);
+	}
+
+	/**
+	 * Only events of the given types are read. <code>null</code> (the default) reads all events.
+	 */
+	public void setEventTypes(final Set<String> eventTypes) {
+		this.eventTypes = eventTypes == null ? null : new HashSet<>(eventTypes);
+	}
+
+	/**
+	 * Only events with <code>fromTime &lt;= time &lt;= toTime</code> are read.
+	 */
+	public void setTimeRange(final double fromTime, final double toTime) {
+		this.fromTime = fromTime;
+		this.toTime = toTime;
+	}
+
+	public void setNumberOfThreads(final int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("number of threads must be at least 1, but was " + numberOfThreads);
+		}
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	public void readFile(final String filename) throws UncheckedIOException {
+		parse(IOUtils.resolveFileOrResource(filename));
+	}
+
+	public void parse(final URL url) throws UncheckedIOException {
+		log.info("starting to read binary events from " + url);
+		try (InputStream stream = IOUtils.getInputStream(url)) {
+			parse(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void parse(final InputStream stream) throws UncheckedIOException {
+		this.readBlocks = 0;
+		this.skippedBlocks = 0;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+		ExecutorService executor = this.numberOfThreads > 1 ? Executors.newFixedThreadPool(this.numberOfThreads, r -> {
+			Thread thread = new Thread(r, EventsReaderBinary.class.getSimpleName());
+			thread.setDaemon(true);
+			return thread;
+		}) : null;
+		ArrayDeque<Future<List<Event>>> pending = new ArrayDeque<>();
+		try {
+			Compression compression = BinaryEventsFormat.readFileHeader(in);
+			BlockHeader header;
+			while ((header = BinaryEventsFormat.readBlockHeader(in)) != null) {
+				if (!isRelevant(header)) {
+					skipFully(in, header.compressedSize);
+					this.skippedBlocks++;
+					continue;
+				}
+				this.readBlocks++;
+				byte[] data = new byte[header.compressedSize];
+				in.readFully(data);
+				final int uncompressedSize = header.uncompressedSize;
+				if (executor == null) {
+					processEvents(decode(data, uncompressedSize, compression));
+				} else {
+					pending.add(executor.submit(() -> decode(data, uncompressedSize, compression)));
+					while (pending.size() > 2 * this.numberOfThreads) {
+						processEvents(pending.poll().get());
+					}
+				}
+			}
+			while (!pending.isEmpty()) {
+				processEvents(pending.poll().get());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException("Exception while decoding binary events.", e.getCause() == null ? e : e.getCause());
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+		log.info("read " + this.readBlocks + " blocks of binary events, skipped " + this.skippedBlocks + " blocks.");
+	}
+
+	private boolean isRelevant(final BlockHeader header) {
+		if (header.maxTime < this.fromTime || header.minTime > this.toTime) {
+			return false;
+		}
+		if (this.eventTypes == null) {
+			return true;
+		}
+		for (String type : header.eventTypes) {
+			if (this.eventTypes.contains(type)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void processEvents(final List<Event> decodedEvents) {
+		for (Event event : decodedEvents) {
+			this.events.processEvent(event);
+		}
+	}
+
+	private List<Event> decode(final byte[] data, final int uncompressedSize, final Compression compression) {
+		List<Event> decodedEvents = new ArrayList<>();
+		EventsReaderXMLv1 delegate = new EventsReaderXMLv1(new CollectingEventsManager(decodedEvents));
+		for (Map.Entry<String, CustomEventMapper> entry : this.customEventMappers.entrySet()) {
+			delegate.addCustomEventMapper(entry.getKey(), entry.getValue());
+		}
+		Stack<String> context = new Stack<>();
+		AttributesImpl atts = new AttributesImpl();
+		BinaryEventsFormat.decodeBlock(data, uncompressedSize, compression, (type, time, names, values) -> {
+			if (time < this.fromTime || time > this.toTime || (this.eventTypes != null && !this.eventTypes.contains(type))) {
+				return;
+			}
+			atts.clear();
+			atts.addAttribute("", "", "time", "CDATA", Double.toString(time));
+			atts.addAttribute("", "", "type", "CDATA", type);
+			for (int i = 0; i < names.length; i++) {
+				if (values[i] != null) {
+					atts.addAttribute("", "", names[i], "CDATA", values[i]);
+				}
+			}
+			delegate.startTag(EventsReaderXMLv1.EVENT, atts, context);
+		});
+		return decodedEvents;
+	}
+
+	private static void skipFully(final DataInputStream in, final int bytes) throws IOException {
+		int remaining = bytes;
+		while (remaining > 0) {
+			int skipped = in.skipBytes(remaining);
+			if (skipped <= 0) {
+				if (in.read() < 0) {
+					throw new EOFException("unexpected end of binary events file.");
+				}
+				skipped = 1;
+			}
+			remaining -= skipped;
+		}
+	}
+
+	/**
+	 * Collects the events created by {@link EventsReaderXMLv1} for one block, so they can be passed on in file order.
+	 */
+	private static final class CollectingEventsManager implements EventsManager {
+		private final List<Event> events;
+
+		CollectingEventsManager(final List<Event> events) {
+			this.events = events;
+		}
+
+		@Override
+		public void processEvent(final Event event) {
+			this.events.add(event);
+		}
+
+		@Override
+		public void addHandler(final EventHandler handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void removeHandler(final EventHandler handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void resetHandlers(final int iteration) {
+		}
+
+		@Override
+		public void initProcessing() {
+		}
+
+		@Override
+		public void afterSimStep(final double time) {
+		}
+
+		@Override
+		public void finishProcessing() {
+		}
+	}
+
+}
@@ -77,6 +77,8 @@ public final class MatsimEventsReader implements MatsimReader {
 		String lcFilename = filename.toLowerCase(Locale.ROOT);
 		if (lcFilename.endsWith(".xml") || lcFilename.endsWith(".xml.gz")) {
 			new XmlEventsReader(this.events, this.customEventMappers).readFile(filename );
+		} else if (lcFilename.endsWith(BinaryEventsFormat.FILE_EXTENSION)) {
+			createBinaryReader().readFile(filename);
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
 		} else {
@@ -103,7 +105,18 @@ public final class MatsimEventsReader implements MatsimReader {
 				}
 				reader.parse(stream);
 				break;
+			case binary:
+				createBinaryReader().parse(stream);
+				break;
+		}
+	}
+
+	private EventsReaderBinary createBinaryReader() {
+		EventsReaderBinary reader = new EventsReaderBinary(this.events);
+		for (Map.Entry<String, CustomEventMapper> entry : this.customEventMappers.entrySet()) {
+			reader.addCustomEventMapper(entry.getKey(), entry.getValue());
 		}
+		return reader;
 	}
 
 	@Override
@@ -116,6 +129,8 @@ public final class MatsimEventsReader implements MatsimReader {
 				reader.addCustomEventMapper(entry.getKey(), entry.getValue());
 			}
 			reader.parse(url);
+		} else if (url.getFile().endsWith(BinaryEventsFormat.FILE_EXTENSION)) {
+			createBinaryReader().parse(url);
 		}
 	}
 
@@ -25,6 +25,7 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.EventsDispatchMode;
 import org.matsim.core.events.handler.EventHandler;
 
 import javax.inject.Inject;
@@ -79,11 +80,14 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 	// quite well for larger simulations with 10 million events
 	private int preInputBufferMaxLength = 100000;
 
+	private EventsDispatchMode dispatchMode = EventsDispatchMode.reflective;
+
 	@Inject
 	ParallelEventsManagerImpl(Config config) {
 		if (config.parallelEventHandling().getEstimatedNumberOfEvents() != null) {
 			preInputBufferMaxLength = (int) (config.parallelEventHandling().getEstimatedNumberOfEvents() / 10);
 		}
+		this.dispatchMode = config.parallelEventHandling().getEventsDispatchMode();
 		init(config.parallelEventHandling().getNumberOfThreads());
 	}
 
@@ -163,7 +167,7 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 		this.threads = new Thread[numberOfThreads];
 		// the additional 1 is for the simulation barrier
 		for (int i = 0; i < numberOfThreads; i++) {
-			events[i] = (EventsManagerImpl) EventsUtils.createEventsManager();
+			events[i] = new EventsManagerImpl(this.dispatchMode);
 		}
 	}
 
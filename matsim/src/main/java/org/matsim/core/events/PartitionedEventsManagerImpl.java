@@ -0,0 +1,467 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PartitionedEventsManagerImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.HasLinkId;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.api.internal.HasVehicleId;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.EventsDispatchMode;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.events.handler.PartitionedEventHandler;
+
+/**
+ * An EventsManager that processes events in separate threads and lets a single
+ * {@link PartitionedEventHandler} use several of these threads.
+ * <p></p>
+ * Each thread owns one bounded single-producer/single-consumer ring buffer. Events of a partitioned
+ * handler are sent to the thread given by the index of the person, vehicle or link id the handler is
+ * partitioned by, so all events of one entity are handled by the same thread in the order they were
+ * created. All other handlers are distributed over the threads round-robin, like in
+ * {@link SimStepParallelEventsManagerImpl}. Like there, all events of a time step are processed before
+ * {@link #afterSimStep(double)} returns.
+ * <p></p>
+ * Partitioned handlers are always called without synchronizing on the handler (see
+ * {@link EventsDispatchMode#generated}), otherwise they could not run concurrently. Events created by
+ * event handlers while processing events are supported, all other events must be passed to
+ * {@link #processEvent(Event)} by one thread at a time. {@link EventsUtils#getParallelFeedableInstance(EventsManager)}
+ * takes care of this if the mobsim creates events from several threads.
+ *
+ * @see PartitionedEventHandler
+ */
+public final class PartitionedEventsManagerImpl implements EventsManager {
+
+	private final static Logger log = Logger.getLogger(PartitionedEventsManagerImpl.class);
+
+	public final static int DEFAULT_RING_BUFFER_CAPACITY = 1 << 16;
+
+	private final static int UNPARTITIONED = 0;
+	private final static int BY_PERSON = 1;
+	private final static int BY_VEHICLE = 2;
+	private final static int BY_LINK = 3;
+	private final static int NUMBER_OF_ROLES = 4;
+
+	private final int numOfThreads;
+	private final int ringBufferCapacity;
+
+	/** one events manager per thread and handler role, indexed [thread][role] */
+	private final EventsManagerImpl[][] eventsManagers;
+	private final Set<EventHandler> handlers = new LinkedHashSet<>();
+	private int unpartitionedHandlerCount = 0;
+
+	private Worker[] workers = null;
+	private volatile boolean parallelMode = false;
+	private final AtomicLong crossThreadEventsCounter = new AtomicLong(0);
+	private final AtomicReference<Throwable> hadException = new AtomicReference<>();
+	private long producerStalls = 0;
+
+	@Inject
+	PartitionedEventsManagerImpl(ParallelEventHandlingConfigGroup config) {
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1, DEFAULT_RING_BUFFER_CAPACITY, config.getEventsDispatchMode());
+	}
+
+	public PartitionedEventsManagerImpl(int numOfThreads) {
+		this(numOfThreads, DEFAULT_RING_BUFFER_CAPACITY, EventsDispatchMode.reflective);
+	}
+
+	/**
+	 * @param ringBufferCapacity number of events that can be buffered per thread before the producing thread
+	 * has to wait. Rounded up to the next power of two.
+	 * @param dispatchMode used for handlers which are not partitioned.
+	 */
+	public PartitionedEventsManagerImpl(int numOfThreads, int ringBufferCapacity, EventsDispatchMode dispatchMode) {
+		if (numOfThreads < 1) {
+			throw new IllegalArgumentException("number of threads must be at least 1, but was " + numOfThreads);
+		}
+		this.numOfThreads = numOfThreads;
+		this.ringBufferCapacity = Integer.highestOneBit(Math.max(2, ringBufferCapacity - 1)) << 1;
+		log.info("number of threads=" + numOfThreads + ", ring buffer capacity=" + this.ringBufferCapacity);
+
+		this.eventsManagers = new EventsManagerImpl[numOfThreads][NUMBER_OF_ROLES];
+		for (int i = 0; i < numOfThreads; i++) {
+			this.eventsManagers[i][UNPARTITIONED] = new EventsManagerImpl(dispatchMode);
+			for (int role = UNPARTITIONED + 1; role < NUMBER_OF_ROLES; role++) {
+				this.eventsManagers[i][role] = new EventsManagerImpl(EventsDispatchMode.generated);
+			}
+		}
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		Throwable throwable = this.hadException.get();
+		if (throwable != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", throwable);
+		}
+		Class<?> eventClass = event.getClass();
+		for (int i = 0; i < this.numOfThreads; i++) {
+			if (this.eventsManagers[i][UNPARTITIONED].hasHandlersForClass(eventClass)) {
+				dispatch(i, UNPARTITIONED, event);
+			}
+		}
+		for (int role = UNPARTITIONED + 1; role < NUMBER_OF_ROLES; role++) {
+			if (this.eventsManagers[0][role].hasHandlersForClass(eventClass)) {
+				dispatch(getPartition(event, role), role, event);
+			}
+		}
+	}
+
+	private void dispatch(final int partition, final int role, final Event event) {
+		if (!this.parallelMode) {
+			this.eventsManagers[partition][role].processEvent(event);
+			return;
+		}
+		Thread currentThread = Thread.currentThread();
+		if (currentThread instanceof Worker && ((Worker) currentThread).owner == this) {
+			// an event handler created an event, it is passed on through the thread-safe inbox of the target thread
+			this.crossThreadEventsCounter.incrementAndGet();
+			this.workers[partition].addToInbox(event, role);
+			return;
+		}
+		EventRingBuffer ringBuffer = this.workers[partition].ringBuffer;
+		if (!ringBuffer.offer(event, role)) {
+			this.producerStalls++;
+			int idleCount = 0;
+			while (!ringBuffer.offer(event, role)) {
+				Throwable throwable = this.hadException.get();
+				if (throwable != null) {
+					throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", throwable);
+				}
+				backOff(++idleCount);
+			}
+		}
+	}
+
+	private int getPartition(final Event event, final int role) {
+		Id<?> id = null;
+		if (role == BY_PERSON) {
+			if (event instanceof HasPersonId) {
+				id = ((HasPersonId) event).getPersonId();
+			}
+		} else if (role == BY_VEHICLE) {
+			if (event instanceof HasVehicleId) {
+				id = ((HasVehicleId) event).getVehicleId();
+			} else if (event instanceof LinkEnterEvent) {
+				id = ((LinkEnterEvent) event).getVehicleId();
+			} else if (event instanceof LinkLeaveEvent) {
+				id = ((LinkLeaveEvent) event).getVehicleId();
+			}
+		} else if (role == BY_LINK) {
+			if (event instanceof HasLinkId) {
+				id = ((HasLinkId) event).getLinkId();
+			}
+		}
+		return id == null ? 0 : id.index() % this.numOfThreads;
+	}
+
+	private static int getRole(final EventHandler handler) {
+		if (handler instanceof PartitionedEventHandler) {
+			switch (((PartitionedEventHandler) handler).getPartitionKey()) {
+				case person: return BY_PERSON;
+				case vehicle: return BY_VEHICLE;
+				case link: return BY_LINK;
+				default: throw new RuntimeException("unsupported partition key: " + ((PartitionedEventHandler) handler).getPartitionKey());
+			}
+		}
+		return UNPARTITIONED;
+	}
+
+	@Override
+	public synchronized void addHandler(final EventHandler handler) {
+		int role = getRole(handler);
+		if (role == UNPARTITIONED) {
+			this.eventsManagers[this.unpartitionedHandlerCount % this.numOfThreads][UNPARTITIONED].addHandler(handler);
+			this.unpartitionedHandlerCount++;
+		} else {
+			log.info("adding partitioned Event-Handler " + handler.getClass().getName() + " to all " + this.numOfThreads + " threads.");
+			for (int i = 0; i < this.numOfThreads; i++) {
+				this.eventsManagers[i][role].addHandler(handler);
+			}
+		}
+		this.handlers.add(handler);
+	}
+
+	@Override
+	public synchronized void removeHandler(final EventHandler handler) {
+		for (EventsManagerImpl[] managers : this.eventsManagers) {
+			for (EventsManagerImpl manager : managers) {
+				manager.removeHandler(handler);
+			}
+		}
+		this.handlers.remove(handler);
+	}
+
+	@Override
+	public synchronized void resetHandlers(final int iteration) {
+		// partitioned handlers are registered at several events managers, but must only be reset once
+		log.info("resetting Event-Handlers");
+		for (EventHandler handler : this.handlers) {
+			log.info("  " + handler.getClass().getName());
+			handler.reset(iteration);
+		}
+	}
+
+	@Override
+	public void initProcessing() {
+		for (EventsManagerImpl[] managers : this.eventsManagers) {
+			for (EventsManagerImpl manager : managers) {
+				manager.initProcessing();
+			}
+		}
+		this.hadException.set(null);
+		this.producerStalls = 0;
+		this.workers = new Worker[this.numOfThreads];
+		for (int i = 0; i < this.numOfThreads; i++) {
+			this.workers[i] = new Worker(this, this.eventsManagers[i], new EventRingBuffer(this.ringBufferCapacity));
+			this.workers[i].setName(PartitionedEventsManagerImpl.class.getSimpleName() + i);
+			this.workers[i].setDaemon(true);
+		}
+		this.parallelMode = true;
+		for (Worker worker : this.workers) {
+			worker.start();
+		}
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		if (this.parallelMode) {
+			awaitAllEventsProcessed();
+		}
+		Throwable throwable = this.hadException.get();
+		if (throwable != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", throwable);
+		}
+	}
+
+	@Override
+	public synchronized void finishProcessing() {
+		if (this.parallelMode) {
+			awaitAllEventsProcessed();
+			/*
+			 * Events created after this point (e.g. by listeners at the end of the iteration)
+			 * are processed directly in the calling thread.
+			 */
+			this.parallelMode = false;
+			for (Worker worker : this.workers) {
+				worker.running = false;
+				LockSupport.unpark(worker);
+			}
+			long processedEvents = 0;
+			for (Worker worker : this.workers) {
+				try {
+					worker.join();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				log.info("thread " + worker.getName() + " processed " + worker.processedEvents + " events, "
+						+ worker.processedCrossThreadEvents + " of them created by other event handlers.");
+				processedEvents += worker.processedEvents;
+			}
+			log.info("processed " + processedEvents + " events in total. The producing thread had to wait "
+					+ this.producerStalls + " times for a full ring buffer.");
+			this.workers = null;
+		}
+		for (EventsManagerImpl[] managers : this.eventsManagers) {
+			for (EventsManagerImpl manager : managers) {
+				manager.finishProcessing();
+			}
+		}
+		Throwable throwable = this.hadException.get();
+		if (throwable != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", throwable);
+		}
+	}
+
+	/**
+	 * Waits until all ring buffers and inboxes are empty. Event handlers might create new events while
+	 * we check the threads one after the other, so we repeat the check if any such event was created
+	 * while checking.
+	 */
+	private void awaitAllEventsProcessed() {
+		int idleCount = 0;
+		while (this.hadException.get() == null) {
+			long crossThreadEvents = this.crossThreadEventsCounter.get();
+			boolean allProcessed = true;
+			for (Worker worker : this.workers) {
+				if (!worker.isIdle()) {
+					allProcessed = false;
+					break;
+				}
+			}
+			if (allProcessed && crossThreadEvents == this.crossThreadEventsCounter.get()) {
+				return;
+			}
+			backOff(++idleCount);
+		}
+	}
+
+	private static void backOff(final int idleCount) {
+		if (idleCount < 100) {
+			Thread.onSpinWait();
+		} else if (idleCount < 200) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(20_000);
+		}
+	}
+
+	public void printEventHandlers() {
+		for (int i = 0; i < this.numOfThreads; i++) {
+			log.info("registered event handlers for thread " + i + ":");
+			for (EventsManagerImpl manager : this.eventsManagers[i]) {
+				manager.printEventHandlers();
+			}
+		}
+	}
+
+	/**
+	 * A bounded single-producer/single-consumer queue of events. Every event is stored together with the
+	 * role of the events manager it is meant for. The consumer only frees a slot after the event has been
+	 * processed, so an empty buffer means that all events in it were handled.
+	 */
+	private static final class EventRingBuffer {
+		private final Event[] events;
+		private final byte[] roles;
+		private final int mask;
+		/** index of the next event to be consumed, only written by the consumer */
+		private final AtomicLong head = new AtomicLong(0);
+		/** index of the next free slot, only written by the producer */
+		private final AtomicLong tail = new AtomicLong(0);
+
+		EventRingBuffer(final int capacity) {
+			this.events = new Event[capacity];
+			this.roles = new byte[capacity];
+			this.mask = capacity - 1;
+		}
+
+		boolean offer(final Event event, final int role) {
+			long t = this.tail.get();
+			if (t - this.head.get() > this.mask) {
+				return false;
+			}
+			int index = (int) (t & this.mask);
+			this.events[index] = event;
+			this.roles[index] = (byte) role;
+			this.tail.lazySet(t + 1);
+			return true;
+		}
+
+		int drainTo(final Worker worker) {
+			long h = this.head.get();
+			long t = this.tail.get();
+			for (long i = h; i < t; i++) {
+				int index = (int) (i & this.mask);
+				Event event = this.events[index];
+				this.events[index] = null;
+				worker.process(this.roles[index], event);
+				this.head.lazySet(i + 1);
+			}
+			return (int) (t - h);
+		}
+
+		boolean isEmpty() {
+			return this.head.get() == this.tail.get();
+		}
+	}
+
+	private static final class CrossThreadEvent {
+		private final Event event;
+		private final int role;
+
+		CrossThreadEvent(final Event event, final int role) {
+			this.event = event;
+			this.role = role;
+		}
+	}
+
+	private static final class Worker extends Thread {
+		private final PartitionedEventsManagerImpl owner;
+		private final EventsManagerImpl[] eventsManagers;
+		private final EventRingBuffer ringBuffer;
+		private final ConcurrentLinkedQueue<CrossThreadEvent> inbox = new ConcurrentLinkedQueue<>();
+		private final AtomicLong inboxPending = new AtomicLong(0);
+		private volatile boolean running = true;
+		private long processedEvents = 0;
+		private long processedCrossThreadEvents = 0;
+
+		Worker(final PartitionedEventsManagerImpl owner, final EventsManagerImpl[] eventsManagers, final EventRingBuffer ringBuffer) {
+			this.owner = owner;
+			this.eventsManagers = eventsManagers;
+			this.ringBuffer = ringBuffer;
+		}
+
+		void addToInbox(final Event event, final int role) {
+			this.inboxPending.incrementAndGet();
+			this.inbox.add(new CrossThreadEvent(event, role));
+		}
+
+		boolean isIdle() {
+			return this.ringBuffer.isEmpty() && this.inboxPending.get() == 0;
+		}
+
+		void process(final int role, final Event event) {
+			this.eventsManagers[role].processEvent(event);
+			this.processedEvents++;
+		}
+
+		@Override
+		public void run() {
+			try {
+				int idleCount = 0;
+				while (true) {
+					int processed = this.ringBuffer.drainTo(this);
+					CrossThreadEvent crossThreadEvent;
+					while ((crossThreadEvent = this.inbox.poll()) != null) {
+						process(crossThreadEvent.role, crossThreadEvent.event);
+						this.processedCrossThreadEvents++;
+						this.inboxPending.decrementAndGet();
+						processed++;
+					}
+					if (processed > 0) {
+						idleCount = 0;
+					} else if (!this.running) {
+						return;
+					} else {
+						backOff(++idleCount);
+					}
+				}
+			} catch (Throwable e) {
+				log.error("Exception while processing events in thread " + getName(), e);
+				this.owner.hadException.compareAndSet(null, e);
+			}
+		}
+	}
+
+}
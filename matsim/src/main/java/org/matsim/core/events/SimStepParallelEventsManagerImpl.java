@@ -24,6 +24,7 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.EventsDispatchMode;
 import org.matsim.core.events.handler.EventHandler;
 import org.matsim.core.gbl.Gbl;
 
@@ -52,6 +53,7 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 	private final static Logger log = Logger.getLogger(SimStepParallelEventsManagerImpl.class);
 	
 	private final int numOfThreads;
+	private final EventsDispatchMode dispatchMode;
 	private CyclicBarrier simStepEndBarrier;
 	private CyclicBarrier iterationEndBarrier;
     private ProcessEventsRunnable[] runnables;
@@ -67,7 +69,7 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 
 	@Inject
 	SimStepParallelEventsManagerImpl(ParallelEventHandlingConfigGroup config) {
-		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1);
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1, config.getEventsDispatchMode());
 	}
 
     public SimStepParallelEventsManagerImpl() {
@@ -75,7 +77,12 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 	}
 	
 	public SimStepParallelEventsManagerImpl(int numOfThreads) {
+		this(numOfThreads, EventsDispatchMode.reflective);
+	}
+
+	public SimStepParallelEventsManagerImpl(int numOfThreads, EventsDispatchMode dispatchMode) {
 		this.numOfThreads = numOfThreads;
+		this.dispatchMode = dispatchMode;
 		log.info("number of threads=" + numOfThreads );
 		init();
 	}
@@ -86,10 +93,10 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		this.simStepEndBarrier = new CyclicBarrier(this.numOfThreads + 1);
 		this.iterationEndBarrier = new CyclicBarrier(this.numOfThreads + 1);
 		
-		this.delegate = new EventsManagerImpl();
+		this.delegate = new EventsManagerImpl(this.dispatchMode);
 
 		this.eventsManagers = new EventsManagerImpl[this.numOfThreads];
-		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl();
+		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl(this.dispatchMode);
 	}
 
 	@Override
@@ -0,0 +1,345 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * AsyncEventWriterXML.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+import com.github.luben.zstd.Zstd;
+
+/**
+ * Writes the same xml events file as {@link EventWriterXML}, but formats, encodes and compresses the events on
+ * a separate thread, so the thread handling the events (typically the mobsim) is not slowed down by writing events.
+ * <p></p>
+ * Events are collected in batches which are passed to the writer thread through a bounded queue. If the writer
+ * thread cannot keep up and the queue is full, the event handling thread has to wait. How often and how long this
+ * happens is logged when the file is closed and can be queried with {@link #getNumberOfProducerStalls()} and
+ * {@link #getProducerStallTime()}.
+ * <p></p>
+ * For <code>.gz</code> and <code>.zst</code> files, the compression can additionally be distributed over several
+ * threads. The xml is then compressed in independent blocks which are concatenated as gzip members or zstd frames
+ * respectively; both are read back transparently by {@link IOUtils#getInputStream(java.net.URL)}.
+ * <p></p>
+ * As events are formatted later, they must not be modified after they have been passed to this writer.
+ */
+public final class AsyncEventWriterXML implements EventWriter, BasicEventHandler {
+
+	private final static Logger log = Logger.getLogger(AsyncEventWriterXML.class);
+
+	public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+	private static final int BATCH_SIZE = 4096;
+	private static final int CHUNK_SIZE = 1 << 20;
+	private static final Event[] END_OF_EVENTS = new Event[0];
+
+	private final BlockingQueue<Event[]> queue;
+	private final Thread writerThread;
+	private final AtomicReference<Throwable> exception = new AtomicReference<>();
+
+	private Event[] batch = new Event[BATCH_SIZE];
+	private int batchSize = 0;
+	private boolean closed = false;
+
+	private long numberOfEvents = 0;
+	private long numberOfProducerStalls = 0;
+	private long producerStallNanos = 0;
+	private int maxQueuedBatches = 0;
+
+	public AsyncEventWriterXML(final String outfilename) {
+		this(outfilename, 1, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * @param compressionThreads number of threads used to compress <code>.gz</code> and <code>.zst</code> files.
+	 *                           With 1, or for other files, the xml is compressed by the writer thread itself.
+	 * @param queueCapacity      number of batches of events which may be waiting for the writer thread before the
+	 *                           event handling thread has to wait.
+	 */
+	public AsyncEventWriterXML(final String outfilename, final int compressionThreads, final int queueCapacity) {
+		this(createSink(outfilename, compressionThreads), queueCapacity);
+	}
+
+	public AsyncEventWriterXML(final OutputStream stream, final int queueCapacity) {
+		this(new StreamSink(stream), queueCapacity);
+	}
+
+	private AsyncEventWriterXML(final ChunkSink sink, final int queueCapacity) {
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("queue capacity must be at least 1, but was " + queueCapacity);
+		}
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.writerThread = new Thread(() -> write(sink), AsyncEventWriterXML.class.getSimpleName());
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+	}
+
+	private static ChunkSink createSink(final String filename, final int compressionThreads) {
+		String lowerCaseFilename = filename.toLowerCase(Locale.ROOT);
+		boolean gzip = lowerCaseFilename.endsWith(".gz");
+		boolean zstd = lowerCaseFilename.endsWith(".zst");
+		if (compressionThreads > 1 && (gzip || zstd)) {
+			try {
+				return new ParallelCompressingSink(new FileOutputStream(new File(filename)), zstd, compressionThreads);
+			} catch (FileNotFoundException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return new StreamSink(IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false));
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		this.batch[this.batchSize++] = event;
+		this.numberOfEvents++;
+		if (this.batchSize == BATCH_SIZE) {
+			enqueue(this.batch);
+			this.batch = new Event[BATCH_SIZE];
+			this.batchSize = 0;
+		}
+	}
+
+	private void enqueue(final Event[] events) {
+		checkException();
+		if (!this.queue.offer(events)) {
+			this.numberOfProducerStalls++;
+			long start = System.nanoTime();
+			try {
+				while (!this.queue.offer(events, 100, TimeUnit.MILLISECONDS)) {
+					checkException();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+			this.producerStallNanos += System.nanoTime() - start;
+		}
+		this.maxQueuedBatches = Math.max(this.maxQueuedBatches, this.queue.size());
+	}
+
+	private void checkException() {
+		Throwable t = this.exception.get();
+		if (t instanceof IOException) {
+			throw new UncheckedIOException((IOException) t);
+		}
+		if (t != null) {
+			throw new RuntimeException("Exception while writing events.", t);
+		}
+	}
+
+	@Override
+	public void closeFile() {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		if (this.batchSize > 0) {
+			enqueue(Arrays.copyOf(this.batch, this.batchSize));
+			this.batchSize = 0;
+		}
+		enqueue(END_OF_EVENTS);
+		try {
+			this.writerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		checkException();
+		log.info("wrote " + this.numberOfEvents + " events. Event handling had to wait " + this.numberOfProducerStalls
+				+ " times for the events writer, in total " + getProducerStallTime() + " seconds. Max. queued batches: "
+				+ this.maxQueuedBatches + " of " + (this.queue.size() + this.queue.remainingCapacity()) + ".");
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	/**
+	 * @return how often the event handling thread had to wait because the queue to the writer thread was full.
+	 */
+	public long getNumberOfProducerStalls() {
+		return this.numberOfProducerStalls;
+	}
+
+	/**
+	 * @return the total time, in seconds, the event handling thread had to wait for the writer thread.
+	 */
+	public double getProducerStallTime() {
+		return this.producerStallNanos / 1e9;
+	}
+
+	public int getMaxQueuedBatches() {
+		return this.maxQueuedBatches;
+	}
+
+	private void write(final ChunkSink sink) {
+		try {
+			StringBuilder xml = new StringBuilder(CHUNK_SIZE + CHUNK_SIZE / 4);
+			xml.append(EventWriterXML.HEADER);
+			Event[] events;
+			while ((events = this.queue.take()) != END_OF_EVENTS) {
+				for (Event event : events) {
+					EventWriterXML.writeEvent(xml, event);
+				}
+				if (xml.length() >= CHUNK_SIZE) {
+					sink.write(xml.toString().getBytes(StandardCharsets.UTF_8));
+					xml.setLength(0);
+				}
+			}
+			xml.append(EventWriterXML.FOOTER);
+			sink.write(xml.toString().getBytes(StandardCharsets.UTF_8));
+			sink.close();
+		} catch (Throwable t) {
+			this.exception.set(t);
+			sink.abort();
+		}
+	}
+
+	private interface ChunkSink {
+		void write(byte[] chunk) throws IOException;
+
+		void close() throws IOException;
+
+		void abort();
+	}
+
+	private static final class StreamSink implements ChunkSink {
+		private final OutputStream out;
+
+		StreamSink(final OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(final byte[] chunk) throws IOException {
+			this.out.write(chunk);
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.out.close();
+		}
+
+		@Override
+		public void abort() {
+			try {
+				this.out.close();
+			} catch (IOException e) {
+				log.error("could not close events file.", e);
+			}
+		}
+	}
+
+	/**
+	 * Compresses every chunk independently on a pool of threads and writes the compressed chunks in their original
+	 * order.
+	 */
+	private static final class ParallelCompressingSink implements ChunkSink {
+		private final OutputStream out;
+		private final boolean zstd;
+		private final int numberOfThreads;
+		private final ExecutorService executor;
+		private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+
+		ParallelCompressingSink(final OutputStream out, final boolean zstd, final int numberOfThreads) {
+			this.out = out;
+			this.zstd = zstd;
+			this.numberOfThreads = numberOfThreads;
+			this.executor = Executors.newFixedThreadPool(numberOfThreads, r -> {
+				Thread thread = new Thread(r, AsyncEventWriterXML.class.getSimpleName() + "-compression");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		@Override
+		public void write(final byte[] chunk) throws IOException {
+			this.pending.add(this.executor.submit(() -> compress(chunk)));
+			while (this.pending.size() > 2 * this.numberOfThreads) {
+				writeNext();
+			}
+		}
+
+		private byte[] compress(final byte[] chunk) throws IOException {
+			if (this.zstd) {
+				return Zstd.compress(chunk, 6);
+			}
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(chunk.length / 4);
+			try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 65536)) {
+				gzip.write(chunk);
+			}
+			return compressed.toByteArray();
+		}
+
+		private void writeNext() throws IOException {
+			try {
+				this.out.write(this.pending.poll().get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+				throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			while (!this.pending.isEmpty()) {
+				writeNext();
+			}
+			this.executor.shutdown();
+			this.out.close();
+		}
+
+		@Override
+		public void abort() {
+			this.executor.shutdownNow();
+			try {
+				this.out.close();
+			} catch (IOException e) {
+				log.error("could not close events file.", e);
+			}
+		}
+	}
+
+}
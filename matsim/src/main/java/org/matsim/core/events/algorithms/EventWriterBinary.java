@@ -0,0 +1,94 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.BinaryEventsFormat;
+import org.matsim.core.events.BinaryEventsFormat.Compression;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes events in the binary, columnar format described in {@link BinaryEventsFormat}.
+ * Events are collected in blocks which are encoded and compressed as a whole.
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	private final DataOutputStream out;
+	private final Compression compression;
+	private final int blockSize;
+	private final BinaryEventsFormat.BlockBuilder block = new BinaryEventsFormat.BlockBuilder();
+
+	public EventWriterBinary(final String outfilename) {
+		this(IOUtils.getOutputStream(IOUtils.getFileUrl(outfilename), false), Compression.zstd, BinaryEventsFormat.DEFAULT_BLOCK_SIZE);
+	}
+
+	public EventWriterBinary(final OutputStream stream, final Compression compression, final int blockSize) {
+		this.out = new DataOutputStream(stream);
+		this.compression = compression;
+		this.blockSize = blockSize;
+		try {
+			BinaryEventsFormat.writeFileHeader(this.out, compression);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		this.block.add(event.getTime(), event.getEventType(), event.getAttributes());
+		if (this.block.size() >= this.blockSize) {
+			writeBlock();
+		}
+	}
+
+	private void writeBlock() {
+		try {
+			this.block.writeTo(this.out, this.compression);
+			this.block.clear();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void closeFile() {
+		try {
+			if (this.block.size() > 0) {
+				writeBlock();
+			}
+			BinaryEventsFormat.writeEndOfFile(this.out);
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+}
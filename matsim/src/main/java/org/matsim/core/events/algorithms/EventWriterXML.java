@@ -33,6 +33,9 @@ import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 public class EventWriterXML implements EventWriter, BasicEventHandler {
+	/*package*/ static final String HEADER = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<events version=\"1.0\">\n";
+	/*package*/ static final String FOOTER = "</events>";
+
 	private final BufferedWriter out;
 
 	public EventWriterXML(final String outfilename) {
@@ -52,7 +55,7 @@ public class EventWriterXML implements EventWriter, BasicEventHandler {
 
 	private void writeHeader() {
 		try {
-			this.out.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<events version=\"1.0\">\n");
+			this.out.write(HEADER);
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
 		}
@@ -61,7 +64,7 @@ public class EventWriterXML implements EventWriter, BasicEventHandler {
 	@Override
 	public void closeFile() {
 		try {
-			this.out.write("</events>");
+			this.out.write(FOOTER);
 			// I added a "\n" to make it look nicer on the console.  Can't say if this may have unintended side
 			// effects anywhere else.  kai, oct'12
 			// fails signalsystems test (and presumably other tests in contrib/playground) since they compare
@@ -79,20 +82,27 @@ public class EventWriterXML implements EventWriter, BasicEventHandler {
 	@Override
 	public void handleEvent(final Event event) {
 		try {
-			this.out.append("\t<event ");
-			Map<String, String> attr = event.getAttributes();
-			for (Map.Entry<String, String> entry : attr.entrySet()) {
-				this.out.append(entry.getKey());
-				this.out.append("=\"");
-				this.out.append(encodeAttributeValue(entry.getValue()));
-				this.out.append("\" ");
-			}
-			this.out.append(" />\n");
+			writeEvent(this.out, event);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * Writes one event as xml element. Shared with {@link AsyncEventWriterXML}, so both produce identical files.
+	 */
+	/*package*/ static void writeEvent(final Appendable out, final Event event) throws IOException {
+		out.append("\t<event ");
+		Map<String, String> attr = event.getAttributes();
+		for (Map.Entry<String, String> entry : attr.entrySet()) {
+			out.append(entry.getKey());
+			out.append("=\"");
+			out.append(encodeAttributeValue(entry.getValue()));
+			out.append("\" ");
+		}
+		out.append(" />\n");
+	}
+
 	// the following method was taken from MatsimXmlWriter in order to correctly encode attributes, but
 	// to forego the overhead of using the full MatsimXmlWriter.
 	/**
@@ -103,7 +113,7 @@ public class EventWriterXML implements EventWriter, BasicEventHandler {
 	 * @param attributeValue
 	 * @return String with some characters replaced by their xml-encoding.
 	 */
-	private String encodeAttributeValue(final String attributeValue) {
+	private static String encodeAttributeValue(final String attributeValue) {
 		if (attributeValue == null) {
 			return null;
 		}
@@ -0,0 +1,41 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PartitionedEventHandler.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.handler;
+
+/**
+ * An event handler whose state is partitioned by the id of one entity (person, vehicle or link).
+ * <p></p>
+ * Events managers supporting partitioning (see <code>PartitionedEventsManagerImpl</code>) may call such a
+ * handler concurrently from several threads, but all events with the same id are passed to the handler
+ * by the same thread and in the order they were created. Implementations must thus be safe to be called
+ * concurrently for events with different ids, e.g. by only touching state belonging to that id.
+ * Events that do not carry the id the handler is partitioned by (or where the id is <code>null</code>)
+ * are all passed to the handler from one and the same thread.
+ * <p></p>
+ * Events managers not supporting partitioning treat such handlers like any other handler.
+ */
+public interface PartitionedEventHandler extends EventHandler {
+
+	enum PartitionKey { person, vehicle, link }
+
+	PartitionKey getPartitionKey();
+
+}
@@ -0,0 +1,244 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ActivityEndsQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.matsim.api.core.v01.Identifiable;
+import org.matsim.api.core.v01.population.Person;
+
+/**
+ * The agents performing an activity, ordered by the end of their activity, as needed by {@link ActivityEngineDefaultImpl}.
+ * <p></p>
+ * Agents are kept in a time wheel with one bucket per second of simulated time for the next {@link #WHEEL_SIZE}
+ * seconds; activities ending later are kept in an ordinary priority queue and moved into the wheel as time proceeds.
+ * Together with an index from the agents to their entries, adding and removing an agent, and thus rescheduling the
+ * end of its activity, takes constant time instead of a scan over all agents. Removed entries are only marked as such
+ * and dropped once their bucket is processed.
+ * <p></p>
+ * The agents are returned in the same order as by the previously used priority queue: by the end of their activity,
+ * and agents with the same end time by descending id. All methods are synchronized, as agents may be added from
+ * several threads in the parallel qsim.
+ */
+final class ActivityEndsQueue<A extends Identifiable<Person>> {
+
+	/*package*/ static final int WHEEL_SIZE = 1 << 12;
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	/**
+	 * Keeps the end time the agent had when it was added, as within-day replanning may change it in the meantime.
+	 */
+	/*package*/ static final class Entry<A> {
+		private final A agent;
+		private final double activityEndTime;
+		private final long second;
+		private boolean removed = false;
+
+		private Entry(final A agent, final double activityEndTime) {
+			this.agent = agent;
+			this.activityEndTime = activityEndTime;
+			this.second = (long) Math.floor(activityEndTime);
+		}
+
+		/*package*/ A getAgent() {
+			return this.agent;
+		}
+
+		/*package*/ double getActivityEndTime() {
+			return this.activityEndTime;
+		}
+	}
+
+	private final Comparator<Entry<A>> order = (e0, e1) -> {
+		int cmp = Double.compare(e0.activityEndTime, e1.activityEndTime);
+		if (cmp == 0) {
+			// Both depart at the same time -> let the one with the larger id be first (=smaller)
+			//
+			// yy We are not sure what the above comment line is supposed to say.  Presumably, it is supposed
+			// to say that the agent with the larger ID should be "smaller" one in the comparison.
+			// In practice, it seems
+			// that something like "emob_9" is before "emob_8", and something like "emob_10" before "emob_1".
+			// It is unclear why this convention is supposed to be helpful.
+			// kai & dominik, jul'12
+			//
+			return e1.agent.getId().compareTo(e0.agent.getId());
+		}
+		return cmp;
+	};
+
+	private final Map<A, Entry<A>> index = new IdentityHashMap<>();
+
+	@SuppressWarnings("unchecked")
+	private final List<Entry<A>>[] wheel = new List[WHEEL_SIZE];
+	private final PriorityQueue<Entry<A>> overflow = new PriorityQueue<>(this.order);
+	/** the second covered by the first bucket of the wheel; all earlier seconds are already processed. */
+	private long wheelStart = 0;
+
+	/**
+	 * The agents whose activity ends at or before {@link #dueTime}, sorted, from {@link #nextDue} on. Agents are taken
+	 * from here one at a time, so they can still be removed or added while the due agents are processed.
+	 */
+	private final List<Entry<A>> due = new ArrayList<>();
+	private int nextDue = 0;
+	private double dueTime = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Adds the agent with the given activity end time. An agent that is already in the queue is replaced.
+	 */
+	/*package*/ synchronized void add(final A agent, final double activityEndTime) {
+		Entry<A> entry = new Entry<>(agent, activityEndTime);
+		Entry<A> previous = this.index.put(agent, entry);
+		if (previous != null) {
+			previous.removed = true;
+		}
+		if (activityEndTime <= this.dueTime) {
+			int position = Collections.binarySearch(this.due.subList(this.nextDue, this.due.size()), entry, this.order);
+			this.due.add(this.nextDue + (position < 0 ? -position - 1 : position), entry);
+		} else {
+			addToWheel(entry);
+		}
+	}
+
+	private void addToWheel(final Entry<A> entry) {
+		long second = Math.max(entry.second, this.wheelStart);
+		if (second - this.wheelStart >= WHEEL_SIZE) {
+			this.overflow.add(entry);
+		} else {
+			int bucket = (int) (second & WHEEL_MASK);
+			if (this.wheel[bucket] == null) {
+				this.wheel[bucket] = new ArrayList<>();
+			}
+			this.wheel[bucket].add(entry);
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the agent was in the queue.
+	 */
+	/*package*/ synchronized boolean remove(final A agent) {
+		Entry<A> entry = this.index.remove(agent);
+		if (entry == null) {
+			return false;
+		}
+		entry.removed = true;
+		return true;
+	}
+
+	/**
+	 * Removes and returns the next agent whose activity ends at or before the given time, or <code>null</code> if there
+	 * is none.
+	 */
+	/*package*/ synchronized A poll(final double time) {
+		if (time != this.dueTime) {
+			collectDue(time);
+		}
+		while (this.nextDue < this.due.size()) {
+			Entry<A> entry = this.due.get(this.nextDue);
+			this.due.set(this.nextDue++, null);
+			if (!entry.removed) {
+				this.index.remove(entry.agent);
+				return entry.agent;
+			}
+		}
+		this.due.clear();
+		this.nextDue = 0;
+		return null;
+	}
+
+	private void collectDue(final double time) {
+		this.dueTime = time;
+		int firstNew = this.due.size();
+		long second = (long) Math.floor(time);
+		while (this.wheelStart < second && !this.index.isEmpty()) {
+			// all activities in this bucket end before the current second
+			int bucket = (int) (this.wheelStart & WHEEL_MASK);
+			if (this.wheel[bucket] != null) {
+				for (Entry<A> entry : this.wheel[bucket]) {
+					if (!entry.removed) {
+						this.due.add(entry);
+					}
+				}
+				this.wheel[bucket].clear();
+			}
+			this.wheelStart++;
+			while (!this.overflow.isEmpty() && this.overflow.peek().second - this.wheelStart < WHEEL_SIZE) {
+				Entry<A> entry = this.overflow.poll();
+				if (!entry.removed) {
+					addToWheel(entry);
+				}
+			}
+		}
+		if (this.wheelStart < second) {
+			// nothing left in the queue, so there is nothing to move between the buckets
+			this.wheelStart = second;
+			this.overflow.clear();
+		}
+		List<Entry<A>> current = this.wheel[(int) (this.wheelStart & WHEEL_MASK)];
+		if (current != null) {
+			int remaining = 0;
+			for (Entry<A> entry : current) {
+				if (entry.removed) {
+					continue;
+				}
+				if (entry.activityEndTime <= time) {
+					this.due.add(entry);
+				} else {
+					current.set(remaining++, entry);
+				}
+			}
+			current.subList(remaining, current.size()).clear();
+		}
+		if (firstNew > this.nextDue || this.due.size() - firstNew > 1) {
+			this.due.subList(this.nextDue, this.due.size()).sort(this.order);
+		}
+	}
+
+	/**
+	 * Removes all agents from the queue.
+	 *
+	 * @return the entries of all agents which were in the queue, in the order they would have been returned.
+	 */
+	/*package*/ synchronized List<Entry<A>> clear() {
+		List<Entry<A>> entries = new ArrayList<>(this.index.values());
+		entries.sort(this.order);
+		this.index.clear();
+		for (List<Entry<A>> bucket : this.wheel) {
+			if (bucket != null) {
+				bucket.clear();
+			}
+		}
+		this.overflow.clear();
+		this.due.clear();
+		this.nextDue = 0;
+		return entries;
+	}
+
+	/*package*/ synchronized int size() {
+		return this.index.size();
+	}
+
+}
@@ -0,0 +1,258 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TeleportationArrivalsQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.matsim.api.core.v01.Identifiable;
+import org.matsim.api.core.v01.population.Person;
+
+/**
+ * Calendar queue for the arrivals of teleported agents, see {@link DefaultTeleportationEngine}.
+ * <p></p>
+ * There is one bucket per second of simulated time for the next {@link #WHEEL_SIZE} seconds; arrivals even later are
+ * collected unsorted and distributed to the buckets every time the wheel has turned once. A bucket stores the arrival
+ * times as primitive values in an array parallel to the agents, and is only sorted when its agents are due. The
+ * arrays are kept and reused, so after the first hours of a simulation no objects are created per teleported leg.
+ * <p></p>
+ * Agents arriving at the same time are returned by descending id, like with the previously used priority queue.
+ * Not thread-safe.
+ */
+final class TeleportationArrivalsQueue<A extends Identifiable<Person>> {
+
+	/*package*/ static final int WHEEL_SIZE = 1 << 15;
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+
+	private static final class Bucket<A> {
+		private double[] times = new double[16];
+		private Object[] agents = new Object[16];
+		/** the entries before head are already returned. */
+		private int head = 0;
+		private int size = 0;
+		private boolean sorted = true;
+
+		private void add(final double time, final A agent) {
+			if (this.head > 0 && this.head == this.size) {
+				clear();
+			}
+			if (this.size == this.times.length) {
+				this.times = Arrays.copyOf(this.times, 2 * this.size);
+				this.agents = Arrays.copyOf(this.agents, 2 * this.size);
+			}
+			this.times[this.size] = time;
+			this.agents[this.size] = agent;
+			this.size++;
+			this.sorted = false;
+		}
+
+		private void clear() {
+			Arrays.fill(this.agents, 0, this.size, null);
+			this.head = 0;
+			this.size = 0;
+			this.sorted = true;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private final Bucket<A>[] wheel = new Bucket[WHEEL_SIZE];
+	private final Bucket<A> later = new Bucket<>();
+	/** the second of the bucket which is processed next; all earlier buckets are empty. */
+	private long currentSecond = 0;
+	private int size = 0;
+
+	/*package*/ void add(final double arrivalTime, final A agent) {
+		this.size++;
+		long second = Math.max((long) Math.floor(arrivalTime), this.currentSecond);
+		if (second - this.currentSecond >= WHEEL_SIZE) {
+			this.later.add(arrivalTime, agent);
+		} else {
+			getOrCreateBucket(second).add(arrivalTime, agent);
+		}
+	}
+
+	private Bucket<A> getOrCreateBucket(final long second) {
+		int index = (int) (second & WHEEL_MASK);
+		Bucket<A> bucket = this.wheel[index];
+		if (bucket == null) {
+			bucket = new Bucket<>();
+			this.wheel[index] = bucket;
+		}
+		return bucket;
+	}
+
+	/**
+	 * Removes and returns the next agent arriving at or before the given time, or <code>null</code> if there is none.
+	 */
+	@SuppressWarnings("unchecked")
+	/*package*/ A poll(final double time) {
+		long second = (long) Math.floor(time);
+		while (this.size > 0) {
+			Bucket<A> bucket = this.wheel[(int) (this.currentSecond & WHEEL_MASK)];
+			if (bucket != null && bucket.head < bucket.size) {
+				if (!bucket.sorted) {
+					sort(bucket.times, bucket.agents, bucket.head, bucket.size);
+					bucket.sorted = true;
+				}
+				if (bucket.times[bucket.head] > time) {
+					return null;
+				}
+				A agent = (A) bucket.agents[bucket.head];
+				bucket.agents[bucket.head] = null;
+				bucket.head++;
+				this.size--;
+				return agent;
+			}
+			if (this.currentSecond >= second) {
+				return null;
+			}
+			if (bucket != null) {
+				bucket.clear();
+			}
+			this.currentSecond++;
+			if ((this.currentSecond & WHEEL_MASK) == 0) {
+				distributeLaterArrivals();
+			}
+		}
+		this.currentSecond = Math.max(this.currentSecond, second);
+		return null;
+	}
+
+	private void distributeLaterArrivals() {
+		int remaining = 0;
+		for (int i = 0; i < this.later.size; i++) {
+			double time = this.later.times[i];
+			long second = (long) Math.floor(time);
+			@SuppressWarnings("unchecked")
+			A agent = (A) this.later.agents[i];
+			if (second - this.currentSecond < WHEEL_SIZE) {
+				getOrCreateBucket(second).add(time, agent);
+			} else {
+				this.later.times[remaining] = time;
+				this.later.agents[remaining] = agent;
+				remaining++;
+			}
+		}
+		Arrays.fill(this.later.agents, remaining, this.later.size, null);
+		this.later.size = remaining;
+	}
+
+	/**
+	 * Removes all agents.
+	 *
+	 * @return the agents which were in the queue, by their arrival time.
+	 */
+	@SuppressWarnings("unchecked")
+	/*package*/ List<A> clear() {
+		List<A> agents = new ArrayList<>(this.size);
+		for (int i = 0; i < WHEEL_SIZE && agents.size() < this.size; i++) {
+			Bucket<A> bucket = this.wheel[(int) ((this.currentSecond + i) & WHEEL_MASK)];
+			if (bucket != null) {
+				sort(bucket.times, bucket.agents, bucket.head, bucket.size);
+				for (int j = bucket.head; j < bucket.size; j++) {
+					agents.add((A) bucket.agents[j]);
+				}
+			}
+		}
+		sort(this.later.times, this.later.agents, 0, this.later.size);
+		for (int j = 0; j < this.later.size; j++) {
+			agents.add((A) this.later.agents[j]);
+		}
+		for (Bucket<A> bucket : this.wheel) {
+			if (bucket != null) {
+				bucket.clear();
+			}
+		}
+		this.later.clear();
+		this.size = 0;
+		return agents;
+	}
+
+	/*package*/ int size() {
+		return this.size;
+	}
+
+	/*
+	 * Sorts the range [from, to) by time, and agents with the same time by descending id. A quicksort on the two parallel
+	 * arrays, so no objects are needed.
+	 */
+	private static void sort(final double[] times, final Object[] agents, final int from, final int to) {
+		int lo = from;
+		int hi = to - 1;
+		while (hi - lo >= INSERTION_SORT_THRESHOLD) {
+			int middle = (lo + hi) >>> 1;
+			if (compare(times, agents, middle, lo) < 0) swap(times, agents, middle, lo);
+			if (compare(times, agents, hi, lo) < 0) swap(times, agents, hi, lo);
+			if (compare(times, agents, hi, middle) < 0) swap(times, agents, hi, middle);
+			// the median of the three is now at middle; move it out of the way
+			swap(times, agents, middle, hi - 1);
+			int pivot = hi - 1;
+			int i = lo;
+			int j = hi - 1;
+			while (true) {
+				while (compare(times, agents, ++i, pivot) < 0) {
+				}
+				while (compare(times, agents, --j, pivot) > 0) {
+				}
+				if (i >= j) {
+					break;
+				}
+				swap(times, agents, i, j);
+			}
+			swap(times, agents, i, pivot);
+			// recurse into the smaller part, loop on the larger one
+			if (i - lo < hi - i) {
+				sort(times, agents, lo, i);
+				lo = i + 1;
+			} else {
+				sort(times, agents, i + 1, hi + 1);
+				hi = i - 1;
+			}
+		}
+		for (int i = lo + 1; i <= hi; i++) {
+			for (int j = i; j > lo && compare(times, agents, j, j - 1) < 0; j--) {
+				swap(times, agents, j, j - 1);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static int compare(final double[] times, final Object[] agents, final int i, final int j) {
+		int cmp = Double.compare(times[i], times[j]);
+		if (cmp == 0) {
+			// if they're equal, compare the Ids: the one with the larger Id should be first
+			return ((Identifiable<Person>) agents[j]).getId().compareTo(((Identifiable<Person>) agents[i]).getId());
+		}
+		return cmp;
+	}
+
+	private static void swap(final double[] times, final Object[] agents, final int i, final int j) {
+		double time = times[i];
+		times[i] = times[j];
+		times[j] = time;
+		Object agent = agents[i];
+		agents[i] = agents[j];
+		agents[j] = agent;
+	}
+
+}
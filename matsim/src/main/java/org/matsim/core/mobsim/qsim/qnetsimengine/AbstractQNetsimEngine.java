@@ -20,6 +20,7 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -30,11 +31,13 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.config.groups.QSimConfigGroup.NetworkPartitioning;
 import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.config.groups.QSimConfigGroup.VehicleBehavior;
 import org.matsim.core.gbl.Gbl;
@@ -90,9 +93,25 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 	private double infoTime = 0;
 	private List<A> engines;
 	private InternalInterface internalInterface = null;
-	
-	AbstractQNetsimEngine(final QSim sim, QNetworkFactory netsimNetworkFactory) {
+
+	private final QNetworkPartitioner partitioner;
+	private final QNetworkLoadStatistics loadStatistics;
+	private final boolean loadWeightedPartitioning;
+	private int[] runnerOfNode;
+	private int[] assignedNodes;
+	private int[] assignedLinks;
+	private final double rebalancingInterval;
+	private QNetsimEngineRebalancer rebalancer = null;
+
+	/**
+	 * @param loadStatistics where the load of the nodes is stored at the end of the mobsim run, to be used when
+	 *                       partitioning the network next time; may be <code>null</code>.
+	 */
+	AbstractQNetsimEngine(final QSim sim, QNetworkFactory netsimNetworkFactory, QNetworkPartitioner partitioner,
+			QNetworkLoadStatistics loadStatistics) {
 		this.qsim = sim;
+		this.partitioner = partitioner;
+		this.loadStatistics = loadStatistics;
 
 		final Config config = sim.getScenario().getConfig();
 		final QSimConfigGroup qSimConfigGroup = config.qsim();
@@ -130,6 +149,8 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		network.initialize(this, sim.getAgentCounter(), sim.getSimTimer() );
 
 		this.numOfThreads = sim.getScenario().getConfig().qsim().getNumberOfThreads();
+		this.rebalancingInterval = qSimConfigGroup.getNetworkRebalancingInterval();
+		this.loadWeightedPartitioning = qSimConfigGroup.getNetworkPartitioning() == NetworkPartitioning.loadWeightedCoordinateBisection;
 	}
 	
 	static AbstractAgentSnapshotInfoBuilder createAgentSnapshotInfoBuilder(Scenario scenario, SnapshotLinkWidthCalculator linkWidthCalculator) {
@@ -164,6 +185,11 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 
 		this.engines = initQSimEngineRunners();
 		assignNetElementActivators();
+		if (this.rebalancingInterval > 0 && this.engines.size() > 1) {
+			this.rebalancer = new QNetsimEngineRebalancer(this.rebalancingInterval,
+					internalInterface.getMobsim().getSimTimer().getSimStartTime(), this.engines, this.network,
+					this.runnerOfNode, this.assignedNodes, this.assignedLinks);
+		}
 		initMultiThreading();
 	}
 	
@@ -186,6 +212,14 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 
 		finishMultiThreading();
 
+		if (this.rebalancer != null) {
+			log.info("QNetsimEngine was rebalanced " + this.rebalancer.getNumberOfMigrations() + " times.");
+		}
+
+		if (this.loadStatistics != null && this.loadWeightedPartitioning) {
+			this.loadStatistics.setNodeLoads(AbstractQNetsimEngineRunner.sumNodeLoads(this.engines, Id.getNumberOfIds(Node.class)));
+		}
+
 		/* Reset vehicles on ALL links. We cannot iterate only over the active links
 		 * (this.simLinksArray), because there may be links that have vehicles only
 		 * in the buffer (such links are *not* active, as the buffer gets emptied
@@ -223,6 +257,11 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 	@Override
 	public final void doSimStep(final double time) {
 		run(time);
+
+		if (this.rebalancer != null) {
+			// the runners are idle now, so nodes and links can be moved between them
+			this.rebalancer.afterSimStep(time);
+		}
 		
 		this.printSimLog(time);
 	}
@@ -350,6 +389,23 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		log.info("sum min run times: " + sumMin);
 		log.info("sum max run times: " + sumMax);
 		log.info("sum all run times / num threads: " + sum / this.numOfThreads);
+
+		// per-runner load, to check how well the network is partitioned
+		long maxRunnerTime = 0;
+		for (int r = 0; r < this.engines.size(); r++) {
+			AbstractQNetsimEngineRunner runner = this.engines.get(r);
+			long runnerTime = 0;
+			for (int i = 0; i < numObservedTimeSteps; i++) {
+				runnerTime += runner.runTimes[i];
+			}
+			maxRunnerTime = Math.max(maxRunnerTime, runnerTime);
+			log.info("QNetsimEngineRunner #" + r + ": " + this.assignedNodes[r] + " nodes, " + this.assignedLinks[r] + " links, "
+					+ runner.getNumberOfNodeSteps() + " node steps, " + runner.getNumberOfLinkSteps() + " link steps, run time " + runnerTime);
+		}
+		long meanRunnerTime = sum / this.engines.size();
+		if (meanRunnerTime > 0) {
+			log.info("load imbalance (max runner run time / mean runner run time): " + (double) maxRunnerTime / meanRunnerTime);
+		}
 	}
 
 	@Override
@@ -388,10 +444,18 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		// only for statistics
 		int nodes[] = new int[this.engines.size()];
 		int links[] = new int[this.engines.size()];
+		int cutLinks = 0;
+
+		List<QNodeI> qNodes = new ArrayList<>(network.getNetsimNodes().values());
+		List<Node> networkNodes = new ArrayList<>(qNodes.size());
+		for (QNodeI node : qNodes) {
+			networkNodes.add(node.getNode());
+		}
+		int[] partitions = this.partitioner.partition(networkNodes, this.engines.size());
 
-		int roundRobin = 0;
-		for (QNodeI node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.engines.size();
+		for (int n = 0; n < qNodes.size(); n++) {
+			QNodeI node = qNodes.get(n);
+			int i = partitions[n];
 			if( node instanceof AbstractQNode){
 				((AbstractQNode) node).setNetElementActivationRegistry(this.engines.get(i));
 			}
@@ -418,14 +482,34 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 				links[i]++;
 
 			}
+		}
+
+		// links whose to-node is simulated by another runner than the link itself
+		int[] partitionOfNode = new int[Id.getNumberOfIds(Node.class)];
+		for (int n = 0; n < qNodes.size(); n++) {
+			partitionOfNode[qNodes.get(n).getNode().getId().index()] = partitions[n];
+		}
+		for (Link link : network.getNetwork().getLinks().values()) {
+			if (partitionOfNode[link.getFromNode().getId().index()] != partitionOfNode[link.getToNode().getId().index()]) {
+				cutLinks++;
+			}
+		}
 
-			roundRobin++;
+		// counting costs time on the hot path, so only do it if the loads are used
+		if (this.loadWeightedPartitioning || (this.rebalancingInterval > 0 && this.engines.size() > 1)) {
+			for (AbstractQNetsimEngineRunner engine : this.engines) {
+				engine.nodeLoads = new int[Id.getNumberOfIds(Node.class)];
+			}
 		}
 
 		// print some statistics
 		for (int i = 0; i < this.engines.size(); i++) {
 			log.info("Assigned " + nodes[i] + " nodes and " + links[i] + " links to QSimEngineRunner #" + i);
 		}
+		log.info(cutLinks + " links connect nodes of different QSimEngineRunners.");
+		this.runnerOfNode = partitionOfNode;
+		this.assignedNodes = nodes;
+		this.assignedLinks = links;
 
 //		this.linksToActivateInitially.clear();
 	}
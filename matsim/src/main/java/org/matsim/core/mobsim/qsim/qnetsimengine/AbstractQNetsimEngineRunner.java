@@ -70,6 +70,19 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	private boolean lockNodes = false;
 	private boolean lockLinks = false;
 
+	/*
+	 * Indexed by the node id, counts how often a node and its out-links were simulated by this runner. Every runner
+	 * has its own array, so the runners do not write to the same cache lines; see sumNodeLoads. Null unless the loads
+	 * are needed.
+	 */
+	/*package*/ int[] nodeLoads = null;
+
+	private long nodeSteps = 0;
+	private long linkSteps = 0;
+
+	/*package*/ boolean measureBusyTime = false;
+	/*package*/ long busyNanos = 0; // not private, so that tests can simulate an imbalance
+
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
 	{	
@@ -81,9 +94,31 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 		time = t;
 	}
 
+	/*package*/ final double getTime() {
+		return this.time;
+	}
+
 	public abstract void afterSim() ;
 
+	/**
+	 * @return the node loads of all runners added up, indexed by the node id; a node moved between runners may have
+	 * loads at both of them.
+	 */
+	/*package*/ static int[] sumNodeLoads(final List<? extends AbstractQNetsimEngineRunner> runners, final int numberOfNodeIds) {
+		int[] sum = new int[numberOfNodeIds];
+		for (AbstractQNetsimEngineRunner runner : runners) {
+			if (runner.nodeLoads != null) {
+				// ids created after the loads were allocated have no load
+				for (int i = 0; i < Math.min(sum.length, runner.nodeLoads.length); i++) {
+					sum[i] += runner.nodeLoads[i];
+				}
+			}
+		}
+		return sum;
+	}
+
 	protected void moveNodes() {
+		long start = this.measureBusyTime ? System.nanoTime() : 0;
 		boolean remainsActive;
 		this.lockNodes = true;
 		QNodeI node;
@@ -91,12 +126,16 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 		while (simNodes.hasNext()) {
 			node = simNodes.next();
 			remainsActive = node.doSimStep(time);
+			this.nodeSteps++;
+			if (this.nodeLoads != null) this.nodeLoads[node.getNode().getId().index()]++;
 			if (!remainsActive) simNodes.remove();
 		}
 		this.lockNodes = false;
+		if (this.measureBusyTime) this.busyNanos += System.nanoTime() - start;
 	}
 	
-	protected final void moveLinks() {
+	protected void moveLinks() {
+		long start = this.measureBusyTime ? System.nanoTime() : 0;
 		boolean remainsActive;
 		lockLinks = true;
 		QLinkI link;
@@ -105,10 +144,36 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 			link = simLinks.next();
 
 			remainsActive = link.doSimStep();
+			this.linkSteps++;
+			if (this.nodeLoads != null) this.nodeLoads[link.getLink().getFromNode().getId().index()]++;
 
 			if (!remainsActive) simLinks.remove();
 		}
 		lockLinks = false;
+		if (this.measureBusyTime) this.busyNanos += System.nanoTime() - start;
+	}
+
+	/*
+	 * Hands the active nodes and links belonging to the given nodes over to another runner. Must only be called
+	 * between time steps, when no runner is moving nodes or links.
+	 */
+	/*package*/ final void moveActiveElementsTo(final AbstractQNetsimEngineRunner other, final boolean[] movedNodes) {
+		Iterator<QNodeI> nodes = this.nodesQueue.iterator();
+		while (nodes.hasNext()) {
+			QNodeI node = nodes.next();
+			if (movedNodes[node.getNode().getId().index()]) {
+				nodes.remove();
+				other.nodesQueue.add(node);
+			}
+		}
+		Iterator<QLinkI> links = this.linksList.iterator();
+		while (links.hasNext()) {
+			QLinkI link = links.next();
+			if (movedNodes[link.getLink().getFromNode().getId().index()]) {
+				links.remove();
+				other.linksList.add(link);
+			}
+		}
 	}
 
 	/*
@@ -117,13 +182,13 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	 * cdobler, sep'14
 	 */
 	@Override
-	protected final void registerLinkAsActive(QLinkI link) {
+	protected void registerLinkAsActive(QLinkI link) {
 		if (!lockLinks) linksList.add(link);
 		else throw new RuntimeException("Tried to activate a QLink at a time where this was not allowed. Aborting!");
 	}
 
 	@Override
-	public final int getNumberOfSimulatedLinks() {
+	public int getNumberOfSimulatedLinks() {
 		return this.linksList.size();
 	}
 
@@ -133,7 +198,7 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	 * cdobler, sep'14
 	 */
 	@Override
-	protected final void registerNodeAsActive(QNodeI node) {
+	protected void registerNodeAsActive(QNodeI node) {
 		if (!this.lockNodes) this.nodesQueue.add(node);
 		else throw new RuntimeException("Tried to activate a QNode at a time where this was not allowed. Aborting!");
 	}
@@ -145,10 +210,27 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	 * cdobler, sep'14
 	 */
 	@Override
-	public final int getNumberOfSimulatedNodes() {
+	public int getNumberOfSimulatedNodes() {
 		return this.nodesQueue.size();
 	}
 
+	/*package*/ final void addSteps(final long nodeSteps, final long linkSteps) {
+		this.nodeSteps += nodeSteps;
+		this.linkSteps += linkSteps;
+	}
+
+	/*package*/ final long getNumberOfNodeSteps() {
+		return this.nodeSteps;
+	}
+
+	/*package*/ final long getNumberOfLinkSteps() {
+		return this.linkSteps;
+	}
+
+	/*package*/ final long getBusyNanos() {
+		return this.busyNanos;
+	}
+
 	protected final void startMeasure() {
 		if (QSim.analyzeRunTimes) this.startTime = System.nanoTime();		
 	}
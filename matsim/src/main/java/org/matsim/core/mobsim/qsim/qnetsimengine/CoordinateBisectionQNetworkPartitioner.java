@@ -0,0 +1,129 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CoordinateBisectionQNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.QSimConfigGroup.NetworkPartitioning;
+
+/**
+ * Recursive coordinate bisection: the nodes are split at the median of the longer side of their bounding box, and
+ * both halves are split further until there is one part per runner. Every runner thus gets a compact region of the
+ * network, so most links connect nodes of the same runner.
+ * <p></p>
+ * With {@link NetworkPartitioning#loadWeightedCoordinateBisection}, the nodes are weighted by how often they and
+ * their out-links were simulated in the last mobsim run (see {@link QNetworkLoadStatistics}), so regions with a lot
+ * of traffic are split into smaller parts. Without such statistics, e.g. in the first iteration, all nodes count
+ * the same.
+ */
+final class CoordinateBisectionQNetworkPartitioner implements QNetworkPartitioner {
+
+	private static final Logger log = Logger.getLogger(CoordinateBisectionQNetworkPartitioner.class);
+
+	private final QNetworkLoadStatistics loadStatistics;
+
+	@Inject
+	CoordinateBisectionQNetworkPartitioner(final Config config, final QNetworkLoadStatistics loadStatistics) {
+		this(config.qsim().getNetworkPartitioning() == NetworkPartitioning.loadWeightedCoordinateBisection ? loadStatistics : null);
+	}
+
+	/**
+	 * @param loadStatistics used to weight the nodes; may be <code>null</code>, then all nodes count the same.
+	 */
+	CoordinateBisectionQNetworkPartitioner(final QNetworkLoadStatistics loadStatistics) {
+		this.loadStatistics = loadStatistics;
+	}
+
+	@Override
+	public int[] partition(final List<? extends Node> nodes, final int numberOfPartitions) {
+		int n = nodes.size();
+		double[] x = new double[n];
+		double[] y = new double[n];
+		double[] weights = new double[n];
+		boolean weighted = this.loadStatistics != null && this.loadStatistics.hasNodeLoads();
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			Node node = nodes.get(i);
+			Coord coord = node.getCoord();
+			x[i] = coord == null ? 0.0 : coord.getX();
+			y[i] = coord == null ? 0.0 : coord.getY();
+			// the 1 makes sure nodes without traffic still count a little
+			weights[i] = weighted ? 1.0 + this.loadStatistics.getNodeLoad(node.getId()) : 1.0;
+			order[i] = i;
+		}
+		if (weighted) {
+			log.info("weighting nodes by the load observed in the last mobsim run.");
+		}
+
+		int[] partitions = new int[n];
+		bisect(order, 0, n, 0, numberOfPartitions, x, y, weights, partitions);
+		return partitions;
+	}
+
+	private static void bisect(final Integer[] order, final int from, final int to, final int firstPartition,
+			final int numberOfPartitions, final double[] x, final double[] y, final double[] weights, final int[] partitions) {
+		if (numberOfPartitions == 1 || to - from <= 1) {
+			for (int i = from; i < to; i++) {
+				partitions[order[i]] = firstPartition;
+			}
+			return;
+		}
+
+		double minX = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		double totalWeight = 0.0;
+		for (int i = from; i < to; i++) {
+			int node = order[i];
+			minX = Math.min(minX, x[node]);
+			maxX = Math.max(maxX, x[node]);
+			minY = Math.min(minY, y[node]);
+			maxY = Math.max(maxY, y[node]);
+			totalWeight += weights[node];
+		}
+		double[] coords = maxX - minX >= maxY - minY ? x : y;
+		Arrays.sort(order, from, to, Comparator.comparingDouble(node -> coords[node]));
+
+		// split such that the weight of both halves is proportional to the number of partitions they get
+		int firstPartitions = numberOfPartitions / 2;
+		double targetWeight = totalWeight * firstPartitions / numberOfPartitions;
+		double weight = 0.0;
+		int split = from;
+		while (split < to - 1 && weight + weights[order[split]] / 2 < targetWeight) {
+			weight += weights[order[split]];
+			split++;
+		}
+		split = Math.max(split, from + 1);
+
+		bisect(order, from, split, firstPartition, firstPartitions, x, y, weights, partitions);
+		bisect(order, split, to, firstPartition + firstPartitions, numberOfPartitions - firstPartitions, x, y, weights, partitions);
+	}
+
+}
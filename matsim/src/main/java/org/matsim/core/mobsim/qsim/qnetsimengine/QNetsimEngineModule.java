@@ -28,11 +28,24 @@ public class QNetsimEngineModule extends AbstractQSimModule {
 	
 	@Override
 	protected void configureQSim() {
-		if(this.getConfig().qsim().isUsingThreadpool()) {
+		if(this.getConfig().qsim().isUsingWorkStealing()) {
+			bind(QNetsimEngineI.class).to(QNetsimEngineWithForkJoin.class).asEagerSingleton();
+		}else if(this.getConfig().qsim().isUsingThreadpool()) {
 			bind(QNetsimEngineI.class).to(QNetsimEngineWithThreadpool.class).asEagerSingleton();
 		}else {
 			bind(QNetsimEngineI.class).to(QNetsimEngineWithBarriers.class).asEagerSingleton();
 		}
+		switch (this.getConfig().qsim().getNetworkPartitioning()) {
+			case roundRobin:
+				bind(QNetworkPartitioner.class).to(RoundRobinQNetworkPartitioner.class);
+				break;
+			case coordinateBisection:
+			case loadWeightedCoordinateBisection:
+				bind(QNetworkPartitioner.class).to(CoordinateBisectionQNetworkPartitioner.class);
+				break;
+			default:
+				throw new RuntimeException("Unknown network partitioning: " + this.getConfig().qsim().getNetworkPartitioning());
+		}
 		bind(VehicularDepartureHandler.class).toProvider(QNetsimEngineDepartureHandlerProvider.class).asEagerSingleton();
 
 		if ( this.getConfig().qsim().isUseLanes() ) {
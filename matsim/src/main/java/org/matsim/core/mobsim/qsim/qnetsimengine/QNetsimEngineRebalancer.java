@@ -0,0 +1,231 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineRebalancer.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.utils.misc.Time;
+
+/**
+ * Moves nodes, together with their out-links, from the busiest to the least busy runner of the
+ * {@link AbstractQNetsimEngine} while the simulation is running, so that the runners stay balanced when the traffic
+ * moves through the network during the day.
+ * <p></p>
+ * At the end of every interval, the time the runners spent moving nodes and links during this interval is compared.
+ * If the busiest runner needed considerably more time than the average, nodes of the busiest runner next to nodes of
+ * the least busy runner are handed over, growing the region around them, until about half of the difference is
+ * moved. The load of a node is measured by how often it and its out-links were simulated during the interval.
+ * <p></p>
+ * All of this happens between two time steps, when the runners are idle.
+ */
+final class QNetsimEngineRebalancer {
+
+	private static final Logger log = Logger.getLogger(QNetsimEngineRebalancer.class);
+
+	/**
+	 * Only rebalance if the busiest runner needs this much more time than the average.
+	 */
+	private static final double IMBALANCE_THRESHOLD = 1.1;
+
+	private final double interval;
+	private final List<? extends AbstractQNetsimEngineRunner> runners;
+	private final QNetwork network;
+	private final QNodeI[] nodes;
+	private final int[] runnerOfNode;
+	private final int[] assignedNodes;
+	private final int[] assignedLinks;
+
+	private final int[] nodeLoadsAtLastCheck;
+	private final long[] busyNanosAtLastCheck;
+	private double nextCheck;
+	private int numberOfMigrations = 0;
+
+	/*
+	 * runnerOfNode, assignedNodes and assignedLinks are shared with the engine and updated when nodes are moved.
+	 */
+	QNetsimEngineRebalancer(final double interval, final double startTime, final List<? extends AbstractQNetsimEngineRunner> runners,
+			final QNetwork network, final int[] runnerOfNode, final int[] assignedNodes, final int[] assignedLinks) {
+		this.interval = interval;
+		this.runners = runners;
+		this.network = network;
+		this.runnerOfNode = runnerOfNode;
+		this.assignedNodes = assignedNodes;
+		this.assignedLinks = assignedLinks;
+		this.nodes = new QNodeI[runnerOfNode.length];
+		for (QNodeI node : network.getNetsimNodes().values()) {
+			this.nodes[node.getNode().getId().index()] = node;
+		}
+		this.nodeLoadsAtLastCheck = new int[runnerOfNode.length];
+		this.busyNanosAtLastCheck = new long[runners.size()];
+		this.nextCheck = startTime + interval;
+		for (AbstractQNetsimEngineRunner runner : runners) {
+			runner.measureBusyTime = true;
+		}
+	}
+
+	void afterSimStep(final double time) {
+		if (time < this.nextCheck) {
+			return;
+		}
+		this.nextCheck += this.interval;
+
+		long[] busyNanos = new long[this.runners.size()];
+		long totalBusyNanos = 0;
+		int busiest = 0;
+		int leastBusy = 0;
+		for (int r = 0; r < busyNanos.length; r++) {
+			long now = this.runners.get(r).getBusyNanos();
+			busyNanos[r] = now - this.busyNanosAtLastCheck[r];
+			this.busyNanosAtLastCheck[r] = now;
+			totalBusyNanos += busyNanos[r];
+			if (busyNanos[r] > busyNanos[busiest]) busiest = r;
+			if (busyNanos[r] < busyNanos[leastBusy]) leastBusy = r;
+		}
+
+		// load of every node in this interval, and total load of the busiest runner
+		int[] nodeLoads = AbstractQNetsimEngineRunner.sumNodeLoads(this.runners, this.nodes.length);
+		int[] loads = new int[nodeLoads.length];
+		long busiestLoad = 0;
+		for (int i = 0; i < loads.length; i++) {
+			loads[i] = nodeLoads[i] - this.nodeLoadsAtLastCheck[i];
+			this.nodeLoadsAtLastCheck[i] = nodeLoads[i];
+			if (this.nodes[i] != null && this.runnerOfNode[i] == busiest) {
+				busiestLoad += loads[i];
+			}
+		}
+
+		double meanBusyNanos = (double) totalBusyNanos / busyNanos.length;
+		if (meanBusyNanos <= 0 || busyNanos[busiest] < IMBALANCE_THRESHOLD * meanBusyNanos || busiestLoad == 0) {
+			return;
+		}
+
+		double loadToMove = busiestLoad * (busyNanos[busiest] - busyNanos[leastBusy]) / (2.0 * busyNanos[busiest]);
+		boolean[] moved = selectNodes(busiest, leastBusy, loads, loadToMove);
+
+		AbstractQNetsimEngineRunner from = this.runners.get(busiest);
+		AbstractQNetsimEngineRunner to = this.runners.get(leastBusy);
+		int movedNodes = 0;
+		int movedLinks = 0;
+		long movedLoad = 0;
+		for (int i = 0; i < moved.length; i++) {
+			if (moved[i]) {
+				QNodeI node = this.nodes[i];
+				if (node instanceof AbstractQNode) {
+					((AbstractQNode) node).setNetElementActivationRegistry(to);
+				}
+				for (Link outLink : node.getNode().getOutLinks().values()) {
+					((AbstractQLink) this.network.getNetsimLink(outLink.getId())).setNetElementActivationRegistry(to);
+					movedLinks++;
+				}
+				this.runnerOfNode[i] = leastBusy;
+				movedNodes++;
+				movedLoad += loads[i];
+			}
+		}
+		from.moveActiveElementsTo(to, moved);
+		this.assignedNodes[busiest] -= movedNodes;
+		this.assignedNodes[leastBusy] += movedNodes;
+		this.assignedLinks[busiest] -= movedLinks;
+		this.assignedLinks[leastBusy] += movedLinks;
+		this.numberOfMigrations++;
+
+		log.info("rebalancing QNetsimEngine at " + Time.writeTime(time) + ": moved " + movedNodes + " nodes and " + movedLinks
+				+ " links with a load of " + movedLoad + " from QSimEngineRunner #" + busiest + " to #" + leastBusy
+				+ ". Busy time of the runners in the last interval [ms]: " + Arrays.toString(toMillis(busyNanos)));
+	}
+
+	/**
+	 * Breadth-first search through the nodes of runner <code>from</code>, starting at the nodes next to nodes of
+	 * runner <code>to</code>, until the selected nodes carry the given load.
+	 */
+	private boolean[] selectNodes(final int from, final int to, final int[] loads, final double loadToMove) {
+		boolean[] selected = new boolean[this.nodes.length];
+		boolean[] queued = new boolean[this.nodes.length];
+		ArrayDeque<QNodeI> queue = new ArrayDeque<>();
+		for (int i = 0; i < this.nodes.length; i++) {
+			if (this.nodes[i] != null && this.runnerOfNode[i] == from && isNextTo(this.nodes[i].getNode(), to)) {
+				queue.add(this.nodes[i]);
+				queued[i] = true;
+			}
+		}
+		if (queue.isEmpty()) {
+			// the runners do not touch each other; hand over any nodes
+			for (int i = 0; i < this.nodes.length; i++) {
+				if (this.nodes[i] != null && this.runnerOfNode[i] == from) {
+					queue.add(this.nodes[i]);
+					queued[i] = true;
+				}
+			}
+		}
+
+		double load = 0;
+		while (!queue.isEmpty() && load < loadToMove) {
+			Node node = queue.poll().getNode();
+			int index = node.getId().index();
+			selected[index] = true;
+			load += loads[index];
+			for (Link link : node.getOutLinks().values()) {
+				enqueue(link.getToNode().getId(), from, queue, queued);
+			}
+			for (Link link : node.getInLinks().values()) {
+				enqueue(link.getFromNode().getId(), from, queue, queued);
+			}
+		}
+		return selected;
+	}
+
+	private void enqueue(final Id<Node> nodeId, final int from, final ArrayDeque<QNodeI> queue, final boolean[] queued) {
+		int index = nodeId.index();
+		if (!queued[index] && this.runnerOfNode[index] == from) {
+			queue.add(this.nodes[index]);
+			queued[index] = true;
+		}
+	}
+
+	private boolean isNextTo(final Node node, final int runner) {
+		for (Link link : node.getOutLinks().values()) {
+			if (this.runnerOfNode[link.getToNode().getId().index()] == runner) return true;
+		}
+		for (Link link : node.getInLinks().values()) {
+			if (this.runnerOfNode[link.getFromNode().getId().index()] == runner) return true;
+		}
+		return false;
+	}
+
+	private static long[] toMillis(final long[] nanos) {
+		long[] millis = new long[nanos.length];
+		for (int i = 0; i < nanos.length; i++) {
+			millis[i] = nanos[i] / 1000000;
+		}
+		return millis;
+	}
+
+	int getNumberOfMigrations() {
+		return this.numberOfMigrations;
+	}
+
+}
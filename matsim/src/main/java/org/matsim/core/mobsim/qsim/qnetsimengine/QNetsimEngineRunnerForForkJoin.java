@@ -0,0 +1,221 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineRunnerForForkJoin.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+
+/**
+ * The only runner of the {@link QNetsimEngineWithForkJoin}. Instead of owning a fixed part of the network, it keeps
+ * all active nodes and links and splits them in every time step into tasks for a {@link ForkJoinPool}, so idle
+ * threads steal work from busy ones. If only few elements are active, they are processed by the calling thread
+ * without involving the pool at all.
+ * <p></p>
+ * This is as safe as the other runners: a node is still only processed by one thread per time step, and links are
+ * processed independently of each other. Only the registration of newly activated nodes and links has to be
+ * thread-safe, as it now may happen from several threads concurrently.
+ */
+final class QNetsimEngineRunnerForForkJoin extends AbstractQNetsimEngineRunner {
+
+	/*
+	 * Time steps with fewer active elements are processed by the calling thread alone; splitting them would cost
+	 * more than it saves.
+	 */
+	/*package*/ static final int SEQUENTIAL_THRESHOLD = 1024;
+	private static final int MIN_TASK_SIZE = 256;
+	private static final int TASKS_PER_THREAD = 4;
+
+	private final ForkJoinPool pool;
+
+	/*
+	 * Elements activated since their last phase. Activations happen concurrently from the threads processing the
+	 * other phase, hence the concurrent queues. At the start of a phase they are appended to the array of active
+	 * elements, which is only touched by the thread calling moveNodes() / moveLinks() and, in disjoint ranges, the
+	 * tasks of that phase.
+	 */
+	private final Queue<QNodeI> activatedNodes = new ConcurrentLinkedQueue<>();
+	private final Queue<QLinkI> activatedLinks = new ConcurrentLinkedQueue<>();
+
+	private QNodeI[] activeNodes = new QNodeI[SEQUENTIAL_THRESHOLD];
+	private int numberOfActiveNodes = 0;
+	private QLinkI[] activeLinks = new QLinkI[SEQUENTIAL_THRESHOLD];
+	private int numberOfActiveLinks = 0;
+
+	/*
+	 * Same purpose as the locks in AbstractQNetsimEngineRunner. Written before the tasks are submitted to the pool,
+	 * so they are visible to the tasks.
+	 */
+	private boolean lockNodes = false;
+	private boolean lockLinks = false;
+
+	private long parallelSteps = 0;
+	private long sequentialSteps = 0;
+
+	QNetsimEngineRunnerForForkJoin(final ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/*package*/ void doSimStep() {
+		startMeasure();
+		moveNodes();
+		moveLinks();
+		endMeasure();
+	}
+
+	@Override
+	protected void moveNodes() {
+		QNodeI node;
+		while ((node = this.activatedNodes.poll()) != null) {
+			if (this.numberOfActiveNodes == this.activeNodes.length) {
+				this.activeNodes = Arrays.copyOf(this.activeNodes, 2 * this.activeNodes.length);
+			}
+			this.activeNodes[this.numberOfActiveNodes++] = node;
+		}
+		final double time = getTime();
+		this.lockNodes = true;
+		process(this.activeNodes, this.numberOfActiveNodes, n -> n.doSimStep(time));
+		this.lockNodes = false;
+		addSteps(this.numberOfActiveNodes, 0);
+		this.numberOfActiveNodes = compact(this.activeNodes, this.numberOfActiveNodes);
+	}
+
+	@Override
+	protected void moveLinks() {
+		QLinkI link;
+		while ((link = this.activatedLinks.poll()) != null) {
+			if (this.numberOfActiveLinks == this.activeLinks.length) {
+				this.activeLinks = Arrays.copyOf(this.activeLinks, 2 * this.activeLinks.length);
+			}
+			this.activeLinks[this.numberOfActiveLinks++] = link;
+		}
+		this.lockLinks = true;
+		process(this.activeLinks, this.numberOfActiveLinks, QLinkI::doSimStep);
+		this.lockLinks = false;
+		addSteps(0, this.numberOfActiveLinks);
+		this.numberOfActiveLinks = compact(this.activeLinks, this.numberOfActiveLinks);
+	}
+
+	/*
+	 * Calls the step for all elements, and sets the elements which do not remain active to null.
+	 */
+	private <T> void process(final T[] elements, final int size, final Predicate<T> step) {
+		if (size < SEQUENTIAL_THRESHOLD || this.pool.getParallelism() == 1) {
+			this.sequentialSteps++;
+			StepTask.processRange(elements, 0, size, step);
+		} else {
+			this.parallelSteps++;
+			int taskSize = Math.max(MIN_TASK_SIZE, size / (TASKS_PER_THREAD * this.pool.getParallelism()));
+			this.pool.invoke(new StepTask<>(elements, 0, size, taskSize, step));
+		}
+	}
+
+	private static <T> int compact(final T[] elements, final int size) {
+		int remaining = 0;
+		for (int i = 0; i < size; i++) {
+			if (elements[i] != null) {
+				elements[remaining++] = elements[i];
+			}
+		}
+		Arrays.fill(elements, remaining, size, null);
+		return remaining;
+	}
+
+	@Override
+	public void afterSim() {
+	}
+
+	@Override
+	protected void registerLinkAsActive(QLinkI link) {
+		if (!this.lockLinks) this.activatedLinks.add(link);
+		else throw new RuntimeException("Tried to activate a QLink at a time where this was not allowed. Aborting!");
+	}
+
+	@Override
+	public int getNumberOfSimulatedLinks() {
+		return this.numberOfActiveLinks + this.activatedLinks.size();
+	}
+
+	@Override
+	protected void registerNodeAsActive(QNodeI node) {
+		if (!this.lockNodes) this.activatedNodes.add(node);
+		else throw new RuntimeException("Tried to activate a QNode at a time where this was not allowed. Aborting!");
+	}
+
+	@Override
+	public int getNumberOfSimulatedNodes() {
+		return this.numberOfActiveNodes + this.activatedNodes.size();
+	}
+
+	/**
+	 * @return the number of node and link phases which were split into tasks for the pool.
+	 */
+	/*package*/ long getNumberOfParallelSteps() {
+		return this.parallelSteps;
+	}
+
+	/**
+	 * @return the number of node and link phases which were processed by the calling thread alone.
+	 */
+	/*package*/ long getNumberOfSequentialSteps() {
+		return this.sequentialSteps;
+	}
+
+	private static final class StepTask<T> extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final T[] elements;
+		private final int from;
+		private final int to;
+		private final int taskSize;
+		private final Predicate<T> step;
+
+		StepTask(final T[] elements, final int from, final int to, final int taskSize, final Predicate<T> step) {
+			this.elements = elements;
+			this.from = from;
+			this.to = to;
+			this.taskSize = taskSize;
+			this.step = step;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= this.taskSize) {
+				processRange(this.elements, this.from, this.to, this.step);
+			} else {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new StepTask<>(this.elements, this.from, middle, this.taskSize, this.step),
+						new StepTask<>(this.elements, middle, this.to, this.taskSize, this.step));
+			}
+		}
+
+		static <T> void processRange(final T[] elements, final int from, final int to, final Predicate<T> step) {
+			for (int i = from; i < to; i++) {
+				if (!step.test(elements[i])) {
+					elements[i] = null;
+				}
+			}
+		}
+	}
+}
@@ -48,9 +48,14 @@ final class QNetsimEngineWithBarriers extends AbstractQNetsimEngine<QNetsimEngin
 		this(sim, null);
 	}
 
-	@Inject
 	public QNetsimEngineWithBarriers(final QSim sim, QNetworkFactory netsimNetworkFactory) {
-		super(sim, netsimNetworkFactory);
+		this(sim, netsimNetworkFactory, new RoundRobinQNetworkPartitioner(), null);
+	}
+
+	@Inject
+	public QNetsimEngineWithBarriers(final QSim sim, QNetworkFactory netsimNetworkFactory, QNetworkPartitioner partitioner,
+			QNetworkLoadStatistics loadStatistics) {
+		super(sim, netsimNetworkFactory, partitioner, loadStatistics);
 	}
 
 	@Override
@@ -0,0 +1,90 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineWithForkJoin.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.mobsim.qsim.QSim;
+
+/**
+ * Coordinates the movement of vehicles on the links and the nodes with a work-stealing {@link ForkJoinPool} instead
+ * of a fixed assignment of the network to threads. The active nodes and links are split anew in every time step (see
+ * {@link QNetsimEngineRunnerForForkJoin}), so the threads are balanced automatically, and time steps with only a few
+ * active elements, e.g. at night, do not pay for the synchronization of all threads.
+ * <p></p>
+ * As there is only one runner, the network partitioning and rebalancing options of the qsim have no effect.
+ */
+final class QNetsimEngineWithForkJoin extends AbstractQNetsimEngine<QNetsimEngineRunnerForForkJoin> {
+
+	private static final Logger log = Logger.getLogger(QNetsimEngineWithForkJoin.class);
+
+	private ForkJoinPool pool;
+	private QNetsimEngineRunnerForForkJoin runner;
+
+	public QNetsimEngineWithForkJoin(final QSim sim) {
+		this(sim, null);
+	}
+
+	public QNetsimEngineWithForkJoin(final QSim sim, QNetworkFactory netsimNetworkFactory) {
+		this(sim, netsimNetworkFactory, new RoundRobinQNetworkPartitioner(), null);
+	}
+
+	@Inject
+	public QNetsimEngineWithForkJoin(final QSim sim, QNetworkFactory netsimNetworkFactory, QNetworkPartitioner partitioner,
+			QNetworkLoadStatistics loadStatistics) {
+		super(sim, netsimNetworkFactory, partitioner, loadStatistics);
+	}
+
+	@Override
+	protected void run(double time) {
+		this.runner.setTime(time);
+		this.runner.doSimStep();
+	}
+
+	@Override
+	protected List<QNetsimEngineRunnerForForkJoin> initQSimEngineRunners() {
+		this.pool = new ForkJoinPool(Math.max(1, this.numOfThreads), pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("QNetsimEngine_ForkJoinThread_" + thread.getPoolIndex());
+			return thread;
+		}, null, false);
+		this.runner = new QNetsimEngineRunnerForForkJoin(this.pool);
+		return Collections.singletonList(this.runner);
+	}
+
+	@Override
+	protected void initMultiThreading() {
+		// the pool is already needed by the runner, and its threads are started lazily
+	}
+
+	@Override
+	protected void finishMultiThreading() {
+		this.pool.shutdown();
+		log.info("QNetsimEngine processed " + this.runner.getNumberOfParallelSteps() + " node and link phases in parallel and "
+				+ this.runner.getNumberOfSequentialSteps() + " sequentially.");
+	}
+}
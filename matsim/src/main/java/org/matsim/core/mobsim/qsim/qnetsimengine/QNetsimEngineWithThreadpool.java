@@ -52,9 +52,14 @@ final class QNetsimEngineWithThreadpool extends AbstractQNetsimEngine<QNetsimEng
 		this(sim, null);
 	}
 
-	@Inject
 	public QNetsimEngineWithThreadpool(final QSim sim, QNetworkFactory netsimNetworkFactory) {
-		super(sim, netsimNetworkFactory);
+		this(sim, netsimNetworkFactory, new RoundRobinQNetworkPartitioner(), null);
+	}
+
+	@Inject
+	public QNetsimEngineWithThreadpool(final QSim sim, QNetworkFactory netsimNetworkFactory, QNetworkPartitioner partitioner,
+			QNetworkLoadStatistics loadStatistics) {
+		super(sim, netsimNetworkFactory, partitioner, loadStatistics);
 		this.numOfRunners = this.numOfThreads;
 	}
 
@@ -0,0 +1,57 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetworkLoadStatistics.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Remembers how often every node and its out-links were simulated during the last mobsim run, as a measure of the
+ * work a node causes for the runner it is assigned to.
+ * <p></p>
+ * As a singleton without dependencies, Guice keeps it in the controler's injector, so it survives the QSim,
+ * which is re-created in every iteration.
+ */
+@Singleton
+public final class QNetworkLoadStatistics {
+
+	private int[] nodeLoads = null;
+
+	/*package*/ synchronized void setNodeLoads(final int[] nodeLoads) {
+		this.nodeLoads = nodeLoads;
+	}
+
+	public synchronized boolean hasNodeLoads() {
+		return this.nodeLoads != null;
+	}
+
+	/**
+	 * @return the number of time steps the node and its out-links were active during the last mobsim run, or 0 if
+	 * unknown.
+	 */
+	public synchronized int getNodeLoad(final Id<Node> nodeId) {
+		int index = nodeId.index();
+		return this.nodeLoads == null || index >= this.nodeLoads.length ? 0 : this.nodeLoads[index];
+	}
+
+}
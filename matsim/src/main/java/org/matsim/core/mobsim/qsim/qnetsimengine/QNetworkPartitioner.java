@@ -0,0 +1,44 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Decides which of the runners of the multi-threaded {@link QNetsimEngineI} simulates which node. The out-links of
+ * a node are always simulated by the same runner as the node itself.
+ * <p></p>
+ * The implementation is selected by {@link org.matsim.core.config.groups.QSimConfigGroup#getNetworkPartitioning()},
+ * and can be replaced by binding another implementation in an overriding QSim module.
+ */
+public interface QNetworkPartitioner {
+
+	/**
+	 * @param nodes the nodes to distribute over the runners
+	 * @param numberOfPartitions the number of runners
+	 * @return for every node, in the same order as <code>nodes</code>, the index of the runner it is assigned to,
+	 * between <code>0</code> and <code>numberOfPartitions - 1</code>
+	 */
+	int[] partition(List<? extends Node> nodes, int numberOfPartitions);
+
+}
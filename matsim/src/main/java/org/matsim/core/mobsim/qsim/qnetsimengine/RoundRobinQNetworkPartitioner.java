@@ -0,0 +1,42 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RoundRobinQNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Assigns the nodes to the runners one after the other. Gives every runner about the same number of nodes,
+ * but neighboring nodes usually end up on different runners.
+ */
+final class RoundRobinQNetworkPartitioner implements QNetworkPartitioner {
+
+	@Override
+	public int[] partition(final List<? extends Node> nodes, final int numberOfPartitions) {
+		int[] partitions = new int[nodes.size()];
+		for (int i = 0; i < partitions.length; i++) {
+			partitions[i] = i % numberOfPartitions;
+		}
+		return partitions;
+	}
+
+}
@@ -0,0 +1,451 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlan.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Customizable;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.scenario.CustomizableUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * A plan that can store its plan elements in packed primitive arrays instead of one object per activity and leg.
+ * <p></p>
+ * After {@link #compact()}, activity types, modes and routing modes are stored as indices into a global string table,
+ * link, facility and vehicle ids as their {@link Id#index()}, times as <code>float</code> if this is possible without
+ * loss of precision, and network routes as arrays of link indices. Other routes and non-trivial attributes are kept
+ * as objects. The plan elements are materialized again on the first access to {@link #getPlanElements()} and the
+ * plan then stays unpacked until it is compacted again. References to plan elements obtained before the compaction
+ * are detached from the plan, so only plans that are not in use, i.e. non-selected plans, should be compacted,
+ * see {@link NonSelectedPlansCompactor}.
+ */
+/* deliberately package */ final class CompactPlan implements Plan {
+
+	private static final int LEG = 1;
+	private static final int HAS_COORD = 2;
+	private static final int HAS_Z = 4;
+	private static final int HAS_ATTRIBUTES = 8;
+	private static final int NETWORK_ROUTE = 16;
+	private static final int OTHER_ROUTE = 32;
+
+	private static final int NONE = -1;
+
+	private static final Map<String, Integer> stringIndices = new HashMap<>();
+	private static volatile String[] strings = new String[16];
+
+	private final RouteFactories routeFactories;
+
+	private ArrayList<PlanElement> actsLegs = new ArrayList<>();
+
+	private int packedSize = 0;
+	private int[] ints = null;
+	private double[] doubles = null;
+	private float[] times = null;
+	private double[] exactTimes = null;
+	private Object[] objects = null;
+
+	private Double score = null;
+	private Person person = null;
+	private String type = null;
+
+	private Customizable customizableDelegate;
+
+	private final Attributes attributes = new Attributes();
+
+	/* package */ CompactPlan(final RouteFactories routeFactories) {
+		this.routeFactories = routeFactories;
+	}
+
+	/**
+	 * Creates a compact plan with the data of the given plan. The plan elements are taken over, not copied, so the
+	 * given plan must not be used anymore afterwards.
+	 */
+	/* package */ static CompactPlan takeOver(final Plan plan, final RouteFactories routeFactories) {
+		CompactPlan compactPlan = new CompactPlan(routeFactories);
+		compactPlan.setPerson(plan.getPerson());
+		compactPlan.setScore(plan.getScore());
+		compactPlan.setType(plan.getType());
+		AttributesUtils.copyAttributesFromTo(plan, compactPlan);
+		compactPlan.actsLegs.addAll(plan.getPlanElements());
+		return compactPlan;
+	}
+
+	@Override
+	public final Attributes getAttributes() {
+		return this.attributes;
+	}
+
+	@Override
+	public final Person getPerson() {
+		return this.person;
+	}
+
+	@Override
+	public void setPerson(final Person person) {
+		this.person = person;
+	}
+
+	@Override
+	public final Double getScore() {
+		return this.score;
+	}
+
+	@Override
+	public void setScore(final Double score) {
+		this.score = score;
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.type = type;
+	}
+
+	@Override
+	public final List<PlanElement> getPlanElements() {
+		unpack();
+		return this.actsLegs;
+	}
+
+	@Override
+	public final void addLeg(final Leg leg) {
+		unpack();
+		this.actsLegs.add(leg);
+	}
+
+	@Override
+	public final void addActivity(final Activity act) {
+		unpack();
+		this.actsLegs.add(act);
+	}
+
+	/* package */ boolean isCompacted() {
+		return this.actsLegs == null;
+	}
+
+	/**
+	 * Packs the plan elements into primitive arrays. Plans with plan elements other than activities and legs are
+	 * left unchanged.
+	 *
+	 * @return whether the plan is compacted afterwards
+	 */
+	/* package */ boolean compact() {
+		if (this.actsLegs == null) {
+			return true;
+		}
+		Packer packer = new Packer(this.actsLegs.size());
+		for (PlanElement pe : this.actsLegs) {
+			if (pe instanceof Activity) {
+				packer.addActivity((Activity) pe);
+			} else if (pe instanceof Leg) {
+				packer.addLeg((Leg) pe);
+			} else {
+				return false;
+			}
+		}
+		this.packedSize = this.actsLegs.size();
+		this.ints = Arrays.copyOf(packer.ints, packer.intCount);
+		this.doubles = packer.doubleCount == 0 ? null : Arrays.copyOf(packer.doubles, packer.doubleCount);
+		this.objects = packer.objects.isEmpty() ? null : packer.objects.toArray();
+		if (packer.timesFitFloat) {
+			this.times = new float[packer.timeCount];
+			for (int i = 0; i < packer.timeCount; i++) {
+				this.times[i] = (float) packer.times[i];
+			}
+		} else {
+			this.exactTimes = Arrays.copyOf(packer.times, packer.timeCount);
+		}
+		this.actsLegs = null;
+		return true;
+	}
+
+	private void unpack() {
+		if (this.actsLegs != null) {
+			return;
+		}
+		ArrayList<PlanElement> elements = new ArrayList<>(this.packedSize);
+		int intPos = 0;
+		int doublePos = 0;
+		int timePos = 0;
+		int objectPos = 0;
+		for (int e = 0; e < this.packedSize; e++) {
+			int flags = this.ints[intPos++];
+			String name = strings[this.ints[intPos++]];
+			if ((flags & LEG) == 0) {
+				Activity act = new ActivityImpl(name);
+				act.setLinkId(toId(this.ints[intPos++], Link.class));
+				act.setFacilityId(toId(this.ints[intPos++], ActivityFacility.class));
+				if ((flags & HAS_COORD) != 0) {
+					double x = this.doubles[doublePos++];
+					double y = this.doubles[doublePos++];
+					act.setCoord((flags & HAS_Z) != 0 ? new Coord(x, y, this.doubles[doublePos++]) : new Coord(x, y));
+				}
+				double startTime = getTime(timePos++);
+				double endTime = getTime(timePos++);
+				double duration = getTime(timePos++);
+				if (!Double.isNaN(startTime)) {
+					act.setStartTime(startTime);
+				}
+				if (!Double.isNaN(endTime)) {
+					act.setEndTime(endTime);
+				}
+				if (!Double.isNaN(duration)) {
+					act.setMaximumDuration(duration);
+				}
+				if ((flags & HAS_ATTRIBUTES) != 0) {
+					AttributesUtils.copyTo((Attributes) this.objects[objectPos++], act.getAttributes());
+				}
+				elements.add(act);
+			} else {
+				Leg leg = new LegImpl(name);
+				int routingMode = this.ints[intPos++];
+				if (routingMode != NONE) {
+					TripStructureUtils.setRoutingMode(leg, strings[routingMode]);
+				}
+				leg.setDepartureTime(getTime(timePos++));
+				leg.setTravelTime(getTime(timePos++));
+				if ((flags & NETWORK_ROUTE) != 0) {
+					Id<Link> startLinkId = toId(this.ints[intPos++], Link.class);
+					Id<Link> endLinkId = toId(this.ints[intPos++], Link.class);
+					Id<Vehicle> vehicleId = toId(this.ints[intPos++], Vehicle.class);
+					int linkCount = this.ints[intPos++];
+					List<Id<Link>> linkIds = new ArrayList<>(linkCount);
+					for (int i = 0; i < linkCount; i++) {
+						linkIds.add(Id.get(this.ints[intPos++], Link.class));
+					}
+					NetworkRoute route = this.routeFactories.createRoute(NetworkRoute.class, startLinkId, endLinkId);
+					route.setLinkIds(startLinkId, linkIds, endLinkId);
+					route.setVehicleId(vehicleId);
+					route.setDistance(this.doubles[doublePos++]);
+					route.setTravelCost(this.doubles[doublePos++]);
+					route.setTravelTime(getTime(timePos++));
+					leg.setRoute(route);
+				} else if ((flags & OTHER_ROUTE) != 0) {
+					leg.setRoute((Route) this.objects[objectPos++]);
+				}
+				if ((flags & HAS_ATTRIBUTES) != 0) {
+					AttributesUtils.copyTo((Attributes) this.objects[objectPos++], leg.getAttributes());
+				}
+				elements.add(leg);
+			}
+		}
+		this.actsLegs = elements;
+		this.ints = null;
+		this.doubles = null;
+		this.times = null;
+		this.exactTimes = null;
+		this.objects = null;
+	}
+
+	private double getTime(final int index) {
+		return this.times != null ? this.times[index] : this.exactTimes[index];
+	}
+
+	private static <T> Id<T> toId(final int index, final Class<T> type) {
+		return index == NONE ? null : Id.get(index, type);
+	}
+
+	private static int toIndex(final Id<?> id) {
+		return id == null ? NONE : id.index();
+	}
+
+	private static int intern(final String s) {
+		if (s == null) {
+			return NONE;
+		}
+		synchronized (stringIndices) {
+			Integer index = stringIndices.get(s);
+			if (index == null) {
+				index = stringIndices.size();
+				String[] table = strings;
+				if (index == table.length) {
+					table = Arrays.copyOf(table, table.length * 2);
+				}
+				table[index] = s;
+				strings = table;
+				stringIndices.put(s, index);
+			}
+			return index;
+		}
+	}
+
+	private static final class Packer {
+		private int[] ints;
+		private int intCount = 0;
+		private double[] doubles = new double[8];
+		private int doubleCount = 0;
+		private double[] times;
+		private int timeCount = 0;
+		private boolean timesFitFloat = true;
+		private final List<Object> objects = new ArrayList<>(2);
+
+		Packer(final int size) {
+			this.ints = new int[size * 4];
+			this.times = new double[size * 3];
+		}
+
+		void addActivity(final Activity act) {
+			Coord coord = act.getCoord();
+			Attributes attributes = act.getAttributes();
+			int flags = 0;
+			if (coord != null) {
+				flags |= coord.hasZ() ? HAS_COORD | HAS_Z : HAS_COORD;
+			}
+			if (!attributes.isEmpty()) {
+				flags |= HAS_ATTRIBUTES;
+			}
+			addInt(flags);
+			addInt(intern(act.getType()));
+			addInt(toIndex(act.getLinkId()));
+			addInt(toIndex(act.getFacilityId()));
+			if (coord != null) {
+				addDouble(coord.getX());
+				addDouble(coord.getY());
+				if (coord.hasZ()) {
+					addDouble(coord.getZ());
+				}
+			}
+			addTime(act.getStartTime().orElse(Double.NaN));
+			addTime(act.getEndTime().orElse(Double.NaN));
+			addTime(act.getMaximumDuration().orElse(Double.NaN));
+			if (!attributes.isEmpty()) {
+				// the activity is dropped, so its attributes can be kept without copying them
+				this.objects.add(attributes);
+			}
+		}
+
+		void addLeg(final Leg leg) {
+			Route route = leg.getRoute();
+			Attributes attributes = leg.getAttributes();
+			String routingMode = TripStructureUtils.getRoutingMode(leg);
+			// the routing mode is the only attribute of most legs, so it is stored without the Attributes
+			boolean routingModeOnly = routingMode != null && attributes.size() == 1;
+			int flags = LEG;
+			if (route instanceof NetworkRoute && route.getRouteType().equals("links")) {
+				flags |= NETWORK_ROUTE;
+			} else if (route != null) {
+				flags |= OTHER_ROUTE;
+			}
+			if (!attributes.isEmpty() && !routingModeOnly) {
+				flags |= HAS_ATTRIBUTES;
+			}
+			addInt(flags);
+			addInt(intern(leg.getMode()));
+			addInt(routingModeOnly ? intern(routingMode) : NONE);
+			addTime(leg.getDepartureTime());
+			addTime(leg.getTravelTime());
+			if ((flags & NETWORK_ROUTE) != 0) {
+				NetworkRoute networkRoute = (NetworkRoute) route;
+				List<Id<Link>> linkIds = networkRoute.getLinkIds();
+				addInt(toIndex(route.getStartLinkId()));
+				addInt(toIndex(route.getEndLinkId()));
+				addInt(toIndex(networkRoute.getVehicleId()));
+				addInt(linkIds.size());
+				for (Id<Link> linkId : linkIds) {
+					addInt(linkId.index());
+				}
+				addDouble(route.getDistance());
+				addDouble(networkRoute.getTravelCost());
+				addTime(route.getTravelTime());
+			} else if (route != null) {
+				this.objects.add(route);
+			}
+			if ((flags & HAS_ATTRIBUTES) != 0) {
+				this.objects.add(attributes);
+			}
+		}
+
+		private void addInt(final int value) {
+			if (this.intCount == this.ints.length) {
+				this.ints = Arrays.copyOf(this.ints, this.ints.length * 2 + 4);
+			}
+			this.ints[this.intCount++] = value;
+		}
+
+		private void addDouble(final double value) {
+			if (this.doubleCount == this.doubles.length) {
+				this.doubles = Arrays.copyOf(this.doubles, this.doubles.length * 2);
+			}
+			this.doubles[this.doubleCount++] = value;
+		}
+
+		private void addTime(final double value) {
+			if (this.timeCount == this.times.length) {
+				this.times = Arrays.copyOf(this.times, this.times.length * 2 + 3);
+			}
+			this.times[this.timeCount++] = value;
+			if ((double) (float) value != value && !Double.isNaN(value)) {
+				this.timesFitFloat = false;
+			}
+		}
+	}
+
+	@Override
+	public final String toString() {
+		String scoreString = "undefined";
+		if (this.getScore() != null) {
+			scoreString = this.getScore().toString();
+		}
+		String personIdString = "undefined" ;
+		if ( this.getPerson() != null ) {
+			personIdString = this.getPerson().getId().toString() ;
+		}
+		int size = this.actsLegs == null ? this.packedSize : this.actsLegs.size();
+
+		return "[score=" + scoreString + "]" +
+				"[nof_acts_legs=" + size + "]" +
+				"[type=" + this.type + "]" +
+				"[personId=" + personIdString + "]" +
+				"[compacted=" + isCompacted() + "]";
+	}
+
+	@Override
+	public final Map<String, Object> getCustomAttributes() {
+		if (this.customizableDelegate == null) {
+			this.customizableDelegate = CustomizableUtils.createCustomizable();
+		}
+		return this.customizableDelegate.getCustomAttributes();
+	}
+
+}
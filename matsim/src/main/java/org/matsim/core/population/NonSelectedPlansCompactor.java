@@ -0,0 +1,50 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NonSelectedPlansCompactor.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+
+/**
+ * Compacts the non-selected plans of all persons after replanning, see {@link PopulationUtils#compactNonSelectedPlans(Population)}.
+ * Plans which were materialized during the last iteration, e.g. by replanning or by writing the population, are packed again.
+ */
+/* deliberately package */ final class NonSelectedPlansCompactor implements BeforeMobsimListener {
+	private static final Logger log = Logger.getLogger(NonSelectedPlansCompactor.class);
+
+	private final Population population;
+
+	@Inject
+	NonSelectedPlansCompactor(Population population) {
+		this.population = population;
+	}
+
+	@Override
+	public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+		int count = PopulationUtils.compactNonSelectedPlans(this.population);
+		log.info("compacted " + count + " non-selected plans.");
+	}
+
+}
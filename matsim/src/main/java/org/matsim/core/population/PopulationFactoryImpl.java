@@ -40,12 +40,18 @@ import org.matsim.facilities.ActivityFacility;
 /* deliberately package */ class PopulationFactoryImpl implements PopulationFactory {
 
 	private final RouteFactories routeFactory;
+	private final boolean compactPlans;
 
     @Inject
 	PopulationFactoryImpl(RouteFactories routeFactory) {
-        this.routeFactory = routeFactory;
+        this(routeFactory, false);
     }
 
+	PopulationFactoryImpl(RouteFactories routeFactory, boolean compactPlans) {
+		this.routeFactory = routeFactory;
+		this.compactPlans = compactPlans;
+	}
+
     @Override
 	public Person createPerson(final Id<Person> id) {
         return new PersonImpl(id) ;
@@ -53,6 +59,9 @@ import org.matsim.facilities.ActivityFacility;
 
 	@Override
 	public Plan createPlan(){
+		if (this.compactPlans) {
+			return new CompactPlan(this.routeFactory);
+		}
 		return new PlanImpl() ;
 	}
 
@@ -58,6 +58,7 @@ import org.matsim.core.population.io.PopulationReader;
 import org.matsim.core.population.io.PopulationWriter;
 import org.matsim.core.population.io.StreamingPopulationReader;
 import org.matsim.core.population.routes.CompressedNetworkRouteFactory;
+import org.matsim.core.population.routes.IndexedNetworkRouteFactory;
 import org.matsim.core.population.routes.LinkNetworkRouteFactory;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteFactories;
@@ -133,11 +134,15 @@ public final class PopulationUtils {
 			factory = new LinkNetworkRouteFactory();
 		} else if (PlansConfigGroup.NetworkRouteType.CompressedNetworkRoute.equals(networkRouteType) && network != null) {
 			factory = new CompressedNetworkRouteFactory(network);
+		} else if (PlansConfigGroup.NetworkRouteType.IndexedNetworkRoute.equals(networkRouteType)) {
+			factory = new IndexedNetworkRouteFactory(false);
+		} else if (PlansConfigGroup.NetworkRouteType.CompressedIndexedNetworkRoute.equals(networkRouteType)) {
+			factory = new IndexedNetworkRouteFactory(true);
 		} else {
 			throw new IllegalArgumentException("The type \"" + networkRouteType + "\" is not a supported type for network routes.");
 		}
 		routeFactory.setRouteFactory(NetworkRoute.class, factory);
-		return new PopulationImpl(new PopulationFactoryImpl(routeFactory));
+		return new PopulationImpl(new PopulationFactoryImpl(routeFactory, plansConfigGroup.isCompactingNonSelectedPlans()));
 	}
 
 	//	public static Population createStreamingPopulation(PlansConfigGroup plansConfigGroup, Network network) {
@@ -436,6 +441,41 @@ public final class PopulationUtils {
 		map.putAll(treeMap);
 	}
 
+	/**
+	 * Stores the non-selected plans of all persons in packed primitive arrays, see {@link CompactPlan}. Plans of other
+	 * implementations are replaced by compact plans with the same plan elements.
+	 *
+	 * @return the number of compacted plans
+	 */
+	@SuppressWarnings("unchecked")
+	public static int compactNonSelectedPlans(final Population population) {
+		RouteFactories routeFactories = population.getFactory().getRouteFactories();
+		int count = 0;
+		for (Person person : population.getPersons().values()) {
+			List<? extends Plan> plans = person.getPlans();
+			for (int i = 0; i < plans.size(); i++) {
+				Plan plan = plans.get(i);
+				if (plan == person.getSelectedPlan()) {
+					continue;
+				}
+				CompactPlan compactPlan;
+				if (plan instanceof CompactPlan) {
+					compactPlan = (CompactPlan) plan;
+				} else {
+					compactPlan = CompactPlan.takeOver(plan, routeFactories);
+					if (!compactPlan.compact()) {
+						continue;
+					}
+					((List<Plan>) plans).set(i, compactPlan);
+				}
+				if (compactPlan.compact()) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
 	/**
 	 * @deprecated Use {@link #decideOnActivityEndTime(Activity, double, Config)}
 	 */
@@ -0,0 +1,265 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Parallel implementation of the {@link PopulationReaderMatsimV6}. The main thread only reads the file and collects the
+ * tags of every person, which are then interpreted by worker threads with their own {@link PopulationReaderMatsimV6},
+ * including the routes and the attributes. The persons are added to the population by the main thread in the order of
+ * the file, so this also works with population streaming. At most a limited number of persons per thread are read
+ * ahead, so the memory stays bounded while streaming.
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV6 extends PopulationReaderMatsimV6 {
+	private static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV6.class);
+
+	private final static String POPULATION = "population";
+	private final static String PERSON = "person";
+
+	private final static int PENDING_PERSONS_PER_THREAD = 100;
+
+	private final Scenario scenario;
+	private final int numThreads;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+
+	private ExecutorService executor = null;
+	private ThreadLocal<PersonReader> personReaders = null;
+	private final Deque<Future<Person>> pendingPersons = new ArrayDeque<>();
+	private List<Tag> currentPersonTags = null;
+
+	ParallelPopulationReaderMatsimV6(
+			final String inputCRS,
+			final String targetCRS,
+			final Scenario scenario,
+			final int numThreads) {
+		super(inputCRS, targetCRS, scenario);
+		this.scenario = scenario;
+		this.numThreads = numThreads;
+	}
+
+	@Override
+	public void putAttributeConverter( final Class<?> clazz , AttributeConverter<?> converter ) {
+		super.putAttributeConverter( clazz, converter );
+		this.attributeConverters.put( clazz, converter );
+	}
+
+	@Override
+	public void putAttributeConverters( final Map<Class<?>, AttributeConverter<?>> converters ) {
+		super.putAttributeConverters( converters );
+		this.attributeConverters.putAll( converters );
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (PERSON.equals(name)) {
+			if (this.executor == null) {
+				// the attributes of the population, which may define the coordinate system, come before the first person
+				startParallelReading();
+			}
+			this.currentPersonTags = new ArrayList<>();
+		}
+		if (this.currentPersonTags == null) {
+			super.startTag(name, atts, context);
+			return;
+		}
+		// the attributes object is re-used by the parser, so it must be copied
+		this.currentPersonTags.add(new Tag(true, name, new AttributesImpl(atts), null, context.peek()));
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		if (this.currentPersonTags == null) {
+			if (POPULATION.equals(name)) {
+				finishParallelReading();
+			}
+			super.endTag(name, content, context);
+			return;
+		}
+		this.currentPersonTags.add(new Tag(false, name, null, content, context.isEmpty() ? null : context.peek()));
+		if (PERSON.equals(name)) {
+			final List<Tag> tags = this.currentPersonTags;
+			this.currentPersonTags = null;
+			this.pendingPersons.add(this.executor.submit(() -> this.personReaders.get().read(tags)));
+			addFinishedPersons(this.numThreads * PENDING_PERSONS_PER_THREAD);
+		}
+	}
+
+	private void startParallelReading() {
+		log.info("Start parallel population reading with " + this.numThreads + " threads...");
+		this.executor = Executors.newFixedThreadPool(this.numThreads, r -> {
+			Thread thread = new Thread(r, ParallelPopulationReaderMatsimV6.class.getSimpleName());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.personReaders = ThreadLocal.withInitial(() -> new PersonReader(this.scenario, this));
+	}
+
+	private void finishParallelReading() {
+		if (this.executor == null) {
+			return;
+		}
+		addFinishedPersons(0);
+		this.executor.shutdown();
+		this.executor = null;
+		this.personReaders = null;
+		log.info("Finished parallel population reading...");
+	}
+
+	/**
+	 * Adds the persons which are already read to the population, keeping their order. Waits for persons still being read
+	 * while there are more than <code>maxPending</code>.
+	 */
+	private void addFinishedPersons(final int maxPending) {
+		Population population = this.scenario.getPopulation();
+		while (!this.pendingPersons.isEmpty() && (this.pendingPersons.size() > maxPending || this.pendingPersons.peek().isDone())) {
+			try {
+				population.addPerson(this.pendingPersons.poll().get());
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				this.executor.shutdownNow();
+				throw new RuntimeException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Reads the tags of one person at a time with a regular {@link PopulationReaderMatsimV6}, which adds the person to a
+	 * population that only remembers it.
+	 */
+	private static class PersonReader {
+		private final PopulationReaderMatsimV6 delegate;
+		private final PersonCollector collector;
+		private final Stack<String> context = new Stack<>();
+
+		PersonReader(final Scenario scenario, final ParallelPopulationReaderMatsimV6 mainReader) {
+			this.collector = new PersonCollector(scenario.getPopulation().getFactory());
+			Scenario collectorScenario = new ScenarioUtils.ScenarioBuilder(scenario.getConfig())
+					.setNetwork(scenario.getNetwork())
+					.setPopulation(this.collector)
+					.build();
+			this.delegate = new PopulationReaderMatsimV6(null, null, collectorScenario);
+			this.delegate.setCoordinateTransformation(mainReader.getCoordinateTransformation());
+			this.delegate.putAttributeConverters(mainReader.attributeConverters);
+		}
+
+		Person read(final List<Tag> tags) {
+			for (Tag tag : tags) {
+				// the readers only look at the innermost element of the context
+				this.context.clear();
+				if (tag.parent != null) {
+					this.context.push(tag.parent);
+				}
+				if (tag.isStart) {
+					this.delegate.startTag(tag.name, tag.atts, this.context);
+				} else {
+					this.delegate.endTag(tag.name, tag.content, this.context);
+				}
+			}
+			Person person = this.collector.person;
+			this.collector.person = null;
+			return person;
+		}
+	}
+
+	private static class PersonCollector implements Population {
+		private final PopulationFactory factory;
+		private Person person = null;
+
+		PersonCollector(final PopulationFactory factory) {
+			this.factory = factory;
+		}
+
+		@Override
+		public PopulationFactory getFactory() {
+			return this.factory;
+		}
+
+		@Override
+		public void addPerson(final Person p) {
+			this.person = p;
+		}
+
+		@Override
+		public String getName() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public void setName(final String name) {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public Map<Id<Person>, ? extends Person> getPersons() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public Person removePerson(final Id<Person> personId) {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public org.matsim.utils.objectattributes.attributable.Attributes getAttributes() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+	}
+
+	private static class Tag {
+		final boolean isStart;
+		final String name;
+		final Attributes atts;
+		final String content;
+		/** the enclosing element, the readers do not need more of the context. */
+		final String parent;
+
+		Tag(final boolean isStart, final String name, final Attributes atts, final String content, final String parent) {
+			this.isStart = isStart;
+			this.name = name;
+			this.atts = atts;
+			this.content = content;
+			this.parent = parent;
+		}
+	}
+
+}
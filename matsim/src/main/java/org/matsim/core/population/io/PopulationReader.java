@@ -114,7 +114,15 @@ public final class PopulationReader extends MatsimXmlParser {
 
 		switch ( doctype ) {
 			case POPULATION_V6:
-				this.delegate =
+				// the persons are read in parallel if more than one thread is configured. The order of the persons is
+				// preserved, so this works with streaming as well.
+				int numberOfThreads = this.scenario.getConfig().global().getNumberOfThreads();
+				this.delegate = numberOfThreads > 1 ?
+						new ParallelPopulationReaderMatsimV6(
+						        inputCRS,
+						        targetCRS,
+								this.scenario,
+								numberOfThreads) :
 						new PopulationReaderMatsimV6(
 						        inputCRS,
 						        targetCRS,
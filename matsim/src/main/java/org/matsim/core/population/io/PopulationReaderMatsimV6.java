@@ -143,6 +143,14 @@ import com.google.inject.Inject;
 		attributesReader.putAttributeConverters( converters );
 	}
 
+	/* package */ CoordinateTransformation getCoordinateTransformation() {
+		return this.coordinateTransformation;
+	}
+
+	/* package */ void setCoordinateTransformation( final CoordinateTransformation coordinateTransformation ) {
+		this.coordinateTransformation = coordinateTransformation;
+	}
+
 	@Override
 	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
 		switch( name ) {
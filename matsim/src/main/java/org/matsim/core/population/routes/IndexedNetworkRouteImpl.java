@@ -0,0 +1,362 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IndexedNetworkRouteImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Implementation of {@link NetworkRoute} which internally stores the route as the {@link Id#index() indices} of the
+ * link ids, either in an <code>int[]</code> or, if compressed, as zigzag-encoded differences between subsequent
+ * indices in a varint <code>byte[]</code>. Links created after each other, e.g. when reading a network file, mostly
+ * have close indices, so most links need only one or two bytes in the compressed form.
+ * <p></p>
+ * The link ids returned by {@link #getLinkIds()} are materialized on access. For compressed routes, iterators decode
+ * the links one after the other, and <code>get(i)</code> continues from the position of the last access, so iterating
+ * over the links or accessing them in order, as done by the driver agents, needs constant time and no allocation per
+ * link.
+ */
+final class IndexedNetworkRouteImpl extends AbstractRoute implements NetworkRoute {
+
+	private static final int[] EMPTY = new int[0];
+
+	private final boolean compressed;
+	private int[] linkIndices = EMPTY;
+	private byte[] encodedLinkIndices = null;
+	private int linkCount = 0;
+	private double travelCost = Double.NaN;
+	private Id<Vehicle> vehicleId = null;
+	private LinkIds linkIds = null;
+
+	private static final AtomicReferenceFieldUpdater<IndexedNetworkRouteImpl, Cursor> CURSOR =
+			AtomicReferenceFieldUpdater.newUpdater(IndexedNetworkRouteImpl.class, Cursor.class, "cursor");
+
+	/**
+	 * The decoding position of the last <code>get(i)</code> on a compressed route. The cursor is advanced in place, so a
+	 * thread takes it out of this field while using it; concurrent accesses create their own cursor instead.
+	 */
+	private volatile Cursor cursor = null;
+
+	IndexedNetworkRouteImpl(final Id<Link> startLinkId, final Id<Link> endLinkId, final boolean compressed) {
+		super(startLinkId, endLinkId);
+		this.compressed = compressed;
+	}
+
+	@Override
+	public IndexedNetworkRouteImpl clone() {
+		// the link indices are never modified, but replaced in setLinkIds(), so they can be shared with the clone
+		IndexedNetworkRouteImpl cloned = (IndexedNetworkRouteImpl) super.clone();
+		cloned.linkIds = null;
+		cloned.cursor = null;
+		return cloned;
+	}
+
+	@Override
+	public List<Id<Link>> getLinkIds() {
+		if (this.linkIds == null) {
+			this.linkIds = new LinkIds();
+		}
+		return this.linkIds;
+	}
+
+	@Override
+	public NetworkRoute getSubRoute(final Id<Link> fromLinkId, final Id<Link> toLinkId) {
+		int[] route = getLinkIndices();
+		int fromLinkIndex = fromLinkId.index();
+		int toLinkIndex = toLinkId.index();
+		/*
+		 * the index where the link after fromLinkId can be found in the route:
+		 * fromIndex==0 --> fromLinkId == startLinkId,
+		 * fromIndex==1 --> fromLinkId == first link in the route, etc.
+		 */
+		int fromIndex = -1;
+		/*
+		 * the index where toLinkId can be found in the route
+		 */
+		int toIndex = -1;
+
+		if (fromLinkId.equals(this.getStartLinkId())) {
+			fromIndex = 0;
+		} else {
+			for (int i = 0, n = route.length; (i < n) && (fromIndex < 0); i++) {
+				if (fromLinkIndex == route[i]) {
+					fromIndex = i+1;
+				}
+			}
+			if (fromIndex < 0 && fromLinkId.equals(this.getEndLinkId())) {
+				fromIndex = route.length;
+			}
+			if (fromIndex < 0) {
+				throw new IllegalArgumentException("Cannot create subroute because fromLinkId is not part of the route.");
+			}
+		}
+
+		if (fromLinkId.equals(toLinkId)) {
+			toIndex = fromIndex - 1;
+		} else {
+			for (int i = fromIndex, n = route.length; (i < n) && (toIndex < 0); i++) {
+				if (fromLinkIndex == route[i]) {
+					fromIndex = i+1; // in case of a loop, cut it short
+				}
+				if (toLinkIndex == route[i]) {
+					toIndex = i;
+				}
+			}
+			if (toIndex < 0 && toLinkId.equals(this.getEndLinkId())) {
+				toIndex = route.length;
+			}
+			if (toIndex < 0) {
+				throw new IllegalArgumentException("Cannot create subroute because toLinkId is not part of the route.");
+			}
+		}
+		IndexedNetworkRouteImpl ret = new IndexedNetworkRouteImpl(fromLinkId, toLinkId, this.compressed);
+		if (toIndex > fromIndex) {
+			ret.setLinkIndices(Arrays.copyOfRange(route, fromIndex, toIndex));
+		}
+		return ret;
+	}
+
+	@Override
+	public double getTravelCost() {
+		return this.travelCost;
+	}
+
+	@Override
+	public void setTravelCost(final double travelCost) {
+		this.travelCost = travelCost;
+	}
+
+	@Override
+	public void setLinkIds(final Id<Link> startLinkId, final List<Id<Link>> srcRoute, final Id<Link> endLinkId) {
+		setStartLinkId(startLinkId);
+		setEndLinkId(endLinkId);
+		int[] indices = EMPTY;
+		if (srcRoute != null && !srcRoute.isEmpty()) {
+			indices = new int[srcRoute.size()];
+			int i = 0;
+			for (Id<Link> linkId : srcRoute) {
+				indices[i++] = linkId.index();
+			}
+		}
+		setLinkIndices(indices);
+	}
+
+	private void setLinkIndices(final int[] indices) {
+		this.linkCount = indices.length;
+		this.cursor = null;
+		if (!this.compressed) {
+			this.linkIndices = indices;
+			return;
+		}
+		byte[] buffer = new byte[indices.length * 5];
+		int pos = 0;
+		int previous = 0;
+		for (int index : indices) {
+			int delta = index - previous;
+			pos = writeVarint(buffer, pos, (delta << 1) ^ (delta >> 31));
+			previous = index;
+		}
+		this.encodedLinkIndices = Arrays.copyOf(buffer, pos);
+	}
+
+	private int[] getLinkIndices() {
+		if (!this.compressed) {
+			return this.linkIndices;
+		}
+		int[] indices = new int[this.linkCount];
+		Cursor c = new Cursor(this.encodedLinkIndices);
+		for (int i = 0; i < this.linkCount; i++) {
+			indices[i] = c.next();
+		}
+		return indices;
+	}
+
+	private int getLinkIndex(final int i) {
+		if (!this.compressed) {
+			return this.linkIndices[i];
+		}
+		Cursor c = CURSOR.getAndSet(this, null);
+		if (c == null || c.encodedLinkIndices != this.encodedLinkIndices) {
+			// first access, another thread is using the cursor, or the links were set in the meantime
+			c = new Cursor(this.encodedLinkIndices);
+		} else if (c.position > i) {
+			c.reset();
+		}
+		while (c.position < i) {
+			c.next();
+		}
+		int linkIndex = c.linkIndex;
+		CURSOR.lazySet(this, c);
+		return linkIndex;
+	}
+
+	private static int writeVarint(final byte[] buffer, int pos, int value) {
+		while ((value & ~0x7F) != 0) {
+			buffer[pos++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[pos++] = (byte) value;
+		return pos;
+	}
+
+	@Override
+	public Id<Vehicle> getVehicleId() {
+		return this.vehicleId;
+	}
+
+	@Override
+	public void setVehicleId(final Id<Vehicle> vehicleId) {
+		this.vehicleId = vehicleId;
+	}
+
+	@Override
+	public String getRouteDescription() {
+		StringBuilder desc = new StringBuilder(100);
+		desc.append(this.getStartLinkId().toString());
+		for (Id<Link> linkId : this.getLinkIds()) {
+			desc.append(" ");
+			desc.append(linkId.toString());
+		}
+		// If the start links equals the end link additionally check if its is a round trip.
+		if (!this.getEndLinkId().equals(this.getStartLinkId()) || this.linkCount > 0) {
+			desc.append(" ");
+			desc.append(this.getEndLinkId().toString());
+		}
+		return desc.toString();
+	}
+
+	@Override
+	public void setRouteDescription(final String routeDescription) {
+		List<Id<Link>> linkIds = NetworkUtils.getLinkIds(routeDescription);
+		Id<Link> startLinkId = getStartLinkId();
+		Id<Link> endLinkId = getEndLinkId();
+		if (linkIds.size() > 0) {
+			startLinkId = linkIds.remove(0);
+			setStartLinkId(startLinkId);
+		}
+		if (linkIds.size() > 0) {
+			endLinkId = linkIds.remove(linkIds.size() - 1);
+			setEndLinkId(endLinkId);
+		}
+		this.setLinkIds(startLinkId, linkIds, endLinkId);
+	}
+
+	@Override
+	public String getRouteType() {
+		return LinkNetworkRouteImpl.ROUTE_TYPE;
+	}
+
+	@Override
+	public String toString() {
+		String str = super.toString();
+		str += " linkIds=" + this.getLinkIds() ;
+		str += " travelCost=" + this.getTravelCost() ;
+		return str ;
+	}
+
+	/** Decodes the link indices of a compressed route one after the other. */
+	private static final class Cursor {
+		final byte[] encodedLinkIndices;
+		int position;
+		int bytePosition;
+		int linkIndex;
+
+		Cursor(final byte[] encodedLinkIndices) {
+			this.encodedLinkIndices = encodedLinkIndices;
+			reset();
+		}
+
+		void reset() {
+			this.position = -1;
+			this.bytePosition = 0;
+			this.linkIndex = 0;
+		}
+
+		int next() {
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = this.encodedLinkIndices[this.bytePosition++];
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			this.position++;
+			this.linkIndex += (value >>> 1) ^ -(value & 1);
+			return this.linkIndex;
+		}
+	}
+
+	/** Unmodifiable view on the link ids of this route. */
+	private final class LinkIds extends AbstractList<Id<Link>> implements RandomAccess {
+		@Override
+		public Id<Link> get(final int i) {
+			if (i < 0 || i >= size()) {
+				throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+			}
+			return Id.get(getLinkIndex(i), Link.class);
+		}
+
+		@Override
+		public Iterator<Id<Link>> iterator() {
+			return new LinkIdIterator();
+		}
+
+		@Override
+		public int size() {
+			return IndexedNetworkRouteImpl.this.linkCount;
+		}
+	}
+
+	/** Iterates over the link ids with its own cursor, independent of other iterators and of <code>get(i)</code>. */
+	private final class LinkIdIterator implements Iterator<Id<Link>> {
+		private final int[] linkIndices = IndexedNetworkRouteImpl.this.linkIndices;
+		private final Cursor cursor = compressed ? new Cursor(encodedLinkIndices) : null;
+		private final int size = linkCount;
+		private int next = 0;
+
+		@Override
+		public boolean hasNext() {
+			return this.next < this.size;
+		}
+
+		@Override
+		public Id<Link> next() {
+			if (this.next >= this.size) {
+				throw new NoSuchElementException();
+			}
+			int linkIndex = this.cursor == null ? this.linkIndices[this.next] : this.cursor.next();
+			this.next++;
+			return Id.get(linkIndex, Link.class);
+		}
+	}
+
+}
@@ -0,0 +1,518 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchies.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Least cost path calculator based on a customizable contraction hierarchy.
+ * <p></p>
+ * The {@link ContractionHierarchy} is computed once per network and shared by all instances. It is customized to a
+ * {@link TravelDisutility}: the day is divided into time bins, and for every time bin in which a route starts, the
+ * costs of the arcs of the hierarchy are computed from the link costs at the beginning of the bin. The customization
+ * is shared by all instances created by the same factory for the same network and travel time, and recomputed when
+ * the travel times change at the start of an iteration. A query
+ * is then a bidirectional Dijkstra search which only follows arcs to higher ranked nodes, and thus settles only a tiny
+ * fraction of the nodes.
+ * <p></p>
+ * As the link costs are taken at the beginning of the time bin, and without person or vehicle, routes may differ from
+ * the ones {@link Dijkstra} finds if the costs change within a time bin or depend on the person. The travel time and
+ * cost of the returned path are nevertheless computed along the path for the actual departure time, person and vehicle.
+ * <p></p>
+ * Not thread-safe, like the other routers; use one instance per thread.
+ *
+ * @see ContractionHierarchiesFactory
+ */
+public class ContractionHierarchies implements LeastCostPathCalculator {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchies.class);
+
+	private static final int UP = 0;
+	private static final int DOWN = 1;
+
+	private final ContractionHierarchy hierarchy;
+	private final TravelDisutility costFunction;
+	private final TravelTime timeFunction;
+	private final Customization customization;
+
+	private final Search forward;
+	private final Search backward;
+	private final IntStack stack = new IntStack();
+
+	/*package*/ ContractionHierarchies(final Customization customization, final TravelDisutility costFunction,
+			final TravelTime timeFunction) {
+		ContractionHierarchy hierarchy = customization.hierarchy;
+		this.hierarchy = hierarchy;
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+		this.customization = customization;
+		this.forward = new Search(hierarchy.getNumberOfNodes());
+		this.backward = new Search(hierarchy.getNumberOfNodes());
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person,
+			final Vehicle vehicle) {
+		int from = this.hierarchy.getRank(fromNode);
+		int to = this.hierarchy.getRank(toNode);
+		if (from < 0 || to < 0) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "
+					+ getClass().getSimpleName() + ": Validity check for the fromNode: " + (from >= 0)
+					+ ". Validity check for the toNode: " + (to >= 0));
+		}
+		if (from == to) {
+			List<Node> nodes = new ArrayList<>(1);
+			nodes.add(fromNode);
+			return new Path(nodes, new ArrayList<>(0), 0.0, 0.0);
+		}
+
+		Metric metric = this.customization.getMetric(starttime, this.costFunction);
+		this.forward.init(from);
+		this.backward.init(to);
+		double best = Double.POSITIVE_INFINITY;
+		int meetingNode = -1;
+		while (true) {
+			double forwardKey = this.forward.heap.isEmpty() ? Double.POSITIVE_INFINITY : this.forward.heap.peekKey();
+			double backwardKey = this.backward.heap.isEmpty() ? Double.POSITIVE_INFINITY : this.backward.heap.peekKey();
+			if (forwardKey >= best && backwardKey >= best) {
+				break;
+			}
+			Search search;
+			Search other;
+			double[] weights;
+			if (forwardKey <= backwardKey) {
+				search = this.forward;
+				other = this.backward;
+				weights = metric.up;
+			} else {
+				search = this.backward;
+				other = this.forward;
+				weights = metric.down;
+			}
+			int node = search.heap.poll();
+			double cost = search.cost[node];
+			if (other.isReached(node) && cost + other.cost[node] < best) {
+				best = cost + other.cost[node];
+				meetingNode = node;
+			}
+			int lastArc = this.hierarchy.getFirstArc(node + 1);
+			for (int arc = this.hierarchy.getFirstArc(node); arc < lastArc; arc++) {
+				double newCost = cost + weights[arc];
+				if (newCost < Double.POSITIVE_INFINITY) {
+					search.relax(this.hierarchy.getArcHead(arc), newCost, arc, node);
+				}
+			}
+		}
+
+		if (meetingNode < 0) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ".");
+			return null;
+		}
+		return createPath(metric, meetingNode, starttime, person, vehicle);
+	}
+
+	private Path createPath(final Metric metric, final int meetingNode, final double starttime, final Person person,
+			final Vehicle vehicle) {
+		// every arc is pushed together with its lower node. The arcs of the backward search, from the meeting node to the
+		// target, are pushed first and in reverse order, so they are unpacked after the ones of the forward search.
+		IntStack stack = this.stack;
+		stack.clear();
+		for (int node = meetingNode; node != this.backward.init; node = this.backward.parentNode[node]) {
+			stack.push(this.backward.parentNode[node]);
+			stack.push(encode(this.backward.parentArc[node], DOWN));
+		}
+		stack.reversePairs();
+		for (int node = meetingNode; node != this.forward.init; node = this.forward.parentNode[node]) {
+			stack.push(this.forward.parentNode[node]);
+			stack.push(encode(this.forward.parentArc[node], UP));
+		}
+
+		List<Link> links = new ArrayList<>();
+		while (stack.size > 0) {
+			int encoded = stack.pop();
+			int lower = stack.pop();
+			int arc = encoded >> 1;
+			int direction = encoded & 1;
+			int via = direction == UP ? metric.upVia[arc] : metric.downVia[arc];
+			if (via < 0) {
+				links.add(this.hierarchy.getLink(-via - 1));
+				continue;
+			}
+			// the arc is a shortcut over the lower ranked node via, which has an arc to both ends of this arc
+			int higher = this.hierarchy.getArcHead(arc);
+			int toLower = this.hierarchy.findArc(via, lower);
+			int toHigher = this.hierarchy.findArc(via, higher);
+			if (direction == UP) {
+				// lower -> via -> higher
+				stack.push(via);
+				stack.push(encode(toHigher, UP));
+				stack.push(via);
+				stack.push(encode(toLower, DOWN));
+			} else {
+				// higher -> via -> lower
+				stack.push(via);
+				stack.push(encode(toLower, UP));
+				stack.push(via);
+				stack.push(encode(toHigher, DOWN));
+			}
+		}
+
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(links.get(0).getFromNode());
+		double time = starttime;
+		double cost = 0.0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			double travelTime = this.timeFunction.getLinkTravelTime(link, time, person, vehicle);
+			cost += this.costFunction.getLinkTravelDisutility(link, time, person, vehicle);
+			time += travelTime;
+		}
+		return new Path(nodes, links, time - starttime, cost);
+	}
+
+	private static int encode(final int arc, final int direction) {
+		return (arc << 1) | direction;
+	}
+
+	/**
+	 * The arc costs of a hierarchy for one travel time, indexed by time bin and computed when first needed. The metrics
+	 * are never modified after they are computed, so a customization can be shared by several instances, also on
+	 * different threads. It does not keep a reference to the travel time, so the factory can cache it with the travel
+	 * time as weak key.
+	 */
+	static final class Customization {
+		private final ContractionHierarchy hierarchy;
+		private final double binSize;
+		private final IntSupplier iteration;
+		private volatile int metricsIteration;
+		private volatile Metric[] metrics = new Metric[0];
+
+		/**
+		 * @param iteration the metrics are computed again whenever this value changes, i.e. when the travel times changed
+		 */
+		Customization(final ContractionHierarchy hierarchy, final double binSize, final IntSupplier iteration) {
+			this.hierarchy = hierarchy;
+			this.binSize = binSize;
+			this.iteration = iteration;
+			this.metricsIteration = iteration.getAsInt();
+		}
+
+		Metric getMetric(final double time, final TravelDisutility costFunction) {
+			int bin = time > 0 ? (int) (time / this.binSize) : 0;
+			int iteration = this.iteration.getAsInt();
+			if (this.metricsIteration == iteration) {
+				Metric[] metrics = this.metrics;
+				if (bin < metrics.length && metrics[bin] != null) {
+					return metrics[bin];
+				}
+			}
+			synchronized (this) {
+				if (this.metricsIteration != iteration) {
+					this.metrics = new Metric[0];
+					this.metricsIteration = iteration;
+				}
+				Metric[] metrics = this.metrics;
+				if (bin >= metrics.length) {
+					metrics = Arrays.copyOf(metrics, bin + 1);
+				} else if (metrics[bin] != null) {
+					return metrics[bin];
+				} else {
+					metrics = metrics.clone();
+				}
+				Metric metric = customize(bin * this.binSize, costFunction);
+				metrics[bin] = metric;
+				this.metrics = metrics;
+				return metric;
+			}
+		}
+
+		/**
+		 * Computes the costs of all arcs, first from the links, then for the shortcuts from the lower arcs, in order of the
+		 * rank of their lower node.
+		 */
+		private Metric customize(final double time, final TravelDisutility costFunction) {
+			ContractionHierarchy ch = this.hierarchy;
+			int numberOfArcs = ch.getNumberOfArcs();
+			Metric metric = new Metric(numberOfArcs);
+			for (int arc = 0; arc < numberOfArcs; arc++) {
+				for (int i = ch.getFirstUpLink(arc); i < ch.getFirstUpLink(arc + 1); i++) {
+					int link = ch.getUpLink(i);
+					double cost = costFunction.getLinkTravelDisutility(ch.getLink(link), time, null, null);
+					if (cost < metric.up[arc]) {
+						metric.up[arc] = cost;
+						metric.upVia[arc] = -link - 1;
+					}
+				}
+				for (int i = ch.getFirstDownLink(arc); i < ch.getFirstDownLink(arc + 1); i++) {
+					int link = ch.getDownLink(i);
+					double cost = costFunction.getLinkTravelDisutility(ch.getLink(link), time, null, null);
+					if (cost < metric.down[arc]) {
+						metric.down[arc] = cost;
+						metric.downVia[arc] = -link - 1;
+					}
+				}
+			}
+			for (int v = 0; v < ch.getNumberOfNodes(); v++) {
+				int lastArc = ch.getFirstArc(v + 1);
+				for (int i = ch.getFirstArc(v); i < lastArc; i++) {
+					int u = ch.getArcHead(i);
+					for (int j = i + 1; j < lastArc; j++) {
+						int w = ch.getArcHead(j);
+						int shortcut = ch.findArc(u, w);
+						// u -> v -> w
+						double up = metric.down[i] + metric.up[j];
+						if (up < metric.up[shortcut]) {
+							metric.up[shortcut] = up;
+							metric.upVia[shortcut] = v;
+						}
+						// w -> v -> u
+						double down = metric.down[j] + metric.up[i];
+						if (down < metric.down[shortcut]) {
+							metric.down[shortcut] = down;
+							metric.downVia[shortcut] = v;
+						}
+					}
+				}
+			}
+			return metric;
+		}
+	}
+
+	/**
+	 * The costs of the arcs for one time bin. For every arc and direction, the via value is either the node the shortcut
+	 * leads over, or <code>-(l+1)</code> for the link with index l in the hierarchy.
+	 */
+	private static final class Metric {
+		private final double[] up;
+		private final double[] down;
+		private final int[] upVia;
+		private final int[] downVia;
+
+		Metric(final int numberOfArcs) {
+			this.up = new double[numberOfArcs];
+			this.down = new double[numberOfArcs];
+			Arrays.fill(this.up, Double.POSITIVE_INFINITY);
+			Arrays.fill(this.down, Double.POSITIVE_INFINITY);
+			this.upVia = new int[numberOfArcs];
+			this.downVia = new int[numberOfArcs];
+		}
+	}
+
+	/**
+	 * The state of one direction of the search. Nodes are only reset lazily, by comparing their stamp with the one of
+	 * the current query.
+	 */
+	private static final class Search {
+		private final double[] cost;
+		private final int[] parentArc;
+		private final int[] parentNode;
+		private final int[] stamp;
+		private final IntHeap heap;
+		private int currentStamp = 0;
+		private int init;
+
+		Search(final int numberOfNodes) {
+			this.cost = new double[numberOfNodes];
+			this.parentArc = new int[numberOfNodes];
+			this.parentNode = new int[numberOfNodes];
+			this.stamp = new int[numberOfNodes];
+			this.heap = new IntHeap(numberOfNodes);
+		}
+
+		void init(final int node) {
+			this.currentStamp++;
+			if (this.currentStamp == Integer.MAX_VALUE) {
+				Arrays.fill(this.stamp, 0);
+				this.currentStamp = 1;
+			}
+			this.heap.clear();
+			this.init = node;
+			this.stamp[node] = this.currentStamp;
+			this.cost[node] = 0.0;
+			this.heap.insert(node, 0.0);
+		}
+
+		boolean isReached(final int node) {
+			return this.stamp[node] == this.currentStamp;
+		}
+
+		void relax(final int node, final double newCost, final int arc, final int fromNode) {
+			if (!isReached(node)) {
+				this.stamp[node] = this.currentStamp;
+				this.cost[node] = newCost;
+				this.parentArc[node] = arc;
+				this.parentNode[node] = fromNode;
+				this.heap.insert(node, newCost);
+			} else if (newCost < this.cost[node]) {
+				this.cost[node] = newCost;
+				this.parentArc[node] = arc;
+				this.parentNode[node] = fromNode;
+				this.heap.decreaseKey(node, newCost);
+			}
+		}
+	}
+
+	/**
+	 * Binary min-heap of node indices, with the position of every node to support decreasing its key.
+	 */
+	private static final class IntHeap {
+		private final int[] heap;
+		private final double[] keys;
+		private final int[] position;
+		private int size = 0;
+
+		IntHeap(final int capacity) {
+			this.heap = new int[capacity];
+			this.keys = new double[capacity];
+			this.position = new int[capacity];
+			Arrays.fill(this.position, -1);
+		}
+
+		boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		double peekKey() {
+			return this.keys[this.heap[0]];
+		}
+
+		void clear() {
+			for (int i = 0; i < this.size; i++) {
+				this.position[this.heap[i]] = -1;
+			}
+			this.size = 0;
+		}
+
+		void insert(final int node, final double key) {
+			this.keys[node] = key;
+			this.heap[this.size] = node;
+			this.position[node] = this.size;
+			siftUp(this.size++);
+		}
+
+		void decreaseKey(final int node, final double key) {
+			this.keys[node] = key;
+			int pos = this.position[node];
+			if (pos >= 0) {
+				siftUp(pos);
+			} else {
+				insert(node, key);
+			}
+		}
+
+		int poll() {
+			int node = this.heap[0];
+			this.position[node] = -1;
+			this.size--;
+			if (this.size > 0) {
+				this.heap[0] = this.heap[this.size];
+				this.position[this.heap[0]] = 0;
+				siftDown(0);
+			}
+			return node;
+		}
+
+		private void siftUp(int pos) {
+			int node = this.heap[pos];
+			double key = this.keys[node];
+			while (pos > 0) {
+				int parent = (pos - 1) >>> 1;
+				int parentNode = this.heap[parent];
+				if (this.keys[parentNode] <= key) {
+					break;
+				}
+				this.heap[pos] = parentNode;
+				this.position[parentNode] = pos;
+				pos = parent;
+			}
+			this.heap[pos] = node;
+			this.position[node] = pos;
+		}
+
+		private void siftDown(int pos) {
+			int node = this.heap[pos];
+			double key = this.keys[node];
+			while (true) {
+				int child = 2 * pos + 1;
+				if (child >= this.size) {
+					break;
+				}
+				if (child + 1 < this.size && this.keys[this.heap[child + 1]] < this.keys[this.heap[child]]) {
+					child++;
+				}
+				int childNode = this.heap[child];
+				if (this.keys[childNode] >= key) {
+					break;
+				}
+				this.heap[pos] = childNode;
+				this.position[childNode] = pos;
+				pos = child;
+			}
+			this.heap[pos] = node;
+			this.position[node] = pos;
+		}
+	}
+
+	private static final class IntStack {
+		private int[] values = new int[64];
+		private int size = 0;
+
+		void push(final int value) {
+			if (this.size == this.values.length) {
+				this.values = Arrays.copyOf(this.values, 2 * this.size);
+			}
+			this.values[this.size++] = value;
+		}
+
+		int pop() {
+			return this.values[--this.size];
+		}
+
+		void clear() {
+			this.size = 0;
+		}
+
+		/** reverses the order of the pairs of values on the stack. */
+		void reversePairs() {
+			for (int i = 0, j = this.size - 2; i < j; i += 2, j -= 2) {
+				int tail = this.values[i];
+				int arc = this.values[i + 1];
+				this.values[i] = this.values[j];
+				this.values[i + 1] = this.values[j + 1];
+				this.values[j] = tail;
+				this.values[j + 1] = arc;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,120 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates {@link ContractionHierarchies}. The contraction hierarchy of a network is only computed once, when the first
+ * calculator for it is requested, and shared by all calculators for this network. The customizations of the hierarchy
+ * are shared by all calculators for the same network and travel time, e.g. by the routers of the different threads,
+ * which each get their own travel disutility from the same factory. This assumes that calculators for the same network
+ * and travel time also use the same kind of travel disutility, which holds for the network routing of the controler,
+ * as it filters a network per mode. The customizations are reset at the start of every iteration, so that they are
+ * computed again from the travel times of the last iteration.
+ */
+@Singleton
+public class ContractionHierarchiesFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	/** the link costs are evaluated once per hour if no bin size is given. */
+	public static final double DEFAULT_CUSTOMIZATION_BIN_SIZE = 3600.0;
+
+	/*
+	 * The hierarchy refers to the links, which refer to their network, so a strongly referenced value would keep the
+	 * weak key alive. The soft reference lets networks which are no longer used be collected, at the latest when memory
+	 * gets short; calculators in use keep their hierarchy alive anyway.
+	 */
+	private final Map<Network, SoftReference<NetworkCustomizations>> customizations = new WeakHashMap<>();
+	private final AtomicInteger iteration = new AtomicInteger();
+	private final double binSize;
+
+	public ContractionHierarchiesFactory() {
+		this(DEFAULT_CUSTOMIZATION_BIN_SIZE);
+	}
+
+	@Inject
+	public ContractionHierarchiesFactory(final TravelTimeCalculatorConfigGroup travelTimeCalculatorConfigGroup) {
+		this(travelTimeCalculatorConfigGroup.getTraveltimeBinSize());
+	}
+
+	/**
+	 * @param binSize the length of the time bins, in seconds, for which the arc costs are computed. Should be the
+	 *                time bin size of the travel times, or a divisor of it.
+	 */
+	public ContractionHierarchiesFactory(final double binSize) {
+		if (binSize <= 0) {
+			throw new IllegalArgumentException("The customization bin size must be positive, but is " + binSize);
+		}
+		this.binSize = binSize;
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts,
+			final TravelTime travelTimes) {
+		return new ContractionHierarchies(getCustomization(network, travelTimes), travelCosts, travelTimes);
+	}
+
+	private synchronized ContractionHierarchies.Customization getCustomization(final Network network, final TravelTime travelTimes) {
+		SoftReference<NetworkCustomizations> ref = this.customizations.get(network);
+		NetworkCustomizations networkCustomizations = ref == null ? null : ref.get();
+		if (networkCustomizations == null) {
+			networkCustomizations = new NetworkCustomizations(ContractionHierarchy.create(network));
+			this.customizations.put(network, new SoftReference<>(networkCustomizations));
+		}
+		ContractionHierarchy hierarchy = networkCustomizations.hierarchy;
+		return networkCustomizations.perTravelTime.computeIfAbsent(travelTimes,
+				k -> new ContractionHierarchies.Customization(hierarchy, this.binSize, this.iteration::get));
+	}
+
+	/**
+	 * The travel times have changed in the last iteration, so the arc costs have to be computed again, also for the
+	 * calculators which already exist.
+	 */
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		this.iteration.incrementAndGet();
+	}
+
+	private static final class NetworkCustomizations {
+		private final ContractionHierarchy hierarchy;
+		private final Map<TravelTime, ContractionHierarchies.Customization> perTravelTime = new WeakHashMap<>();
+
+		NetworkCustomizations(final ContractionHierarchy hierarchy) {
+			this.hierarchy = hierarchy;
+		}
+	}
+
+}
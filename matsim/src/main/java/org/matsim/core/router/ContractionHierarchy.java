@@ -0,0 +1,444 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchy.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * The metric-independent part of a customizable contraction hierarchy, see {@link ContractionHierarchies}.
+ * <p></p>
+ * The nodes are ordered by a geometric nested dissection: the network is recursively split at the median coordinate,
+ * and the nodes along the cut are ranked higher than the nodes on both sides. Then the nodes are contracted in this
+ * order, without witness searches: contracting a node connects all its higher ranked neighbors with each other. The
+ * resulting upward graph is therefore correct for any link costs, so it only has to be computed once per network,
+ * while the costs of its arcs are computed anew for every {@link TravelDisutility}.
+ * <p></p>
+ * Nodes are identified by their rank. Every arc connects a lower ranked node with a higher ranked node and is used in
+ * both directions; it has the original links in both directions assigned, if there are any.
+ */
+final class ContractionHierarchy {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchy.class);
+
+	/** nodes are not dissected any further if at most this many are left. */
+	private static final int LEAF_SIZE = 2;
+
+	private final Node[] nodes;
+	/** indexed by the index of the node ids, -1 for nodes not in this network. */
+	private final int[] rankOfNode;
+	private final Link[] links;
+
+	/** arcs of node v are firstArc[v] until firstArc[v+1]-1, sorted by their head, which is always ranked higher. */
+	private final int[] firstArc;
+	private final int[] arcHead;
+
+	/** links from the lower to the higher node of arc a are upLinks[firstUpLink[a]] until upLinks[firstUpLink[a+1]-1]. */
+	private final int[] firstUpLink;
+	private final int[] upLinks;
+	/** links from the higher to the lower node of an arc, same structure as the up links. */
+	private final int[] firstDownLink;
+	private final int[] downLinks;
+
+	private ContractionHierarchy(final Node[] nodes, final int[] rankOfNode, final Link[] links, final int[] firstArc,
+			final int[] arcHead, final int[] firstUpLink, final int[] upLinks, final int[] firstDownLink, final int[] downLinks) {
+		this.nodes = nodes;
+		this.rankOfNode = rankOfNode;
+		this.links = links;
+		this.firstArc = firstArc;
+		this.arcHead = arcHead;
+		this.firstUpLink = firstUpLink;
+		this.upLinks = upLinks;
+		this.firstDownLink = firstDownLink;
+		this.downLinks = downLinks;
+	}
+
+	/*package*/ static ContractionHierarchy create(final Network network) {
+		long start = System.currentTimeMillis();
+		int numberOfNodes = network.getNodes().size();
+		Node[] nodes = network.getNodes().values().toArray(new Node[numberOfNodes]);
+		int[] indexOfNode = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(indexOfNode, -1);
+		for (int i = 0; i < numberOfNodes; i++) {
+			indexOfNode[nodes[i].getId().index()] = i;
+		}
+
+		// undirected adjacency of the network
+		Link[] links = network.getLinks().values().toArray(new Link[0]);
+		int[] degree = new int[numberOfNodes + 1];
+		for (Link link : links) {
+			int from = indexOfNode[link.getFromNode().getId().index()];
+			int to = indexOfNode[link.getToNode().getId().index()];
+			if (from != to) {
+				degree[from]++;
+				degree[to]++;
+			}
+		}
+		int[] firstNeighbor = new int[numberOfNodes + 1];
+		for (int i = 0; i < numberOfNodes; i++) {
+			firstNeighbor[i + 1] = firstNeighbor[i] + degree[i];
+		}
+		int[] neighbors = new int[firstNeighbor[numberOfNodes]];
+		int[] position = Arrays.copyOf(firstNeighbor, numberOfNodes);
+		for (Link link : links) {
+			int from = indexOfNode[link.getFromNode().getId().index()];
+			int to = indexOfNode[link.getToNode().getId().index()];
+			if (from != to) {
+				neighbors[position[from]++] = to;
+				neighbors[position[to]++] = from;
+			}
+		}
+
+		// node order
+		double[] x = new double[numberOfNodes];
+		double[] y = new double[numberOfNodes];
+		for (int i = 0; i < numberOfNodes; i++) {
+			Coord coord = nodes[i].getCoord();
+			x[i] = coord.getX();
+			y[i] = coord.getY();
+		}
+		int[] order = new int[numberOfNodes];
+		for (int i = 0; i < numberOfNodes; i++) {
+			order[i] = i;
+		}
+		new NestedDissection(x, y, firstNeighbor, neighbors).dissect(order, 0, numberOfNodes);
+		int[] rank = new int[numberOfNodes];
+		Node[] nodesByRank = new Node[numberOfNodes];
+		for (int r = 0; r < numberOfNodes; r++) {
+			rank[order[r]] = r;
+			nodesByRank[r] = nodes[order[r]];
+		}
+		int[] rankOfNode = new int[indexOfNode.length];
+		Arrays.fill(rankOfNode, -1);
+		for (int r = 0; r < numberOfNodes; r++) {
+			rankOfNode[nodesByRank[r].getId().index()] = r;
+		}
+
+		// contraction: the higher neighbors of a node become neighbors of its lowest higher neighbor
+		int[][] upper = new int[numberOfNodes][];
+		int[] upperSize = new int[numberOfNodes];
+		for (int i = 0; i < numberOfNodes; i++) {
+			int v = rank[i];
+			for (int n = firstNeighbor[i]; n < firstNeighbor[i + 1]; n++) {
+				int w = rank[neighbors[n]];
+				if (w > v) {
+					append(upper, upperSize, v, w);
+				}
+			}
+		}
+		int numberOfArcs = 0;
+		for (int v = 0; v < numberOfNodes; v++) {
+			if (upper[v] == null) {
+				upper[v] = new int[0];
+				continue;
+			}
+			int[] heads = upper[v];
+			Arrays.sort(heads, 0, upperSize[v]);
+			int size = 0;
+			for (int i = 0; i < upperSize[v]; i++) {
+				if (size == 0 || heads[size - 1] != heads[i]) {
+					heads[size++] = heads[i];
+				}
+			}
+			upper[v] = Arrays.copyOf(heads, size);
+			numberOfArcs += size;
+			if (size > 1) {
+				int parent = heads[0];
+				for (int i = 1; i < size; i++) {
+					append(upper, upperSize, parent, heads[i]);
+				}
+			}
+		}
+		int[] firstArc = new int[numberOfNodes + 1];
+		int[] arcHead = new int[numberOfArcs];
+		for (int v = 0; v < numberOfNodes; v++) {
+			System.arraycopy(upper[v], 0, arcHead, firstArc[v], upper[v].length);
+			firstArc[v + 1] = firstArc[v] + upper[v].length;
+			upper[v] = null;
+		}
+
+		// original links of the arcs
+		int[] upLinkCount = new int[numberOfArcs + 1];
+		int[] downLinkCount = new int[numberOfArcs + 1];
+		int[] arcOfLink = new int[links.length];
+		for (int l = 0; l < links.length; l++) {
+			int from = rankOfNode[links[l].getFromNode().getId().index()];
+			int to = rankOfNode[links[l].getToNode().getId().index()];
+			if (from == to) {
+				arcOfLink[l] = -1;
+				continue;
+			}
+			int arc = findArc(firstArc, arcHead, Math.min(from, to), Math.max(from, to));
+			arcOfLink[l] = arc;
+			if (from < to) {
+				upLinkCount[arc + 1]++;
+			} else {
+				downLinkCount[arc + 1]++;
+			}
+		}
+		for (int a = 0; a < numberOfArcs; a++) {
+			upLinkCount[a + 1] += upLinkCount[a];
+			downLinkCount[a + 1] += downLinkCount[a];
+		}
+		int[] upLinks = new int[upLinkCount[numberOfArcs]];
+		int[] downLinks = new int[downLinkCount[numberOfArcs]];
+		int[] upPosition = Arrays.copyOf(upLinkCount, numberOfArcs);
+		int[] downPosition = Arrays.copyOf(downLinkCount, numberOfArcs);
+		for (int l = 0; l < links.length; l++) {
+			int arc = arcOfLink[l];
+			if (arc < 0) {
+				continue;
+			}
+			if (rankOfNode[links[l].getFromNode().getId().index()] < rankOfNode[links[l].getToNode().getId().index()]) {
+				upLinks[upPosition[arc]++] = l;
+			} else {
+				downLinks[downPosition[arc]++] = l;
+			}
+		}
+
+		log.info("contraction hierarchy for " + numberOfNodes + " nodes and " + links.length + " links has " + numberOfArcs
+				+ " arcs, created in " + (System.currentTimeMillis() - start) + " ms.");
+		return new ContractionHierarchy(nodesByRank, rankOfNode, links, firstArc, arcHead, upLinkCount, upLinks,
+				downLinkCount, downLinks);
+	}
+
+	private static void append(final int[][] lists, final int[] sizes, final int list, final int value) {
+		if (lists[list] == null) {
+			lists[list] = new int[4];
+		} else if (sizes[list] == lists[list].length) {
+			lists[list] = Arrays.copyOf(lists[list], 2 * sizes[list]);
+		}
+		lists[list][sizes[list]++] = value;
+	}
+
+	private static int findArc(final int[] firstArc, final int[] arcHead, final int lower, final int higher) {
+		int arc = Arrays.binarySearch(arcHead, firstArc[lower], firstArc[lower + 1], higher);
+		return arc < 0 ? -1 : arc;
+	}
+
+	/**
+	 * @return the arc between the two nodes, or -1 if there is none.
+	 */
+	/*package*/ int findArc(final int lower, final int higher) {
+		return findArc(this.firstArc, this.arcHead, lower, higher);
+	}
+
+	/**
+	 * @return the rank of the node, or -1 if the node is not part of the network of this hierarchy.
+	 */
+	/*package*/ int getRank(final Node node) {
+		int index = node.getId().index();
+		if (index >= this.rankOfNode.length) {
+			return -1;
+		}
+		int rank = this.rankOfNode[index];
+		return rank >= 0 && this.nodes[rank] == node ? rank : -1;
+	}
+
+	/*package*/ Node getNode(final int rank) {
+		return this.nodes[rank];
+	}
+
+	/*package*/ int getNumberOfNodes() {
+		return this.nodes.length;
+	}
+
+	/*package*/ int getNumberOfArcs() {
+		return this.arcHead.length;
+	}
+
+	/*package*/ int getFirstArc(final int node) {
+		return this.firstArc[node];
+	}
+
+	/*package*/ int getArcHead(final int arc) {
+		return this.arcHead[arc];
+	}
+
+	/*package*/ Link getLink(final int link) {
+		return this.links[link];
+	}
+
+	/*package*/ int getFirstUpLink(final int arc) {
+		return this.firstUpLink[arc];
+	}
+
+	/*package*/ int getUpLink(final int i) {
+		return this.upLinks[i];
+	}
+
+	/*package*/ int getFirstDownLink(final int arc) {
+		return this.firstDownLink[arc];
+	}
+
+	/*package*/ int getDownLink(final int i) {
+		return this.downLinks[i];
+	}
+
+	/**
+	 * Recursive coordinate bisection. The nodes of one cell are stored consecutively in the order array; after
+	 * dissecting a cell, its separator is stored at the end of it, after the two parts, so the separator nodes get the
+	 * higher ranks.
+	 */
+	private static final class NestedDissection {
+		private final double[] x;
+		private final double[] y;
+		private final int[] firstNeighbor;
+		private final int[] neighbors;
+		private final int[] mark;
+		private int nextMark = 1;
+
+		NestedDissection(final double[] x, final double[] y, final int[] firstNeighbor, final int[] neighbors) {
+			this.x = x;
+			this.y = y;
+			this.firstNeighbor = firstNeighbor;
+			this.neighbors = neighbors;
+			this.mark = new int[x.length];
+		}
+
+		void dissect(final int[] order, final int from, final int to) {
+			if (to - from <= LEAF_SIZE) {
+				return;
+			}
+			double minX = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (int i = from; i < to; i++) {
+				int n = order[i];
+				minX = Math.min(minX, this.x[n]);
+				maxX = Math.max(maxX, this.x[n]);
+				minY = Math.min(minY, this.y[n]);
+				maxY = Math.max(maxY, this.y[n]);
+			}
+			double[] coord = maxX - minX >= maxY - minY ? this.x : this.y;
+			int middle = (from + to) >>> 1;
+			select(order, from, to - 1, middle, coord);
+
+			int markA = this.nextMark++;
+			int markB = this.nextMark++;
+			int markSeparator = this.nextMark++;
+			for (int i = from; i < middle; i++) {
+				this.mark[order[i]] = markA;
+			}
+			for (int i = middle; i < to; i++) {
+				this.mark[order[i]] = markB;
+			}
+			int boundaryA = countBoundary(order, from, middle, markB);
+			int boundaryB = countBoundary(order, middle, to, markA);
+			if (boundaryA <= boundaryB) {
+				markBoundary(order, from, middle, markB, markSeparator);
+			} else {
+				markBoundary(order, middle, to, markA, markSeparator);
+			}
+
+			// [part A, part B, separator]
+			int[] separator = new int[Math.min(boundaryA, boundaryB)];
+			int separatorSize = 0;
+			int next = from;
+			int endOfA = from;
+			for (int i = from; i < to; i++) {
+				int n = order[i];
+				if (this.mark[n] == markSeparator) {
+					separator[separatorSize++] = n;
+				} else {
+					order[next++] = n;
+					if (i < middle) {
+						endOfA = next;
+					}
+				}
+			}
+			System.arraycopy(separator, 0, order, next, separatorSize);
+			dissect(order, from, endOfA);
+			dissect(order, endOfA, next);
+		}
+
+		private int countBoundary(final int[] order, final int from, final int to, final int otherMark) {
+			int count = 0;
+			for (int i = from; i < to; i++) {
+				if (hasNeighborWithMark(order[i], otherMark)) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		private void markBoundary(final int[] order, final int from, final int to, final int otherMark, final int markSeparator) {
+			// first find all boundary nodes, then mark them, as marking changes what is a boundary node
+			int count = 0;
+			int[] boundary = new int[to - from];
+			for (int i = from; i < to; i++) {
+				if (hasNeighborWithMark(order[i], otherMark)) {
+					boundary[count++] = order[i];
+				}
+			}
+			for (int i = 0; i < count; i++) {
+				this.mark[boundary[i]] = markSeparator;
+			}
+		}
+
+		private boolean hasNeighborWithMark(final int node, final int otherMark) {
+			for (int n = this.firstNeighbor[node]; n < this.firstNeighbor[node + 1]; n++) {
+				if (this.mark[this.neighbors[n]] == otherMark) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/*
+		 * Rearranges order[left..right] such that the node at k has the k-th smallest coordinate, all before have
+		 * smaller or equal, all after larger or equal coordinates.
+		 */
+		private static void select(final int[] order, int left, int right, final int k, final double[] coord) {
+			while (right > left) {
+				double pivot = coord[order[(left + right) >>> 1]];
+				int i = left;
+				int j = right;
+				while (i <= j) {
+					while (coord[order[i]] < pivot) i++;
+					while (coord[order[j]] > pivot) j--;
+					if (i <= j) {
+						int tmp = order[i];
+						order[i] = order[j];
+						order[j] = tmp;
+						i++;
+						j--;
+					}
+				}
+				if (k <= j) {
+					right = j;
+				} else if (k >= i) {
+					left = i;
+				} else {
+					return;
+				}
+			}
+		}
+	}
+
+}
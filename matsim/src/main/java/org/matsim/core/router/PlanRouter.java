@@ -35,6 +35,7 @@ import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.router.TripStructureUtils.Trip;
 import org.matsim.facilities.ActivityFacilities;
 import org.matsim.facilities.FacilitiesUtils;
+import org.matsim.facilities.Facility;
 import org.matsim.vehicles.Vehicle;
 
 /**
@@ -87,16 +88,23 @@ public class PlanRouter implements PlanAlgorithm, PersonAlgorithm {
 	public void run(final Plan plan) {
 		final List<Trip> trips = TripStructureUtils.getTrips( plan );
 
+		final RouteCache routeCache = tripRouter.getRouteCache();
+
 		for (Trip oldTrip : trips) {
 			final String routingMode = TripStructureUtils.identifyMainMode( oldTrip.getTripElements() );
-			log.debug( "about to call TripRouter with routingMode=" + routingMode ) ;
-			final List<? extends PlanElement> newTrip =
-					tripRouter.calcRoute(
-							routingMode,
-						  FacilitiesUtils.toFacility( oldTrip.getOriginActivity(), facilities ),
-						  FacilitiesUtils.toFacility( oldTrip.getDestinationActivity(), facilities ),
-							calcEndOfActivity( oldTrip.getOriginActivity() , plan, tripRouter.getConfig() ),
-							plan.getPerson() );
+			final Facility fromFacility = FacilitiesUtils.toFacility( oldTrip.getOriginActivity(), facilities );
+			final Facility toFacility = FacilitiesUtils.toFacility( oldTrip.getDestinationActivity(), facilities );
+			final double departureTime = calcEndOfActivity( oldTrip.getOriginActivity() , plan, tripRouter.getConfig() );
+
+			List<? extends PlanElement> newTrip = routeCache == null ? null :
+					routeCache.getTrip( routingMode, fromFacility, toFacility, departureTime );
+			if ( newTrip == null ) {
+				log.debug( "about to call TripRouter with routingMode=" + routingMode ) ;
+				newTrip = tripRouter.calcRoute( routingMode, fromFacility, toFacility, departureTime, plan.getPerson() );
+				if ( routeCache != null ) {
+					routeCache.putTrip( routingMode, fromFacility, toFacility, departureTime, newTrip );
+				}
+			}
 			putVehicleFromOldTripIntoNewTripIfMeaningful(oldTrip, newTrip);
 			TripRouter.insertTrip(
 					plan, 
@@ -0,0 +1,269 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.facilities.Facility;
+
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+
+/**
+ * Keeps the routes calculated by the {@link PlanRouter} across iterations, so that a trip with the same mode, from and
+ * to link and departure time bin does not need to be routed again. At the start of every iteration, the routes using a
+ * link whose travel time changed by more than a threshold in the {@link TravelTimeCalculator} are removed, all other
+ * routes are still considered to be good enough.
+ * <p></p>
+ * The routes are shared by all persons, so this only makes sense if the routes do not depend on the person, e.g. without
+ * randomized routing. Only trips which consist of a single leg with a {@link NetworkRoute} are cached, as access and
+ * egress legs depend on the exact location of the facilities. The cache is disabled unless
+ * {@link PlansCalcRouteConfigGroup#setRouteCacheModes(Collection)} is set.
+ */
+public final class RouteCache implements IterationStartsListener, BeforeMobsimListener {
+	private static final Logger log = Logger.getLogger(RouteCache.class);
+
+	private final Set<String> modes;
+	private final int timeBinSize;
+	private final double travelTimeChangeThreshold;
+	private final Function<String, TravelTimeCalculator> travelTimeCalculators;
+
+	private final Map<CacheKey, Leg> legs = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private int invalidatedRoutes = 0;
+
+	@Inject
+	RouteCache(final PlansCalcRouteConfigGroup routeConfigGroup, final TravelTimeCalculatorConfigGroup travelTimeConfigGroup,
+			final Injector injector) {
+		// the travel time calculators are only looked up when needed, as there may be none outside of the controler
+		this(routeConfigGroup.getRouteCacheModes(), travelTimeConfigGroup.getTraveltimeBinSize(),
+				routeConfigGroup.getRouteCacheTravelTimeChangeThreshold(),
+				mode -> travelTimeConfigGroup.getSeparateModes() ?
+						injector.getInstance(Key.get(TravelTimeCalculator.class, Names.named(mode))) :
+						injector.getInstance(TravelTimeCalculator.class));
+	}
+
+	/**
+	 * @param modes the modes of the trips to cache.
+	 * @param timeBinSize the size of the departure time bins in seconds, typically the one of the travel times.
+	 * @param travelTimeChangeThreshold the relative change of a link travel time, above which the routes using this link
+	 * are removed at the start of the next iteration.
+	 * @param travelTimeCalculators provides the calculator of the travel times the routes of a mode are based on.
+	 */
+	public RouteCache(final Collection<String> modes, final int timeBinSize, final double travelTimeChangeThreshold,
+			final Function<String, TravelTimeCalculator> travelTimeCalculators) {
+		this.modes = new HashSet<>(modes);
+		this.timeBinSize = timeBinSize;
+		this.travelTimeChangeThreshold = travelTimeChangeThreshold;
+		this.travelTimeCalculators = travelTimeCalculators;
+	}
+
+	public boolean isEnabled() {
+		return !this.modes.isEmpty();
+	}
+
+	/**
+	 * @return a copy of the cached trip, or <code>null</code> if there is none for the given mode, locations and departure
+	 * time bin.
+	 */
+	public List<? extends PlanElement> getTrip(final String mode, final Facility fromFacility, final Facility toFacility,
+			final double departureTime) {
+		CacheKey key = createKey(mode, fromFacility, toFacility, departureTime);
+		if (key == null) {
+			return null;
+		}
+		Leg cachedLeg = this.legs.get(key);
+		if (cachedLeg == null) {
+			this.misses.increment();
+			return null;
+		}
+		this.hits.increment();
+		Leg leg = PopulationUtils.createLeg(cachedLeg);
+		leg.setDepartureTime(departureTime);
+		return Collections.singletonList(leg);
+	}
+
+	/**
+	 * Stores a copy of the trip if it can be cached.
+	 */
+	public void putTrip(final String mode, final Facility fromFacility, final Facility toFacility, final double departureTime,
+			final List<? extends PlanElement> trip) {
+		if (trip.size() != 1 || !(trip.get(0) instanceof Leg) || !(((Leg) trip.get(0)).getRoute() instanceof NetworkRoute)) {
+			return;
+		}
+		CacheKey key = createKey(mode, fromFacility, toFacility, departureTime);
+		if (key == null) {
+			return;
+		}
+		Leg leg = PopulationUtils.createLeg((Leg) trip.get(0));
+		// the vehicle belongs to the person the route was calculated for
+		((NetworkRoute) leg.getRoute()).setVehicleId(null);
+		this.legs.put(key, leg);
+	}
+
+	/**
+	 * Removes all routes using a link whose travel time changed by more than the threshold since the routes using it were
+	 * last removed (see {@link TravelTimeCalculator#getLinksWithChangedTravelTimes(double)}).
+	 */
+	public void invalidateChangedRoutes() {
+		// the modes may share one calculator, which only reports the changes at the first call
+		Map<TravelTimeCalculator, Set<Id<Link>>> changedLinksPerCalculator = new IdentityHashMap<>();
+		Map<String, Set<Id<Link>>> changedLinksPerMode = new HashMap<>();
+		int changedLinksCount = 0;
+		for (String mode : this.modes) {
+			TravelTimeCalculator calculator = this.travelTimeCalculators.apply(mode);
+			Set<Id<Link>> changedLinks = changedLinksPerCalculator.get(calculator);
+			if (changedLinks == null) {
+				changedLinks = calculator.getLinksWithChangedTravelTimes(this.travelTimeChangeThreshold);
+				changedLinksPerCalculator.put(calculator, changedLinks);
+				changedLinksCount += changedLinks.size();
+			}
+			changedLinksPerMode.put(mode, changedLinks);
+		}
+
+		int cachedRoutes = this.legs.size();
+		this.invalidatedRoutes = 0;
+		for (Iterator<Map.Entry<CacheKey, Leg>> iter = this.legs.entrySet().iterator(); iter.hasNext(); ) {
+			Map.Entry<CacheKey, Leg> e = iter.next();
+			Set<Id<Link>> changedLinks = changedLinksPerMode.get(e.getKey().mode);
+			if (usesAnyLink((NetworkRoute) e.getValue().getRoute(), changedLinks)) {
+				iter.remove();
+				this.invalidatedRoutes++;
+			}
+		}
+		log.info("route cache: " + changedLinksCount + " links changed their travel time by more than "
+				+ this.travelTimeChangeThreshold * 100 + "%, " + this.invalidatedRoutes + " of " + cachedRoutes
+				+ " cached routes were removed.");
+	}
+
+	private static boolean usesAnyLink(final NetworkRoute route, final Set<Id<Link>> links) {
+		if (links.isEmpty()) {
+			return false;
+		}
+		for (Id<Link> linkId : route.getLinkIds()) {
+			if (links.contains(linkId)) {
+				return true;
+			}
+		}
+		return links.contains(route.getEndLinkId());
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		invalidateChangedRoutes();
+		this.hits.reset();
+		this.misses.reset();
+	}
+
+	@Override
+	public void notifyBeforeMobsim(final BeforeMobsimEvent event) {
+		long hits = this.hits.sum();
+		long requests = hits + this.misses.sum();
+		double hitRate = requests == 0 ? 0.0 : 100.0 * hits / requests;
+		log.info("route cache in iteration " + event.getIteration() + ": " + hits + " of " + requests + " trips found in the cache ("
+				+ String.format("%.1f", hitRate) + "%), " + this.legs.size() + " cached routes.");
+	}
+
+	/** the number of trips found in the cache since the start of the current iteration. */
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	/** the number of cacheable trips not found in the cache since the start of the current iteration. */
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	/** the number of routes removed at the start of the current iteration. */
+	public int getInvalidatedRoutes() {
+		return this.invalidatedRoutes;
+	}
+
+	public int size() {
+		return this.legs.size();
+	}
+
+	private CacheKey createKey(final String mode, final Facility fromFacility, final Facility toFacility, final double departureTime) {
+		if (!this.modes.contains(mode) || fromFacility.getLinkId() == null || toFacility.getLinkId() == null) {
+			return null;
+		}
+		return new CacheKey(mode, fromFacility.getLinkId(), toFacility.getLinkId(), (int) (departureTime / this.timeBinSize));
+	}
+
+	private static final class CacheKey {
+		private final String mode;
+		private final Id<Link> fromLinkId;
+		private final Id<Link> toLinkId;
+		private final int timeBin;
+
+		CacheKey(String mode, Id<Link> fromLinkId, Id<Link> toLinkId, int timeBin) {
+			this.mode = mode;
+			this.fromLinkId = fromLinkId;
+			this.toLinkId = toLinkId;
+			this.timeBin = timeBin;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey other = (CacheKey) o;
+			return this.timeBin == other.timeBin && this.fromLinkId.equals(other.fromLinkId)
+					&& this.toLinkId.equals(other.toLinkId) && this.mode.equals(other.mode);
+		}
+
+		@Override
+		public int hashCode() {
+			return ((this.mode.hashCode() * 31 + this.fromLinkId.hashCode()) * 31 + this.toLinkId.hashCode()) * 31 + this.timeBin;
+		}
+	}
+
+}
@@ -62,6 +62,7 @@ public final class TripRouter implements MatsimExtensionPoint {
 
 	private final Map<String, RoutingModule> routingModules = new HashMap<>();
 	private final FallbackRoutingModule fallbackRoutingModule;
+	private final RouteCache routeCache;
 
 	private Config config;
 	// (I need the config in the PlanRouter to figure out activity end times. And since the PlanRouter is not
@@ -85,7 +86,7 @@ public final class TripRouter implements MatsimExtensionPoint {
 			return this ;
 		}
 		public TripRouter build() {
-			return new TripRouter( routingModuleProviders, config, fallbackRoutingModule ) ;
+			return new TripRouter( routingModuleProviders, config, fallbackRoutingModule, null ) ;
 		}
 	}
 
@@ -99,8 +100,9 @@ public final class TripRouter implements MatsimExtensionPoint {
 
 	@Inject
 	TripRouter( Map<String, Provider<RoutingModule>> routingModuleProviders, Config config,
-			FallbackRoutingModule fallbackRoutingModule ) {
+			FallbackRoutingModule fallbackRoutingModule, RouteCache routeCache ) {
 		this.fallbackRoutingModule = fallbackRoutingModule;
+		this.routeCache = routeCache;
 
 		for (Map.Entry<String, Provider<RoutingModule>> entry : routingModuleProviders.entrySet()) {
 			setRoutingModule(entry.getKey(), entry.getValue().get());
@@ -138,6 +140,13 @@ public final class TripRouter implements MatsimExtensionPoint {
 		return Collections.unmodifiableSet( routingModules.keySet() );
 	}
 
+	/**
+	 * @return the cache for the routes of the {@link PlanRouter}, or <code>null</code> if it is not enabled.
+	 */
+	/* package-private */ RouteCache getRouteCache() {
+		return this.routeCache != null && this.routeCache.isEnabled() ? this.routeCache : null;
+	}
+
 	// /////////////////////////////////////////////////////////////////////////
 	// Handling methods
 	// /////////////////////////////////////////////////////////////////////////
@@ -23,6 +23,7 @@
 package org.matsim.core.router;
 
 import com.google.inject.Key;
+import com.google.inject.Singleton;
 import com.google.inject.name.Names;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
@@ -75,5 +76,10 @@ public class TripRouterModule extends AbstractModule {
         }
 
         this.bind( FallbackRoutingModule.class ).to( FallbackRoutingModuleDefaultImpl.class ) ;
+
+        bind(RouteCache.class).in(Singleton.class);
+        if (!routeConfigGroup.getRouteCacheModes().isEmpty()) {
+            addControlerListenerBinding().to(RouteCache.class);
+        }
     }
 }
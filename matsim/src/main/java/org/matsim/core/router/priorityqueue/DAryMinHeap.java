@@ -0,0 +1,181 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DAryMinHeap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.Arrays;
+
+/**
+ * A d-ary min-heap of int elements in the range [0, capacity), typically node indices, with a double key each.
+ * <p></p>
+ * In contrast to the {@link BinaryMinHeap}, the elements are plain ints and the keys are stored in the heap itself, so
+ * neither adding nor removing elements creates any objects. The position of every element is stored, so its key can
+ * be decreased. With a degree of 4, the heap is flatter and sifting down touches fewer cache lines than with a binary
+ * heap.
+ */
+public final class DAryMinHeap {
+
+	private static final int DEFAULT_DEGREE = 4;
+
+	private final int degree;
+	private final int[] heap;
+	private final double[] keys;
+	/** position of every element in the heap, -1 if it is not contained. */
+	private final int[] positions;
+	private int size = 0;
+
+	public DAryMinHeap(final int capacity) {
+		this(capacity, DEFAULT_DEGREE);
+	}
+
+	public DAryMinHeap(final int capacity, final int degree) {
+		if (degree < 2) {
+			throw new IllegalArgumentException("The degree of the heap must be at least 2, but is " + degree);
+		}
+		this.degree = degree;
+		this.heap = new int[capacity];
+		this.keys = new double[capacity];
+		this.positions = new int[capacity];
+		Arrays.fill(this.positions, -1);
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public boolean contains(final int element) {
+		return this.positions[element] >= 0;
+	}
+
+	/**
+	 * Removes all elements. Takes time proportional to the number of elements in the heap, not its capacity.
+	 */
+	public void clear() {
+		for (int i = 0; i < this.size; i++) {
+			this.positions[this.heap[i]] = -1;
+		}
+		this.size = 0;
+	}
+
+	/**
+	 * Adds the element, which must not be contained yet.
+	 */
+	public void insert(final int element, final double key) {
+		int pos = this.size++;
+		this.keys[pos] = key;
+		this.heap[pos] = element;
+		this.positions[element] = pos;
+		siftUp(pos);
+	}
+
+	/**
+	 * Sets the key of the element to the given, smaller key. Adds the element if it is not contained.
+	 */
+	public void decreaseKey(final int element, final double key) {
+		int pos = this.positions[element];
+		if (pos < 0) {
+			insert(element, key);
+			return;
+		}
+		this.keys[pos] = key;
+		siftUp(pos);
+	}
+
+	/**
+	 * @return the element with the smallest key, without removing it.
+	 */
+	public int peek() {
+		return this.heap[0];
+	}
+
+	public double peekKey() {
+		return this.keys[0];
+	}
+
+	/**
+	 * Removes and returns the element with the smallest key, or -1 if the heap is empty.
+	 */
+	public int poll() {
+		if (this.size == 0) {
+			return -1;
+		}
+		int element = this.heap[0];
+		this.positions[element] = -1;
+		this.size--;
+		if (this.size > 0) {
+			this.heap[0] = this.heap[this.size];
+			this.keys[0] = this.keys[this.size];
+			this.positions[this.heap[0]] = 0;
+			siftDown(0);
+		}
+		return element;
+	}
+
+	private void siftUp(int pos) {
+		int element = this.heap[pos];
+		double key = this.keys[pos];
+		while (pos > 0) {
+			int parent = (pos - 1) / this.degree;
+			if (this.keys[parent] <= key) {
+				break;
+			}
+			this.heap[pos] = this.heap[parent];
+			this.keys[pos] = this.keys[parent];
+			this.positions[this.heap[pos]] = pos;
+			pos = parent;
+		}
+		this.heap[pos] = element;
+		this.keys[pos] = key;
+		this.positions[element] = pos;
+	}
+
+	private void siftDown(int pos) {
+		int element = this.heap[pos];
+		double key = this.keys[pos];
+		while (true) {
+			int firstChild = pos * this.degree + 1;
+			if (firstChild >= this.size) {
+				break;
+			}
+			int lastChild = Math.min(firstChild + this.degree, this.size);
+			int minChild = firstChild;
+			for (int child = firstChild + 1; child < lastChild; child++) {
+				if (this.keys[child] < this.keys[minChild]) {
+					minChild = child;
+				}
+			}
+			if (this.keys[minChild] >= key) {
+				break;
+			}
+			this.heap[pos] = this.heap[minChild];
+			this.keys[pos] = this.keys[minChild];
+			this.positions[this.heap[pos]] = pos;
+			pos = minChild;
+		}
+		this.heap[pos] = element;
+		this.keys[pos] = key;
+		this.positions[element] = pos;
+	}
+
+}
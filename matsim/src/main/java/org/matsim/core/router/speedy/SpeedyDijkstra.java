@@ -0,0 +1,167 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpeedyDijkstra.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.speedy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.DAryMinHeap;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Dijkstra's algorithm on a {@link SpeedyGraph}, finding the same routes as {@link org.matsim.core.router.Dijkstra}.
+ * <p></p>
+ * The labels of the nodes are kept in primitive arrays indexed by node: cost, time, the link the node was reached by,
+ * and the number of the query which set the label. Instead of resetting all labels before a query, the query number is
+ * increased, so every label with an older number counts as not yet visited. After the first query, routing does not
+ * create any objects except for the returned path.
+ * <p></p>
+ * The graph can be shared by any number of instances, while the labels belong to one instance. Thus, like the other
+ * routers, an instance must only be used by one thread at a time. Dead end pruning and mode restrictions are not
+ * supported; use a filtered network instead.
+ */
+public class SpeedyDijkstra implements LeastCostPathCalculator {
+
+	private final static Logger log = Logger.getLogger(SpeedyDijkstra.class);
+
+	private final SpeedyGraph graph;
+	private final TravelDisutility costFunction;
+	private final TravelTime timeFunction;
+
+	private final double[] costs;
+	private final double[] times;
+	/** position of the link in the graph by which the node was reached, -1 for the start node. */
+	private final int[] comingFrom;
+	private final int[] iterationIds;
+	private int currentIteration = 0;
+	private final DAryMinHeap pendingNodes;
+
+	public SpeedyDijkstra(final SpeedyGraph graph, final TravelDisutility costFunction, final TravelTime timeFunction) {
+		this.graph = graph;
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+		int size = graph.getNodeIndexCount();
+		this.costs = new double[size];
+		this.times = new double[size];
+		this.comingFrom = new int[size];
+		this.iterationIds = new int[size];
+		this.pendingNodes = new DAryMinHeap(size);
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person,
+			final Vehicle vehicle) {
+		if (!this.graph.contains(fromNode) || !this.graph.contains(toNode)) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "
+					+ getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+		int startNode = fromNode.getId().index();
+		int endNode = toNode.getId().index();
+
+		nextIteration();
+		this.pendingNodes.clear();
+		visit(startNode, 0.0, startTime, -1);
+		this.pendingNodes.insert(startNode, 0.0);
+
+		boolean found = false;
+		while (!this.pendingNodes.isEmpty()) {
+			int node = this.pendingNodes.poll();
+			if (node == endNode) {
+				found = true;
+				break;
+			}
+			relax(node, person, vehicle);
+		}
+
+		if (!found) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ".");
+			return null;
+		}
+		return constructPath(endNode, startTime);
+	}
+
+	private void nextIteration() {
+		this.currentIteration++;
+		if (this.currentIteration == Integer.MAX_VALUE) {
+			// after 2^31 routes, the old labels have to be reset once
+			Arrays.fill(this.iterationIds, 0);
+			this.currentIteration = 1;
+		}
+	}
+
+	private void visit(final int node, final double cost, final double time, final int link) {
+		this.iterationIds[node] = this.currentIteration;
+		this.costs[node] = cost;
+		this.times[node] = time;
+		this.comingFrom[node] = link;
+	}
+
+	private void relax(final int node, final Person person, final Vehicle vehicle) {
+		double currTime = this.times[node];
+		double currCost = this.costs[node];
+		int lastLink = this.graph.getFirstOutLink(node + 1);
+		for (int position = this.graph.getFirstOutLink(node); position < lastLink; position++) {
+			Link link = this.graph.getLink(position);
+			int toNode = this.graph.getToNode(position);
+			double travelTime = this.timeFunction.getLinkTravelTime(link, currTime, person, vehicle);
+			double newCost = currCost + this.costFunction.getLinkTravelDisutility(link, currTime, person, vehicle);
+			if (this.iterationIds[toNode] != this.currentIteration) {
+				visit(toNode, newCost, currTime + travelTime, position);
+				this.pendingNodes.insert(toNode, newCost);
+			} else if (newCost < this.costs[toNode]) {
+				visit(toNode, newCost, currTime + travelTime, position);
+				this.pendingNodes.decreaseKey(toNode, newCost);
+			} else if (newCost == this.costs[toNode] && this.pendingNodes.contains(toNode)) {
+				// same tie breaking as Dijkstra, so both find the same routes: prefer the link with the smaller id
+				int previous = this.comingFrom[toNode];
+				if (previous >= 0 && this.graph.getLink(previous).getId().compareTo(link.getId()) > 0) {
+					visit(toNode, newCost, currTime + travelTime, position);
+				}
+			}
+		}
+	}
+
+	private Path constructPath(final int endNode, final double startTime) {
+		List<Node> nodes = new ArrayList<>();
+		List<Link> links = new ArrayList<>();
+		nodes.add(this.graph.getNode(endNode));
+		int position = this.comingFrom[endNode];
+		while (position >= 0) {
+			Link link = this.graph.getLink(position);
+			links.add(link);
+			nodes.add(link.getFromNode());
+			position = this.comingFrom[link.getFromNode().getId().index()];
+		}
+		Collections.reverse(nodes);
+		Collections.reverse(links);
+		return new Path(nodes, links, this.times[endNode] - startTime, this.costs[endNode]);
+	}
+
+}
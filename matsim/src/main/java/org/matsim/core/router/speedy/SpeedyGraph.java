@@ -0,0 +1,122 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpeedyGraph.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.speedy;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * The topology of a network in primitive arrays, for routers which keep their node labels in arrays as well.
+ * <p></p>
+ * Nodes are identified by the index of their id, so no lookup is needed to find the start and end of a route. The
+ * outgoing links of a node are stored consecutively, in the iteration order of {@link Node#getOutLinks()}: the
+ * outgoing links of node n have the positions {@link #getFirstOutLink(int) getFirstOutLink(n)} until
+ * <code>getFirstOutLink(n+1)-1</code>. A graph is immutable once created, so one instance can be used by the routers of
+ * all threads.
+ */
+public final class SpeedyGraph {
+
+	private final Network network;
+	private final Node[] nodes;
+	/** indexed by node index, the last element marks the end of the links of the last node. */
+	private final int[] firstOutLink;
+	private final Link[] links;
+	private final int[] toNode;
+	private final int nodeCount;
+
+	public SpeedyGraph(final Network network) {
+		this.network = network;
+		int capacity = Id.getNumberOfIds(Node.class);
+		this.nodes = new Node[capacity];
+		int[] outLinkCount = new int[capacity];
+		for (Node node : network.getNodes().values()) {
+			int index = node.getId().index();
+			this.nodes[index] = node;
+			outLinkCount[index] = node.getOutLinks().size();
+		}
+		this.nodeCount = network.getNodes().size();
+		this.firstOutLink = new int[capacity + 1];
+		for (int i = 0; i < capacity; i++) {
+			this.firstOutLink[i + 1] = this.firstOutLink[i] + outLinkCount[i];
+		}
+		int linkCount = this.firstOutLink[capacity];
+		this.links = new Link[linkCount];
+		this.toNode = new int[linkCount];
+		for (Node node : network.getNodes().values()) {
+			int position = this.firstOutLink[node.getId().index()];
+			for (Link link : node.getOutLinks().values()) {
+				this.links[position] = link;
+				this.toNode[position] = link.getToNode().getId().index();
+				position++;
+			}
+		}
+	}
+
+	public Network getNetwork() {
+		return this.network;
+	}
+
+	/**
+	 * @return the number of node indices, which is larger than the number of nodes if not all node ids belong to the
+	 * 		network of this graph.
+	 */
+	public int getNodeIndexCount() {
+		return this.nodes.length;
+	}
+
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
+	public int getLinkCount() {
+		return this.links.length;
+	}
+
+	/**
+	 * @return the node with the given index, or <code>null</code> if it is not part of the network of this graph.
+	 */
+	public Node getNode(final int nodeIndex) {
+		return this.nodes[nodeIndex];
+	}
+
+	/**
+	 * @return whether the node is part of the network of this graph. Nodes of other networks with the same id are not.
+	 */
+	public boolean contains(final Node node) {
+		int index = node.getId().index();
+		return index < this.nodes.length && this.nodes[index] == node;
+	}
+
+	public int getFirstOutLink(final int nodeIndex) {
+		return this.firstOutLink[nodeIndex];
+	}
+
+	public Link getLink(final int linkPosition) {
+		return this.links[linkPosition];
+	}
+
+	public int getToNode(final int linkPosition) {
+		return this.toNode[linkPosition];
+	}
+
+}
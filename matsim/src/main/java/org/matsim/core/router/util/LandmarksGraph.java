@@ -0,0 +1,192 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LandmarksGraph.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.priorityqueue.DAryMinHeap;
+
+/**
+ * The network as seen by {@link PreProcessLandmarks}: nodes and links are numbered in the iteration order of the
+ * network, and the links are stored by their from and to node, so the distances to and from the landmarks can be
+ * computed on arrays.
+ */
+final class LandmarksGraph {
+
+	private final Node[] nodes;
+	private final Link[] links;
+	/** position of the nodes by the index of their id. */
+	private final int[] nodePositions;
+	private final int[] linkFrom;
+	private final int[] linkTo;
+	/** the out links of node n are outLinks[firstOutLink[n]] until outLinks[firstOutLink[n+1]-1]. */
+	private final int[] firstOutLink;
+	private final int[] outLinks;
+	private final int[] firstInLink;
+	private final int[] inLinks;
+	private final long topologyChecksum;
+
+	LandmarksGraph(final Network network) {
+		this.nodes = network.getNodes().values().toArray(new Node[0]);
+		this.links = network.getLinks().values().toArray(new Link[0]);
+		this.nodePositions = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(this.nodePositions, -1);
+		long checksum = 0xcbf29ce484222325L;
+		for (int i = 0; i < this.nodes.length; i++) {
+			this.nodePositions[this.nodes[i].getId().index()] = i;
+			checksum = hash(checksum, this.nodes[i].getId().toString());
+		}
+		int numberOfLinks = this.links.length;
+		this.linkFrom = new int[numberOfLinks];
+		this.linkTo = new int[numberOfLinks];
+		this.firstOutLink = new int[this.nodes.length + 1];
+		this.firstInLink = new int[this.nodes.length + 1];
+		for (int l = 0; l < numberOfLinks; l++) {
+			Link link = this.links[l];
+			this.linkFrom[l] = this.nodePositions[link.getFromNode().getId().index()];
+			this.linkTo[l] = this.nodePositions[link.getToNode().getId().index()];
+			this.firstOutLink[this.linkFrom[l] + 1]++;
+			this.firstInLink[this.linkTo[l] + 1]++;
+			checksum = hash(checksum, link.getId().toString());
+			checksum = hash(checksum, link.getFromNode().getId().toString());
+			checksum = hash(checksum, link.getToNode().getId().toString());
+		}
+		this.topologyChecksum = checksum;
+		for (int n = 0; n < this.nodes.length; n++) {
+			this.firstOutLink[n + 1] += this.firstOutLink[n];
+			this.firstInLink[n + 1] += this.firstInLink[n];
+		}
+		this.outLinks = new int[numberOfLinks];
+		this.inLinks = new int[numberOfLinks];
+		int[] outPosition = Arrays.copyOf(this.firstOutLink, this.nodes.length);
+		int[] inPosition = Arrays.copyOf(this.firstInLink, this.nodes.length);
+		for (int l = 0; l < numberOfLinks; l++) {
+			this.outLinks[outPosition[this.linkFrom[l]]++] = l;
+			this.inLinks[inPosition[this.linkTo[l]]++] = l;
+		}
+	}
+
+	/*
+	 * 64 bit FNV-1a, over the characters of the string and a separator.
+	 */
+	private static long hash(long hash, final String value) {
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= 0xffff;
+		hash *= 0x100000001b3L;
+		return hash;
+	}
+
+	/**
+	 * @return a checksum over the ids of the nodes and links and how they are connected, in their order in the network.
+	 * 		The attributes of the links are not part of it.
+	 */
+	long getTopologyChecksum() {
+		return this.topologyChecksum;
+	}
+
+	int getNodeCount() {
+		return this.nodes.length;
+	}
+
+	int getLinkCount() {
+		return this.links.length;
+	}
+
+	Node getNode(final int position) {
+		return this.nodes[position];
+	}
+
+	/**
+	 * @return the position of the node, or -1 if it is not part of the network.
+	 */
+	int getPosition(final Node node) {
+		int index = node.getId().index();
+		return index < this.nodePositions.length ? this.nodePositions[index] : -1;
+	}
+
+	double[] getLinkCosts(final TravelDisutility costFunction) {
+		double[] costs = new double[this.links.length];
+		for (int l = 0; l < costs.length; l++) {
+			costs[l] = costFunction.getLinkMinimumTravelDisutility(this.links[l]);
+		}
+		return costs;
+	}
+
+	/**
+	 * Computes the least costs from (<code>forward</code>) or to the landmark for all nodes.
+	 */
+	void computeDistances(final int landmark, final double[] linkCosts, final boolean forward, final double[] distances,
+			final DAryMinHeap heap) {
+		Arrays.fill(distances, Double.POSITIVE_INFINITY);
+		distances[landmark] = 0.0;
+		heap.clear();
+		heap.insert(landmark, 0.0);
+		propagate(linkCosts, forward, distances, heap);
+	}
+
+	/**
+	 * Updates the distances after the costs of the given links decreased. The distances need to satisfy
+	 * <code>distances[to] &lt;= distances[from] + cost</code> for all other links, which is the case for least costs
+	 * as well as after the costs of links increased.
+	 */
+	void decreaseDistances(final int[] decreasedLinks, final int count, final double[] linkCosts, final boolean forward,
+			final double[] distances, final DAryMinHeap heap) {
+		heap.clear();
+		for (int i = 0; i < count; i++) {
+			int link = decreasedLinks[i];
+			int tail = forward ? this.linkFrom[link] : this.linkTo[link];
+			int head = forward ? this.linkTo[link] : this.linkFrom[link];
+			double distance = distances[tail] + linkCosts[link];
+			if (distance < distances[head]) {
+				distances[head] = distance;
+				heap.decreaseKey(head, distance);
+			}
+		}
+		propagate(linkCosts, forward, distances, heap);
+	}
+
+	private void propagate(final double[] linkCosts, final boolean forward, final double[] distances, final DAryMinHeap heap) {
+		int[] first = forward ? this.firstOutLink : this.firstInLink;
+		int[] adjacentLinks = forward ? this.outLinks : this.inLinks;
+		int[] heads = forward ? this.linkTo : this.linkFrom;
+		while (!heap.isEmpty()) {
+			int node = heap.poll();
+			double distance = distances[node];
+			for (int i = first[node]; i < first[node + 1]; i++) {
+				int link = adjacentLinks[i];
+				int head = heads[link];
+				double newDistance = distance + linkCosts[link];
+				if (newDistance < distances[head]) {
+					distances[head] = newDistance;
+					heap.decreaseKey(head, newDistance);
+				}
+			}
+		}
+	}
+
+}
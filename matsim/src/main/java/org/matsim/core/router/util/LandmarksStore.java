@@ -0,0 +1,124 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LandmarksStore.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps the results of {@link PreProcessLandmarks}, so the distances to and from the landmarks do not have to be
+ * computed again for a network with the same nodes and links.
+ * <p></p>
+ * The results are identified by a checksum over the topology of the network, the type of the {@link TravelDisutility}
+ * and of the {@link Landmarker}, and the number of landmarks. They are kept in memory as long as there is enough of it,
+ * so networks which are filtered for several modes but end up the same are only preprocessed once. If a directory is
+ * given, the results are also written to it and read again in later runs. If the minimal link costs changed since the
+ * results were stored, {@link PreProcessLandmarks} updates them for the changed links only.
+ */
+public final class LandmarksStore {
+
+	private static final Logger log = Logger.getLogger(LandmarksStore.class);
+
+	private final Path directory;
+	private final Map<String, SoftReference<LandmarksTable>> tables = new HashMap<>();
+
+	/**
+	 * Creates a store that only keeps the results in memory.
+	 */
+	public LandmarksStore() {
+		this(null);
+	}
+
+	/**
+	 * @param directory where the results are written to and read from, or <code>null</code> to keep them in memory only.
+	 */
+	public LandmarksStore(final String directory) {
+		this.directory = directory == null ? null : Paths.get(directory);
+	}
+
+	/*package*/ static String createKey(final LandmarksGraph graph, final TravelDisutility costFunction,
+			final Landmarker landmarker, final int landmarkCount) {
+		String key = String.format("%016x", graph.getTopologyChecksum()) + "_" + costFunction.getClass().getName() + "_"
+				+ landmarker.getClass().getName() + "_" + landmarkCount;
+		return key.replaceAll("[^A-Za-z0-9._-]", "_");
+	}
+
+	/**
+	 * @return the stored table, or <code>null</code> if there is none. The returned table must not be modified.
+	 */
+	/*package*/ synchronized LandmarksTable get(final String key) {
+		SoftReference<LandmarksTable> reference = this.tables.get(key);
+		LandmarksTable table = reference == null ? null : reference.get();
+		if (table != null || this.directory == null) {
+			return table;
+		}
+		Path file = getFile(key);
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		log.info("reading landmarks from " + file);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			table = LandmarksTable.read(in);
+		} catch (IOException e) {
+			log.warn("could not read landmarks from " + file + ", they will be computed again: " + e.getMessage());
+			return null;
+		}
+		this.tables.put(key, new SoftReference<>(table));
+		return table;
+	}
+
+	/*package*/ synchronized void put(final String key, final LandmarksTable table) {
+		this.tables.put(key, new SoftReference<>(table));
+		if (this.directory == null) {
+			return;
+		}
+		Path file = getFile(key);
+		log.info("writing landmarks to " + file);
+		try {
+			Files.createDirectories(this.directory);
+			// write to a temporary file first, so other runs never read a partially written file
+			Path tmpFile = Files.createTempFile(this.directory, "landmarks", ".tmp");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+				table.write(out);
+			}
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			log.warn("could not write landmarks to " + file + ": " + e.getMessage());
+		}
+	}
+
+	private Path getFile(final String key) {
+		return this.directory.resolve("landmarks_" + key + ".bin");
+	}
+
+}
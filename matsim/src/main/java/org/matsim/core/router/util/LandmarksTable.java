@@ -0,0 +1,128 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LandmarksTable.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The result of the landmark preprocessing for one network, see {@link LandmarksStore}. Nodes and links are identified
+ * by their position in the {@link LandmarksGraph}.
+ */
+final class LandmarksTable {
+
+	private static final int MAGIC = 0x4c4d4b53; // "LMKS"
+	private static final int FILE_FORMAT_VERSION = 1;
+
+	final long topologyChecksum;
+	final int[] landmarks;
+	/** the link costs the distances were computed with. */
+	final double[] linkCosts;
+	/** [landmark][node] */
+	final double[][] fromLandmark;
+	final double[][] toLandmark;
+
+	LandmarksTable(final long topologyChecksum, final int[] landmarks, final double[] linkCosts, final double[][] fromLandmark,
+			final double[][] toLandmark) {
+		this.topologyChecksum = topologyChecksum;
+		this.landmarks = landmarks;
+		this.linkCosts = linkCosts;
+		this.fromLandmark = fromLandmark;
+		this.toLandmark = toLandmark;
+	}
+
+	/**
+	 * @return a copy with the given link costs and copies of the distances, which can be updated independently.
+	 */
+	LandmarksTable copy(final double[] newLinkCosts) {
+		double[][] from = new double[this.landmarks.length][];
+		double[][] to = new double[this.landmarks.length][];
+		for (int i = 0; i < this.landmarks.length; i++) {
+			from[i] = this.fromLandmark[i].clone();
+			to[i] = this.toLandmark[i].clone();
+		}
+		return new LandmarksTable(this.topologyChecksum, this.landmarks.clone(), newLinkCosts, from, to);
+	}
+
+	boolean fits(final LandmarksGraph graph) {
+		return this.topologyChecksum == graph.getTopologyChecksum() && this.linkCosts.length == graph.getLinkCount()
+				&& (this.landmarks.length == 0 || this.fromLandmark[0].length == graph.getNodeCount());
+	}
+
+	void write(final DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(FILE_FORMAT_VERSION);
+		out.writeLong(this.topologyChecksum);
+		out.writeInt(this.landmarks.length);
+		int nodeCount = this.landmarks.length == 0 ? 0 : this.fromLandmark[0].length;
+		out.writeInt(nodeCount);
+		out.writeInt(this.linkCosts.length);
+		for (int landmark : this.landmarks) {
+			out.writeInt(landmark);
+		}
+		for (double cost : this.linkCosts) {
+			out.writeDouble(cost);
+		}
+		for (int i = 0; i < this.landmarks.length; i++) {
+			for (double distance : this.fromLandmark[i]) {
+				out.writeDouble(distance);
+			}
+			for (double distance : this.toLandmark[i]) {
+				out.writeDouble(distance);
+			}
+		}
+	}
+
+	static LandmarksTable read(final DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("not a landmarks file");
+		}
+		int version = in.readInt();
+		if (version != FILE_FORMAT_VERSION) {
+			throw new IOException("unsupported landmarks file version " + version);
+		}
+		long topologyChecksum = in.readLong();
+		int landmarkCount = in.readInt();
+		int nodeCount = in.readInt();
+		int linkCount = in.readInt();
+		int[] landmarks = new int[landmarkCount];
+		for (int i = 0; i < landmarkCount; i++) {
+			landmarks[i] = in.readInt();
+		}
+		double[] linkCosts = new double[linkCount];
+		for (int l = 0; l < linkCount; l++) {
+			linkCosts[l] = in.readDouble();
+		}
+		double[][] from = new double[landmarkCount][nodeCount];
+		double[][] to = new double[landmarkCount][nodeCount];
+		for (int i = 0; i < landmarkCount; i++) {
+			for (int n = 0; n < nodeCount; n++) {
+				from[i][n] = in.readDouble();
+			}
+			for (int n = 0; n < nodeCount; n++) {
+				to[i][n] = in.readDouble();
+			}
+		}
+		return new LandmarksTable(topologyChecksum, landmarks, linkCosts, from, to);
+	}
+
+}
@@ -21,18 +21,17 @@
 package org.matsim.core.router.util;
 
 import org.apache.log4j.Logger;
-import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
-import org.matsim.core.api.internal.MatsimComparator;
+import org.matsim.core.router.priorityqueue.DAryMinHeap;
 
 import java.awt.geom.Rectangle2D;
-import java.util.Comparator;
-import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 
 /**
  * Pre-processes a given network, gathering information which can be used by
@@ -53,6 +52,11 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	
 	private int numberOfThreads = 8;
 
+	private LandmarksStore landmarksStore = null;
+
+	/** if the costs of more links changed, a stored table is not updated but calculated again. */
+	private static final double MAX_CHANGED_LINKS_SHARE_FOR_UPDATE = 0.05;
+
 	private static final Logger log = Logger.getLogger(PreProcessLandmarks.class);
 
 	public PreProcessLandmarks(final TravelDisutility costFunction) {
@@ -83,6 +87,14 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		this.numberOfThreads = numberOfThreads;
 	}
 	
+	/**
+	 * Sets the store where the distances to and from the landmarks are looked up before they are calculated, and
+	 * put after they have been calculated. By default, there is no store.
+	 */
+	public void setLandmarksStore(LandmarksStore landmarksStore) {
+		this.landmarksStore = landmarksStore;
+	}
+
 	/**
 	 * @param costFunction
 	 * @param travelZone The area within which the landmarks should lie. Narrowing the zone where the landmarks should
@@ -108,49 +120,40 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	@Override
 	public void run(final Network network) {
 		super.run(network);
-		
-		log.info("Putting landmarks on network...");
-		long now = System.currentTimeMillis();
-		landmarks = landmarker.identifyLandmarks( landmarkCount , network );
-		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
 
-		log.info("Initializing landmarks data");
-		for (Node node : network.getNodes().values()) {
-			this.nodeData.put(node, new LandmarksData(this.landmarkCount));
-		}
-		
-		int nOfThreads = this.numberOfThreads;
-		if (nOfThreads > this.landmarks.length) {
-			nOfThreads = this.landmarks.length;
+		long now = System.currentTimeMillis();
+		LandmarksGraph graph = new LandmarksGraph(network);
+		double[] linkCosts = graph.getLinkCosts(this.costFunction);
+		String key = null;
+		LandmarksTable table = null;
+		if (this.landmarksStore != null) {
+			key = LandmarksStore.createKey(graph, this.costFunction, this.landmarker, this.landmarkCount);
+			LandmarksTable storedTable = this.landmarksStore.get(key);
+			if (storedTable != null && storedTable.fits(graph)) {
+				table = updateLandmarksTable(graph, storedTable, linkCosts);
+			}
 		}
-		if (nOfThreads < 2) {
-			nOfThreads = 2; // always use at least two threads
+		if (table == null) {
+			table = calculateLandmarksTable(graph, network, linkCosts);
+			if (this.landmarksStore != null) {
+				this.landmarksStore.put(key, table);
+			}
 		}
- 		log.info("Calculating distance from each node to each of the " + this.landmarkCount + " landmarks using " + nOfThreads + " threads...");
-		now = System.currentTimeMillis();
 
-		
-		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
+		this.landmarks = new Node[table.landmarks.length];
 		for (int i = 0; i < this.landmarks.length; i++) {
-			executor.execute(new Calculator(i, this.landmarks[i], this.nodeData, this.costFunction));
-		}
-		executor.shutdown();
-		while (!executor.isTerminated()) {
-			log.info("wait for landmarks Calculator to finish...");
-			try {
-				executor.awaitTermination(10, TimeUnit.MINUTES);
-			} catch (InterruptedException e) {
-				throw new RuntimeException(e);
-			}
+			this.landmarks[i] = graph.getNode(table.landmarks[i]);
 		}
 
-		for (Node node : network.getNodes().values()) {
-			LandmarksData r = getNodeData(node);
+		for (int n = 0; n < graph.getNodeCount(); n++) {
+			Node node = graph.getNode(n);
+			LandmarksData r = new LandmarksData(this.landmarkCount);
+			for (int i = 0; i < this.landmarks.length; i++) {
+				r.setFromLandmarkTravelTime(i, table.fromLandmark[i][n]);
+				r.setToLandmarkTravelTime(i, table.toLandmark[i][n]);
+			}
 			r.updateMinMaxTravelTimes();
-		}
-
-		for (Node node : network.getNodes().values()) {
-			LandmarksData r = getNodeData(node);
+			this.nodeData.put(node, r);
 			for (int i = 0; i < this.landmarks.length; i++) {
 				if (r.getMinLandmarkTravelTime(i) > r.getMaxLandmarkTravelTime(i)) {
 					log.info("Min > max for node " + node.getId() + " and landmark " + i);
@@ -161,75 +164,102 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
 	}
 
-	private static class Calculator implements Runnable {
-		
-		private final int landmarkIdx;
-		private final Node landmark;
-		private final Map<Node, DeadEndData> nodeData;
-		private final TravelDisutility costFunction;
-		
-		public Calculator(final int landmarkIdx, final Node landmark, final Map<Node, DeadEndData> nodeData, final TravelDisutility costFunction) {
-			this.landmarkIdx = landmarkIdx;
-			this.landmark = landmark;
-			this.nodeData = nodeData;
-			this.costFunction = costFunction;
-		}
-		
-		@Override
-		public void run() {
-			expandLandmarkFrom();
-			expandLandmarkTo();
+	private LandmarksTable calculateLandmarksTable(final LandmarksGraph graph, final Network network, final double[] linkCosts) {
+		log.info("Putting landmarks on network...");
+		long now = System.currentTimeMillis();
+		Node[] landmarkNodes = landmarker.identifyLandmarks( landmarkCount , network );
+		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+
+		int[] landmarkPositions = new int[landmarkNodes.length];
+		for (int i = 0; i < landmarkNodes.length; i++) {
+			landmarkPositions[i] = graph.getPosition(landmarkNodes[i]);
 		}
-	
-		private void expandLandmarkFrom() {
-			LandmarksFromTravelTimeComparator comparator = new LandmarksFromTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
-			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double fromTravTime = ((LandmarksData) this.nodeData.get(node)).getFromLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getOutLinks().values()) {
-					Node n;
-					n = l.getToNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = fromTravTime + linkTravTime;
-					if (role2.getFromLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setFromLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
-					}
+		double[][] fromLandmark = new double[landmarkNodes.length][graph.getNodeCount()];
+		double[][] toLandmark = new double[landmarkNodes.length][graph.getNodeCount()];
+
+		int nOfThreads = getNumberOfThreads(landmarkNodes.length);
+		log.info("Calculating distance from each node to each of the " + this.landmarkCount + " landmarks using " + nOfThreads + " threads...");
+		runForEachLandmark(landmarkNodes.length, nOfThreads, graph.getNodeCount(), (i, heap) -> {
+			graph.computeDistances(landmarkPositions[i], linkCosts, true, fromLandmark[i], heap);
+			graph.computeDistances(landmarkPositions[i], linkCosts, false, toLandmark[i], heap);
+		});
+		return new LandmarksTable(graph.getTopologyChecksum(), landmarkPositions, linkCosts, fromLandmark, toLandmark);
+	}
+
+	/**
+	 * Updates the distances of a stored table for the current link costs. If the cost of a link increased, the stored
+	 * distances are still lower bounds for the least costs and are kept, so only decreased link costs need to be
+	 * propagated. If the costs of many links changed, the table is calculated again, as the bounds would get loose.
+	 *
+	 * @return the updated table, or <code>null</code> if it should be calculated again.
+	 */
+	private LandmarksTable updateLandmarksTable(final LandmarksGraph graph, final LandmarksTable storedTable, final double[] linkCosts) {
+		int[] decreasedLinks = new int[linkCosts.length];
+		int decreasedCount = 0;
+		int changedCount = 0;
+		for (int l = 0; l < linkCosts.length; l++) {
+			if (linkCosts[l] != storedTable.linkCosts[l]) {
+				changedCount++;
+				if (linkCosts[l] < storedTable.linkCosts[l]) {
+					decreasedLinks[decreasedCount++] = l;
 				}
 			}
 		}
+		if (changedCount == 0) {
+			log.info("Using the stored landmarks, as the link costs did not change.");
+			return storedTable;
+		}
+		if (changedCount > MAX_CHANGED_LINKS_SHARE_FOR_UPDATE * linkCosts.length) {
+			log.info("The costs of " + changedCount + " links changed since the landmarks were stored, calculating them again.");
+			return null;
+		}
+		log.info("Updating the stored landmarks, as the costs of " + changedCount + " links changed, "
+				+ decreasedCount + " of them decreased.");
+		LandmarksTable table = storedTable.copy(linkCosts);
+		int count = decreasedCount;
+		runForEachLandmark(table.landmarks.length, getNumberOfThreads(table.landmarks.length), graph.getNodeCount(), (i, heap) -> {
+			graph.decreaseDistances(decreasedLinks, count, linkCosts, true, table.fromLandmark[i], heap);
+			graph.decreaseDistances(decreasedLinks, count, linkCosts, false, table.toLandmark[i], heap);
+		});
+		return table;
+	}
 
-		private void expandLandmarkTo() {
-			LandmarksToTravelTimeComparator comparator = new LandmarksToTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
-			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double toTravTime = ((LandmarksData) this.nodeData.get(node)).getToLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getInLinks().values()) {
-					Node n = l.getFromNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = toTravTime + linkTravTime;
-					if (role2.getToLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setToLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
-					}
-				}
+	private int getNumberOfThreads(final int numberOfLandmarks) {
+		int nOfThreads = this.numberOfThreads;
+		if (nOfThreads > numberOfLandmarks) {
+			nOfThreads = numberOfLandmarks;
+		}
+		if (nOfThreads < 2) {
+			nOfThreads = 2; // always use at least two threads
+		}
+		return nOfThreads;
+	}
+
+	private interface LandmarkTask {
+		void run(int landmarkIndex, DAryMinHeap heap);
+	}
+
+	private static void runForEachLandmark(final int numberOfLandmarks, final int nOfThreads, final int nodeCount, final LandmarkTask task) {
+		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
+		// one heap per thread, as they are large for big networks
+		ThreadLocal<DAryMinHeap> heaps = ThreadLocal.withInitial(() -> new DAryMinHeap(nodeCount));
+		List<Future<?>> futures = new ArrayList<>(numberOfLandmarks);
+		for (int i = 0; i < numberOfLandmarks; i++) {
+			int landmarkIndex = i;
+			futures.add(executor.submit(() -> task.run(landmarkIndex, heaps.get())));
+		}
+		executor.shutdown();
+		try {
+			for (Future<?> future : futures) {
+				future.get();
 			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			executor.shutdownNow();
+			throw new RuntimeException(e.getCause());
 		}
-	
 	}
 
 	public Node[] getLandmarks() {
@@ -307,66 +337,4 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		}
 	}
 
-    /**
-	 * Sorts the Nodes ascending according to their ToLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
-	 */
-	private static class LandmarksToTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-
-		protected LandmarksToTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
-		}
-
-		@Override
-		public int compare(final Node n1, final Node n2) {
-
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getToLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getToLandmarkTravelTime(this.landmarkIndex);
-
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
-			}
-			return n1.getId().compareTo(n2.getId());
-		}
-	}
-
-	/**
-	 * Sorts the Nodes ascending according to their FromLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
-	 */
-	private static class LandmarksFromTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-		
-		protected LandmarksFromTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
-		}
-		
-		@Override
-		public int compare(final Node n1, final Node n2) {
-			
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getFromLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getFromLandmarkTravelTime(this.landmarkIndex);
-			
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
-			}
-			return n1.getId().compareTo(n2.getId());
-		}
-	}
-	
 }
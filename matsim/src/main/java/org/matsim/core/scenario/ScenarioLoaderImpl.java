@@ -49,7 +49,10 @@ import org.matsim.utils.objectattributes.attributable.Attributable;
 import org.matsim.vehicles.MatsimVehicleReader;
 
 
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
 
 import static org.matsim.core.config.groups.PlansConfigGroup.PERSON_ATTRIBUTES_DEPRECATION_MESSAGE;
@@ -110,11 +113,20 @@ class ScenarioLoaderImpl {
 //		log.info("loading scenario from base directory: " + currentDir);
 		// the above is not used and thus only causing confusion in the log output.  kai, sep'18
 
-		this.loadNetwork();
-		this.loadActivityFacilities();
-		this.loadPopulation();
+		URL snapshotUrl = getScenarioSnapshotUrl();
+		boolean loadFromSnapshot = snapshotUrl != null && isScenarioSnapshotUpToDate(snapshotUrl);
+		if (loadFromSnapshot) {
+			this.loadScenarioSnapshot(snapshotUrl);
+			this.loadNetworkChangeEvents();
+		} else {
+			this.loadNetwork();
+			this.loadActivityFacilities();
+			this.loadPopulation();
+		}
 		this.loadHouseholds(); // tests internally if the file is there
-		this.loadTransit(); // tests internally if the file is there
+		if (!loadFromSnapshot) {
+			this.loadTransit(); // tests internally if the file is there
+		}
 		this.loadTransitVehicles(); // tests internally if the file is there
 		if (this.config.vehicles().getVehiclesFile()!=null ) {
 			this.loadVehicles() ;
@@ -122,9 +134,103 @@ class ScenarioLoaderImpl {
 		if (this.config.network().getLaneDefinitionsFile()!=null ) {
 			this.loadLanes();
 		}
+		if (snapshotUrl != null && !loadFromSnapshot && "file".equals(snapshotUrl.getProtocol())) {
+			this.writeScenarioSnapshot(snapshotUrl);
+		}
 		return this.scenario;
 	}
 
+	private URL getScenarioSnapshotUrl() {
+		String snapshotFile = this.config.controler().getScenarioSnapshotFile();
+		return snapshotFile == null ? null : ConfigGroup.getInputFileURL(this.config.getContext(), snapshotFile);
+	}
+
+	/**
+	 * Checks that the snapshot exists and that none of the xml files it replaces changed since it was written, so that
+	 * a stale snapshot is replaced instead of silently running an outdated scenario.
+	 */
+	private boolean isScenarioSnapshotUpToDate(URL snapshotUrl) {
+		if ("file".equals(snapshotUrl.getProtocol())) {
+			try {
+				if (!Files.exists(Paths.get(snapshotUrl.toURI()))) {
+					return false;
+				}
+			} catch (URISyntaxException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		List<ScenarioSnapshotFormat.InputFile> recordedInputFiles = ScenarioSnapshotReader.readInputFiles(snapshotUrl);
+		if (recordedInputFiles.isEmpty()) {
+			log.warn("scenario snapshot " + snapshotUrl + " does not record the xml files it was created from, thus it is used without checking whether they changed.");
+			return true;
+		}
+		List<ScenarioSnapshotFormat.InputFile> inputFiles = getScenarioSnapshotInputFiles();
+		if (!recordedInputFiles.equals(inputFiles)) {
+			log.warn("the xml files changed since scenario snapshot " + snapshotUrl + " was written, they are loaded instead. Snapshot: "
+					+ recordedInputFiles + ", now: " + inputFiles);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the xml files whose content is stored in the snapshot, in a fixed order.
+	 */
+	private List<ScenarioSnapshotFormat.InputFile> getScenarioSnapshotInputFiles() {
+		List<URL> urls = new ArrayList<>();
+		if (this.config.network().getInputFile() != null) {
+			urls.add(this.config.network().getInputFileURL(this.config.getContext()));
+		}
+		if (this.config.facilities().getInputFile() != null) {
+			urls.add(this.config.facilities().getInputFileURL(this.config.getContext()));
+		}
+		if (this.config.facilities().getInputFacilitiesAttributesFile() != null) {
+			urls.add(ConfigGroup.getInputFileURL(this.config.getContext(), this.config.facilities().getInputFacilitiesAttributesFile()));
+		}
+		if (this.config.plans().getInputFile() != null) {
+			urls.add(this.config.plans().getInputFileURL(this.config.getContext()));
+		}
+		if (this.config.plans().getInputPersonAttributeFile() != null) {
+			urls.add(this.config.plans().getInputPersonAttributeFileURL(this.config.getContext()));
+		}
+		if (this.config.transit().getTransitScheduleFile() != null) {
+			urls.add(this.config.transit().getTransitScheduleFileURL(this.config.getContext()));
+		}
+		if (this.config.transit().getTransitLinesAttributesFile() != null) {
+			urls.add(IOUtils.extendUrl(this.config.getContext(), this.config.transit().getTransitLinesAttributesFile()));
+		}
+		if (this.config.transit().getTransitStopsAttributesFile() != null) {
+			urls.add(IOUtils.extendUrl(this.config.getContext(), this.config.transit().getTransitStopsAttributesFile()));
+		}
+		List<ScenarioSnapshotFormat.InputFile> inputFiles = new ArrayList<>(urls.size());
+		for (URL url : urls) {
+			inputFiles.add(ScenarioSnapshotFormat.InputFile.of(url));
+		}
+		return inputFiles;
+	}
+
+	/**
+	 * Loads the network, facilities, population and transit schedule from the binary snapshot instead of their xml files.
+	 */
+	private void loadScenarioSnapshot(URL snapshotUrl) {
+		log.info("loading network, facilities, population and transit schedule from scenario snapshot " + snapshotUrl);
+		ScenarioSnapshotReader reader = new ScenarioSnapshotReader(this.scenario);
+		reader.putAttributeConverters(attributeConverters);
+		reader.readURL(snapshotUrl);
+		PopulationUtils.printPlansCount(this.scenario.getPopulation()) ;
+	}
+
+	private void writeScenarioSnapshot(URL snapshotUrl) {
+		try {
+			ScenarioSnapshotWriter writer = new ScenarioSnapshotWriter(this.scenario);
+			writer.putAttributeConverters(attributeConverters);
+			writer.setInputFiles(getScenarioSnapshotInputFiles());
+			writer.write(Paths.get(snapshotUrl.toURI()).toString());
+		} catch (URISyntaxException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * Loads the network into the scenario of this class
 	 */
@@ -142,14 +248,18 @@ class ScenarioLoaderImpl {
             reader.putAttributeConverters( attributeConverters );
             reader.parse(networkUrl);
 
-			if ((this.config.network().getChangeEventsInputFile()!= null) && this.config.network().isTimeVariantNetwork()) {
-				log.info("loading network change events from " + this.config.network().getChangeEventsInputFileUrl(this.config.getContext()).getFile());
-				Network network = this.scenario.getNetwork();
-				List<NetworkChangeEvent> changeEvents = new ArrayList<>() ;
-				NetworkChangeEventsParser parser = new NetworkChangeEventsParser(network,changeEvents);
-				parser.parse(this.config.network().getChangeEventsInputFileUrl(config.getContext()));
-				NetworkUtils.setNetworkChangeEvents(network,changeEvents);
-			}
+			this.loadNetworkChangeEvents();
+		}
+	}
+
+	private void loadNetworkChangeEvents() {
+		if ((this.config.network().getChangeEventsInputFile()!= null) && this.config.network().isTimeVariantNetwork()) {
+			log.info("loading network change events from " + this.config.network().getChangeEventsInputFileUrl(this.config.getContext()).getFile());
+			Network network = this.scenario.getNetwork();
+			List<NetworkChangeEvent> changeEvents = new ArrayList<>() ;
+			NetworkChangeEventsParser parser = new NetworkChangeEventsParser(network,changeEvents);
+			parser.parse(this.config.network().getChangeEventsInputFileUrl(config.getContext()));
+			NetworkUtils.setNetworkChangeEvents(network,changeEvents);
 		}
 	}
 
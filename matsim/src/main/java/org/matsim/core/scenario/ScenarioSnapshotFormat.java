@@ -0,0 +1,362 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ScenarioSnapshotFormat.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scenario;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Defines the binary scenario snapshot format, see {@link ScenarioSnapshotWriter}.
+ * <p></p>
+ * A snapshot starts with {@link #MAGIC}, the format version and the {@link InputFile}s it was created from, followed by sections for the network, the facilities,
+ * the population and the transit schedule, each starting with its section tag, and {@link #END_OF_FILE}. All strings,
+ * including all ids, are dictionary-encoded over the whole file: the first occurrence of a string is written as
+ * {@link #NEW_STRING} followed by its UTF-8 bytes, later occurrences only as a reference to it. The nodes, links and
+ * transit stops are stored column by column, with primitive columns for the coordinates and numbers. The population
+ * and the transit lines are stored object by object with primitive times, as they are nested too deeply for columns.
+ * Attributes are stored with their type, custom types are stored as strings created by their
+ * {@link org.matsim.utils.objectattributes.AttributeConverter}.
+ */
+final class ScenarioSnapshotFormat {
+	private static final Logger log = Logger.getLogger(ScenarioSnapshotFormat.class);
+
+	static final byte[] MAGIC = "MATSIMSNP".getBytes(StandardCharsets.US_ASCII);
+	static final int VERSION = 2;
+
+	static final byte END_OF_FILE = 0;
+	static final byte SECTION_NETWORK = 1;
+	static final byte SECTION_FACILITIES = 2;
+	static final byte SECTION_POPULATION = 3;
+	static final byte SECTION_TRANSIT_SCHEDULE = 4;
+
+	static final byte ACTIVITY = 0;
+	static final byte LEG = 1;
+
+	static final byte NO_ROUTE = 0;
+	static final byte NETWORK_ROUTE = 1;
+	static final byte OTHER_ROUTE = 2;
+
+	private static final int NULL_STRING = 0;
+	private static final int NEW_STRING = 1;
+
+	private static final byte NO_COORD = 0;
+	private static final byte COORD_2D = 2;
+	private static final byte COORD_3D = 3;
+
+	private static final byte VALUE_STRING = 0;
+	private static final byte VALUE_INTEGER = 1;
+	private static final byte VALUE_LONG = 2;
+	private static final byte VALUE_DOUBLE = 3;
+	private static final byte VALUE_BOOLEAN = 4;
+	private static final byte VALUE_CONVERTED = 5;
+
+	private ScenarioSnapshotFormat() {
+	}
+
+	/**
+	 * An xml file a snapshot was created from, identified by its url, its size and its last modification time. The
+	 * size and time are only known for local files, they are -1 otherwise or if the file does not exist.
+	 */
+	static final class InputFile {
+		final String url;
+		final long size;
+		final long lastModified;
+
+		InputFile(final String url, final long size, final long lastModified) {
+			this.url = url;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		static InputFile of(final URL url) {
+			if ("file".equals(url.getProtocol())) {
+				try {
+					Path path = Paths.get(url.toURI());
+					if (Files.exists(path)) {
+						return new InputFile(url.toString(), Files.size(path), Files.getLastModifiedTime(path).toMillis());
+					}
+				} catch (IOException | URISyntaxException e) {
+					log.warn("could not determine size and modification time of " + url, e);
+				}
+			}
+			return new InputFile(url.toString(), -1, -1);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof InputFile)) {
+				return false;
+			}
+			InputFile other = (InputFile) obj;
+			return this.url.equals(other.url) && this.size == other.size && this.lastModified == other.lastModified;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.url, this.size, this.lastModified);
+		}
+
+		@Override
+		public String toString() {
+			return this.url + " (size=" + this.size + ", lastModified=" + this.lastModified + ")";
+		}
+	}
+
+	static final class Output {
+		final DataOutputStream out;
+		private final ObjectAttributesConverter converter;
+		private final Map<String, Integer> dictionary = new HashMap<>();
+
+		Output(final DataOutputStream out, final ObjectAttributesConverter converter) {
+			this.out = out;
+			this.converter = converter;
+		}
+
+		void writeHeader(final List<InputFile> inputFiles) throws IOException {
+			this.out.write(MAGIC);
+			this.out.writeInt(VERSION);
+			writeVarint(inputFiles.size());
+			for (InputFile inputFile : inputFiles) {
+				this.out.writeUTF(inputFile.url);
+				this.out.writeLong(inputFile.size);
+				this.out.writeLong(inputFile.lastModified);
+			}
+		}
+
+		void writeVarint(int value) throws IOException {
+			while ((value & ~0x7F) != 0) {
+				this.out.writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.out.writeByte(value);
+		}
+
+		void writeString(final String s) throws IOException {
+			if (s == null) {
+				writeVarint(NULL_STRING);
+				return;
+			}
+			Integer index = this.dictionary.get(s);
+			if (index != null) {
+				writeVarint(index + 2);
+				return;
+			}
+			this.dictionary.put(s, this.dictionary.size());
+			writeVarint(NEW_STRING);
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeVarint(bytes.length);
+			this.out.write(bytes);
+		}
+
+		void writeId(final Id<?> id) throws IOException {
+			writeString(id == null ? null : id.toString());
+		}
+
+		void writeCoord(final Coord coord) throws IOException {
+			if (coord == null) {
+				this.out.writeByte(NO_COORD);
+			} else if (coord.hasZ()) {
+				this.out.writeByte(COORD_3D);
+				this.out.writeDouble(coord.getX());
+				this.out.writeDouble(coord.getY());
+				this.out.writeDouble(coord.getZ());
+			} else {
+				this.out.writeByte(COORD_2D);
+				this.out.writeDouble(coord.getX());
+				this.out.writeDouble(coord.getY());
+			}
+		}
+
+		void writeAttributes(final Attributes attributes) throws IOException {
+			List<Map.Entry<String, Object>> entries = new ArrayList<>(attributes.size());
+			List<String> converted = new ArrayList<>(attributes.size());
+			for (Map.Entry<String, Object> e : attributes.getAsMap().entrySet()) {
+				Object value = e.getValue();
+				String convertedValue = null;
+				if (!(value instanceof String || value instanceof Integer || value instanceof Long || value instanceof Double || value instanceof Boolean)) {
+					convertedValue = this.converter.convertToString(value);
+					if (convertedValue == null) {
+						log.warn("attribute " + e.getKey() + " of class " + value.getClass().getName() + " cannot be converted, it is not written.");
+						continue;
+					}
+				}
+				entries.add(e);
+				converted.add(convertedValue);
+			}
+			writeVarint(entries.size());
+			for (int i = 0; i < entries.size(); i++) {
+				writeString(entries.get(i).getKey());
+				Object value = entries.get(i).getValue();
+				if (value instanceof String) {
+					this.out.writeByte(VALUE_STRING);
+					writeString((String) value);
+				} else if (value instanceof Integer) {
+					this.out.writeByte(VALUE_INTEGER);
+					this.out.writeInt((Integer) value);
+				} else if (value instanceof Long) {
+					this.out.writeByte(VALUE_LONG);
+					this.out.writeLong((Long) value);
+				} else if (value instanceof Double) {
+					this.out.writeByte(VALUE_DOUBLE);
+					this.out.writeDouble((Double) value);
+				} else if (value instanceof Boolean) {
+					this.out.writeByte(VALUE_BOOLEAN);
+					this.out.writeBoolean((Boolean) value);
+				} else {
+					this.out.writeByte(VALUE_CONVERTED);
+					writeString(value.getClass().getName());
+					writeString(converted.get(i));
+				}
+			}
+		}
+	}
+
+	static final class Input {
+		final DataInputStream in;
+		private final ObjectAttributesConverter converter;
+		private final List<String> dictionary = new ArrayList<>();
+
+		Input(final DataInputStream in, final ObjectAttributesConverter converter) {
+			this.in = in;
+			this.converter = converter;
+		}
+
+		List<InputFile> readHeader() throws IOException {
+			byte[] magic = new byte[MAGIC.length];
+			this.in.readFully(magic);
+			for (int i = 0; i < MAGIC.length; i++) {
+				if (magic[i] != MAGIC[i]) {
+					throw new IOException("not a MATSim scenario snapshot.");
+				}
+			}
+			int version = this.in.readInt();
+			if (version != VERSION) {
+				throw new IOException("unsupported version of scenario snapshot: " + version + ", it must be written again.");
+			}
+			int count = readVarint();
+			if (count == 0) {
+				return Collections.emptyList();
+			}
+			List<InputFile> inputFiles = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				inputFiles.add(new InputFile(this.in.readUTF(), this.in.readLong(), this.in.readLong()));
+			}
+			return inputFiles;
+		}
+
+		int readVarint() throws IOException {
+			int value = 0;
+			int shift = 0;
+			int b;
+			do {
+				b = this.in.readUnsignedByte();
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return value;
+		}
+
+		String readString() throws IOException {
+			int code = readVarint();
+			if (code == NULL_STRING) {
+				return null;
+			}
+			if (code != NEW_STRING) {
+				return this.dictionary.get(code - 2);
+			}
+			byte[] bytes = new byte[readVarint()];
+			this.in.readFully(bytes);
+			String s = new String(bytes, StandardCharsets.UTF_8);
+			this.dictionary.add(s);
+			return s;
+		}
+
+		<T> Id<T> readId(final Class<T> idClass) throws IOException {
+			String id = readString();
+			return id == null ? null : Id.create(id, idClass);
+		}
+
+		Coord readCoord() throws IOException {
+			byte type = this.in.readByte();
+			if (type == NO_COORD) {
+				return null;
+			}
+			double x = this.in.readDouble();
+			double y = this.in.readDouble();
+			return type == COORD_3D ? new Coord(x, y, this.in.readDouble()) : new Coord(x, y);
+		}
+
+		void readAttributes(final Attributes attributes) throws IOException {
+			int size = readVarint();
+			for (int i = 0; i < size; i++) {
+				String name = readString();
+				byte type = this.in.readByte();
+				Object value;
+				switch (type) {
+					case VALUE_STRING:
+						value = readString();
+						break;
+					case VALUE_INTEGER:
+						value = this.in.readInt();
+						break;
+					case VALUE_LONG:
+						value = this.in.readLong();
+						break;
+					case VALUE_DOUBLE:
+						value = this.in.readDouble();
+						break;
+					case VALUE_BOOLEAN:
+						value = this.in.readBoolean();
+						break;
+					case VALUE_CONVERTED:
+						String className = readString();
+						value = this.converter.convert(className, readString());
+						break;
+					default:
+						throw new IOException("unknown attribute type: " + type);
+				}
+				if (value != null) {
+					attributes.putAttribute(name, value);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,447 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ScenarioSnapshotReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scenario;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacilitiesFactory;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.ActivityFacilityImpl;
+import org.matsim.facilities.ActivityOption;
+import org.matsim.facilities.OpeningTimeImpl;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopArea;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Reads a snapshot written by {@link ScenarioSnapshotWriter} into the network, facilities, population and transit
+ * schedule of a scenario, which are expected to be empty.
+ */
+public final class ScenarioSnapshotReader implements MatsimReader {
+	private static final Logger log = Logger.getLogger(ScenarioSnapshotReader.class);
+
+	private final Scenario scenario;
+	private final ObjectAttributesConverter converter = new ObjectAttributesConverter();
+
+	public ScenarioSnapshotReader(final Scenario scenario) {
+		this.scenario = scenario;
+	}
+
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		this.converter.putAttributeConverter(clazz, converter);
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.converter.putAttributeConverters(converters);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		readURL(IOUtils.getFileUrl(filename));
+	}
+
+	@Override
+	public void readURL(final URL url) {
+		log.info("reading scenario snapshot from " + url);
+		try (InputStream stream = IOUtils.getInputStream(url)) {
+			parse(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads only the xml files the snapshot was created from, which is empty if they were not recorded.
+	 */
+	static List<ScenarioSnapshotFormat.InputFile> readInputFiles(final URL url) {
+		try (InputStream stream = IOUtils.getInputStream(url)) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+			return new ScenarioSnapshotFormat.Input(in, null).readHeader();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void parse(final InputStream stream) {
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+			ScenarioSnapshotFormat.Input input = new ScenarioSnapshotFormat.Input(in, this.converter);
+			input.readHeader();
+			byte section;
+			while ((section = in.readByte()) != ScenarioSnapshotFormat.END_OF_FILE) {
+				switch (section) {
+					case ScenarioSnapshotFormat.SECTION_NETWORK:
+						readNetwork(input, this.scenario.getNetwork());
+						break;
+					case ScenarioSnapshotFormat.SECTION_FACILITIES:
+						readFacilities(input, this.scenario.getActivityFacilities());
+						break;
+					case ScenarioSnapshotFormat.SECTION_POPULATION:
+						readPopulation(input, this.scenario.getPopulation());
+						break;
+					case ScenarioSnapshotFormat.SECTION_TRANSIT_SCHEDULE:
+						readTransitSchedule(input, this.scenario.getTransitSchedule());
+						break;
+					default:
+						throw new IOException("unknown section in scenario snapshot: " + section);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void readNetwork(final ScenarioSnapshotFormat.Input input, final Network network) throws IOException {
+		DataInputStream in = input.in;
+		network.setName(input.readString());
+		network.setCapacityPeriod(in.readDouble());
+		network.setEffectiveCellSize(in.readDouble());
+		network.setEffectiveLaneWidth(in.readDouble());
+		input.readAttributes(network.getAttributes());
+
+		NetworkFactory factory = network.getFactory();
+		int nodeCount = input.readVarint();
+		List<Id<Node>> nodeIds = new ArrayList<>(nodeCount);
+		for (int i = 0; i < nodeCount; i++) {
+			nodeIds.add(input.readId(Node.class));
+		}
+		double[] x = readDoubles(in, nodeCount);
+		double[] y = readDoubles(in, nodeCount);
+		double[] z = readDoubles(in, nodeCount);
+		Node[] nodes = new Node[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			Coord coord = Double.isNaN(z[i]) ? new Coord(x[i], y[i]) : new Coord(x[i], y[i], z[i]);
+			Node node = factory.createNode(nodeIds.get(i), coord);
+			String type = input.readString();
+			if (type != null) {
+				NetworkUtils.setType(node, type);
+			}
+			String origId = input.readString();
+			if (origId != null) {
+				NetworkUtils.setOrigId(node, origId);
+			}
+			input.readAttributes(node.getAttributes());
+			network.addNode(node);
+			nodes[i] = node;
+		}
+
+		int linkCount = input.readVarint();
+		List<Id<Link>> linkIds = new ArrayList<>(linkCount);
+		for (int i = 0; i < linkCount; i++) {
+			linkIds.add(input.readId(Link.class));
+		}
+		int[] fromNodes = readVarints(input, linkCount);
+		int[] toNodes = readVarints(input, linkCount);
+		double[] lengths = readDoubles(in, linkCount);
+		double[] freespeeds = readDoubles(in, linkCount);
+		double[] capacities = readDoubles(in, linkCount);
+		double[] lanes = readDoubles(in, linkCount);
+		List<Link> links = new ArrayList<>(linkCount);
+		for (int i = 0; i < linkCount; i++) {
+			Link link = factory.createLink(linkIds.get(i), nodes[fromNodes[i]], nodes[toNodes[i]]);
+			link.setLength(lengths[i]);
+			link.setFreespeed(freespeeds[i]);
+			link.setCapacity(capacities[i]);
+			link.setNumberOfLanes(lanes[i]);
+			String modes = input.readString();
+			link.setAllowedModes(modes.isEmpty() ? Collections.emptySet() : new HashSet<>(Arrays.asList(modes.split(","))));
+			links.add(link);
+		}
+		for (Link link : links) {
+			input.readAttributes(link.getAttributes());
+			network.addLink(link);
+		}
+	}
+
+	private static void readFacilities(final ScenarioSnapshotFormat.Input input, final ActivityFacilities facilities) throws IOException {
+		DataInputStream in = input.in;
+		facilities.setName(input.readString());
+		input.readAttributes(facilities.getAttributes());
+		ActivityFacilitiesFactory factory = facilities.getFactory();
+		int facilityCount = input.readVarint();
+		for (int i = 0; i < facilityCount; i++) {
+			Id<ActivityFacility> id = input.readId(ActivityFacility.class);
+			Coord coord = input.readCoord();
+			Id<Link> linkId = input.readId(Link.class);
+			ActivityFacility facility = factory.createActivityFacility(id, coord, linkId);
+			String desc = input.readString();
+			if (desc != null && facility instanceof ActivityFacilityImpl) {
+				((ActivityFacilityImpl) facility).setDesc(desc);
+			}
+			input.readAttributes(facility.getAttributes());
+			int optionCount = input.readVarint();
+			for (int o = 0; o < optionCount; o++) {
+				ActivityOption option = factory.createActivityOption(input.readString());
+				option.setCapacity(in.readDouble());
+				int openingTimeCount = input.readVarint();
+				for (int t = 0; t < openingTimeCount; t++) {
+					double startTime = in.readDouble();
+					option.addOpeningTime(new OpeningTimeImpl(startTime, in.readDouble()));
+				}
+				facility.addActivityOption(option);
+			}
+			facilities.addActivityFacility(facility);
+		}
+	}
+
+	private static void readPopulation(final ScenarioSnapshotFormat.Input input, final Population population) throws IOException {
+		DataInputStream in = input.in;
+		population.setName(input.readString());
+		input.readAttributes(population.getAttributes());
+		PopulationFactory factory = population.getFactory();
+		int personCount = input.readVarint();
+		for (int i = 0; i < personCount; i++) {
+			Person person = factory.createPerson(input.readId(Person.class));
+			input.readAttributes(person.getAttributes());
+			int planCount = input.readVarint();
+			int selectedPlan = input.readVarint() - 1;
+			for (int p = 0; p < planCount; p++) {
+				Plan plan = factory.createPlan();
+				plan.setType(input.readString());
+				double score = in.readDouble();
+				plan.setScore(Double.isNaN(score) ? null : score);
+				input.readAttributes(plan.getAttributes());
+				int elementCount = input.readVarint();
+				for (int e = 0; e < elementCount; e++) {
+					if (in.readByte() == ScenarioSnapshotFormat.ACTIVITY) {
+						plan.addActivity(readActivity(input, factory));
+					} else {
+						plan.addLeg(readLeg(input, factory));
+					}
+				}
+				person.addPlan(plan);
+				if (p == selectedPlan) {
+					person.setSelectedPlan(plan);
+				}
+			}
+			population.addPerson(person);
+		}
+	}
+
+	private static Activity readActivity(final ScenarioSnapshotFormat.Input input, final PopulationFactory factory) throws IOException {
+		DataInputStream in = input.in;
+		String type = input.readString();
+		Activity activity = factory.createActivityFromCoord(type, input.readCoord());
+		activity.setLinkId(input.readId(Link.class));
+		activity.setFacilityId(input.readId(ActivityFacility.class));
+		double startTime = in.readDouble();
+		if (!Double.isNaN(startTime)) {
+			activity.setStartTime(startTime);
+		}
+		double endTime = in.readDouble();
+		if (!Double.isNaN(endTime)) {
+			activity.setEndTime(endTime);
+		}
+		double maxDuration = in.readDouble();
+		if (!Double.isNaN(maxDuration)) {
+			activity.setMaximumDuration(maxDuration);
+		}
+		input.readAttributes(activity.getAttributes());
+		return activity;
+	}
+
+	private static Leg readLeg(final ScenarioSnapshotFormat.Input input, final PopulationFactory factory) throws IOException {
+		DataInputStream in = input.in;
+		Leg leg = factory.createLeg(input.readString());
+		leg.setDepartureTime(in.readDouble());
+		leg.setTravelTime(in.readDouble());
+		input.readAttributes(leg.getAttributes());
+		byte routeKind = in.readByte();
+		if (routeKind == ScenarioSnapshotFormat.NO_ROUTE) {
+			return leg;
+		}
+		String routeType = input.readString();
+		Id<Link> startLinkId = input.readId(Link.class);
+		Id<Link> endLinkId = input.readId(Link.class);
+		Class<? extends Route> routeClass = factory.getRouteFactories().getRouteClassForType(routeType);
+		Route route = factory.getRouteFactories().createRoute(routeClass, startLinkId, endLinkId);
+		route.setDistance(in.readDouble());
+		route.setTravelTime(in.readDouble());
+		if (routeKind == ScenarioSnapshotFormat.NETWORK_ROUTE) {
+			Id<Vehicle> vehicleId = input.readId(Vehicle.class);
+			List<Id<Link>> linkIds = readLinkIds(input);
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			networkRoute.setLinkIds(startLinkId, linkIds, endLinkId);
+			networkRoute.setVehicleId(vehicleId);
+		} else {
+			route.setRouteDescription(input.readString());
+		}
+		leg.setRoute(route);
+		return leg;
+	}
+
+	private static void readTransitSchedule(final ScenarioSnapshotFormat.Input input, final TransitSchedule schedule) throws IOException {
+		DataInputStream in = input.in;
+		input.readAttributes(schedule.getAttributes());
+		TransitScheduleFactory factory = schedule.getFactory();
+
+		int stopCount = input.readVarint();
+		List<Id<TransitStopFacility>> stopIds = new ArrayList<>(stopCount);
+		for (int i = 0; i < stopCount; i++) {
+			stopIds.add(input.readId(TransitStopFacility.class));
+		}
+		double[] x = readDoubles(in, stopCount);
+		double[] y = readDoubles(in, stopCount);
+		double[] z = readDoubles(in, stopCount);
+		boolean[] isBlocking = new boolean[stopCount];
+		for (int i = 0; i < stopCount; i++) {
+			isBlocking[i] = in.readBoolean();
+		}
+		TransitStopFacility[] stops = new TransitStopFacility[stopCount];
+		for (int i = 0; i < stopCount; i++) {
+			Coord coord = Double.isNaN(z[i]) ? new Coord(x[i], y[i]) : new Coord(x[i], y[i], z[i]);
+			TransitStopFacility stop = factory.createTransitStopFacility(stopIds.get(i), coord, isBlocking[i]);
+			Id<Link> linkId = input.readId(Link.class);
+			if (linkId != null) {
+				stop.setLinkId(linkId);
+			}
+			stop.setName(input.readString());
+			stop.setStopAreaId(input.readId(TransitStopArea.class));
+			input.readAttributes(stop.getAttributes());
+			schedule.addStopFacility(stop);
+			stops[i] = stop;
+		}
+
+		int lineCount = input.readVarint();
+		for (int i = 0; i < lineCount; i++) {
+			TransitLine line = factory.createTransitLine(input.readId(TransitLine.class));
+			line.setName(input.readString());
+			input.readAttributes(line.getAttributes());
+			int routeCount = input.readVarint();
+			for (int r = 0; r < routeCount; r++) {
+				line.addRoute(readTransitRoute(input, factory, stops));
+			}
+			schedule.addTransitLine(line);
+		}
+
+		int transferTimeCount = input.readVarint();
+		for (int i = 0; i < transferTimeCount; i++) {
+			Id<TransitStopFacility> fromStopId = input.readId(TransitStopFacility.class);
+			Id<TransitStopFacility> toStopId = input.readId(TransitStopFacility.class);
+			schedule.getMinimalTransferTimes().set(fromStopId, toStopId, in.readDouble());
+		}
+	}
+
+	private static TransitRoute readTransitRoute(final ScenarioSnapshotFormat.Input input, final TransitScheduleFactory factory,
+			final TransitStopFacility[] stopFacilities) throws IOException {
+		DataInputStream in = input.in;
+		Id<TransitRoute> id = input.readId(TransitRoute.class);
+		String mode = input.readString();
+		String description = input.readString();
+
+		int stopCount = input.readVarint();
+		List<TransitRouteStop> stops = new ArrayList<>(stopCount);
+		for (int i = 0; i < stopCount; i++) {
+			TransitStopFacility stopFacility = stopFacilities[input.readVarint()];
+			double arrivalOffset = in.readDouble();
+			TransitRouteStop stop = factory.createTransitRouteStop(stopFacility, arrivalOffset, in.readDouble());
+			stop.setAwaitDepartureTime(in.readBoolean());
+			stops.add(stop);
+		}
+
+		NetworkRoute networkRoute = null;
+		if (in.readBoolean()) {
+			Id<Link> startLinkId = input.readId(Link.class);
+			Id<Link> endLinkId = input.readId(Link.class);
+			networkRoute = RouteUtils.createLinkNetworkRouteImpl(startLinkId, readLinkIds(input), endLinkId);
+		}
+
+		TransitRoute route = factory.createTransitRoute(id, networkRoute, stops, mode);
+		route.setDescription(description);
+		input.readAttributes(route.getAttributes());
+
+		int departureCount = input.readVarint();
+		for (int i = 0; i < departureCount; i++) {
+			Id<Departure> departureId = input.readId(Departure.class);
+			Departure departure = factory.createDeparture(departureId, in.readDouble());
+			departure.setVehicleId(input.readId(Vehicle.class));
+			input.readAttributes(departure.getAttributes());
+			route.addDeparture(departure);
+		}
+		return route;
+	}
+
+	private static List<Id<Link>> readLinkIds(final ScenarioSnapshotFormat.Input input) throws IOException {
+		int size = input.readVarint();
+		List<Id<Link>> linkIds = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			linkIds.add(input.readId(Link.class));
+		}
+		return linkIds;
+	}
+
+	private static double[] readDoubles(final DataInputStream in, final int size) throws IOException {
+		double[] values = new double[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = in.readDouble();
+		}
+		return values;
+	}
+
+	private static int[] readVarints(final ScenarioSnapshotFormat.Input input, final int size) throws IOException {
+		int[] values = new int[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = input.readVarint();
+		}
+		return values;
+	}
+
+}
@@ -0,0 +1,392 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ScenarioSnapshotWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scenario;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdToIntMap;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.ActivityFacilityImpl;
+import org.matsim.facilities.ActivityOption;
+import org.matsim.facilities.OpeningTime;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.MinimalTransferTimes;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+
+/**
+ * Writes the network, the facilities, the population and the transit schedule of a scenario into one binary snapshot,
+ * which can be loaded much faster than the xml files with {@link ScenarioSnapshotReader}. The snapshot is meant as a
+ * cache for the xml files, e.g. between several runs or for post-processing, and not as an exchange format: it is only
+ * guaranteed to be readable by the same version of MATSim. Network change events, vehicles, households and lanes are
+ * not part of the snapshot.
+ *
+ * @see ScenarioUtils#writeScenarioSnapshot(Scenario, String)
+ */
+public final class ScenarioSnapshotWriter {
+	private static final Logger log = Logger.getLogger(ScenarioSnapshotWriter.class);
+
+	private final Scenario scenario;
+	private final ObjectAttributesConverter converter = new ObjectAttributesConverter();
+	private List<ScenarioSnapshotFormat.InputFile> inputFiles = Collections.emptyList();
+
+	public ScenarioSnapshotWriter(final Scenario scenario) {
+		this.scenario = scenario;
+	}
+
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		this.converter.putAttributeConverter(clazz, converter);
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.converter.putAttributeConverters(converters);
+	}
+
+	/**
+	 * Sets the xml files the scenario was loaded from, which are recorded in the snapshot so that it is not used anymore
+	 * once one of them changed.
+	 */
+	void setInputFiles(final List<ScenarioSnapshotFormat.InputFile> inputFiles) {
+		this.inputFiles = inputFiles;
+	}
+
+	public void write(final String filename) {
+		log.info("writing scenario snapshot to " + filename);
+		try (OutputStream stream = IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false)) {
+			write(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void write(final OutputStream stream) {
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+			ScenarioSnapshotFormat.Output output = new ScenarioSnapshotFormat.Output(out, this.converter);
+			output.writeHeader(this.inputFiles);
+			out.writeByte(ScenarioSnapshotFormat.SECTION_NETWORK);
+			writeNetwork(output, this.scenario.getNetwork());
+			out.writeByte(ScenarioSnapshotFormat.SECTION_FACILITIES);
+			writeFacilities(output, this.scenario.getActivityFacilities());
+			out.writeByte(ScenarioSnapshotFormat.SECTION_POPULATION);
+			writePopulation(output, this.scenario.getPopulation());
+			if (this.scenario.getTransitSchedule() != null) {
+				out.writeByte(ScenarioSnapshotFormat.SECTION_TRANSIT_SCHEDULE);
+				writeTransitSchedule(output, this.scenario.getTransitSchedule());
+			}
+			out.writeByte(ScenarioSnapshotFormat.END_OF_FILE);
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void writeNetwork(final ScenarioSnapshotFormat.Output output, final Network network) throws IOException {
+		DataOutputStream out = output.out;
+		output.writeString(network.getName());
+		out.writeDouble(network.getCapacityPeriod());
+		out.writeDouble(network.getEffectiveCellSize());
+		out.writeDouble(network.getEffectiveLaneWidth());
+		output.writeAttributes(network.getAttributes());
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		IdToIntMap<Node> nodeIndices = new IdToIntMap<>(Node.class);
+		output.writeVarint(nodes.size());
+		for (Node node : nodes) {
+			nodeIndices.put(node.getId(), nodeIndices.size());
+			output.writeId(node.getId());
+		}
+		for (Node node : nodes) {
+			out.writeDouble(node.getCoord().getX());
+		}
+		for (Node node : nodes) {
+			out.writeDouble(node.getCoord().getY());
+		}
+		for (Node node : nodes) {
+			out.writeDouble(node.getCoord().hasZ() ? node.getCoord().getZ() : Double.NaN);
+		}
+		for (Node node : nodes) {
+			output.writeString(NetworkUtils.getType(node));
+			output.writeString(NetworkUtils.getOrigId(node));
+			output.writeAttributes(node.getAttributes());
+		}
+
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		output.writeVarint(links.size());
+		for (Link link : links) {
+			output.writeId(link.getId());
+		}
+		for (Link link : links) {
+			output.writeVarint(nodeIndices.get(link.getFromNode().getId()));
+		}
+		for (Link link : links) {
+			output.writeVarint(nodeIndices.get(link.getToNode().getId()));
+		}
+		for (Link link : links) {
+			out.writeDouble(link.getLength());
+		}
+		for (Link link : links) {
+			out.writeDouble(link.getFreespeed());
+		}
+		for (Link link : links) {
+			out.writeDouble(link.getCapacity());
+		}
+		for (Link link : links) {
+			out.writeDouble(link.getNumberOfLanes());
+		}
+		for (Link link : links) {
+			// most links share the same few mode sets, so they are dictionary-encoded as a whole
+			output.writeString(String.join(",", new TreeSet<>(link.getAllowedModes())));
+		}
+		for (Link link : links) {
+			output.writeAttributes(link.getAttributes());
+		}
+	}
+
+	private static void writeFacilities(final ScenarioSnapshotFormat.Output output, final ActivityFacilities facilities) throws IOException {
+		DataOutputStream out = output.out;
+		output.writeString(facilities.getName());
+		output.writeAttributes(facilities.getAttributes());
+		output.writeVarint(facilities.getFacilities().size());
+		for (ActivityFacility facility : facilities.getFacilities().values()) {
+			output.writeId(facility.getId());
+			output.writeCoord(facility.getCoord());
+			output.writeId(facility.getLinkId());
+			output.writeString(facility instanceof ActivityFacilityImpl ? ((ActivityFacilityImpl) facility).getDesc() : null);
+			output.writeAttributes(facility.getAttributes());
+			output.writeVarint(facility.getActivityOptions().size());
+			for (ActivityOption option : facility.getActivityOptions().values()) {
+				output.writeString(option.getType());
+				out.writeDouble(option.getCapacity());
+				output.writeVarint(option.getOpeningTimes().size());
+				for (OpeningTime openingTime : option.getOpeningTimes()) {
+					out.writeDouble(openingTime.getStartTime());
+					out.writeDouble(openingTime.getEndTime());
+				}
+			}
+		}
+	}
+
+	private static void writePopulation(final ScenarioSnapshotFormat.Output output, final Population population) throws IOException {
+		DataOutputStream out = output.out;
+		output.writeString(population.getName());
+		output.writeAttributes(population.getAttributes());
+		output.writeVarint(population.getPersons().size());
+		for (Person person : population.getPersons().values()) {
+			output.writeId(person.getId());
+			output.writeAttributes(person.getAttributes());
+			output.writeVarint(person.getPlans().size());
+			output.writeVarint(person.getPlans().indexOf(person.getSelectedPlan()) + 1);
+			for (Plan plan : person.getPlans()) {
+				output.writeString(plan.getType());
+				out.writeDouble(plan.getScore() == null ? Double.NaN : plan.getScore());
+				output.writeAttributes(plan.getAttributes());
+				output.writeVarint(plan.getPlanElements().size());
+				for (PlanElement pe : plan.getPlanElements()) {
+					if (pe instanceof Activity) {
+						out.writeByte(ScenarioSnapshotFormat.ACTIVITY);
+						writeActivity(output, (Activity) pe);
+					} else {
+						out.writeByte(ScenarioSnapshotFormat.LEG);
+						writeLeg(output, (Leg) pe);
+					}
+				}
+			}
+		}
+	}
+
+	private static void writeActivity(final ScenarioSnapshotFormat.Output output, final Activity activity) throws IOException {
+		DataOutputStream out = output.out;
+		output.writeString(activity.getType());
+		output.writeCoord(activity.getCoord());
+		output.writeId(activity.getLinkId());
+		output.writeId(activity.getFacilityId());
+		writeOptionalTime(out, activity.getStartTime());
+		writeOptionalTime(out, activity.getEndTime());
+		writeOptionalTime(out, activity.getMaximumDuration());
+		output.writeAttributes(activity.getAttributes());
+	}
+
+	private static void writeLeg(final ScenarioSnapshotFormat.Output output, final Leg leg) throws IOException {
+		DataOutputStream out = output.out;
+		output.writeString(leg.getMode());
+		out.writeDouble(leg.getDepartureTime());
+		out.writeDouble(leg.getTravelTime());
+		output.writeAttributes(leg.getAttributes());
+		Route route = leg.getRoute();
+		if (route == null) {
+			out.writeByte(ScenarioSnapshotFormat.NO_ROUTE);
+			return;
+		}
+		out.writeByte(route instanceof NetworkRoute ? ScenarioSnapshotFormat.NETWORK_ROUTE : ScenarioSnapshotFormat.OTHER_ROUTE);
+		output.writeString(route.getRouteType());
+		output.writeId(route.getStartLinkId());
+		output.writeId(route.getEndLinkId());
+		out.writeDouble(route.getDistance());
+		out.writeDouble(route.getTravelTime());
+		if (route instanceof NetworkRoute) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			output.writeId(networkRoute.getVehicleId());
+			List<Id<Link>> linkIds = networkRoute.getLinkIds();
+			output.writeVarint(linkIds.size());
+			for (Id<Link> linkId : linkIds) {
+				output.writeId(linkId);
+			}
+		} else {
+			output.writeString(route.getRouteDescription());
+		}
+	}
+
+	private static void writeOptionalTime(final DataOutputStream out, final OptionalTime time) throws IOException {
+		out.writeDouble(time.isDefined() ? time.seconds() : Double.NaN);
+	}
+
+	private static void writeTransitSchedule(final ScenarioSnapshotFormat.Output output, final TransitSchedule schedule) throws IOException {
+		DataOutputStream out = output.out;
+		output.writeAttributes(schedule.getAttributes());
+
+		List<TransitStopFacility> stops = new ArrayList<>(schedule.getFacilities().values());
+		IdToIntMap<TransitStopFacility> stopIndices = new IdToIntMap<>(TransitStopFacility.class);
+		output.writeVarint(stops.size());
+		for (TransitStopFacility stop : stops) {
+			stopIndices.put(stop.getId(), stopIndices.size());
+			output.writeId(stop.getId());
+		}
+		for (TransitStopFacility stop : stops) {
+			out.writeDouble(stop.getCoord().getX());
+		}
+		for (TransitStopFacility stop : stops) {
+			out.writeDouble(stop.getCoord().getY());
+		}
+		for (TransitStopFacility stop : stops) {
+			out.writeDouble(stop.getCoord().hasZ() ? stop.getCoord().getZ() : Double.NaN);
+		}
+		for (TransitStopFacility stop : stops) {
+			out.writeBoolean(stop.getIsBlockingLane());
+		}
+		for (TransitStopFacility stop : stops) {
+			output.writeId(stop.getLinkId());
+			output.writeString(stop.getName());
+			output.writeId(stop.getStopAreaId());
+			output.writeAttributes(stop.getAttributes());
+		}
+
+		output.writeVarint(schedule.getTransitLines().size());
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			output.writeId(line.getId());
+			output.writeString(line.getName());
+			output.writeAttributes(line.getAttributes());
+			output.writeVarint(line.getRoutes().size());
+			for (TransitRoute route : line.getRoutes().values()) {
+				writeTransitRoute(output, route, stopIndices);
+			}
+		}
+
+		List<Id<TransitStopFacility>> fromStops = new ArrayList<>();
+		List<Id<TransitStopFacility>> toStops = new ArrayList<>();
+		List<Double> seconds = new ArrayList<>();
+		MinimalTransferTimes.MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator();
+		while (iter.hasNext()) {
+			iter.next();
+			fromStops.add(iter.getFromStopId());
+			toStops.add(iter.getToStopId());
+			seconds.add(iter.getSeconds());
+		}
+		output.writeVarint(seconds.size());
+		for (int i = 0; i < seconds.size(); i++) {
+			output.writeId(fromStops.get(i));
+			output.writeId(toStops.get(i));
+			out.writeDouble(seconds.get(i));
+		}
+	}
+
+	private static void writeTransitRoute(final ScenarioSnapshotFormat.Output output, final TransitRoute route,
+			final IdToIntMap<TransitStopFacility> stopIndices) throws IOException {
+		DataOutputStream out = output.out;
+		output.writeId(route.getId());
+		output.writeString(route.getTransportMode());
+		output.writeString(route.getDescription());
+
+		output.writeVarint(route.getStops().size());
+		for (TransitRouteStop stop : route.getStops()) {
+			output.writeVarint(stopIndices.get(stop.getStopFacility().getId()));
+			out.writeDouble(stop.getArrivalOffset());
+			out.writeDouble(stop.getDepartureOffset());
+			out.writeBoolean(stop.isAwaitDepartureTime());
+		}
+
+		NetworkRoute networkRoute = route.getRoute();
+		out.writeBoolean(networkRoute != null);
+		if (networkRoute != null) {
+			output.writeId(networkRoute.getStartLinkId());
+			output.writeId(networkRoute.getEndLinkId());
+			List<Id<Link>> linkIds = networkRoute.getLinkIds();
+			output.writeVarint(linkIds.size());
+			for (Id<Link> linkId : linkIds) {
+				output.writeId(linkId);
+			}
+		}
+
+		// the attributes can only be read after the route is created from its stops
+		output.writeAttributes(route.getAttributes());
+
+		output.writeVarint(route.getDepartures().size());
+		for (Departure departure : route.getDepartures().values()) {
+			output.writeId(departure.getId());
+			out.writeDouble(departure.getDepartureTime());
+			output.writeId(departure.getVehicleId());
+			output.writeAttributes(departure.getAttributes());
+		}
+	}
+
+}
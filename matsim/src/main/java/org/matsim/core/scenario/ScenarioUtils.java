@@ -21,6 +21,9 @@
 
  package org.matsim.core.scenario;
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Population;
@@ -29,6 +32,7 @@ import org.matsim.facilities.ActivityFacilities;
 import org.matsim.households.Households;
 import org.matsim.lanes.Lanes;
 import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.utils.objectattributes.AttributeConverter;
 import org.matsim.vehicles.Vehicles;
 
 
@@ -90,6 +94,29 @@ public final class ScenarioUtils {
 		ScenarioLoaderImpl scenarioLoader = new ScenarioLoaderImpl(scenario);
 		scenarioLoader.loadScenario();
 	}
+
+	/**
+	 *
+	 * Writes the network, facilities, population and transit schedule of the scenario into a binary snapshot, which
+	 * {@link #loadScenario(Config)} uses instead of the xml files if it is set as
+	 * {@link org.matsim.core.config.groups.ControlerConfigGroup#setScenarioSnapshotFile(String)}. Such a snapshot does
+	 * not record the xml files it was created from, it is thus used even if they change.
+	 *
+	 */
+	public static void writeScenarioSnapshot(final Scenario scenario, final String filename) {
+		writeScenarioSnapshot(scenario, filename, Collections.emptyMap());
+	}
+
+	/**
+	 *
+	 * Same as {@link #writeScenarioSnapshot(Scenario, String)}, with the converters for attributes of custom types.
+	 *
+	 */
+	public static void writeScenarioSnapshot(final Scenario scenario, final String filename, final Map<Class<?>, AttributeConverter<?>> attributeConverters) {
+		ScenarioSnapshotWriter writer = new ScenarioSnapshotWriter(scenario);
+		writer.putAttributeConverters(attributeConverters);
+		writer.write(filename);
+	}
 	
 	public final static class ScenarioBuilder {
 		private MutableScenario scenario;
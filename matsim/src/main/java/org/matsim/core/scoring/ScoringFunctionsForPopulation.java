@@ -56,6 +56,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 import static org.matsim.core.router.TripStructureUtils.Trip;
 
@@ -63,6 +64,11 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p></p>
+ * Events, legs and activities usually arrive from different event handlers, possibly running in different threads.
+ * Instead of one lock for the whole population, the per-person state (scoring function, partial scores, trip record)
+ * is guarded by one of {@link #NUMBER_OF_LOCK_STRIPES} locks, selected by the index of the person id. So scoring of
+ * different persons can proceed concurrently, while the calls for one person remain serialized.
  * 
  * @author michaz
  *
@@ -72,7 +78,6 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	// can be changed there.  kai, sep'17
 	// I just removed that.  kai, apr'18
 	
-	@SuppressWarnings("unused")
 	private final static Logger log = Logger.getLogger(ScoringFunctionsForPopulation.class);
 	private final Population population;
 	private final ScoringFunctionFactory scoringFunctionFactory;
@@ -88,7 +93,13 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	private final IdMap<Person, TDoubleCollection> partialScores = new IdMap<>(Person.class);
 	private final AtomicReference<Throwable> exception = new AtomicReference<>();
 	private final IdMap<Person, Plan> tripRecords = new IdMap<>(Person.class);
-	
+
+	private final static int NUMBER_OF_LOCK_STRIPES = 1024; // must be a power of 2
+	private final Object[] personLocks = new Object[NUMBER_OF_LOCK_STRIPES];
+
+	private final LongAdder scoredEventsCounter = new LongAdder();
+	private final LongAdder scoringNanos = new LongAdder(); // summed over all threads calling the handlers
+
 	private Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
 
 	@Inject
@@ -102,6 +113,9 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		});
 		this.population = population;
 		this.scoringFunctionFactory = scoringFunctionFactory;
+		for (int i = 0; i < NUMBER_OF_LOCK_STRIPES; i++) {
+			this.personLocks[i] = new Object();
+		}
 		eventsManager.addHandler(this);
 		eventsToActivities.addActivityHandler(this);
 		eventsToLegs.addLegHandler(this);
@@ -114,29 +128,41 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 			this.partialScores.put(person.getId(), new TDoubleArrayList());
 			this.tripRecords.put(person.getId(), PopulationUtils.createPlan());
 		}
+		this.scoredEventsCounter.reset();
+		this.scoringNanos.reset();
+	}
+
+	private Object getLock(final Id<Person> agentId) {
+		return this.personLocks[agentId.index() & (NUMBER_OF_LOCK_STRIPES - 1)];
 	}
 
 	@Override
-	synchronized public void handleEvent(Event o) {
+	public void handleEvent(Event o) {
 		// this is for the stuff that is directly based on events.
 		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
 		// for the time being, not all PersonEvents may "implement HasPersonId".
 		// link enter/leave events are NOT passed on, for performance reasons.
 		// kai/dominik, dec'12
 		if (o instanceof HasPersonId) {
-			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
+			Id<Person> agentId = ((HasPersonId) o).getPersonId();
+			ScoringFunction scoringFunction = getScoringFunctionForAgent(agentId);
 			if (scoringFunction != null) {
-				if (o instanceof PersonStuckEvent) {
-					scoringFunction.agentStuck(o.getTime());
-				} else if (o instanceof PersonMoneyEvent) {
-					scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
-					// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
-					// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
-				} 
-//				else {
-					scoringFunction.handleEvent(o);
-					// passing this on in any case, see comment above.  kai, mar'17
-//				}
+				synchronized (getLock(agentId)) {
+					long start = System.nanoTime();
+					if (o instanceof PersonStuckEvent) {
+						scoringFunction.agentStuck(o.getTime());
+					} else if (o instanceof PersonMoneyEvent) {
+						scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
+						// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
+						// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
+					} 
+//					else {
+						scoringFunction.handleEvent(o);
+						// passing this on in any case, see comment above.  kai, mar'17
+//					}
+					this.scoringNanos.add(System.nanoTime() - start);
+				}
+				this.scoredEventsCounter.increment();
 			}
 		}
 
@@ -161,20 +187,33 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 			ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
 			// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
 			if (scoringFunction != null) {
-				scoringFunction.handleEvent(o);
+				synchronized (getLock(driverId)) {
+					long start = System.nanoTime();
+					scoringFunction.handleEvent(o);
+					this.scoringNanos.add(System.nanoTime() - start);
+				}
+				this.scoredEventsCounter.increment();
 			}
 		}
 	}
 
 	@Override
-	synchronized public void handleLeg(PersonExperiencedLeg o) {
+	public void handleLeg(PersonExperiencedLeg o) {
 		Id<Person> agentId = o.getAgentId();
-		Leg leg = o.getLeg();
+		synchronized (getLock(agentId)) {
+			long start = System.nanoTime();
+			handleLegForAgent(agentId, o.getLeg());
+			this.scoringNanos.add(System.nanoTime() - start);
+		}
+	}
+
+	private void handleLegForAgent(Id<Person> agentId, Leg leg) {
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
 		if (scoringFunction != null) {
 			scoringFunction.handleLeg(leg);
 			TDoubleCollection partialScoresForAgent = this.partialScores.get(agentId);
 			partialScoresForAgent.add(scoringFunction.getScore());
+			this.scoredEventsCounter.increment();
 		}
 		Plan plan = this.tripRecords.get( agentId ) ; // as container for trip
 		if ( plan!=null ) {
@@ -183,14 +222,22 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	}
 
 	@Override
-	synchronized public void handleActivity(PersonExperiencedActivity o) {
+	public void handleActivity(PersonExperiencedActivity o) {
 		Id<Person> agentId = o.getAgentId();
-		Activity activity = o.getActivity();
+		synchronized (getLock(agentId)) {
+			long start = System.nanoTime();
+			handleActivityForAgent(agentId, o.getActivity());
+			this.scoringNanos.add(System.nanoTime() - start);
+		}
+	}
+
+	private void handleActivityForAgent(Id<Person> agentId, Activity activity) {
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
 		if (scoringFunction != null) {
 			scoringFunction.handleActivity(activity);
 			TDoubleCollection partialScoresForAgent = this.partialScores.get(agentId);
 			partialScoresForAgent.add(scoringFunction.getScore());
+			this.scoredEventsCounter.increment();
 		}
 		
 		Plan plan = this.tripRecords.get( agentId ); // as container for trip
@@ -255,6 +302,12 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		for (Entry<Id<Person>, TDoubleCollection> entry : this.partialScores.entrySet()) {
 			entry.getValue().add(this.getScoringFunctionForAgent(entry.getKey()).getScore());
 		}
+		// the time spent in the scoring calls, as the wall-clock time since init() is dominated by the mobsim
+		long scored = this.scoredEventsCounter.sum();
+		double scoringSeconds = this.scoringNanos.sum() / 1e9;
+		log.info("scored " + scored + " events, legs and activities in " + String.format("%.3f", scoringSeconds)
+				+ " s spent in the scoring calls (" + (scoringSeconds > 0 ? (long) (scored / scoringSeconds) : 0)
+				+ " per second; summed over all threads, so not wall-clock time).");
 	}
 
 	public void writePartialScores(String iterationFilename) {
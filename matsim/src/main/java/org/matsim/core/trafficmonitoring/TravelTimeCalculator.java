@@ -22,6 +22,7 @@ package org.matsim.core.trafficmonitoring;
 import com.google.inject.Inject;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.events.*;
 import org.matsim.api.core.v01.events.handler.*;
 import org.matsim.api.core.v01.network.Link;
@@ -92,6 +93,11 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	private TravelTimeDataFactory ttDataFactory = null;
 
+	private final Network network;
+
+	/** the link travel times at the last time {@link #getLinksWithChangedTravelTimes(double)} reported the link. */
+	private final IdMap<Link, float[]> travelTimesAtLastChangeDetection = new IdMap<>(Link.class);
+
 	@Inject private QSimConfigGroup qsimConfig ;
 	TravelTimeGetter travelTimeGetter ;
 
@@ -218,6 +224,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	private TravelTimeCalculator(final Network network, final int timeslice, final int maxTime,
 				   boolean calculateLinkTravelTimes, boolean calculateLinkToLinkTravelTimes, boolean filterModes, Set<String> analyzedModes) {
+		this.network = network;
 		this.calculateLinkTravelTimes = calculateLinkTravelTimes;
 		this.calculateLinkToLinkTravelTimes = calculateLinkToLinkTravelTimes;
 		this.filterAnalyzedModes = filterModes;
@@ -400,6 +407,50 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 								    "if calculation is switched off by config option!");
 	}
 
+	/**
+	 * Returns the links where the travel time of at least one time bin differs by more than <code>relativeThreshold</code>
+	 * (e.g. 0.1 for 10%) from the travel time at the last call which reported the link, or from the free speed travel
+	 * time if the link was never reported. The reference travel times of the other links are kept, so a link whose travel
+	 * time creeps up in small steps is reported as soon as the steps add up to more than the threshold.
+	 * <p></p>
+	 * Each call evaluates the travel time of every time bin of every link with observed travel times. The reference
+	 * travel times need one float per time bin for every link which was reported at least once.
+	 * <p></p>
+	 * This is meant for components which keep results based on the travel times across iterations, e.g. cached routes,
+	 * and should be called once per iteration after the mobsim.
+	 */
+	public synchronized Set<Id<Link>> getLinksWithChangedTravelTimes(final double relativeThreshold) {
+		if (!this.calculateLinkTravelTimes) {
+			throw new IllegalStateException("No link travel time is available " +
+								    "if calculation is switched off by config option!");
+		}
+		Set<Id<Link>> changedLinks = new HashSet<>();
+		// links without data were not used since the beginning, so their travel time is still the free speed travel time
+		for (Id<Link> linkId : this.linkData.keySet()) {
+			Link link = this.network.getLinks().get(linkId);
+			if (link == null) {
+				continue;
+			}
+			float[] previousTravelTimes = this.travelTimesAtLastChangeDetection.get(linkId);
+			float[] travelTimes = new float[this.numSlots];
+			boolean changed = false;
+			for (int i = 0; i < this.numSlots; i++) {
+				double time = i * this.timeSlice;
+				travelTimes[i] = (float) getLinkTravelTime(link, time);
+				double previousTravelTime = previousTravelTimes == null ? (float) (link.getLength() / link.getFreespeed(time)) : previousTravelTimes[i];
+				if (Math.abs(travelTimes[i] - previousTravelTime) > relativeThreshold * previousTravelTime) {
+					changed = true;
+				}
+			}
+			// unchanged links keep their reference, otherwise small changes would never add up
+			if (changed) {
+				changedLinks.add(linkId);
+				this.travelTimesAtLastChangeDetection.put(linkId, travelTimes);
+			}
+		}
+		return changedLinks;
+	}
+
 	private double getLinkToLinkTravelTime(final Id<Link> fromLinkId, final Id<Link> toLinkId, double time) {
 		if (!this.calculateLinkToLinkTravelTimes) {
 			throw new IllegalStateException("No link to link travel time is available " +
@@ -5,15 +5,20 @@
 package ch.sbb.matsim.routing.pt.raptor;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.Id;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
 
 /**
  * @author mrieser / SBB
  */
 public class SwissRailRaptorDataTest {
 
+    @Rule
+    public MatsimTestUtils utils = new MatsimTestUtils();
+
     @Test
     public void testTransfersFromSchedule() {
         Fixture f = new Fixture();
@@ -28,9 +33,9 @@ public class SwissRailRaptorDataTest {
         Id<TransitStopFacility> stopId9 = Id.create(9, TransitStopFacility.class);
         Id<TransitStopFacility> stopId18 = Id.create(18, TransitStopFacility.class);
         Id<TransitStopFacility> stopId19 = Id.create(19, TransitStopFacility.class);
-        for (SwissRailRaptorData.RTransfer t : data.transfers) {
-            TransitStopFacility fromStop = data.routeStops[t.fromRouteStop].routeStop.getStopFacility();
-            TransitStopFacility toStop = data.routeStops[t.toRouteStop].routeStop.getStopFacility();
+        for (int t = 0; t < data.transfers.size(); t++) {
+            TransitStopFacility fromStop = data.routeStops[data.transfers.getFromRouteStop(t)].routeStop.getStopFacility();
+            TransitStopFacility toStop = data.routeStops[data.transfers.getToRouteStop(t)].routeStop.getStopFacility();
             if (fromStop.getId().equals(stopId19) && toStop.getId().equals(stopId9)) {
                 Assert.fail("There should not be any transfer between stop facilities 19 and 9.");
             }
@@ -41,45 +46,81 @@ public class SwissRailRaptorDataTest {
         f.schedule.getMinimalTransferTimes().set(stopId19, stopId9, 345);
         SwissRailRaptorData data2 = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
         int foundTransferCount = 0;
-        for (SwissRailRaptorData.RTransfer t : data2.transfers) {
-            TransitStopFacility fromStop = data2.routeStops[t.fromRouteStop].routeStop.getStopFacility();
-            TransitStopFacility toStop = data2.routeStops[t.toRouteStop].routeStop.getStopFacility();
+        for (int t = 0; t < data2.transfers.size(); t++) {
+            TransitStopFacility fromStop = data2.routeStops[data2.transfers.getFromRouteStop(t)].routeStop.getStopFacility();
+            TransitStopFacility toStop = data2.routeStops[data2.transfers.getToRouteStop(t)].routeStop.getStopFacility();
             if (fromStop.getId().equals(stopId19) && toStop.getId().equals(stopId9)) {
                 foundTransferCount++;
             }
         }
         Assert.assertEquals("wrong number of transfers between stop facilities 19 and 9.", 1, foundTransferCount);
-        Assert.assertEquals("number of transfers should have incrased.", data.transfers.length + 1, data2.transfers.length);
+        Assert.assertEquals("number of transfers should have incrased.", data.transfers.size() + 1, data2.transfers.size());
 
         // assign a high transfer time to a "default" transfer
         f.schedule.getMinimalTransferTimes().set(stopId5, stopId18, 456);
         SwissRailRaptorData data3 = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
         boolean foundCorrectTransfer = false;
-        for (SwissRailRaptorData.RTransfer t : data3.transfers) {
-            TransitStopFacility fromStop = data3.routeStops[t.fromRouteStop].routeStop.getStopFacility();
-            TransitStopFacility toStop = data3.routeStops[t.toRouteStop].routeStop.getStopFacility();
+        for (int t = 0; t < data3.transfers.size(); t++) {
+            TransitStopFacility fromStop = data3.routeStops[data3.transfers.getFromRouteStop(t)].routeStop.getStopFacility();
+            TransitStopFacility toStop = data3.routeStops[data3.transfers.getToRouteStop(t)].routeStop.getStopFacility();
             if (fromStop.getId().equals(stopId5) && toStop.getId().equals(stopId18)) {
-                Assert.assertEquals("transfer has wrong transfer time.", 456, t.transferTime, 0.0);
+                Assert.assertEquals("transfer has wrong transfer time.", 456, data3.transfers.getTransferTime(t), 0.0);
                 foundCorrectTransfer = true;
             }
         }
         Assert.assertTrue("did not find overwritten transfer", foundCorrectTransfer);
-        Assert.assertEquals("number of transfers should have stayed the same.", data2.transfers.length, data3.transfers.length);
+        Assert.assertEquals("number of transfers should have stayed the same.", data2.transfers.size(), data3.transfers.size());
 
         // assign a low transfer time to a "default" transfer
         f.schedule.getMinimalTransferTimes().set(stopId5, stopId18, 0.2);
         SwissRailRaptorData data4 = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
         foundCorrectTransfer = false;
-        for (SwissRailRaptorData.RTransfer t : data4.transfers) {
-            TransitStopFacility fromStop = data4.routeStops[t.fromRouteStop].routeStop.getStopFacility();
-            TransitStopFacility toStop = data4.routeStops[t.toRouteStop].routeStop.getStopFacility();
+        for (int t = 0; t < data4.transfers.size(); t++) {
+            TransitStopFacility fromStop = data4.routeStops[data4.transfers.getFromRouteStop(t)].routeStop.getStopFacility();
+            TransitStopFacility toStop = data4.routeStops[data4.transfers.getToRouteStop(t)].routeStop.getStopFacility();
             if (fromStop.getId().equals(stopId5) && toStop.getId().equals(stopId18)) {
-                Assert.assertEquals("transfer has wrong transfer time.", 0.2, t.transferTime, 0.0);
+                Assert.assertEquals("transfer has wrong transfer time.", 0.2, data4.transfers.getTransferTime(t), 0.0);
                 foundCorrectTransfer = true;
             }
         }
         Assert.assertTrue("did not find overwritten transfer", foundCorrectTransfer);
-        Assert.assertEquals("number of transfers should have stayed the same.", data2.transfers.length, data4.transfers.length);
+        Assert.assertEquals("number of transfers should have stayed the same.", data2.transfers.size(), data4.transfers.size());
+    }
+
+    @Test
+    public void testTransfersCache() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig raptorConfig = RaptorUtils.createStaticConfig(f.config);
+        raptorConfig.setTransfersCacheDirectory(this.utils.getOutputDirectory());
+        SwissRailRaptorData calculated = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
+        SwissRailRaptorData cached = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
+
+        Assert.assertTrue(calculated.transfers.size() > 0);
+        assertSameTransfers(calculated, cached);
+
+        // the cached transfers must not be used for a different schedule
+        Id<TransitStopFacility> stopId9 = Id.create(9, TransitStopFacility.class);
+        Id<TransitStopFacility> stopId19 = Id.create(19, TransitStopFacility.class);
+        f.schedule.getMinimalTransferTimes().set(stopId19, stopId9, 345);
+        SwissRailRaptorData changed = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
+        Assert.assertEquals("the transfers should have been calculated again.", calculated.transfers.size() + 1, changed.transfers.size());
+        assertSameTransfers(changed, SwissRailRaptorData.create(f.schedule, raptorConfig, f.network));
+    }
+
+    private static void assertSameTransfers(SwissRailRaptorData expected, SwissRailRaptorData actual) {
+        Assert.assertEquals("wrong number of transfers.", expected.transfers.size(), actual.transfers.size());
+        for (int t = 0; t < expected.transfers.size(); t++) {
+            Assert.assertEquals(expected.transfers.getFromRouteStop(t), actual.transfers.getFromRouteStop(t));
+            Assert.assertEquals(expected.transfers.getToRouteStop(t), actual.transfers.getToRouteStop(t));
+            Assert.assertEquals(expected.transfers.getTransferTime(t), actual.transfers.getTransferTime(t), 0.0);
+            Assert.assertEquals(expected.transfers.getTransferDistance(t), actual.transfers.getTransferDistance(t), 0.0);
+        }
+        for (int r = 0; r < expected.routeStops.length; r++) {
+            Assert.assertEquals(expected.routeStops[r].indexFirstTransfer, actual.routeStops[r].indexFirstTransfer);
+            Assert.assertEquals(expected.routeStops[r].countTransfers, actual.routeStops[r].countTransfers);
+        }
     }
 
 }
\ No newline at end of file
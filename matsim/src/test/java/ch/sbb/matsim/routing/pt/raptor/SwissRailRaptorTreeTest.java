@@ -15,6 +15,7 @@ import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Tests for the tree-calculating functionality of SwissRailRaptor
@@ -401,6 +402,56 @@ public class SwissRailRaptorTreeTest {
         Assert.assertNull(stage5.line); // egress_walk
     }
 
+    @Test
+    public void testRangeTree_sameAsPointQueries() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig config = RaptorUtils.createStaticConfig(f.config);
+        config.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), config, f.scenario.getNetwork());
+        DefaultRaptorStopFinder stopFinder = new DefaultRaptorStopFinder(null, new DefaultRaptorIntermodalAccessEgress(), null);
+        SwissRailRaptor raptor = new SwissRailRaptor(data, new DefaultRaptorParametersForPerson(f.scenario.getConfig()),
+                new LeastCostRaptorRouteSelector(), stopFinder );
+
+        RaptorParameters raptorParams = RaptorUtils.createParameters(f.config);
+
+        // start with a stop on the green line, which departs there at 07:41 and 07:51
+        TransitStopFacility fromStop = f.schedule.getFacilities().get(Id.create(23, TransitStopFacility.class));
+        double earliestDepTime = 7*3600 + 30*60;
+        double latestDepTime = 7*3600 + 55*60;
+        Map<Id<TransitStopFacility>, List<TravelInfo>> rangeTree = raptor.calcRangeTree(fromStop, earliestDepTime, latestDepTime, raptorParams);
+
+        List<TravelInfo> toStop18 = rangeTree.get(Id.create(18, TransitStopFacility.class)); // directly reachable
+        Assert.assertEquals(2, toStop18.size());
+        Assert.assertEquals(Time.parseTime("07:41:00"), toStop18.get(0).ptDepartureTime, 1e-7);
+        Assert.assertEquals(Time.parseTime("07:50:00"), toStop18.get(0).ptArrivalTime, 1e-7);
+        Assert.assertEquals(Time.parseTime("07:51:00"), toStop18.get(1).ptDepartureTime, 1e-7);
+        Assert.assertEquals(Time.parseTime("08:00:00"), toStop18.get(1).ptArrivalTime, 1e-7);
+
+        for (double depTime = earliestDepTime; depTime <= 7*3600 + 51*60; depTime += 120) {
+            Map<Id<TransitStopFacility>, TravelInfo> tree = raptor.calcTree(fromStop, depTime, raptorParams);
+            for (Map.Entry<Id<TransitStopFacility>, TravelInfo> e : tree.entrySet()) {
+                if (e.getKey().equals(fromStop.getId())) {
+                    continue;
+                }
+                TravelInfo expected = e.getValue();
+                // the journey for this departure time is the one with the earliest departure not before it
+                TravelInfo actual = null;
+                for (TravelInfo info : rangeTree.get(e.getKey())) {
+                    if (info.ptDepartureTime - info.waitingTime >= depTime) {
+                        actual = info;
+                        break;
+                    }
+                }
+                String message = "stop " + e.getKey() + " at " + Time.writeTime(depTime);
+                Assert.assertNotNull(message, actual);
+                Assert.assertEquals(message, expected.ptArrivalTime, actual.ptArrivalTime, 1e-7);
+                Assert.assertEquals(message, expected.transferCount, actual.transferCount);
+            }
+        }
+    }
+
     private void assertTravelInfo(Map<Id<TransitStopFacility>, TravelInfo> map, int stopId, String expectedDepartureStop, int expectedTransfers, String expectedDepartureTime, String expectedArrivalTime) {
         TravelInfo info = map.get(Id.create(stopId, TransitStopFacility.class));
         Assert.assertNotNull("Stop " + stopId + " is not reachable.", info);
@@ -410,4 +461,38 @@ public class SwissRailRaptorTreeTest {
         Assert.assertEquals("unexpected departure time: " + Time.writeTime(info.ptDepartureTime), Time.parseTime(expectedDepartureTime), Math.floor(info.ptDepartureTime), 0.0);
     }
 
+    @Test
+    public void testCalcTrees_sameAsSequential() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig config = RaptorUtils.createStaticConfig(f.config);
+        config.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), config, f.scenario.getNetwork());
+        DefaultRaptorStopFinder stopFinder = new DefaultRaptorStopFinder(null, new DefaultRaptorIntermodalAccessEgress(), null);
+        SwissRailRaptor raptor = new SwissRailRaptor(data, new DefaultRaptorParametersForPerson(f.scenario.getConfig()),
+                new LeastCostRaptorRouteSelector(), stopFinder );
+
+        RaptorParameters raptorParams = RaptorUtils.createParameters(f.config);
+        double depTime = 7*3600 + 40*60;
+
+        List<TransitStopFacility> fromStops = new ArrayList<>(f.schedule.getFacilities().values());
+        Map<Id<TransitStopFacility>, Map<Id<TransitStopFacility>, TravelInfo>> trees = new ConcurrentHashMap<>();
+        raptor.calcTrees(fromStops, depTime, raptorParams, 4, (fromStop, tree) -> trees.put(fromStop.getId(), tree));
+
+        Assert.assertEquals(fromStops.size(), trees.size());
+        for (TransitStopFacility fromStop : fromStops) {
+            Map<Id<TransitStopFacility>, TravelInfo> expected = raptor.calcTree(fromStop, depTime, raptorParams);
+            Map<Id<TransitStopFacility>, TravelInfo> actual = trees.get(fromStop.getId());
+            Assert.assertEquals("from stop " + fromStop.getId(), expected.keySet(), actual.keySet());
+            for (Map.Entry<Id<TransitStopFacility>, TravelInfo> e : expected.entrySet()) {
+                String message = "from stop " + fromStop.getId() + " to stop " + e.getKey();
+                TravelInfo info = actual.get(e.getKey());
+                Assert.assertEquals(message, e.getValue().ptArrivalTime, info.ptArrivalTime, 1e-7);
+                Assert.assertEquals(message, e.getValue().travelCost, info.travelCost, 1e-7);
+                Assert.assertEquals(message, e.getValue().transferCount, info.transferCount);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,92 @@
+package org.matsim.api.core.v01;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.population.Person;
+
+public class IdToDoubleMapTest {
+
+	@Test
+	public void testPutGetRemoveSize() {
+		IdToDoubleMap<Person> map = new IdToDoubleMap<>(Person.class, Double.NaN, 10);
+		Id<Person> id1 = Id.create(1, Person.class);
+		Id<Person> id2 = Id.create(2, Person.class);
+
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertTrue(Double.isNaN(map.get(id1)));
+		Assert.assertEquals(-1.0, map.getOrDefault(id1, -1.0), 0.0);
+
+		Assert.assertTrue(Double.isNaN(map.put(id1, 1.5)));
+		Assert.assertEquals(1, map.size());
+		Assert.assertEquals(1.5, map.put(id1, 2.5), 0.0);
+		Assert.assertEquals(1, map.size());
+		Assert.assertTrue(Double.isNaN(map.put(id2, 0.0)));
+		Assert.assertEquals(2, map.size());
+		Assert.assertTrue(map.containsKey(id2));
+		Assert.assertEquals(0.0, map.get(id2), 0.0);
+
+		Assert.assertEquals(2.5, map.remove(id1), 0.0);
+		Assert.assertEquals(1, map.size());
+		Assert.assertFalse(map.containsKey(id1));
+		Assert.assertTrue(Double.isNaN(map.remove(id1)));
+
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertFalse(map.containsKey(id2));
+	}
+
+	@Test
+	public void testAdd_growsBeyondInitialSize() {
+		IdToDoubleMap<Person> map = new IdToDoubleMap<>(Person.class, Double.NaN, 1);
+		List<Id<Person>> ids = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			ids.add(Id.create("add" + i, Person.class));
+		}
+		for (Id<Person> id : ids) {
+			map.add(id, 1.0);
+			map.add(id, 0.5);
+		}
+		Assert.assertEquals(500, map.size());
+		Assert.assertEquals(1.5, map.get(ids.get(499)), 0.0);
+		Assert.assertEquals(750.0, map.sum(), 1e-9);
+	}
+
+	@Test
+	public void testBulkOperations_inIndexOrder() {
+		Id<Person> id1 = Id.create("bulk1", Person.class);
+		Id<Person> id2 = Id.create("bulk2", Person.class);
+		Id<Person> id3 = Id.create("bulk3", Person.class);
+		IdToDoubleMap<Person> map = new IdToDoubleMap<>(Person.class);
+		map.put(id3, 3.0);
+		map.put(id1, 1.0);
+		IdToDoubleMap<Person> other = new IdToDoubleMap<>(Person.class);
+		other.put(id1, 10.0);
+		other.put(id2, 20.0);
+
+		IdToDoubleMap<Person> sum = new IdToDoubleMap<>(Person.class);
+		sum.putAll(map);
+		sum.addAll(other);
+		Assert.assertEquals(11.0, sum.get(id1), 0.0);
+		Assert.assertEquals(20.0, sum.get(id2), 0.0);
+		Assert.assertEquals(3.0, sum.get(id3), 0.0);
+
+		List<Id<Person>> keys = new ArrayList<>();
+		List<Double> values = new ArrayList<>();
+		sum.forEach((id, value) -> {
+			keys.add(id);
+			values.add(value);
+		});
+		Assert.assertEquals(Arrays.asList(id1, id2, id3), keys);
+		Assert.assertEquals(Arrays.asList(11.0, 20.0, 3.0), values);
+		Assert.assertEquals(new ArrayList<>(sum.keySet()), keys);
+
+		map.putAll(other);
+		Assert.assertEquals(10.0, map.get(id1), 0.0);
+		Assert.assertEquals(3, map.size());
+	}
+
+}
@@ -0,0 +1,69 @@
+package org.matsim.api.core.v01;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.vehicles.Vehicle;
+
+public class IdToIntMapTest {
+
+	@Test
+	public void testPutGetRemoveSize() {
+		IdToIntMap<Vehicle> map = new IdToIntMap<>(Vehicle.class, -1, 10);
+		Id<Vehicle> id1 = Id.create(1, Vehicle.class);
+		Id<Vehicle> id2 = Id.create(2, Vehicle.class);
+
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertEquals(-1, map.get(id1));
+		Assert.assertEquals(7, map.getOrDefault(id1, 7));
+
+		Assert.assertEquals(-1, map.put(id1, 1));
+		Assert.assertEquals(1, map.put(id1, 2));
+		Assert.assertEquals(-1, map.put(id2, 0));
+		Assert.assertEquals(2, map.size());
+		Assert.assertTrue(map.containsKey(id2));
+
+		Assert.assertEquals(2, map.remove(id1));
+		Assert.assertEquals(-1, map.remove(id1));
+		Assert.assertEquals(1, map.size());
+
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testIncrement() {
+		IdToIntMap<Vehicle> map = new IdToIntMap<>(Vehicle.class, 0, 1);
+		Id<Vehicle> id = Id.create("increment", Vehicle.class);
+		Assert.assertEquals(0, map.get(id));
+		Assert.assertFalse(map.containsKey(id));
+		Assert.assertEquals(1, map.increment(id));
+		Assert.assertEquals(2, map.increment(id));
+		Assert.assertEquals(1, map.add(id, -1));
+		Assert.assertEquals(1, map.get(id));
+		Assert.assertEquals(1, map.size());
+	}
+
+	@Test
+	public void testBulkOperations_inIndexOrder() {
+		Id<Vehicle> id1 = Id.create("bulk1", Vehicle.class);
+		Id<Vehicle> id2 = Id.create("bulk2", Vehicle.class);
+		IdToIntMap<Vehicle> map = new IdToIntMap<>(Vehicle.class);
+		map.put(id2, 2);
+		map.put(id1, 1);
+		IdToIntMap<Vehicle> other = new IdToIntMap<>(Vehicle.class);
+		other.addAll(map);
+		other.addAll(map);
+		Assert.assertEquals(2, other.get(id1));
+		Assert.assertEquals(4, other.get(id2));
+		Assert.assertEquals(6, other.sum());
+
+		List<Id<Vehicle>> keys = new ArrayList<>();
+		other.forEach((id, value) -> keys.add(id));
+		Assert.assertEquals(Arrays.asList(id1, id2), keys);
+	}
+
+}
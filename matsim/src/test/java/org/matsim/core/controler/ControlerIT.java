@@ -49,6 +49,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.ControlerConfigGroup;
@@ -56,6 +57,9 @@ import org.matsim.core.config.groups.ControlerConfigGroup.EventsFileFormat;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
 import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.config.groups.StrategyConfigGroup.StrategySettings;
+import org.matsim.core.events.BinaryEventsFormat;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
 import org.matsim.core.mobsim.framework.Mobsim;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.NetworkRoute;
@@ -68,6 +72,7 @@ import org.matsim.core.scoring.SumScoringFunction;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.examples.ExamplesUtils;
 import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
 
 import com.google.inject.Provider;
 
@@ -703,6 +708,34 @@ public class ControlerIT {
 		assertTrue(new File(controler.getControlerIO().getIterationFilename(0, Controler.DefaultFiles.events)).exists());
 	}
 
+	@Test
+	public void testSetWriteEventsBinary() {
+		final Config config = utils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config_plans1.xml"));
+		config.controler().setLastIteration(0);
+		config.controler().setWritePlansInterval(0);
+		config.controler().setWriteEventsInterval(1);
+		config.controler().setEventsFileFormats(EnumSet.of(EventsFileFormat.binary));
+		config.controler().setCompressionType(CompressionType.gzip);
+		config.controler().setCreateGraphs(false);
+		config.controler().setDumpDataAtEnd(true);
+
+		final Controler controler = new Controler(config);
+		controler.run();
+
+		// the binary format is never compressed on top, so the files can be read with the MatsimEventsReader
+		String iterationFile = controler.getControlerIO().getIterationFilename(0, Controler.DefaultFiles.eventsBinary, CompressionType.none);
+		String outputFile = controler.getControlerIO().getOutputFilename(Controler.DefaultFiles.eventsBinary, CompressionType.none);
+		assertTrue(iterationFile.endsWith(BinaryEventsFormat.FILE_EXTENSION));
+		for (String filename : new String[] { iterationFile, outputFile }) {
+			assertTrue(filename, new File(filename).exists());
+			EventsManager events = EventsUtils.createEventsManager();
+			EventsCollector collector = new EventsCollector();
+			events.addHandler(collector);
+			new MatsimEventsReader(events).readFile(filename);
+			assertFalse(collector.getEvents().isEmpty());
+		}
+	}
+
 	/**
 	 * @author mrieser
 	 */
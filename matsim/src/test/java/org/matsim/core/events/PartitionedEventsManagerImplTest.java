@@ -0,0 +1,177 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PartitionedEventsManagerImplTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.handler.ActivityEndEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.EventsDispatchMode;
+import org.matsim.core.events.handler.PartitionedEventHandler;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class PartitionedEventsManagerImplTest {
+
+	@Test
+	public void testPartitionedHandler_keepsOrderPerPerson() {
+		final int nOfPersons = 1000;
+		final int nOfSteps = 50;
+		PartitionedEventsManagerImpl events = new PartitionedEventsManagerImpl(4, 64, EventsDispatchMode.reflective);
+		OrderCheckingHandler handler = new OrderCheckingHandler();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(handler);
+		events.addHandler(collector);
+
+		events.initProcessing();
+		for (int step = 0; step < nOfSteps; step++) {
+			for (int p = 0; p < nOfPersons; p++) {
+				events.processEvent(new ActivityEndEvent(step, Id.createPersonId(p), Id.createLinkId(0), null, "home"));
+			}
+			events.afterSimStep(step);
+			Assert.assertEquals("not all events of the time step were processed.", (step + 1) * nOfPersons, handler.counter.get());
+		}
+		events.finishProcessing();
+
+		Assert.assertEquals(nOfPersons * nOfSteps, handler.counter.get());
+		Assert.assertEquals(nOfPersons * nOfSteps, collector.getEvents().size());
+		Assert.assertEquals(0, handler.wrongOrderCounter.get());
+		Assert.assertEquals(0, handler.wrongThreadCounter.get());
+		Assert.assertTrue("partitioned handler should have been called by several threads.",
+				handler.threadPerPerson.values().stream().distinct().count() > 1);
+
+		events.resetHandlers(1);
+		Assert.assertEquals("partitioned handler must be reset exactly once.", 1, handler.resetCounter);
+	}
+
+	@Test
+	public void testEventHandlerCanProduceAdditionalEventLateInSimStep() {
+		final PartitionedEventsManagerImpl events = new PartitionedEventsManagerImpl(8);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+				events.processEvent(new PersonStuckEvent(event.getTime(), Id.createPersonId(0), Id.createLinkId(0), "car"));
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		events.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(1.0);
+		events.finishProcessing();
+
+		assertThat(collector.getEvents(),
+			contains(
+					new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(0.0, Id.createPersonId(0), Id.createLinkId(0), "car"),
+					new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(1.0, Id.createPersonId(0), Id.createLinkId(0), "car")));
+	}
+
+	@Test
+	public void testExceptionInPartitionedHandler() {
+		PartitionedEventsManagerImpl events = new PartitionedEventsManagerImpl(2);
+		events.addHandler(new CrashingHandler());
+		events.initProcessing();
+		events.processEvent(new ActivityEndEvent(0.0, Id.createPersonId(0), Id.createLinkId(0), null, "home"));
+		try {
+			events.finishProcessing();
+			Assert.fail("expected exception, but got none.");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getCause() instanceof ArithmeticException);
+		}
+	}
+
+	private static class OrderCheckingHandler implements ActivityEndEventHandler, PartitionedEventHandler {
+		private final Map<Id<Person>, Double> lastTimePerPerson = new ConcurrentHashMap<>();
+		private final Map<Id<Person>, Thread> threadPerPerson = new ConcurrentHashMap<>();
+		private final AtomicInteger counter = new AtomicInteger();
+		private final AtomicInteger wrongOrderCounter = new AtomicInteger();
+		private final AtomicInteger wrongThreadCounter = new AtomicInteger();
+		private int resetCounter = 0;
+
+		@Override
+		public PartitionKey getPartitionKey() {
+			return PartitionKey.person;
+		}
+
+		@Override
+		public void handleEvent(ActivityEndEvent event) {
+			Double lastTime = this.lastTimePerPerson.put(event.getPersonId(), event.getTime());
+			if (lastTime != null && lastTime > event.getTime()) {
+				this.wrongOrderCounter.incrementAndGet();
+			}
+			Thread thread = this.threadPerPerson.putIfAbsent(event.getPersonId(), Thread.currentThread());
+			if (thread != null && thread != Thread.currentThread()) {
+				this.wrongThreadCounter.incrementAndGet();
+			}
+			this.counter.incrementAndGet();
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.resetCounter++;
+		}
+	}
+
+	private static class CrashingHandler implements ActivityEndEventHandler, PartitionedEventHandler {
+		@Override
+		public PartitionKey getPartitionKey() {
+			return PartitionKey.person;
+		}
+
+		@Override
+		public void handleEvent(ActivityEndEvent event) {
+			throw new ArithmeticException("crashing on purpose");
+		}
+
+		@Override
+		public void reset(int iteration) {
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class AsyncEventWriterXMLTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSameOutputAsEventWriterXML() {
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		EventWriterXML writer = new EventWriterXML(expected);
+		AsyncEventWriterXML asyncWriter = new AsyncEventWriterXML(actual, 1);
+
+		for (int i = 0; i < 10000; i++) {
+			Event event = new LinkLeaveEvent(i, Id.createVehicleId("vehicle>" + i), Id.createLinkId("link<" + (i % 10)));
+			writer.handleEvent(event);
+			asyncWriter.handleEvent(event);
+		}
+		GenericEvent event = new GenericEvent("custom", 10000.0);
+		event.getAttributes().put("text", "\"a & b\"");
+		writer.handleEvent(event);
+		asyncWriter.handleEvent(event);
+		writer.closeFile();
+		asyncWriter.closeFile();
+
+		Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+	}
+
+	@Test
+	public void testParallelCompression() {
+		String filename = this.utils.getOutputDirectory() + "events.xml.gz";
+		AsyncEventWriterXML writer = new AsyncEventWriterXML(filename, 4, AsyncEventWriterXML.DEFAULT_QUEUE_CAPACITY);
+		for (int i = 0; i < 100000; i++) {
+			writer.handleEvent(new LinkLeaveEvent(i, Id.createVehicleId(i % 100), Id.createLinkId(i % 1000)));
+		}
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+
+		Assert.assertEquals(100000, collector.getEvents().size());
+		LinkLeaveEvent last = (LinkLeaveEvent) collector.getEvents().get(99999);
+		Assert.assertEquals(99999.0, last.getTime(), 0.0);
+		Assert.assertEquals("99", last.getVehicleId().toString());
+		Assert.assertEquals("999", last.getLinkId().toString());
+	}
+
+}
@@ -0,0 +1,181 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.BinaryEventsFormat;
+import org.matsim.core.events.EventsReaderBinary;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class EventWriterBinaryTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testRoundTrip() {
+		String filename = this.utils.getOutputDirectory() + "testEvents" + BinaryEventsFormat.FILE_EXTENSION;
+		List<Event> written = createEvents();
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		for (Event event : written) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+		Assert.assertTrue(new File(filename).exists());
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+
+		assertSameEvents(written, collector.getEvents());
+	}
+
+	@Test
+	public void testRoundTrip_multipleBlocks_parallelDecoding() {
+		List<Event> written = createEvents();
+		for (BinaryEventsFormat.Compression compression : BinaryEventsFormat.Compression.values()) {
+			byte[] data = write(written, compression, 100);
+			EventsManager events = EventsUtils.createEventsManager();
+			EventsCollector collector = new EventsCollector();
+			events.addHandler(collector);
+			EventsReaderBinary reader = new EventsReaderBinary(events);
+			reader.setNumberOfThreads(3);
+			reader.parse(new ByteArrayInputStream(data));
+
+			assertSameEvents(written, collector.getEvents());
+		}
+	}
+
+	@Test
+	public void testFilter() {
+		List<Event> written = createEvents();
+		byte[] data = write(written, BinaryEventsFormat.Compression.none, 100);
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		EventsReaderBinary reader = new EventsReaderBinary(events);
+		reader.setEventTypes(Collections.singleton(LinkEnterEvent.EVENT_TYPE));
+		reader.setTimeRange(500.0, 600.0);
+		reader.parse(new ByteArrayInputStream(data));
+
+		List<Event> expected = new ArrayList<>();
+		for (Event event : written) {
+			if (event instanceof LinkEnterEvent && event.getTime() >= 500.0 && event.getTime() <= 600.0) {
+				expected.add(event);
+			}
+		}
+		Assert.assertFalse(expected.isEmpty());
+		assertSameEvents(expected, collector.getEvents());
+	}
+
+	@Test
+	public void testRoundTrip_mixedNumberColumns() {
+		String[][] columns = {
+				{ "2", "2.5" },
+				{ "2.5", "2" },
+				{ "123456789012345678", "0.5" },
+				{ "123456789012345678", "-3" },
+				{ "1.0E10", "7" } };
+		List<Event> written = new ArrayList<>();
+		for (int i = 0; i < columns[0].length; i++) {
+			GenericEvent event = new GenericEvent("mixed", i);
+			for (int c = 0; c < columns.length; c++) {
+				event.getAttributes().put("column" + c, columns[c][i]);
+			}
+			written.add(event);
+		}
+		byte[] data = write(written, BinaryEventsFormat.Compression.none, 100);
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new EventsReaderBinary(events).parse(new ByteArrayInputStream(data));
+
+		assertSameEvents(written, collector.getEvents());
+	}
+
+	private static List<Event> createEvents() {
+		List<Event> events = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			double time = i < 500 ? i : i + 0.25;
+			switch (i % 5) {
+				case 0:
+					events.add(new LinkEnterEvent(time, Id.createVehicleId("veh" + (i % 7)), Id.createLinkId(i % 100)));
+					break;
+				case 1:
+					events.add(new LinkLeaveEvent(time, Id.createVehicleId(i % 7), Id.createLinkId("007")));
+					break;
+				case 2:
+					events.add(new PersonMoneyEvent(time, Id.createPersonId(i), i * 0.1, i % 2 == 0 ? "toll" : null, null));
+					break;
+				case 3:
+					events.add(new ActivityEndEvent(time, Id.createPersonId(i), Id.createLinkId(-5), null, "home"));
+					break;
+				default:
+					GenericEvent event = new GenericEvent("custom", time);
+					event.getAttributes().put("integer", "-42");
+					event.getAttributes().put("notCanonical", "1.50");
+					event.getAttributes().put("text", "<a & b>");
+					events.add(event);
+			}
+		}
+		return events;
+	}
+
+	private static byte[] write(List<Event> events, BinaryEventsFormat.Compression compression, int blockSize) {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(stream, compression, blockSize);
+		for (Event event : events) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+		return stream.toByteArray();
+	}
+
+	private static void assertSameEvents(List<Event> expected, List<Event> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i).getClass(), actual.get(i).getClass());
+			Assert.assertEquals(expected.get(i).getAttributes(), actual.get(i).getAttributes());
+		}
+	}
+
+}
@@ -0,0 +1,159 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Identifiable;
+import org.matsim.api.core.v01.population.Person;
+
+public class ActivityEndsQueueTest {
+
+	@Test
+	public void testOrder() {
+		ActivityEndsQueue<Agent> queue = new ActivityEndsQueue<>();
+		Agent a = new Agent("a");
+		Agent b = new Agent("b");
+		Agent c = new Agent("c");
+		Agent d = new Agent("d");
+		queue.add(a, 10.5);
+		queue.add(b, 10.0);
+		queue.add(c, 10.0);
+		queue.add(d, 12.0);
+
+		Assert.assertNull(queue.poll(9.0));
+		// same end time: larger id first
+		Assert.assertSame(c, queue.poll(11.0));
+		Assert.assertSame(b, queue.poll(11.0));
+		Assert.assertSame(a, queue.poll(11.0));
+		Assert.assertNull(queue.poll(11.0));
+		Assert.assertEquals(1, queue.size());
+		Assert.assertSame(d, queue.poll(12.0));
+		Assert.assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testPartialSecond() {
+		ActivityEndsQueue<Agent> queue = new ActivityEndsQueue<>();
+		Agent a = new Agent("a");
+		Agent b = new Agent("b");
+		queue.add(a, 100.25);
+		queue.add(b, 100.75);
+
+		Assert.assertNull(queue.poll(100.0));
+		Assert.assertSame(a, queue.poll(100.5));
+		Assert.assertNull(queue.poll(100.5));
+		Assert.assertSame(b, queue.poll(101.0));
+	}
+
+	@Test
+	public void testReschedule() {
+		ActivityEndsQueue<Agent> queue = new ActivityEndsQueue<>();
+		Agent a = new Agent("a");
+		Agent b = new Agent("b");
+		queue.add(a, 10.0);
+		queue.add(b, 20.0);
+
+		Assert.assertTrue(queue.remove(a));
+		Assert.assertFalse(queue.remove(a));
+		queue.add(a, 30.0);
+		queue.add(b, 5.0); // replaces the previous entry
+
+		Assert.assertSame(b, queue.poll(10.0));
+		Assert.assertNull(queue.poll(20.0));
+		Assert.assertSame(a, queue.poll(30.0));
+		Assert.assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testRescheduleWhileProcessingDueAgents() {
+		ActivityEndsQueue<Agent> queue = new ActivityEndsQueue<>();
+		Agent a = new Agent("a");
+		Agent b = new Agent("b");
+		Agent c = new Agent("c");
+		queue.add(a, 1.0);
+		queue.add(b, 2.0);
+
+		Assert.assertSame(a, queue.poll(5.0));
+		// b is due as well, but is rescheduled before it is polled; c is added with an end time in the past
+		Assert.assertTrue(queue.remove(b));
+		queue.add(c, 0.0);
+		Assert.assertSame(c, queue.poll(5.0));
+		Assert.assertNull(queue.poll(5.0));
+	}
+
+	@Test
+	public void testBeyondWheel() {
+		ActivityEndsQueue<Agent> queue = new ActivityEndsQueue<>();
+		Map<Agent, Double> endTimes = new HashMap<>();
+		for (int i = 0; i < 10; i++) {
+			Agent agent = new Agent("agent" + i);
+			double endTime = (10 - i) * 0.75 * ActivityEndsQueue.WHEEL_SIZE + 0.5;
+			queue.add(agent, endTime);
+			endTimes.put(agent, endTime);
+		}
+
+		int polled = 0;
+		for (double time = 0; time <= 10 * ActivityEndsQueue.WHEEL_SIZE; time++) {
+			Agent agent;
+			while ((agent = queue.poll(time)) != null) {
+				Assert.assertEquals(endTimes.get(agent) + 0.5, time, 0.0);
+				polled++;
+			}
+		}
+		Assert.assertEquals(10, polled);
+	}
+
+	@Test
+	public void testClear() {
+		ActivityEndsQueue<Agent> queue = new ActivityEndsQueue<>();
+		Agent a = new Agent("a");
+		Agent b = new Agent("b");
+		queue.add(a, 20.0);
+		queue.add(b, 10.0);
+
+		List<ActivityEndsQueue.Entry<Agent>> entries = queue.clear();
+		Assert.assertEquals(2, entries.size());
+		Assert.assertSame(b, entries.get(0).getAgent());
+		Assert.assertEquals(10.0, entries.get(0).getActivityEndTime(), 0.0);
+		Assert.assertSame(a, entries.get(1).getAgent());
+		Assert.assertEquals(0, queue.size());
+		Assert.assertNull(queue.poll(100.0));
+	}
+
+	private static final class Agent implements Identifiable<Person> {
+		private final Id<Person> id;
+
+		Agent(final String id) {
+			this.id = Id.createPersonId(id);
+		}
+
+		@Override
+		public Id<Person> getId() {
+			return this.id;
+		}
+	}
+
+}
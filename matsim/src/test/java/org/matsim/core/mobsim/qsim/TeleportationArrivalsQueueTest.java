@@ -0,0 +1,149 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Identifiable;
+import org.matsim.api.core.v01.population.Person;
+
+public class TeleportationArrivalsQueueTest {
+
+	@Test
+	public void testOrder() {
+		TeleportationArrivalsQueue<Agent> queue = new TeleportationArrivalsQueue<>();
+		Agent a = new Agent("a");
+		Agent b = new Agent("b");
+		Agent c = new Agent("c");
+		queue.add(10.5, a);
+		queue.add(10.0, b);
+		queue.add(10.0, c);
+
+		Assert.assertNull(queue.poll(9.0));
+		Assert.assertSame(c, queue.poll(10.0));
+		Assert.assertSame(b, queue.poll(10.0));
+		Assert.assertNull(queue.poll(10.0));
+		Assert.assertSame(a, queue.poll(10.5));
+		Assert.assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testManyArrivals() {
+		TeleportationArrivalsQueue<Agent> queue = new TeleportationArrivalsQueue<>();
+		Random random = new Random(4711);
+		Map<Agent, Double> arrivalTimes = new HashMap<>();
+		List<Agent> expected = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			Agent agent = new Agent("agent" + i);
+			// many agents arrive at exactly the same time
+			double arrivalTime = 100 + random.nextInt(20) * 0.5;
+			queue.add(arrivalTime, agent);
+			arrivalTimes.put(agent, arrivalTime);
+			expected.add(agent);
+		}
+		expected.sort(Comparator.comparing((Agent agent) -> arrivalTimes.get(agent))
+				.thenComparing(Agent::getId, Comparator.reverseOrder()));
+
+		List<Agent> polled = new ArrayList<>();
+		for (double time = 0; time < 120; time += 0.5) {
+			Agent agent;
+			while ((agent = queue.poll(time)) != null) {
+				Assert.assertEquals(arrivalTimes.get(agent), time, 0.0);
+				polled.add(agent);
+			}
+		}
+		Assert.assertEquals(expected, polled);
+	}
+
+	@Test
+	public void testAddWhileArriving() {
+		TeleportationArrivalsQueue<Agent> queue = new TeleportationArrivalsQueue<>();
+		Agent a = new Agent("a");
+		Agent b = new Agent("b");
+		Agent z = new Agent("z");
+		queue.add(5.0, a);
+		queue.add(5.0, b);
+
+		Assert.assertSame(b, queue.poll(5.0));
+		// a leg without travel time, started by an agent which just arrived
+		queue.add(5.0, z);
+		Assert.assertSame(z, queue.poll(5.0));
+		Assert.assertSame(a, queue.poll(5.0));
+		Assert.assertNull(queue.poll(5.0));
+	}
+
+	@Test
+	public void testBeyondWheel() {
+		TeleportationArrivalsQueue<Agent> queue = new TeleportationArrivalsQueue<>();
+		Agent a = new Agent("a");
+		Agent b = new Agent("b");
+		double arrivalA = 2.5 * TeleportationArrivalsQueue.WHEEL_SIZE;
+		double arrivalB = 1.5 * TeleportationArrivalsQueue.WHEEL_SIZE;
+		queue.add(arrivalA, a);
+		queue.add(arrivalB, b);
+
+		for (double time = 0; time < arrivalB; time++) {
+			Assert.assertNull(queue.poll(time));
+		}
+		Assert.assertSame(b, queue.poll(arrivalB));
+		for (double time = arrivalB; time < arrivalA; time++) {
+			Assert.assertNull(queue.poll(time));
+		}
+		Assert.assertSame(a, queue.poll(arrivalA));
+	}
+
+	@Test
+	public void testClear() {
+		TeleportationArrivalsQueue<Agent> queue = new TeleportationArrivalsQueue<>();
+		Agent a = new Agent("a");
+		Agent b = new Agent("b");
+		Agent c = new Agent("c");
+		queue.add(3.0 * TeleportationArrivalsQueue.WHEEL_SIZE, a);
+		queue.add(20.0, b);
+		queue.add(10.0, c);
+
+		List<Agent> agents = queue.clear();
+		Assert.assertEquals(List.of(c, b, a), agents);
+		Assert.assertEquals(0, queue.size());
+		Assert.assertNull(queue.poll(4.0 * TeleportationArrivalsQueue.WHEEL_SIZE));
+	}
+
+	private static final class Agent implements Identifiable<Person> {
+		private final Id<Person> id;
+
+		Agent(final String id) {
+			this.id = Id.createPersonId(id);
+		}
+
+		@Override
+		public Id<Person> getId() {
+			return this.id;
+		}
+	}
+
+}
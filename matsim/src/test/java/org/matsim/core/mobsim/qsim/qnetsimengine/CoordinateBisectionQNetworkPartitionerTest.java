@@ -0,0 +1,100 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+public class CoordinateBisectionQNetworkPartitionerTest {
+
+	@Test
+	public void testEqualWeights() {
+		List<Node> nodes = createGrid("equal");
+		int[] partitions = new CoordinateBisectionQNetworkPartitioner(null).partition(nodes, 4);
+
+		int[] counts = new int[4];
+		for (int i = 0; i < nodes.size(); i++) {
+			counts[partitions[i]]++;
+		}
+		for (int count : counts) {
+			Assert.assertEquals(nodes.size() / 4, count);
+		}
+
+		// the grid is twice as wide as high, so the first cut is along x. Quarters are contiguous regions.
+		for (int i = 0; i < nodes.size(); i++) {
+			int expected = (int) (nodes.get(i).getCoord().getX() / 25);
+			Assert.assertEquals(expected, partitions[i]);
+		}
+	}
+
+	@Test
+	public void testLoadWeights() {
+		List<Node> nodes = createGrid("weighted");
+		int[] loads = new int[Id.getNumberOfIds(Node.class)];
+		for (Node node : nodes) {
+			if (node.getCoord().getX() < 10) {
+				loads[node.getId().index()] = 99;
+			}
+		}
+		QNetworkLoadStatistics loadStatistics = new QNetworkLoadStatistics();
+		loadStatistics.setNodeLoads(loads);
+
+		int[] partitions = new CoordinateBisectionQNetworkPartitioner(loadStatistics).partition(nodes, 4);
+
+		double[] weights = new double[4];
+		double totalWeight = 0;
+		for (int i = 0; i < nodes.size(); i++) {
+			double weight = 1 + loadStatistics.getNodeLoad(nodes.get(i).getId());
+			weights[partitions[i]] += weight;
+			totalWeight += weight;
+		}
+		for (double weight : weights) {
+			Assert.assertEquals(totalWeight / 4, weight, totalWeight / 100);
+		}
+	}
+
+	@Test
+	public void testRoundRobin() {
+		List<Node> nodes = createGrid("roundRobin");
+		int[] partitions = new RoundRobinQNetworkPartitioner().partition(nodes, 3);
+		for (int i = 0; i < nodes.size(); i++) {
+			Assert.assertEquals(i % 3, partitions[i]);
+		}
+	}
+
+	private static List<Node> createGrid(String prefix) {
+		List<Node> nodes = new ArrayList<>();
+		for (int y = 0; y < 50; y++) {
+			for (int x = 0; x < 100; x++) {
+				nodes.add(NetworkUtils.createNode(Id.createNodeId(prefix + "_" + x + "_" + y), new Coord(x, y)));
+			}
+		}
+		return nodes;
+	}
+
+}
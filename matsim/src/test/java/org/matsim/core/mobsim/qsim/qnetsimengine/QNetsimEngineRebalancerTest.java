@@ -0,0 +1,244 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class QNetsimEngineRebalancerTest {
+
+	private static final int COLUMNS = 10;
+	private static final int ROWS = 4;
+	private static final double INTERVAL = 300;
+
+	/**
+	 * The runner of the left half of a grid is 50% busier than the runner of the right half, so a sixth of its load, i.e.
+	 * the column of nodes next to the border, must be handed over, together with their out-links and their active
+	 * elements. Every node must still belong to exactly one runner.
+	 */
+	@Test
+	public void testSkewedLoad_movesNodes() {
+		Scenario scenario = createGridScenario();
+		QNetwork qNetwork = (QNetwork) new QSimBuilder(scenario.getConfig()).useDefaults()
+				.build(scenario, EventsUtils.createEventsManager()).getNetsimNetwork();
+		Network network = scenario.getNetwork();
+
+		List<QNetsimEngineRunnerForThreadpool> runners = Arrays.asList(new QNetsimEngineRunnerForThreadpool(), new QNetsimEngineRunnerForThreadpool());
+		int[] runnerOfNode = new int[Id.getNumberOfIds(Node.class)];
+		for (QNetsimEngineRunnerForThreadpool runner : runners) {
+			runner.nodeLoads = new int[Id.getNumberOfIds(Node.class)];
+		}
+		int[] assignedNodes = new int[2];
+		int[] assignedLinks = new int[2];
+		for (Node node : network.getNodes().values()) {
+			int runner = node.getCoord().getX() < COLUMNS * 100 / 2 ? 0 : 1;
+			int index = node.getId().index();
+			runnerOfNode[index] = runner;
+			runners.get(runner).nodeLoads[index] = runner == 0 ? 30 : 10;
+			assignedNodes[runner]++;
+			((AbstractQNode) qNetwork.getNetsimNode(node.getId())).setNetElementActivationRegistry(runners.get(runner));
+			for (Link link : node.getOutLinks().values()) {
+				((AbstractQLink) qNetwork.getNetsimLink(link.getId())).setNetElementActivationRegistry(runners.get(runner));
+				assignedLinks[runner]++;
+			}
+		}
+		// every node and link of the busy runner is active
+		for (Node node : network.getNodes().values()) {
+			if (runnerOfNode[node.getId().index()] == 0) {
+				runners.get(0).registerNodeAsActive(qNetwork.getNetsimNodes().get(node.getId()));
+				for (Link link : node.getOutLinks().values()) {
+					runners.get(0).registerLinkAsActive(qNetwork.getNetsimLink(link.getId()));
+				}
+			}
+		}
+		int[] runnerOfNodeBefore = runnerOfNode.clone();
+		int activeNodes = runners.get(0).getNumberOfSimulatedNodes();
+		int activeLinks = runners.get(0).getNumberOfSimulatedLinks();
+
+		QNetsimEngineRebalancer rebalancer = new QNetsimEngineRebalancer(INTERVAL, 0, runners, qNetwork, runnerOfNode, assignedNodes, assignedLinks);
+		runners.get(0).busyNanos = 3000000;
+		runners.get(1).busyNanos = 2000000;
+		rebalancer.afterSimStep(INTERVAL - 1);
+		Assert.assertEquals("no rebalancing before the end of the interval", 0, rebalancer.getNumberOfMigrations());
+		Assert.assertArrayEquals(runnerOfNodeBefore, runnerOfNode);
+
+		rebalancer.afterSimStep(INTERVAL);
+		Assert.assertEquals(1, rebalancer.getNumberOfMigrations());
+
+		int movedNodes = 0;
+		int movedLinks = 0;
+		int[] nodesOfRunner = new int[2];
+		int[] linksOfRunner = new int[2];
+		for (Node node : network.getNodes().values()) {
+			int index = node.getId().index();
+			Assert.assertFalse("nodes must only move away from the busy runner", runnerOfNodeBefore[index] == 1 && runnerOfNode[index] == 0);
+			if (runnerOfNode[index] != runnerOfNodeBefore[index]) {
+				movedNodes++;
+				movedLinks += node.getOutLinks().size();
+				Assert.assertEquals("only the nodes next to the border should move", COLUMNS / 2 - 1, (int) (node.getCoord().getX() / 100));
+			}
+			nodesOfRunner[runnerOfNode[index]]++;
+			linksOfRunner[runnerOfNode[index]] += node.getOutLinks().size();
+		}
+		Assert.assertEquals(ROWS, movedNodes);
+		Assert.assertArrayEquals("assigned nodes must match the new assignment", nodesOfRunner, assignedNodes);
+		Assert.assertArrayEquals("assigned links must match the new assignment", linksOfRunner, assignedLinks);
+		Assert.assertEquals(network.getNodes().size(), assignedNodes[0] + assignedNodes[1]);
+		Assert.assertEquals(network.getLinks().size(), assignedLinks[0] + assignedLinks[1]);
+
+		// the active elements of the moved nodes are handed over, none is lost or duplicated
+		Assert.assertEquals(movedNodes, runners.get(1).getNumberOfSimulatedNodes());
+		Assert.assertEquals(movedLinks, runners.get(1).getNumberOfSimulatedLinks());
+		Assert.assertEquals(activeNodes, runners.get(0).getNumberOfSimulatedNodes() + runners.get(1).getNumberOfSimulatedNodes());
+		Assert.assertEquals(activeLinks, runners.get(0).getNumberOfSimulatedLinks() + runners.get(1).getNumberOfSimulatedLinks());
+
+		// balanced runners in the next interval: nothing moves
+		runners.get(0).busyNanos += 1000000;
+		runners.get(1).busyNanos += 1000000;
+		int[] runnerOfNodeAfterMigration = runnerOfNode.clone();
+		rebalancer.afterSimStep(2 * INTERVAL);
+		Assert.assertEquals(1, rebalancer.getNumberOfMigrations());
+		Assert.assertArrayEquals(runnerOfNodeAfterMigration, runnerOfNode);
+	}
+
+	/**
+	 * All traffic is in one half of a corridor, so rebalancing kicks in; this must not change the simulation.
+	 */
+	@Test
+	public void testRebalancing_sameEvents() {
+		List<String> expected = simulate(0);
+		List<String> actual = simulate(60);
+		Assert.assertTrue(expected.stream().anyMatch(e -> e.contains("type=\"arrival\"")));
+		Assert.assertEquals(expected, actual);
+	}
+
+	private static Scenario createGridScenario() {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setNumberOfThreads(2);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Network network = scenario.getNetwork();
+		Node[][] nodes = new Node[COLUMNS][ROWS];
+		for (int x = 0; x < COLUMNS; x++) {
+			for (int y = 0; y < ROWS; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(100 * x, 100 * y));
+			}
+		}
+		for (int x = 0; x < COLUMNS; x++) {
+			for (int y = 0; y < ROWS; y++) {
+				if (x + 1 < COLUMNS) {
+					createLinks(network, nodes[x][y], nodes[x + 1][y]);
+				}
+				if (y + 1 < ROWS) {
+					createLinks(network, nodes[x][y], nodes[x][y + 1]);
+				}
+			}
+		}
+		return scenario;
+	}
+
+	private static void createLinks(Network network, Node a, Node b) {
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(a.getId() + "-" + b.getId()), a, b, 100, 10, 3600, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(b.getId() + "-" + a.getId()), b, a, 100, 10, 3600, 1);
+	}
+
+	private static List<String> simulate(double rebalancingInterval) {
+		final int numberOfLinks = 2000;
+		final int numberOfAgents = 500;
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setNumberOfThreads(2);
+		config.qsim().setNetworkPartitioning(QSimConfigGroup.NetworkPartitioning.coordinateBisection);
+		config.qsim().setNetworkRebalancingInterval(rebalancingInterval);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		Network network = scenario.getNetwork();
+		Node fromNode = NetworkUtils.createAndAddNode(network, Id.createNodeId(0), new Coord(0, 0));
+		for (int i = 0; i < numberOfLinks; i++) {
+			Node toNode = NetworkUtils.createAndAddNode(network, Id.createNodeId(i + 1), new Coord(100 * (i + 1), 0));
+			NetworkUtils.createAndAddLink(network, Id.createLinkId(i), fromNode, toNode, 100, 10, 3600, 1);
+			fromNode = toNode;
+		}
+
+		// every agent drives 20 links in the first half of the corridor, departing over half an hour
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		for (int i = 0; i < numberOfAgents; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromLinkId("h", Id.createLinkId(i));
+			home.setEndTime(6 * 3600 + (i % 30) * 60);
+			plan.addActivity(home);
+			Leg leg = pf.createLeg(TransportMode.car);
+			List<Id<Link>> routeLinks = new ArrayList<>();
+			for (int j = i + 1; j < i + 20; j++) {
+				routeLinks.add(Id.createLinkId(j));
+			}
+			leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId(i), routeLinks, Id.createLinkId(i + 20)));
+			plan.addLeg(leg);
+			plan.addActivity(pf.createActivityFromLinkId("w", Id.createLinkId(i + 20)));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, events);
+		qsim.run();
+
+		List<String> result = new ArrayList<>();
+		for (Event event : collector.getEvents()) {
+			result.add(event.toString());
+		}
+		// events of the same time step may be reported in a different order by different threads
+		Collections.sort(result);
+		return result;
+	}
+
+}
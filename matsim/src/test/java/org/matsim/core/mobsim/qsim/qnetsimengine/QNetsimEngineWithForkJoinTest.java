@@ -0,0 +1,118 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class QNetsimEngineWithForkJoinTest {
+
+	private static final int NUMBER_OF_LINKS = 3000;
+	private static final int NUMBER_OF_AGENTS = 2 * QNetsimEngineRunnerForForkJoin.SEQUENTIAL_THRESHOLD;
+
+	/**
+	 * Enough agents depart at the same time that the fork-join engine has to split the active links into tasks; the
+	 * resulting events must be the same as with the default engine.
+	 */
+	@Test
+	public void testSameEventsAsDefaultEngine() {
+		List<String> expected = simulate(false, 1);
+		List<String> actual = simulate(true, 4);
+		Assert.assertEquals(NUMBER_OF_AGENTS, expected.stream().filter(e -> e.contains("type=\"arrival\"")).count());
+		Assert.assertEquals(expected, actual);
+	}
+
+	private static List<String> simulate(boolean usingWorkStealing, int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setUsingWorkStealing(usingWorkStealing);
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		// a long corridor, every agent drives 5 links on it
+		Network network = scenario.getNetwork();
+		Node fromNode = NetworkUtils.createAndAddNode(network, Id.createNodeId(0), new Coord(0, 0));
+		for (int i = 0; i < NUMBER_OF_LINKS; i++) {
+			Node toNode = NetworkUtils.createAndAddNode(network, Id.createNodeId(i + 1), new Coord(100 * (i + 1), 0));
+			NetworkUtils.createAndAddLink(network, Id.createLinkId(i), fromNode, toNode, 100, 10, 3600, 1);
+			fromNode = toNode;
+		}
+
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		for (int i = 0; i < NUMBER_OF_AGENTS; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromLinkId("h", Id.createLinkId(i));
+			home.setEndTime(6 * 3600);
+			plan.addActivity(home);
+			Leg leg = pf.createLeg(TransportMode.car);
+			List<Id<Link>> routeLinks = new ArrayList<>();
+			for (int j = i + 1; j < i + 5; j++) {
+				routeLinks.add(Id.createLinkId(j));
+			}
+			leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId(i), routeLinks, Id.createLinkId(i + 5)));
+			plan.addLeg(leg);
+			plan.addActivity(pf.createActivityFromLinkId("w", Id.createLinkId(i + 5)));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		new QSimBuilder(config).useDefaults().build(scenario, events).run();
+
+		List<String> result = new ArrayList<>();
+		for (Event event : collector.getEvents()) {
+			result.add(event.toString());
+		}
+		// events of the same time step may be reported in a different order by different threads
+		Collections.sort(result);
+		return result;
+	}
+
+}
@@ -0,0 +1,220 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class CompactPlanTest {
+	private static final Logger log = Logger.getLogger(CompactPlanTest.class);
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testCompactNonSelectedPlans_sameAsDefault() throws IOException {
+		Population expected = createPopulation(false, 100, 4);
+		Population actual = createPopulation(true, 100, 4);
+
+		int count = PopulationUtils.compactNonSelectedPlans(actual);
+		Assert.assertEquals(100 * 3, count);
+		for (Person person : actual.getPersons().values()) {
+			for (Plan plan : person.getPlans()) {
+				Assert.assertEquals(plan != person.getSelectedPlan(), ((CompactPlan) plan).isCompacted());
+			}
+		}
+
+		String expectedFile = this.utils.getOutputDirectory() + "expected.xml";
+		String actualFile = this.utils.getOutputDirectory() + "actual.xml";
+		new PopulationWriter(expected).write(expectedFile);
+		new PopulationWriter(actual).write(actualFile);
+		Assert.assertArrayEquals(Files.readAllBytes(Paths.get(expectedFile)), Files.readAllBytes(Paths.get(actualFile)));
+	}
+
+	@Test
+	public void testCompactNonSelectedPlans_replacesOtherPlans() {
+		Population population = createPopulation(false, 1, 3);
+		Person person = population.getPersons().values().iterator().next();
+		Plan selectedPlan = person.getSelectedPlan();
+		Plan otherPlan = person.getPlans().get(1);
+		Leg otherLeg = (Leg) otherPlan.getPlanElements().get(1);
+
+		Assert.assertEquals(2, PopulationUtils.compactNonSelectedPlans(population));
+		Assert.assertEquals(3, person.getPlans().size());
+		Assert.assertSame(selectedPlan, person.getSelectedPlan());
+		Assert.assertSame(selectedPlan, person.getPlans().get(0));
+
+		Plan compactPlan = person.getPlans().get(1);
+		Assert.assertTrue(compactPlan instanceof CompactPlan);
+		Assert.assertSame(person, compactPlan.getPerson());
+		Assert.assertEquals(otherPlan.getScore(), compactPlan.getScore());
+		Assert.assertEquals(otherPlan.getAttributes().getAttribute("innovation"), compactPlan.getAttributes().getAttribute("innovation"));
+
+		Leg leg = (Leg) compactPlan.getPlanElements().get(1);
+		Assert.assertFalse(((CompactPlan) compactPlan).isCompacted());
+		Assert.assertNotSame(otherLeg, leg);
+		Assert.assertEquals(otherLeg.getMode(), leg.getMode());
+		Assert.assertEquals(TripStructureUtils.getRoutingMode(otherLeg), TripStructureUtils.getRoutingMode(leg));
+		Assert.assertEquals(((NetworkRoute) otherLeg.getRoute()).getLinkIds(), ((NetworkRoute) leg.getRoute()).getLinkIds());
+		Assert.assertEquals(((NetworkRoute) otherLeg.getRoute()).getVehicleId(), ((NetworkRoute) leg.getRoute()).getVehicleId());
+
+		// the plan is packed again the next time
+		Assert.assertEquals(2, PopulationUtils.compactNonSelectedPlans(population));
+		Assert.assertSame(compactPlan, person.getPlans().get(1));
+		Assert.assertTrue(((CompactPlan) compactPlan).isCompacted());
+	}
+
+	@Test
+	public void testCompact_addElementsAfterwards() {
+		Population population = createPopulation(true, 1, 1);
+		CompactPlan plan = (CompactPlan) population.getPersons().values().iterator().next().getSelectedPlan();
+		int size = plan.getPlanElements().size();
+		Assert.assertTrue(plan.compact());
+
+		plan.addLeg(population.getFactory().createLeg("walk"));
+		plan.addActivity(population.getFactory().createActivityFromLinkId("home", Id.createLinkId("1")));
+		Assert.assertFalse(plan.isCompacted());
+		Assert.assertEquals(size + 2, plan.getPlanElements().size());
+		Assert.assertEquals("home", ((Activity) plan.getPlanElements().get(0)).getType());
+		Assert.assertEquals("walk", ((Leg) plan.getPlanElements().get(size)).getMode());
+	}
+
+	private static Population createPopulation(boolean compactPlans, int numberOfPersons, int plansPerPerson) {
+		PlansConfigGroup plansConfigGroup = new PlansConfigGroup();
+		plansConfigGroup.setCompactingNonSelectedPlans(compactPlans);
+		Population population = PopulationUtils.createPopulation(plansConfigGroup, null);
+		PopulationFactory factory = population.getFactory();
+		for (int i = 0; i < numberOfPersons; i++) {
+			Person person = factory.createPerson(Id.createPersonId(i));
+			for (int p = 0; p < plansPerPerson; p++) {
+				Plan plan = factory.createPlan();
+				plan.setScore(100.0 - p);
+				plan.setType(p % 2 == 0 ? "default" : null);
+				plan.getAttributes().putAttribute("innovation", p);
+
+				Activity home = factory.createActivityFromCoord("home", new Coord(1000 + i, 2000 + p));
+				home.setLinkId(Id.createLinkId(i));
+				home.setFacilityId(Id.create("home" + i, ActivityFacility.class));
+				// not exactly representable as float, so the plan is stored with exact times
+				home.setEndTime(7 * 3600 + (p == 1 ? 0.1 : i));
+				home.getAttributes().putAttribute("bags", i % 5);
+				plan.addActivity(home);
+
+				Leg carLeg = factory.createLeg("car");
+				TripStructureUtils.setRoutingMode(carLeg, "car");
+				carLeg.setDepartureTime(7 * 3600 + i);
+				carLeg.setTravelTime(600 + p);
+				List<Id<Link>> linkIds = new ArrayList<>();
+				for (int l = 0; l < 20; l++) {
+					linkIds.add(Id.createLinkId("l" + ((i + l * p) % 1000)));
+				}
+				NetworkRoute route = factory.getRouteFactories().createRoute(NetworkRoute.class, Id.createLinkId(i), Id.createLinkId(i + 1));
+				route.setLinkIds(Id.createLinkId(i), linkIds, Id.createLinkId(i + 1));
+				route.setDistance(12345.6 + p);
+				route.setTravelTime(600 + p);
+				route.setVehicleId(Id.createVehicleId(i));
+				carLeg.setRoute(route);
+				plan.addLeg(carLeg);
+
+				Activity work = factory.createActivityFromCoord("work", new Coord(5000 + i, 6000, 12.5));
+				work.setLinkId(Id.createLinkId(i + 1));
+				work.setStartTime(8 * 3600);
+				work.setMaximumDuration(8 * 3600 + p);
+				plan.addActivity(work);
+
+				Leg ptLeg = factory.createLeg("pt");
+				TripStructureUtils.setRoutingMode(ptLeg, "pt");
+				ptLeg.getAttributes().putAttribute("crowded", true);
+				Route ptRoute = factory.getRouteFactories().createRoute(Route.class, Id.createLinkId(i + 1), Id.createLinkId(i));
+				ptRoute.setRouteDescription("line " + p);
+				ptRoute.setTravelTime(1800);
+				ptLeg.setRoute(ptRoute);
+				plan.addLeg(ptLeg);
+
+				Activity home2 = factory.createActivityFromLinkId("home", Id.createLinkId(i));
+				plan.addActivity(home2);
+
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(person.getPlans().get(0));
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+	/**
+	 * A kind of performance test, but not marked as test, as there is no need
+	 * to run it in every check as there is no assert statement.
+	 */
+	private static void measureHeapUsage(boolean compactPlans) {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		System.gc();
+		System.gc();
+		long usedMemBefore = runtime.totalMemory() - runtime.freeMemory();
+		long startTime = System.currentTimeMillis();
+		Population population = createPopulation(compactPlans, 100_000, 5);
+		if (compactPlans) {
+			PopulationUtils.compactNonSelectedPlans(population);
+		}
+		long endTime = System.currentTimeMillis();
+		System.gc();
+		System.gc();
+		System.gc();
+		long usedMemAfter = runtime.totalMemory() - runtime.freeMemory();
+
+		log.info("compact plans: " + compactPlans);
+		log.info("creation time: " + (endTime - startTime) / 1000.0 + " sec.");
+		log.info("memory usage: " + (usedMemAfter - usedMemBefore) / 1024 / 1024.0 + " MB");
+		log.info("check, ignore: " + population.getPersons().size());
+	}
+
+	public static void main(String[] args) {
+		for (int i = 0; i < 3; i++) {
+			log.info("Round " + i);
+			measureHeapUsage(false);
+			measureHeapUsage(true);
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ParallelPopulationReaderMatsimV6Test {
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static final int NUMBER_OF_PERSONS = 1000;
+
+	@Test
+	public void testReadPopulation_sameAsSequential() {
+		final String file = utils.getOutputDirectory() + "/population.xml";
+		new PopulationWriter(createPopulation()).writeV6(file);
+
+		Scenario sequential = ScenarioUtils.createScenario(createConfig(1));
+		new PopulationReader(sequential).readFile(file);
+
+		Scenario parallel = ScenarioUtils.createScenario(createConfig(4));
+		new PopulationReader(parallel).readFile(file);
+
+		Assert.assertEquals(NUMBER_OF_PERSONS, parallel.getPopulation().getPersons().size());
+		Assert.assertEquals("the population attributes must be read",
+				"parallel", parallel.getPopulation().getAttributes().getAttribute("source"));
+
+		Iterator<? extends Person> expectedIter = sequential.getPopulation().getPersons().values().iterator();
+		for (Person person : parallel.getPopulation().getPersons().values()) {
+			assertSamePerson(expectedIter.next(), person);
+		}
+		Assert.assertFalse(expectedIter.hasNext());
+	}
+
+	@Test
+	public void testStreaming_keepsOrder() {
+		final String file = utils.getOutputDirectory() + "/population.xml";
+		Population population = createPopulation();
+		new PopulationWriter(population).writeV6(file);
+
+		List<Id<Person>> readIds = new ArrayList<>();
+		StreamingPopulationReader reader = new StreamingPopulationReader(ScenarioUtils.createScenario(createConfig(4)));
+		reader.addAlgorithm(person -> readIds.add(person.getId()));
+		reader.readFile(file);
+
+		Assert.assertEquals(new ArrayList<>(population.getPersons().keySet()), readIds);
+	}
+
+	private static void assertSamePerson(Person expected, Person actual) {
+		Assert.assertEquals(expected.getId(), actual.getId());
+		Assert.assertEquals(expected.getAttributes().getAttribute("age"), actual.getAttributes().getAttribute("age"));
+		Assert.assertEquals(expected.getPlans().size(), actual.getPlans().size());
+		for (int i = 0; i < expected.getPlans().size(); i++) {
+			Plan expectedPlan = expected.getPlans().get(i);
+			Plan actualPlan = actual.getPlans().get(i);
+			Assert.assertEquals(expectedPlan.getScore(), actualPlan.getScore());
+			Assert.assertEquals(expectedPlan.getPlanElements().size(), actualPlan.getPlanElements().size());
+
+			Activity expectedAct = (Activity) expectedPlan.getPlanElements().get(0);
+			Activity actualAct = (Activity) actualPlan.getPlanElements().get(0);
+			Assert.assertEquals(expectedAct.getType(), actualAct.getType());
+			Assert.assertEquals(expectedAct.getCoord(), actualAct.getCoord());
+			Assert.assertEquals(expectedAct.getAttributes().getAttribute("bags"), actualAct.getAttributes().getAttribute("bags"));
+
+			Leg expectedLeg = (Leg) expectedPlan.getPlanElements().get(1);
+			Leg actualLeg = (Leg) actualPlan.getPlanElements().get(1);
+			Assert.assertEquals(expectedLeg.getMode(), actualLeg.getMode());
+			Assert.assertEquals(expectedLeg.getTravelTime(), actualLeg.getTravelTime(), MatsimTestUtils.EPSILON);
+			Assert.assertEquals(((NetworkRoute) expectedLeg.getRoute()).getLinkIds(), ((NetworkRoute) actualLeg.getRoute()).getLinkIds());
+			Assert.assertEquals(expectedLeg.getRoute().getEndLinkId(), actualLeg.getRoute().getEndLinkId());
+		}
+	}
+
+	private static Config createConfig(int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(numberOfThreads);
+		return config;
+	}
+
+	private static Population createPopulation() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		population.getAttributes().putAttribute("source", "parallel");
+		PopulationFactory factory = population.getFactory();
+		for (int i = 0; i < NUMBER_OF_PERSONS; i++) {
+			Person person = factory.createPerson(Id.createPersonId(i));
+			person.getAttributes().putAttribute("age", i % 90);
+			for (int p = 0; p < 1 + i % 3; p++) {
+				Plan plan = factory.createPlan();
+				plan.setScore(i + 0.1 * p);
+				Activity home = factory.createActivityFromCoord("home", new Coord(i, p));
+				home.setLinkId(Id.createLinkId(i));
+				home.setEndTime(7 * 3600 + i);
+				home.getAttributes().putAttribute("bags", i % 5);
+				plan.addActivity(home);
+				Leg leg = factory.createLeg("car");
+				leg.setTravelTime(600 + p);
+				NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId(i),
+						Arrays.asList(Id.createLinkId("a" + i), Id.createLinkId("b" + p)), Id.createLinkId(i + 1));
+				leg.setRoute(route);
+				plan.addLeg(leg);
+				Activity work = factory.createActivityFromLinkId("work", Id.createLinkId(i + 1));
+				plan.addActivity(work);
+				person.addPlan(plan);
+			}
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+}
@@ -0,0 +1,115 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.population.routes;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+public class CompressedIndexedNetworkRouteTest extends AbstractNetworkRouteTest {
+
+	@Override
+	public NetworkRoute getNetworkRouteInstance(final Id<Link> fromLinkId, final Id<Link> toLinkId, final Network network) {
+		return new IndexedNetworkRouteImpl(fromLinkId, toLinkId, true);
+	}
+
+	/**
+	 * Tests that the links are decoded correctly, also with large differences between subsequent indices
+	 * and with any order of access.
+	 */
+	@Test
+	public void testGetLinks_setLinks() {
+		List<Id<Link>> linkIds = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			linkIds.add(Id.create("compressed" + i, Link.class));
+		}
+		List<Id<Link>> routeLinkIds = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			// jump back and forth between links with close and distant indices
+			routeLinkIds.add(linkIds.get((i * 997) % linkIds.size()));
+		}
+		Id<Link> startLinkId = linkIds.get(0);
+		Id<Link> endLinkId = linkIds.get(1);
+		NetworkRoute route = getNetworkRouteInstance(startLinkId, endLinkId, null);
+		route.setLinkIds(startLinkId, routeLinkIds, endLinkId);
+
+		List<Id<Link>> ids = route.getLinkIds();
+		Assert.assertEquals(routeLinkIds.size(), ids.size());
+		Iterator<Id<Link>> iter = ids.iterator();
+		for (int i = 0; i < routeLinkIds.size(); i++) {
+			Assert.assertEquals("different link at position " + i, routeLinkIds.get(i), iter.next());
+		}
+		for (int i = routeLinkIds.size() - 1; i >= 0; i -= 7) {
+			Assert.assertEquals("different link at position " + i, routeLinkIds.get(i), ids.get(i));
+		}
+		Assert.assertEquals(routeLinkIds, ids);
+
+		NetworkRoute subRoute = route.getSubRoute(routeLinkIds.get(10), routeLinkIds.get(20));
+		Assert.assertEquals(routeLinkIds.subList(11, 20), subRoute.getLinkIds());
+	}
+
+	/**
+	 * Tests that iterators and indexed access each keep their own decoding position.
+	 */
+	@Test
+	public void testIteratorsAndIndexedAccessAreIndependent() {
+		List<Id<Link>> routeLinkIds = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			routeLinkIds.add(Id.create("independent" + (i * 31 % 50), Link.class));
+		}
+		Id<Link> startLinkId = Id.create("independentStart", Link.class);
+		Id<Link> endLinkId = Id.create("independentEnd", Link.class);
+		NetworkRoute route = getNetworkRouteInstance(startLinkId, endLinkId, null);
+		route.setLinkIds(startLinkId, routeLinkIds, endLinkId);
+		NetworkRoute cloned = (NetworkRoute) route.clone();
+
+		List<Id<Link>> ids = route.getLinkIds();
+		Iterator<Id<Link>> iter1 = ids.iterator();
+		Iterator<Id<Link>> iter2 = ids.iterator();
+		for (int i = 0; i < routeLinkIds.size(); i++) {
+			Assert.assertEquals(routeLinkIds.get(i), iter1.next());
+			Assert.assertEquals(routeLinkIds.get(routeLinkIds.size() - 1 - i), ids.get(routeLinkIds.size() - 1 - i));
+			Assert.assertEquals(routeLinkIds.get(i), cloned.getLinkIds().get(i));
+			if (i % 2 == 0) {
+				Assert.assertEquals(routeLinkIds.get(i / 2), iter2.next());
+			}
+		}
+		Assert.assertFalse(iter1.hasNext());
+		try {
+			iter1.next();
+			Assert.fail("expected NoSuchElementException");
+		} catch (NoSuchElementException e) {
+			// expected
+		}
+
+		// the cursor of get(i) must not survive new link ids
+		route.setLinkIds(startLinkId, routeLinkIds.subList(0, 5), endLinkId);
+		Assert.assertEquals(routeLinkIds.subList(0, 5), route.getLinkIds());
+		Assert.assertEquals(routeLinkIds.get(4), route.getLinkIds().get(4));
+		Assert.assertEquals(routeLinkIds, cloned.getLinkIds());
+	}
+
+}
@@ -0,0 +1,72 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.population.routes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+public class IndexedNetworkRouteTest extends AbstractNetworkRouteTest {
+
+	@Override
+	public NetworkRoute getNetworkRouteInstance(final Id<Link> fromLinkId, final Id<Link> toLinkId, final Network network) {
+		return new IndexedNetworkRouteImpl(fromLinkId, toLinkId, false);
+	}
+
+	@Test
+	public void testClone() {
+		Id<Link> startLinkId = Id.create(1, Link.class);
+		Id<Link> endLinkId = Id.create(2, Link.class);
+		List<Id<Link>> srcRoute = new ArrayList<>();
+		srcRoute.add(Id.create(3, Link.class));
+		srcRoute.add(Id.create(4, Link.class));
+		NetworkRoute route1 = getNetworkRouteInstance(startLinkId, endLinkId, null);
+		route1.setLinkIds(startLinkId, srcRoute, endLinkId);
+		Assert.assertEquals(2, route1.getLinkIds().size());
+
+		NetworkRoute route2 = route1.clone();
+
+		srcRoute.add(Id.create(5, Link.class));
+		route1.setLinkIds(startLinkId, srcRoute, endLinkId);
+
+		Assert.assertEquals(3, route1.getLinkIds().size());
+		Assert.assertEquals(2, route2.getLinkIds().size());
+		Assert.assertEquals(srcRoute.subList(0, 2), route2.getLinkIds());
+	}
+
+	@Test
+	public void testRouteDescription() {
+		Id<Link> startLinkId = Id.create(1, Link.class);
+		Id<Link> endLinkId = Id.create(2, Link.class);
+		NetworkRoute route = getNetworkRouteInstance(startLinkId, endLinkId, null);
+		route.setRouteDescription("1 3 4 5 2");
+
+		Assert.assertEquals(startLinkId, route.getStartLinkId());
+		Assert.assertEquals(endLinkId, route.getEndLinkId());
+		Assert.assertEquals(3, route.getLinkIds().size());
+		Assert.assertEquals("1 3 4 5 2", route.getRouteDescription());
+		Assert.assertEquals("links", route.getRouteType());
+	}
+
+}
@@ -75,6 +75,20 @@ public class RouteFactoryImplTest {
 		Assert.assertEquals(CompressedNetworkRouteImpl.class, pf.getRouteFactories().createRoute(NetworkRoute.class, startLinkId, endLinkId).getClass());
 	}
 
+	@Test
+	public void testConstructor_IndexedNetworkRouteType() {
+		for (String routeType : new String[] { PlansConfigGroup.NetworkRouteType.IndexedNetworkRoute, PlansConfigGroup.NetworkRouteType.CompressedIndexedNetworkRoute }) {
+			Config config = ConfigUtils.createConfig();
+			config.plans().setNetworkRouteType(routeType);
+			Scenario scenario = ScenarioUtils.createScenario(config);
+			PopulationFactory pf = scenario.getPopulation().getFactory();
+
+			Id<Link> linkId = Id.create(1, Link.class);
+			Assert.assertEquals(IndexedNetworkRouteImpl.class, pf.getRouteFactories().createRoute(NetworkRoute.class, linkId, linkId).getClass());
+			Assert.assertEquals(NetworkRoute.class, pf.getRouteFactories().getRouteClassForType("links"));
+		}
+	}
+
 
 
 }
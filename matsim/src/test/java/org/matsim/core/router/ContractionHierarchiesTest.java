@@ -0,0 +1,272 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.vehicles.Vehicle;
+
+public class ContractionHierarchiesTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = createFreespeedTravelTimeAndDisutility();
+		return new ContractionHierarchiesFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	public void testSameRoutesAsDijkstra() {
+		Network network = createRandomGrid(25, 20, 4711);
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = createFreespeedTravelTimeAndDisutility();
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		LeastCostPathCalculator ch = new ContractionHierarchiesFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			double time = random.nextInt(24 * 3600);
+			Path expected = dijkstra.calcLeastCostPath(from, to, time, null, null);
+			Path actual = ch.calcLeastCostPath(from, to, time, null, null);
+			if (expected == null) {
+				assertNull(actual);
+				continue;
+			}
+			assertNotNull("no route from " + from.getId() + " to " + to.getId(), actual);
+			assertEquals(expected.travelCost, actual.travelCost, 1e-6);
+			assertEquals(expected.travelTime, actual.travelTime, 1e-6);
+			assertEquals(expected.links, actual.links);
+			assertEquals(expected.nodes, actual.nodes);
+		}
+	}
+
+	public void testUnreachableNode() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(100, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(200, 0));
+		NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), node3, node2, 100, 10, 1000, 1);
+
+		LeastCostPathCalculator ch = getLeastCostPathCalculator(network);
+		assertNull(ch.calcLeastCostPath(node1, node3, 0.0, null, null));
+		assertNull(ch.calcLeastCostPath(node2, node1, 0.0, null, null));
+		assertEquals(1, ch.calcLeastCostPath(node3, node2, 0.0, null, null).links.size());
+	}
+
+	/**
+	 * The costs of the links change at 08:00, so routes starting before and after take different paths.
+	 */
+	public void testCustomizationPerTimeBin() {
+		Network network = NetworkUtils.createNetwork();
+		Node nodeA = NetworkUtils.createAndAddNode(network, Id.create("a", Node.class), new Coord(0, 0));
+		Node nodeB = NetworkUtils.createAndAddNode(network, Id.create("b", Node.class), new Coord(100, 100));
+		Node nodeC = NetworkUtils.createAndAddNode(network, Id.create("c", Node.class), new Coord(100, -100));
+		Node nodeD = NetworkUtils.createAndAddNode(network, Id.create("d", Node.class), new Coord(200, 0));
+		Link linkAB = NetworkUtils.createAndAddLink(network, Id.create("ab", Link.class), nodeA, nodeB, 100, 10, 1000, 1);
+		Link linkBD = NetworkUtils.createAndAddLink(network, Id.create("bd", Link.class), nodeB, nodeD, 100, 10, 1000, 1);
+		Link linkAC = NetworkUtils.createAndAddLink(network, Id.create("ac", Link.class), nodeA, nodeC, 110, 10, 1000, 1);
+		Link linkCD = NetworkUtils.createAndAddLink(network, Id.create("cd", Link.class), nodeC, nodeD, 110, 10, 1000, 1);
+
+		FreespeedTravelTimeAndDisutility freespeed = createFreespeedTravelTimeAndDisutility();
+		TravelDisutility congestedInTheMorning = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				double factor = link == linkAB && time >= 8 * 3600 && time < 9 * 3600 ? 10 : 1;
+				return factor * link.getLength();
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return link.getLength();
+			}
+		};
+		LeastCostPathCalculator ch = new ContractionHierarchiesFactory(3600).createPathCalculator(network, congestedInTheMorning, freespeed);
+
+		Path early = ch.calcLeastCostPath(nodeA, nodeD, 7.5 * 3600, null, null);
+		assertEquals(2, early.links.size());
+		assertEquals(linkAB, early.links.get(0));
+		assertEquals(linkBD, early.links.get(1));
+		assertEquals(200.0, early.travelCost, 1e-9);
+		assertEquals(20.0, early.travelTime, 1e-9);
+
+		Path peak = ch.calcLeastCostPath(nodeA, nodeD, 8.5 * 3600, null, null);
+		assertEquals(2, peak.links.size());
+		assertEquals(linkAC, peak.links.get(0));
+		assertEquals(linkCD, peak.links.get(1));
+		assertEquals(220.0, peak.travelCost, 1e-9);
+
+		Path late = ch.calcLeastCostPath(nodeA, nodeD, 9.5 * 3600, null, null);
+		assertEquals(linkAB, late.links.get(0));
+	}
+
+	/**
+	 * Calculators of the same factory for the same network and travel time share the customization, also across threads
+	 * and with their own travel disutility each, as the routers of the controler have. It is computed again when the next
+	 * iteration starts.
+	 */
+	public void testCustomizationIsShared() throws InterruptedException {
+		Network network = createRandomGrid(20, 20, 4712);
+		FreespeedTravelTimeAndDisutility freespeed = createFreespeedTravelTimeAndDisutility();
+		AtomicInteger customizationCalls = new AtomicInteger();
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory(3600);
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+
+		LeastCostPathCalculator first = factory.createPathCalculator(network, createCountingDisutility(freespeed, customizationCalls), freespeed);
+		first.calcLeastCostPath(nodes[0], nodes[1], 7.5 * 3600, null, null);
+		int callsOfOneCustomization = customizationCalls.get();
+		assertTrue(callsOfOneCustomization > 0);
+
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, freespeed, freespeed);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			LeastCostPathCalculator ch = factory.createPathCalculator(network, createCountingDisutility(freespeed, customizationCalls), freespeed);
+			Random random = new Random(t);
+			List<Path> expected = new ArrayList<>();
+			List<Node[]> queries = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				Node[] query = { nodes[random.nextInt(nodes.length)], nodes[random.nextInt(nodes.length)] };
+				queries.add(query);
+				expected.add(dijkstra.calcLeastCostPath(query[0], query[1], 7.5 * 3600, null, null));
+			}
+			threads[t] = new Thread(() -> {
+				try {
+					for (int i = 0; i < queries.size(); i++) {
+						Path path = ch.calcLeastCostPath(queries.get(i)[0], queries.get(i)[1], 7.5 * 3600, null, null);
+						assertEquals(expected.get(i) == null ? null : expected.get(i).links, path == null ? null : path.links);
+					}
+				} catch (Throwable e) {
+					failure.set(e);
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertNull(failure.get());
+		assertEquals(callsOfOneCustomization, customizationCalls.get());
+
+		// another travel time gets its own customization
+		FreespeedTravelTimeAndDisutility otherTravelTime = createFreespeedTravelTimeAndDisutility();
+		factory.createPathCalculator(network, createCountingDisutility(freespeed, customizationCalls), otherTravelTime)
+				.calcLeastCostPath(nodes[0], nodes[1], 7.5 * 3600, null, null);
+		assertEquals(2 * callsOfOneCustomization, customizationCalls.get());
+
+		// the travel times may have changed, so the existing calculators customize again, but only once
+		factory.notifyIterationStarts(new IterationStartsEvent(null, 1));
+		first.calcLeastCostPath(nodes[0], nodes[1], 7.5 * 3600, null, null);
+		factory.createPathCalculator(network, createCountingDisutility(freespeed, customizationCalls), freespeed)
+				.calcLeastCostPath(nodes[1], nodes[0], 7.5 * 3600, null, null);
+		assertEquals(3 * callsOfOneCustomization, customizationCalls.get());
+	}
+
+	/**
+	 * @return a new travel disutility with the costs of the given one, which counts the link costs evaluated at 7am.
+	 */
+	private static TravelDisutility createCountingDisutility(final TravelDisutility delegate, final AtomicInteger customizationCalls) {
+		return new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				// the arc costs are computed at the start of the bin, the queries start within the bin
+				if (time == 7 * 3600) {
+					customizationCalls.incrementAndGet();
+				}
+				return delegate.getLinkTravelDisutility(link, time, person, vehicle);
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return delegate.getLinkMinimumTravelDisutility(link);
+			}
+		};
+	}
+
+	private static FreespeedTravelTimeAndDisutility createFreespeedTravelTimeAndDisutility() {
+		return new FreespeedTravelTimeAndDisutility(-6.0 / 3600, 6.0 / 3600, 0.0);
+	}
+
+	/**
+	 * Creates a grid with randomly distorted node coordinates and link lengths, where some streets are one-way and
+	 * some are missing, so there are nodes which cannot be reached from all others.
+	 */
+	public static Network createRandomGrid(final int width, final int height, final long seed) {
+		Random random = new Random(seed);
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[width][height];
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				Coord coord = new Coord(x * 100 + random.nextDouble() * 50, y * 100 + random.nextDouble() * 50);
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), coord);
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				if (x + 1 < width) {
+					linkId = addStreet(network, random, nodes[x][y], nodes[x + 1][y], linkId);
+				}
+				if (y + 1 < height) {
+					linkId = addStreet(network, random, nodes[x][y], nodes[x][y + 1], linkId);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static int addStreet(final Network network, final Random random, final Node node1, final Node node2, int linkId) {
+		double r = random.nextDouble();
+		if (r < 0.05) {
+			return linkId;
+		}
+		double length = 100 + random.nextDouble() * 100;
+		double freespeed = 5 + random.nextInt(4) * 5;
+		if (r < 0.15) {
+			NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), node1, node2, length, freespeed, 1000, 1);
+		} else if (r < 0.25) {
+			NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), node2, node1, length, freespeed, 1000, 1);
+		} else {
+			NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), node1, node2, length, freespeed, 1000, 1);
+			NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), node2, node1, length, freespeed, 1000, 1);
+		}
+		return linkId;
+	}
+
+}
@@ -0,0 +1,119 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.facilities.FacilitiesUtils;
+import org.matsim.facilities.Facility;
+import org.matsim.vehicles.Vehicle;
+
+public class RouteCacheTest {
+
+	@Test
+	public void testCachedRoutesAreInvalidatedByChangedTravelTimes() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(2000, 0));
+		Node node4 = NetworkUtils.createAndAddNode(network, Id.create("4", Node.class), new Coord(3000, 0));
+		Link link1 = NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 1000, 10, 3600, 1);
+		Link link2 = NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), node2, node3, 1000, 10, 3600, 1);
+		Link link3 = NetworkUtils.createAndAddLink(network, Id.create("3", Link.class), node3, node4, 1000, 10, 3600, 1);
+		Link link4 = NetworkUtils.createAndAddLink(network, Id.create("4", Link.class), node4, node1, 3000, 10, 3600, 1);
+
+		TravelTimeCalculator ttCalc = new TravelTimeCalculator(network, 900, 30 * 3600, ConfigUtils.createConfig().travelTimeCalculator());
+		RouteCache cache = new RouteCache(Collections.singleton(TransportMode.car), 900, 0.1, mode -> ttCalc);
+		cache.invalidateChangedRoutes();
+		Assert.assertEquals(0, cache.getInvalidatedRoutes());
+
+		Facility from = FacilitiesUtils.wrapLink(link1);
+		Facility to = FacilitiesUtils.wrapLink(link3);
+		Assert.assertNull(cache.getTrip(TransportMode.car, from, to, 8 * 3600));
+		Assert.assertEquals(1, cache.getMisses());
+
+		Leg leg = PopulationUtils.createLeg(TransportMode.car);
+		NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(link1.getId(), Collections.singletonList(link2.getId()), link3.getId());
+		route.setVehicleId(Id.create("v1", Vehicle.class));
+		leg.setRoute(route);
+		leg.setDepartureTime(8 * 3600);
+		leg.setTravelTime(200);
+		cache.putTrip(TransportMode.car, from, to, 8 * 3600, Collections.singletonList(leg));
+		cache.putTrip(TransportMode.bike, from, to, 8 * 3600, Collections.singletonList(leg));
+		Assert.assertEquals(1, cache.size());
+
+		List<? extends PlanElement> trip = cache.getTrip(TransportMode.car, from, to, 8 * 3600 + 300);
+		Assert.assertNotNull(trip);
+		Assert.assertEquals(1, cache.getHits());
+		Leg cachedLeg = (Leg) trip.get(0);
+		Assert.assertNotSame(leg, cachedLeg);
+		Assert.assertEquals(8 * 3600 + 300, cachedLeg.getDepartureTime(), 1e-8);
+		Assert.assertEquals(200, cachedLeg.getTravelTime(), 1e-8);
+		Assert.assertEquals(route.getLinkIds(), ((NetworkRoute) cachedLeg.getRoute()).getLinkIds());
+		Assert.assertNull("the vehicle must not be shared", ((NetworkRoute) cachedLeg.getRoute()).getVehicleId());
+
+		Assert.assertNull("other time bin", cache.getTrip(TransportMode.car, from, to, 8 * 3600 + 900));
+		Assert.assertNull("other mode", cache.getTrip(TransportMode.bike, from, to, 8 * 3600));
+
+		// a congested link which is not part of the route
+		Id<Vehicle> vehId = Id.create("1", Vehicle.class);
+		ttCalc.handleEvent(new LinkEnterEvent(8 * 3600, vehId, link4.getId()));
+		ttCalc.handleEvent(new LinkLeaveEvent(8 * 3600 + 900, vehId, link4.getId()));
+		cache.invalidateChangedRoutes();
+		Assert.assertEquals(0, cache.getInvalidatedRoutes());
+		Assert.assertNotNull(cache.getTrip(TransportMode.car, from, to, 8 * 3600));
+
+		// a small change on the route
+		ttCalc.reset(1);
+		ttCalc.handleEvent(new LinkEnterEvent(8 * 3600, vehId, link2.getId()));
+		ttCalc.handleEvent(new LinkLeaveEvent(8 * 3600 + 105, vehId, link2.getId()));
+		cache.invalidateChangedRoutes();
+		Assert.assertEquals(0, cache.getInvalidatedRoutes());
+
+		// a large change on the route
+		ttCalc.reset(2);
+		ttCalc.handleEvent(new LinkEnterEvent(8 * 3600, vehId, link2.getId()));
+		ttCalc.handleEvent(new LinkLeaveEvent(8 * 3600 + 300, vehId, link2.getId()));
+		cache.invalidateChangedRoutes();
+		Assert.assertEquals(1, cache.getInvalidatedRoutes());
+		Assert.assertEquals(0, cache.size());
+		Assert.assertNull(cache.getTrip(TransportMode.car, from, to, 8 * 3600));
+	}
+
+}
@@ -0,0 +1,103 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DAryMinHeapTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DAryMinHeapTest {
+
+	@Test
+	public void testInsertAndPoll() {
+		DAryMinHeap heap = new DAryMinHeap(10);
+		Assert.assertTrue(heap.isEmpty());
+		Assert.assertEquals(-1, heap.poll());
+		heap.insert(5, 3.0);
+		heap.insert(2, 1.0);
+		heap.insert(7, 2.0);
+		Assert.assertEquals(3, heap.size());
+		Assert.assertTrue(heap.contains(7));
+		Assert.assertFalse(heap.contains(3));
+		Assert.assertEquals(2, heap.peek());
+		Assert.assertEquals(1.0, heap.peekKey(), 0.0);
+		Assert.assertEquals(2, heap.poll());
+		Assert.assertEquals(7, heap.poll());
+		Assert.assertEquals(5, heap.poll());
+		Assert.assertTrue(heap.isEmpty());
+		Assert.assertFalse(heap.contains(5));
+	}
+
+	@Test
+	public void testDecreaseKey() {
+		DAryMinHeap heap = new DAryMinHeap(10);
+		heap.insert(1, 5.0);
+		heap.insert(2, 6.0);
+		heap.insert(3, 7.0);
+		heap.decreaseKey(3, 4.0);
+		heap.decreaseKey(4, 4.5); // not contained yet
+		Assert.assertEquals(4, heap.size());
+		Assert.assertEquals(3, heap.poll());
+		Assert.assertEquals(4, heap.poll());
+		Assert.assertEquals(1, heap.poll());
+		Assert.assertEquals(2, heap.poll());
+	}
+
+	@Test
+	public void testClear() {
+		DAryMinHeap heap = new DAryMinHeap(10);
+		heap.insert(1, 5.0);
+		heap.insert(2, 6.0);
+		heap.clear();
+		Assert.assertTrue(heap.isEmpty());
+		Assert.assertFalse(heap.contains(1));
+		heap.insert(1, 1.0);
+		Assert.assertEquals(1, heap.poll());
+	}
+
+	@Test
+	public void testRandomOrder() {
+		for (int degree = 2; degree <= 8; degree++) {
+			Random random = new Random(degree);
+			int size = 1000;
+			DAryMinHeap heap = new DAryMinHeap(size, degree);
+			double[] keys = new double[size];
+			for (int i = 0; i < size; i++) {
+				keys[i] = random.nextDouble();
+				heap.insert(i, keys[i]);
+			}
+			for (int i = 0; i < size; i += 3) {
+				keys[i] /= 2;
+				heap.decreaseKey(i, keys[i]);
+			}
+			double[] sorted = keys.clone();
+			Arrays.sort(sorted);
+			for (int i = 0; i < size; i++) {
+				int element = heap.poll();
+				Assert.assertEquals(sorted[i], keys[element], 0.0);
+			}
+			Assert.assertTrue(heap.isEmpty());
+		}
+	}
+
+}
@@ -0,0 +1,85 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpeedyDijkstraTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.speedy;
+
+import java.util.Random;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.AbstractLeastCostPathCalculatorTest;
+import org.matsim.core.router.ContractionHierarchiesTest;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+
+public class SpeedyDijkstraTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(-6.0 / 3600, 6.0 / 3600, 0.0);
+		return new SpeedyDijkstraFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	public void testSameRoutesAsDijkstra() {
+		Network network = ContractionHierarchiesTest.createRandomGrid(25, 20, 4711);
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(-6.0 / 3600, 6.0 / 3600, 0.0);
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		SpeedyDijkstraFactory factory = new SpeedyDijkstraFactory();
+		LeastCostPathCalculator speedy1 = factory.createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		// a second router on the same, shared graph
+		LeastCostPathCalculator speedy2 = factory.createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			double time = random.nextInt(24 * 3600);
+			Path expected = dijkstra.calcLeastCostPath(from, to, time, null, null);
+			LeastCostPathCalculator speedy = i % 2 == 0 ? speedy1 : speedy2;
+			Path actual = speedy.calcLeastCostPath(from, to, time, null, null);
+			if (expected == null) {
+				assertNull(actual);
+				continue;
+			}
+			assertNotNull("no route from " + from.getId() + " to " + to.getId(), actual);
+			assertEquals(expected.travelCost, actual.travelCost, 1e-9);
+			assertEquals(expected.travelTime, actual.travelTime, 1e-9);
+			assertEquals(expected.links, actual.links);
+			assertEquals(expected.nodes, actual.nodes);
+		}
+	}
+
+	public void testNodeOfOtherNetwork() {
+		Network network = ContractionHierarchiesTest.createRandomGrid(3, 3, 1);
+		Network other = ContractionHierarchiesTest.createRandomGrid(3, 3, 1);
+		LeastCostPathCalculator speedy = getLeastCostPathCalculator(network);
+		Node from = network.getNodes().values().iterator().next();
+		Node to = other.getNodes().values().iterator().next();
+		try {
+			speedy.calcLeastCostPath(from, to, 0.0, null, null);
+			fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+}
@@ -0,0 +1,159 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LandmarksStoreTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.AStarLandmarksFactory;
+import org.matsim.core.router.ContractionHierarchiesTest;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.PreProcessLandmarks.LandmarksData;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class LandmarksStoreTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testStoreAndReload() {
+		Network network = ContractionHierarchiesTest.createRandomGrid(20, 15, 4711);
+		ScaledTravelDisutility costs = new ScaledTravelDisutility();
+
+		PreProcessLandmarks computed = run(network, costs, new LandmarksStore(this.utils.getOutputDirectory()));
+		// a new store only knows the file
+		PreProcessLandmarks reloaded = run(network, costs, new LandmarksStore(this.utils.getOutputDirectory()));
+		PreProcessLandmarks withoutStore = run(network, costs, null);
+
+		assertSameLandmarksData(network, withoutStore, computed);
+		assertSameLandmarksData(network, withoutStore, reloaded);
+	}
+
+	@Test
+	public void testUpdateAfterDecreasedCosts() {
+		Network network = ContractionHierarchiesTest.createRandomGrid(20, 15, 4711);
+		LandmarksStore store = new LandmarksStore();
+		run(network, new ScaledTravelDisutility(), store);
+
+		ScaledTravelDisutility decreasedCosts = new ScaledTravelDisutility();
+		Random random = new Random(42);
+		for (Link link : network.getLinks().values()) {
+			if (random.nextDouble() < 0.03) {
+				decreasedCosts.factors.put(link.getId(), 0.2);
+			}
+		}
+		PreProcessLandmarks updated = run(network, decreasedCosts, store);
+		PreProcessLandmarks computed = run(network, decreasedCosts, null);
+
+		assertSameLandmarksData(network, computed, updated);
+	}
+
+	@Test
+	public void testLeastCostPathsAfterChangedCosts() {
+		Network network = ContractionHierarchiesTest.createRandomGrid(20, 15, 4711);
+		LandmarksStore store = new LandmarksStore();
+		run(network, new ScaledTravelDisutility(), store);
+
+		ScaledTravelDisutility changedCosts = new ScaledTravelDisutility();
+		Random random = new Random(42);
+		for (Link link : network.getLinks().values()) {
+			double r = random.nextDouble();
+			if (r < 0.02) {
+				changedCosts.factors.put(link.getId(), 0.5);
+			} else if (r < 0.04) {
+				changedCosts.factors.put(link.getId(), 5.0);
+			}
+		}
+		// the landmarks are only updated for the decreased costs, but still have to result in least cost paths
+		LeastCostPathCalculator aStar = new AStarLandmarksFactory(2, store).createPathCalculator(network, changedCosts, changedCosts);
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, changedCosts, changedCosts);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		for (int i = 0; i < 200; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			Path expected = dijkstra.calcLeastCostPath(from, to, 0.0, null, null);
+			Path actual = aStar.calcLeastCostPath(from, to, 0.0, null, null);
+			if (expected == null) {
+				Assert.assertNull(actual);
+			} else {
+				Assert.assertEquals(expected.travelCost, actual.travelCost, 1e-6);
+			}
+		}
+	}
+
+	private static PreProcessLandmarks run(final Network network, final TravelDisutility costs, final LandmarksStore store) {
+		PreProcessLandmarks preProcessLandmarks = new PreProcessLandmarks(costs);
+		preProcessLandmarks.setNumberOfThreads(2);
+		preProcessLandmarks.setLandmarksStore(store);
+		preProcessLandmarks.run(network);
+		return preProcessLandmarks;
+	}
+
+	private static void assertSameLandmarksData(final Network network, final PreProcessLandmarks expected,
+			final PreProcessLandmarks actual) {
+		Assert.assertArrayEquals(expected.getLandmarks(), actual.getLandmarks());
+		int landmarkCount = expected.getLandmarks().length;
+		for (Node node : network.getNodes().values()) {
+			LandmarksData expectedData = expected.getNodeData(node);
+			LandmarksData actualData = actual.getNodeData(node);
+			for (int i = 0; i < landmarkCount; i++) {
+				Assert.assertEquals(expectedData.getMinLandmarkTravelTime(i), actualData.getMinLandmarkTravelTime(i), 1e-9);
+				Assert.assertEquals(expectedData.getMaxLandmarkTravelTime(i), actualData.getMaxLandmarkTravelTime(i), 1e-9);
+			}
+		}
+	}
+
+	/**
+	 * The free speed travel time of the links, multiplied by a factor per link.
+	 */
+	private static class ScaledTravelDisutility implements TravelDisutility, TravelTime {
+
+		private final Map<Id<Link>, Double> factors = new HashMap<>();
+
+		@Override
+		public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			return getLinkMinimumTravelDisutility(link);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(final Link link) {
+			return link.getLength() / link.getFreespeed() * this.factors.getOrDefault(link.getId(), 1.0);
+		}
+
+		@Override
+		public double getLinkTravelTime(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			return link.getLength() / link.getFreespeed();
+		}
+	}
+
+}
@@ -0,0 +1,171 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scenario;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PopulationWriter;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.network.io.NetworkWriter;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.ActivityOption;
+import org.matsim.facilities.FacilitiesWriter;
+import org.matsim.facilities.MatsimFacilitiesReader;
+import org.matsim.facilities.OpeningTimeImpl;
+import org.matsim.pt.transitSchedule.api.TransitScheduleReader;
+import org.matsim.pt.transitSchedule.api.TransitScheduleWriter;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ScenarioSnapshotTest {
+	private static final Logger log = Logger.getLogger(ScenarioSnapshotTest.class);
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSnapshot_sameAsXml() throws IOException {
+		Config config = ConfigUtils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("pt-tutorial"), "0.config.xml"));
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		addFacilitiesAndAttributes(scenario);
+		String xmlDir = this.utils.getOutputDirectory() + "xml/";
+		new File(xmlDir).mkdirs();
+		writeXml(scenario, xmlDir);
+
+		Scenario xmlScenario = ScenarioUtils.createScenario(config);
+		long start = System.nanoTime();
+		new MatsimNetworkReader(xmlScenario.getNetwork()).readFile(xmlDir + "network.xml");
+		new MatsimFacilitiesReader(xmlScenario).readFile(xmlDir + "facilities.xml");
+		new PopulationReader(xmlScenario).readFile(xmlDir + "plans.xml");
+		new TransitScheduleReader(xmlScenario).readFile(xmlDir + "transitSchedule.xml");
+		long xmlTime = System.nanoTime() - start;
+
+		String snapshotFile = this.utils.getOutputDirectory() + "scenarioSnapshot.bin";
+		ScenarioUtils.writeScenarioSnapshot(xmlScenario, snapshotFile);
+
+		Scenario snapshotScenario = ScenarioUtils.createScenario(config);
+		start = System.nanoTime();
+		new ScenarioSnapshotReader(snapshotScenario).readFile(snapshotFile);
+		long snapshotTime = System.nanoTime() - start;
+		log.info("loading the xml files took " + xmlTime / 1000000 + " ms, loading the snapshot took " + snapshotTime / 1000000 + " ms.");
+
+		String snapshotDir = this.utils.getOutputDirectory() + "snapshot/";
+		new File(snapshotDir).mkdirs();
+		writeXml(snapshotScenario, snapshotDir);
+		for (String file : new String[] { "network.xml", "facilities.xml", "plans.xml", "transitSchedule.xml" }) {
+			Assert.assertArrayEquals("different " + file, Files.readAllBytes(Paths.get(xmlDir + file)), Files.readAllBytes(Paths.get(snapshotDir + file)));
+		}
+	}
+
+	@Test
+	public void testLoadScenario_usesSnapshot() {
+		Config config = ConfigUtils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("pt-tutorial"), "0.config.xml"));
+		String snapshotFile = new File(this.utils.getOutputDirectory() + "scenarioSnapshot.bin").getAbsolutePath();
+		config.controler().setScenarioSnapshotFile(snapshotFile);
+
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		Assert.assertTrue("the snapshot should be written after loading the xml files", new File(snapshotFile).exists());
+
+		// the xml files are not read anymore once the snapshot exists, which is shown by a person only in the snapshot
+		List<ScenarioSnapshotFormat.InputFile> inputFiles = ScenarioSnapshotReader.readInputFiles(IOUtils.getFileUrl(snapshotFile));
+		Assert.assertFalse("the snapshot should record the xml files", inputFiles.isEmpty());
+		Person marker = scenario.getPopulation().getFactory().createPerson(Id.createPersonId("onlyInSnapshot"));
+		scenario.getPopulation().addPerson(marker);
+		ScenarioSnapshotWriter writer = new ScenarioSnapshotWriter(scenario);
+		writer.setInputFiles(inputFiles);
+		writer.write(snapshotFile);
+
+		Scenario snapshotScenario = ScenarioUtils.loadScenario(config);
+		Assert.assertEquals(scenario.getNetwork().getLinks().size(), snapshotScenario.getNetwork().getLinks().size());
+		Assert.assertEquals(scenario.getPopulation().getPersons().keySet(), snapshotScenario.getPopulation().getPersons().keySet());
+		Assert.assertEquals(scenario.getTransitSchedule().getTransitLines().keySet(), snapshotScenario.getTransitSchedule().getTransitLines().keySet());
+	}
+
+	@Test
+	public void testLoadScenario_reloadsChangedXml() {
+		Config config = ConfigUtils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("pt-tutorial"), "0.config.xml"));
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		String networkFile = new File(this.utils.getOutputDirectory() + "network.xml").getAbsolutePath();
+		new NetworkWriter(scenario.getNetwork()).write(networkFile);
+		config.network().setInputFile(networkFile);
+		String snapshotFile = new File(this.utils.getOutputDirectory() + "scenarioSnapshot.bin").getAbsolutePath();
+		config.controler().setScenarioSnapshotFile(snapshotFile);
+
+		ScenarioUtils.loadScenario(config);
+		List<ScenarioSnapshotFormat.InputFile> inputFiles = ScenarioSnapshotReader.readInputFiles(IOUtils.getFileUrl(snapshotFile));
+
+		Id<Node> nodeId = Id.createNodeId("addedAfterSnapshot");
+		scenario.getNetwork().addNode(scenario.getNetwork().getFactory().createNode(nodeId, new Coord(-1000, -1000)));
+		new NetworkWriter(scenario.getNetwork()).write(networkFile);
+
+		Scenario changedScenario = ScenarioUtils.loadScenario(config);
+		Assert.assertTrue("the changed network file should be loaded instead of the stale snapshot", changedScenario.getNetwork().getNodes().containsKey(nodeId));
+		Assert.assertNotEquals("the snapshot should be replaced", inputFiles, ScenarioSnapshotReader.readInputFiles(IOUtils.getFileUrl(snapshotFile)));
+
+		// the replaced snapshot is used again
+		Scenario snapshotScenario = ScenarioUtils.loadScenario(config);
+		Assert.assertTrue(snapshotScenario.getNetwork().getNodes().containsKey(nodeId));
+	}
+
+	private static void addFacilitiesAndAttributes(Scenario scenario) {
+		ActivityFacilities facilities = scenario.getActivityFacilities();
+		Link link = scenario.getNetwork().getLinks().values().iterator().next();
+		ActivityFacility facility = facilities.getFactory().createActivityFacility(Id.create("f1", ActivityFacility.class), new Coord(100, 200, 5), link.getId());
+		ActivityOption option = facilities.getFactory().createActivityOption("work");
+		option.setCapacity(50);
+		option.addOpeningTime(new OpeningTimeImpl(8 * 3600, 17 * 3600));
+		facility.addActivityOption(option);
+		facility.getAttributes().putAttribute("weights", new double[] { 1.5, 2.5 });
+		facilities.addActivityFacility(facility);
+
+		link.getAttributes().putAttribute("toll", 2.5);
+		link.getAttributes().putAttribute("lit", true);
+		Person person = scenario.getPopulation().getPersons().values().iterator().next();
+		person.getAttributes().putAttribute("age", 42);
+		person.getAttributes().putAttribute("income", 100000L);
+		person.getAttributes().putAttribute("name", "Ann");
+	}
+
+	private static void writeXml(Scenario scenario, String directory) {
+		new NetworkWriter(scenario.getNetwork()).write(directory + "network.xml");
+		new FacilitiesWriter(scenario.getActivityFacilities()).write(directory + "facilities.xml");
+		new PopulationWriter(scenario.getPopulation()).write(directory + "plans.xml");
+		new TransitScheduleWriter(scenario.getTransitSchedule()).writeFile(directory + "transitSchedule.xml");
+	}
+
+}
@@ -21,12 +21,17 @@
 
  package org.matsim.core.scoring;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
@@ -90,6 +95,156 @@ public class ScoringFunctionsForPopulationTest {
 		Assert.assertEquals("transit_walk", ((Leg) rs.lastTrip.getTripElements().get(4)).getMode());
 	}
 
+	/**
+	 * Legs and activities of many persons arrive from several threads, while further threads pass money events for the
+	 * same persons. The per-person locks must make the result identical to handling everything in one thread.
+	 */
+	@Test
+	public void testConcurrentScoring_sameAsSingleThreaded() throws InterruptedException {
+		final int nOfPersons = 3000; // more than there are lock stripes, so persons share locks
+		final int nOfThreads = 4;
+
+		ScoringFunctionsForPopulation singleThreaded = createSummingScoringFunctions(nOfPersons);
+		for (int t = 0; t < nOfThreads; t++) {
+			createLegsAndActivities(singleThreaded, nOfPersons, nOfThreads, t).run();
+			createMoneyEvents(singleThreaded, nOfPersons, t).run();
+		}
+
+		ScoringFunctionsForPopulation concurrent = createSummingScoringFunctions(nOfPersons);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < nOfThreads; t++) {
+			threads.add(new Thread(awaiting(start, createLegsAndActivities(concurrent, nOfPersons, nOfThreads, t))));
+			threads.add(new Thread(awaiting(start, createMoneyEvents(concurrent, nOfPersons, t))));
+		}
+		threads.forEach(Thread::start);
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		for (int i = 0; i < nOfPersons; i++) {
+			Id<Person> personId = Id.create(i, Person.class);
+			SummingScoringFunction expected = (SummingScoringFunction) singleThreaded.getScoringFunctionForAgent(personId);
+			SummingScoringFunction actual = (SummingScoringFunction) concurrent.getScoringFunctionForAgent(personId);
+			Assert.assertEquals("score of person " + i, expected.getScore(), actual.getScore(), 0.0);
+			Assert.assertEquals("events of person " + i, expected.eventCounter, actual.eventCounter);
+			Assert.assertEquals("trips of person " + i, expected.tripCounter, actual.tripCounter);
+			Assert.assertEquals("trip elements of person " + i, expected.tripElementsCounter, actual.tripElementsCounter);
+		}
+	}
+
+	private static final int N_OF_TRIPS = 20;
+
+	private static ScoringFunctionsForPopulation createSummingScoringFunctions(int nOfPersons) {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Population population = scenario.getPopulation();
+		for (int i = 0; i < nOfPersons; i++) {
+			population.addPerson(population.getFactory().createPerson(Id.create(i, Person.class)));
+		}
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		ScoringFunctionsForPopulation sf = new ScoringFunctionsForPopulation(controlerListenerManager, EventsUtils.createEventsManager(),
+				new EventsToActivities(), new EventsToLegs(scenario), population, agentId -> new SummingScoringFunction());
+		controlerListenerManager.fireControlerIterationStartsEvent(0);
+		return sf;
+	}
+
+	/**
+	 * The plan elements of each person come from one thread only, as their order matters for the trips.
+	 */
+	private static Runnable createLegsAndActivities(ScoringFunctionsForPopulation sf, int nOfPersons, int nOfThreads, int thread) {
+		PopulationFactory pf = ScenarioUtils.createScenario(ConfigUtils.createConfig()).getPopulation().getFactory();
+		return () -> {
+			for (int i = thread; i < nOfPersons; i += nOfThreads) {
+				sf.handleActivity(new PersonExperiencedActivity(Id.create(i, Person.class), pf.createActivityFromCoord("home", new Coord(0, 0))));
+			}
+			for (int trip = 0; trip < N_OF_TRIPS; trip++) {
+				for (int i = thread; i < nOfPersons; i += nOfThreads) {
+					Id<Person> personId = Id.create(i, Person.class);
+					sf.handleLeg(new PersonExperiencedLeg(personId, pf.createLeg("walk")));
+					sf.handleActivity(new PersonExperiencedActivity(personId, pf.createActivityFromCoord("pt_interaction", new Coord(0, 0))));
+					sf.handleLeg(new PersonExperiencedLeg(personId, pf.createLeg("pt")));
+					sf.handleActivity(new PersonExperiencedActivity(personId, pf.createActivityFromCoord(trip % 2 == 0 ? "work" : "home", new Coord(0, 0))));
+				}
+			}
+		};
+	}
+
+	/**
+	 * Every money thread pays every person, so the events of one person come from all threads.
+	 */
+	private static Runnable createMoneyEvents(ScoringFunctionsForPopulation sf, int nOfPersons, int thread) {
+		return () -> {
+			for (int round = 0; round < N_OF_TRIPS; round++) {
+				for (int i = 0; i < nOfPersons; i++) {
+					sf.handleEvent(new PersonMoneyEvent(round * 3600, Id.create(i, Person.class), thread + 1));
+				}
+			}
+		};
+	}
+
+	private static Runnable awaiting(CountDownLatch start, Runnable runnable) {
+		return () -> {
+			try {
+				start.await();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			runnable.run();
+		};
+	}
+
+	/**
+	 * Not thread-safe on purpose: lost updates show up as a different score. All values are integers, so the sum does
+	 * not depend on the order of the calls.
+	 */
+	private static class SummingScoringFunction implements ScoringFunction {
+
+		double score = 0;
+		int eventCounter = 0;
+		int tripCounter = 0;
+		int tripElementsCounter = 0;
+
+		@Override
+		public void handleActivity(Activity activity) {
+			this.score += 1;
+		}
+
+		@Override
+		public void handleLeg(Leg leg) {
+			this.score += 10;
+		}
+
+		@Override
+		public void handleTrip(TripStructureUtils.Trip trip) {
+			this.tripCounter++;
+			this.tripElementsCounter += trip.getTripElements().size();
+		}
+
+		@Override
+		public void agentStuck(double time) {
+		}
+
+		@Override
+		public void addMoney(double amount) {
+			this.score += amount;
+		}
+
+		@Override
+		public void finish() {
+		}
+
+		@Override
+		public double getScore() {
+			return this.score;
+		}
+
+		@Override
+		public void handleEvent(Event event) {
+			this.eventCounter++;
+		}
+	}
+
 	private static class RecordingScoringFunction implements ScoringFunction {
 
 		int tripCounter = 0;
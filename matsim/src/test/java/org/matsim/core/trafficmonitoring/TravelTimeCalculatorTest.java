@@ -24,6 +24,7 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Collections;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -571,4 +572,49 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 		Assert.assertEquals("Filtering analyzed transport modes is enabled, but no modes set. Therefore, use default (=car)", 100.0, 
 				ttc.getLinkTravelTimes().getLinkTravelTime(link2, 200, null, null), 1e-8);
 	}
+
+	public void testGetLinksWithChangedTravelTimes() {
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.create(1, Node.class), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.create(2, Node.class), new Coord(1000, 0));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.create(3, Node.class), new Coord(2000, 0));
+		Link link1 = NetworkUtils.createAndAddLink(network, Id.create(1, Link.class), n1, n2, 1000.0, 100.0, 3600.0, 1.0);
+		NetworkUtils.createAndAddLink(network, Id.create(2, Link.class), n2, n3, 1000.0, 100.0, 3600.0, 1.0);
+		Id<Vehicle> vehId = Id.create(1, Vehicle.class);
+
+		TravelTimeCalculator ttc = new TravelTimeCalculator(network, 900, 12 * 3600, new TravelTimeCalculatorConfigGroup());
+		assertTrue(ttc.getLinksWithChangedTravelTimes(0.1).isEmpty());
+
+		// first call compares against the free speed travel time, link2 is never used
+		ttc.handleEvent(new LinkEnterEvent(7 * 3600, vehId, link1.getId()));
+		ttc.handleEvent(new LinkLeaveEvent(7 * 3600 + 300, vehId, link1.getId()));
+		assertEquals(Collections.singleton(link1.getId()), ttc.getLinksWithChangedTravelTimes(0.1));
+		assertTrue(ttc.getLinksWithChangedTravelTimes(0.1).isEmpty());
+
+		// same travel times in the next iteration
+		ttc.reset(1);
+		ttc.handleEvent(new LinkEnterEvent(7 * 3600, vehId, link1.getId()));
+		ttc.handleEvent(new LinkLeaveEvent(7 * 3600 + 310, vehId, link1.getId()));
+		assertTrue(ttc.getLinksWithChangedTravelTimes(0.1).isEmpty());
+
+		// the travel time creeps up by less than the threshold per iteration, but by more than it in total
+		ttc.reset(2);
+		ttc.handleEvent(new LinkEnterEvent(7 * 3600, vehId, link1.getId()));
+		ttc.handleEvent(new LinkLeaveEvent(7 * 3600 + 325, vehId, link1.getId()));
+		assertTrue(ttc.getLinksWithChangedTravelTimes(0.1).isEmpty());
+		ttc.reset(3);
+		ttc.handleEvent(new LinkEnterEvent(7 * 3600, vehId, link1.getId()));
+		ttc.handleEvent(new LinkLeaveEvent(7 * 3600 + 345, vehId, link1.getId()));
+		assertEquals(Collections.singleton(link1.getId()), ttc.getLinksWithChangedTravelTimes(0.1));
+
+		// travel time doubles
+		ttc.reset(4);
+		ttc.handleEvent(new LinkEnterEvent(7 * 3600, vehId, link1.getId()));
+		ttc.handleEvent(new LinkLeaveEvent(7 * 3600 + 620, vehId, link1.getId()));
+		assertEquals(Collections.singleton(link1.getId()), ttc.getLinksWithChangedTravelTimes(0.1));
+
+		// no traffic at all, so back to free speed travel time
+		ttc.reset(5);
+		assertEquals(Collections.singleton(link1.getId()), ttc.getLinksWithChangedTravelTimes(0.1));
+	}
 }